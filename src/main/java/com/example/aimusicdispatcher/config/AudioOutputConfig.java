@@ -0,0 +1,45 @@
+package com.example.aimusicdispatcher.config;
+
+import com.example.aimusicdispatcher.player.AudioOutput;
+import com.example.aimusicdispatcher.player.FfplayAudioOutput;
+import com.example.aimusicdispatcher.player.FilePcmSink;
+import com.example.aimusicdispatcher.player.JavaSoundPcmSink;
+import com.example.aimusicdispatcher.player.PcmAudioOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import java.nio.file.Paths;
+
+/**
+ * 按 app.audio.output 选择音频输出后端
+ */
+@Configuration
+public class AudioOutputConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioOutputConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public AudioOutput audioOutput(AudioProperties audioProperties) {
+        AudioFormat format = new AudioFormat(audioProperties.getSampleRate(), 16,
+                Math.max(1, Math.min(2, audioProperties.getChannels())), true, false);
+        return switch (audioProperties.getOutput()) {
+            case FFPLAY -> new FfplayAudioOutput(audioProperties.getFfplayPath());
+            case PCM_FILE -> new PcmAudioOutput(
+                    new FilePcmSink(Paths.get(audioProperties.getPcmPath()), format, audioProperties.isPcmRealtime()),
+                    format, audioProperties.getBufferMillis());
+            case JAVASOUND -> {
+                try {
+                    yield new PcmAudioOutput(new JavaSoundPcmSink(format), format, audioProperties.getBufferMillis());
+                } catch (LineUnavailableException | IllegalArgumentException e) {
+                    // 无声卡（如 headless 服务器）时回退到 ffplay，保持原有行为
+                    log.warn("No audio line available for {} ({}), falling back to ffplay.", format, e.getMessage());
+                    yield new FfplayAudioOutput(audioProperties.getFfplayPath());
+                }
+            }
+        };
+    }
+}
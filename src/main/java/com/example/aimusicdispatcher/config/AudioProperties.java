@@ -0,0 +1,64 @@
+package com.example.aimusicdispatcher.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 音频输出配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.audio")
+public class AudioProperties {
+
+    /**
+     * 音频输出后端
+     */
+    private Output output = Output.JAVASOUND;
+
+    /**
+     * FFPLAY 后端（以及 JAVASOUND 无可用声卡时的回退）使用的 ffplay 可执行文件
+     */
+    private String ffplayPath = "/usr/local/bin/ffplay";
+
+    /**
+     * 进程内引擎的输出采样率（Hz），口播和歌曲都会重采样到这个采样率
+     */
+    private int sampleRate = 44100;
+
+    /**
+     * 进程内引擎的输出声道数（1 或 2）
+     */
+    private int channels = 2;
+
+    /**
+     * 进程内引擎的 PCM 环形缓冲区时长（毫秒）
+     */
+    private int bufferMillis = 2000;
+
+    /**
+     * PCM_FILE 后端的输出文件或命名管道路径
+     */
+    private String pcmPath = "audio.pcm";
+
+    /**
+     * PCM_FILE 后端是否按采样率实时限速写入（写入命名管道供推流时应开启）
+     */
+    private boolean pcmRealtime = true;
+
+    public enum Output {
+        /**
+         * 进程内解码，输出到本机声卡
+         */
+        JAVASOUND,
+        /**
+         * 进程内解码，输出原始 PCM（s16le）到文件或命名管道，用于无声卡的服务器
+         */
+        PCM_FILE,
+        /**
+         * 每个音频文件启动一次 ffplay 进程
+         */
+        FFPLAY
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.aimusicdispatcher.config;
+
+import com.example.aimusicdispatcher.model.dy.CastMethod;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 弹幕接入（/ws/dy）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ingest")
+public class IngestProperties {
+
+    /**
+     * 原始报文转储模式（仅用于调试）
+     * NONE: 不转储
+     * RAW: 原样输出报文
+     * PRETTY: 格式化后输出报文（需要额外解析一次，开销最大）
+     */
+    private PayloadDump payloadDump = PayloadDump.NONE;
+
+    /**
+     * 转储采样间隔：每 N 帧转储 1 帧，1 表示每帧都转储
+     */
+    private int dumpSampleRate = 100;
+
+    /**
+     * 是否启用 method 预过滤：解码前先读取 method 字段，跳过不处理的消息类型
+     */
+    private boolean methodFilterEnabled = true;
+
+    /**
+     * 需要完整解码并分发的消息类型，其余类型在预过滤阶段直接跳过
+     */
+    private Set<CastMethod> handledMethods = EnumSet.of(CastMethod.CHAT, CastMethod.GIFT, CastMethod.LIKE);
+
+    /**
+     * WebSocket 线程与分发线程之间的接入缓冲区配置
+     */
+    private Buffer buffer = new Buffer();
+
+    /**
+     * 按消息 ID 去重配置（上游重连后可能重发同一条消息）
+     */
+    private Dedupe dedupe = new Dedupe();
+
+    public enum PayloadDump {
+        NONE,
+        RAW,
+        PRETTY
+    }
+
+    /**
+     * 缓冲区满时的处理策略
+     * DROP_NEWEST: 丢弃新到的消息
+     * DROP_OLDEST: 丢弃最早的可丢弃消息，队首不可丢弃时退化为丢弃新消息
+     * BLOCK: 阻塞 WebSocket 线程直到有空位，从不丢弃
+     */
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST,
+        BLOCK
+    }
+
+    @Data
+    public static class Buffer {
+        /**
+         * 每个分发线程对应的环形缓冲区容量（向上取整为 2 的幂）
+         */
+        private int capacity = 8192;
+
+        /**
+         * 分发线程数，同一用户的消息总是落在同一个分发线程上以保证顺序
+         */
+        private int consumers = 2;
+
+        /**
+         * 未单独配置的消息类型使用的溢出策略
+         */
+        private OverflowPolicy defaultOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+        /**
+         * 按消息类型配置的溢出策略
+         */
+        private Map<CastMethod, OverflowPolicy> overflowPolicies = new EnumMap<>(Map.of(
+                CastMethod.LIKE, OverflowPolicy.DROP_OLDEST,
+                CastMethod.GIFT, OverflowPolicy.BLOCK,
+                CastMethod.CHAT, OverflowPolicy.BLOCK));
+    }
+
+    @Data
+    public static class Dedupe {
+        /**
+         * 是否启用消息 ID 去重
+         */
+        private boolean enabled = true;
+
+        /**
+         * 去重窗口（秒），同一 ID 至少在该时长内会被识别为重复，最长为两倍窗口
+         */
+        private int windowSeconds = 120;
+
+        /**
+         * 每个窗口预计的消息条数，用于计算布隆过滤器大小
+         */
+        private int expectedInsertions = 200000;
+
+        /**
+         * 允许的误判率（把新消息误判为重复的概率）
+         */
+        private double falsePositiveRate = 0.0001;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.aimusicdispatcher.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 口播缓存配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.intro")
+public class IntroProperties {
+
+    /**
+     * 口播近端缓存（intro_cache 的内存副本）最多保存的条目数
+     */
+    private long nearCacheMaxSize = 100000;
+
+    /**
+     * 数据库中也没有口播的歌曲，在近端缓存中记住"没有"的秒数，期间不再回源查询；写入口播时立即失效，0 关闭
+     */
+    private long negativeCacheSeconds = 30;
+
+    /**
+     * 是否提前刷新：命中的口播超过 refresh-after-days 天时，仍先使用旧口播，同时在后台重新生成
+     */
+    private boolean refreshAheadEnabled = false;
+
+    /**
+     * 口播多少天后视为过旧
+     */
+    private int refreshAfterDays = 30;
+}
@@ -0,0 +1,29 @@
+package com.example.aimusicdispatcher.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 歌名匹配配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.match")
+public class MatchProperties {
+
+    /**
+     * 精确匹配和归一化匹配都未命中时，是否启用模糊匹配
+     */
+    private boolean fuzzyEnabled = true;
+
+    /**
+     * 模糊匹配的最低置信度（0~1），置信度 = 1 - 编辑距离 / 较长歌名的长度
+     */
+    private double minConfidence = 0.6;
+
+    /**
+     * 参与编辑距离计算的候选歌曲数量上限
+     */
+    private int maxCandidates = 64;
+}
@@ -9,4 +9,43 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "music")
 public class MusicProperties {
     private String localPath;
+
+    /**
+     * 歌曲库同步时每批插入/删除的行数
+     */
+    private int syncBatchSize = 1000;
+
+    /**
+     * 歌曲库清单文件路径，用于启动时跳过未变化的目录；为空则不保存清单
+     */
+    private String manifestPath = "library.manifest";
+
+    /**
+     * 并行解析音频文件头（时长、码率等）的线程数，0 表示使用 CPU 核数
+     */
+    private int metadataParallelism = 0;
+
+    /**
+     * 目录监听（增量同步）配置
+     */
+    private Watch watch = new Watch();
+
+    @Data
+    public static class Watch {
+
+        /**
+         * 是否监听音乐目录，新增/删除/改名的歌曲无需重启即可生效
+         */
+        private boolean enabled = true;
+
+        /**
+         * 防抖时间（毫秒）：最后一个文件事件之后静默这么久才批量应用变更
+         */
+        private long debounceMillis = 2000;
+
+        /**
+         * 监听队列溢出或监听不可用时，全量重新扫描的间隔（分钟）
+         */
+        private int fullRescanMinutes = 10;
+    }
 }
@@ -28,4 +28,15 @@ public class PermissionProperties {
      * 送礼授予的权限时长（分钟）
      */
     private int giftMinutes = 20;
+
+    /**
+     * 点赞/送礼授权合并窗口（毫秒）
+     * 窗口内同一用户的首帧立即授权，其余帧累加后在窗口结束时一次性授权
+     */
+    private long coalesceWindowMillis = 1000;
+
+    /**
+     * 连击礼物的判定超时（秒），超时后同一礼物视为新的一次连击
+     */
+    private int giftComboTimeoutSeconds = 10;
 }
@@ -0,0 +1,87 @@
+package com.example.aimusicdispatcher.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 播放调度配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.playback")
+public class PlaybackProperties {
+
+    /**
+     * 歌曲轮到播放时，等待异步生成中的口播的最长时间（毫秒），超时则跳过口播直接播放歌曲
+     */
+    private long introWaitMillis = 3000;
+
+    /**
+     * 口播仍在合成时是否边合成边播放（跟读正在写入的文件送入音频输出），关闭时等合成结束后再播放文件
+     */
+    private boolean streamIntro = true;
+
+    /**
+     * 当前歌曲剩余多久（毫秒）时预取下一首：预热队首歌曲的文件并预先解码，歌曲留在队列中，0 表示不预取。
+     * 当前歌曲时长未知时不预取；应不小于 app.audio.buffer-millis，进程内引擎在歌曲全部进入缓冲区后就开始下一首
+     */
+    private long prefetchLeadMillis = 10000;
+
+    /**
+     * 每个用户最多同时排队的歌曲数，超出的点歌被拒绝，0 表示不限
+     */
+    private int maxQueuedPerUser = 3;
+
+    /**
+     * 同一档位内的出队顺序；重复点歌总会合并到已在排队的同一首歌
+     */
+    private QueueOrder queueOrder = QueueOrder.FAIR;
+
+    /**
+     * 点歌队列日志路径（实际写入 .0 / .1 两个交替压缩的文件），重启后恢复未播放完的点歌；为空则不记录
+     */
+    private String queueJournalPath = "play-queue.journal";
+
+    /**
+     * 点歌队列日志批量落盘的间隔（毫秒）：入队只写入内存映射区，由后台线程按此间隔统一 fsync
+     */
+    private long queueJournalFlushMillis = 50;
+
+    /**
+     * 冷场自动填充的选歌方式
+     */
+    private ColdFillMode coldFillMode = ColdFillMode.LEAST_RECENT;
+
+    /**
+     * WEIGHTED 模式下，最近播放过的若干首歌不会被再次选中
+     */
+    private int coldFillRecentExclusion = 20;
+
+    /**
+     * 播放次数和最近播放时间写回数据库的间隔（秒），应用关闭时也会写回一次
+     */
+    private int statsFlushSeconds = 30;
+
+    public enum QueueOrder {
+        /**
+         * 按用户轮转（送礼档按送礼价值加权），票数不影响顺序
+         */
+        FAIR,
+        /**
+         * 票数多的歌先播放，票数相同时按用户轮转
+         */
+        VOTES
+    }
+
+    public enum ColdFillMode {
+        /**
+         * 严格按最近播放时间轮转，总是选最久没播放的歌
+         */
+        LEAST_RECENT,
+        /**
+         * 按播放次数加权随机，播放次数越少越容易被选中
+         */
+        WEIGHTED
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.aimusicdispatcher.config;
+
+import com.example.aimusicdispatcher.generator.PooledTtsEngine;
+import com.example.aimusicdispatcher.generator.ProcessTtsEngine;
+import com.example.aimusicdispatcher.generator.StubTtsEngine;
+import com.example.aimusicdispatcher.generator.TtsEngine;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 按 tts.engine 选择 TTS 合成后端
+ */
+@Configuration
+public class TtsEngineConfig {
+
+    @Bean(destroyMethod = "close")
+    public TtsEngine ttsEngine(TtsProperties ttsProperties) throws IOException {
+        return switch (ttsProperties.getEngine()) {
+            case STUB -> new StubTtsEngine(0);
+            case PROCESS -> new ProcessTtsEngine(ttsProperties.getEdgeTtsPath(), ttsProperties.getTimeoutSeconds());
+            case POOLED -> {
+                TtsProperties.Pool pool = ttsProperties.getPool();
+                List<String> command = pool.getWorkerScript() == null || pool.getWorkerScript().isEmpty()
+                        ? PooledTtsEngine.bundledWorkerCommand(pool.getPython())
+                        : List.of(pool.getPython(), "-u", pool.getWorkerScript());
+                yield new PooledTtsEngine(command, pool.getSize(), ttsProperties.getTimeoutSeconds(), pool.getHealthCheckSeconds());
+            }
+        };
+    }
+}
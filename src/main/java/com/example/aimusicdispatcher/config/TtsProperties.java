@@ -14,4 +14,28 @@ public class TtsProperties {
     private String outputDir; // 输出目录
     private String audioFormat; // 音频格式（mp3、wav等）
     private Integer sampleRate; // 采样率
+    private Engine engine = Engine.POOLED; // TTS后端：POOLED=常驻进程池，PROCESS=每次启动edge-tts进程，STUB=本地桩（测试/压测用）
+    private String edgeTtsPath = "edge-tts"; // PROCESS 后端使用的 edge-tts 可执行文件路径
+    private int timeoutSeconds = 30; // 单次合成超时（秒），超时的进程会被强制结束
+    private Pool pool = new Pool(); // POOLED 后端配置
+    private Store store = new Store(); // 音频存储配置
+
+    public enum Engine {
+        POOLED,
+        PROCESS,
+        STUB
+    }
+
+    @Data
+    public static class Store {
+        private long maxSizeMb = 512; // 音频存储总大小上限（MB），超出后按最近访问时间淘汰未被 intro_cache 引用的文件
+    }
+
+    @Data
+    public static class Pool {
+        private int size = 2; // 常驻 worker 进程数
+        private String python = "python3"; // 启动 worker 的 Python 解释器（需已安装 edge-tts 库）
+        private String workerScript; // worker 脚本路径，留空则使用内置的 tts/tts_worker.py
+        private int healthCheckSeconds = 30; // 空闲 worker 健康检查间隔（秒），无响应或已退出的 worker 会被重启
+    }
 }
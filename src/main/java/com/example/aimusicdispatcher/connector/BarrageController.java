@@ -37,12 +37,20 @@ public class BarrageController {
     @GetMapping("/queue/list")
     public ResponseEntity<List<Map<String, Object>>> getQueueList() {
         List<Map<String, Object>> queueList = new ArrayList<>();
-        for (PlayTask task : playbackWorker.getPlayQueue()) {
+        // 预计开始时间 = 当前歌曲剩余时长 + 前面各首的时长；遇到时长未知的歌曲后不再给出
+        long etaMillis = playbackWorker.getCurrentRemainingMillis();
+        for (PlayTask task : playbackWorker.getUpcomingTasks()) {
             Map<String, Object> taskInfo = new HashMap<>();
             taskInfo.put("songName", task.getSongName());
             taskInfo.put("requester", task.getRequester());
-            taskInfo.put("hasIntro", task.getIntroAudioPath() != null);
+            taskInfo.put("tier", task.getTier());
+            taskInfo.put("votes", task.getVotes().sum());
+            taskInfo.put("requesters", task.getRequesters());
+            taskInfo.put("hasIntro", task.isIntroReady());
+            taskInfo.put("durationMillis", task.getDurationMillis());
+            taskInfo.put("etaMillis", etaMillis >= 0 ? etaMillis : null);
             queueList.add(taskInfo);
+            etaMillis = etaMillis >= 0 && task.getDurationMillis() != null ? etaMillis + task.getDurationMillis() : -1;
         }
         return ResponseEntity.ok(queueList);
     }
@@ -0,0 +1,181 @@
+package com.example.aimusicdispatcher.connector;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import com.example.aimusicdispatcher.model.dy.CastMethod;
+import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * /ws/dy 报文流式解码器
+ * 基于 Jackson JsonParser 单次扫描报文，直接将单个对象或对象数组解码为 DyMessage，
+ * 不再构建中间 JsonNode 树。
+ * 启用 method 预过滤时，先读取每条消息的 method 字段，不处理的类型直接跳过剩余字段，
+ * 不会构建 rtfContent、rank 等对象图。
+ */
+@Component
+public class DyMessageDecoder {
+
+    private static final String METHOD_FIELD = "method";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader messageReader;
+    private final boolean methodFilterEnabled;
+    private final EnumSet<CastMethod> handledMethods = EnumSet.noneOf(CastMethod.class);
+
+    private final Map<CastMethod, LongAdder> processedCounters = new EnumMap<>(CastMethod.class);
+    private final Map<CastMethod, LongAdder> skippedCounters = new EnumMap<>(CastMethod.class);
+    private final LongAdder unknownMethod = new LongAdder();
+
+    public DyMessageDecoder(ObjectMapper objectMapper, IngestProperties ingestProperties) {
+        this.objectMapper = objectMapper;
+        this.messageReader = objectMapper.readerFor(DyMessage.class);
+        this.methodFilterEnabled = ingestProperties.isMethodFilterEnabled();
+        if (ingestProperties.getHandledMethods() != null) {
+            this.handledMethods.addAll(ingestProperties.getHandledMethods());
+        }
+        for (CastMethod method : CastMethod.values()) {
+            processedCounters.put(method, new LongAdder());
+            skippedCounters.put(method, new LongAdder());
+        }
+    }
+
+    /**
+     * 解码一帧报文，每解出一条（未被预过滤跳过的）消息即回调 sink。
+     * 报文中途出错时，已解出的消息仍会被回调。
+     *
+     * @param payload 报文文本（单个 DyMessage 对象或 DyMessage 数组）
+     * @param sink    消息回调
+     * @return 回调给 sink 的消息条数
+     * @throws IOException 报文不是合法的 JSON 或结构不符
+     */
+    public int decode(String payload, Consumer<DyMessage> sink) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(payload)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return 0;
+            }
+            if (token == JsonToken.START_OBJECT) {
+                return readMessage(parser, sink);
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected DyMessage object or array, got " + token);
+            }
+
+            int count = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected DyMessage object in array, got " + token);
+                }
+                count += readMessage(parser, sink);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 读取 parser 当前所在（START_OBJECT）的消息。
+     * 读到 method 字段之前的字段暂存在 TokenBuffer 中（上游通常只有 id 在 method 之前），
+     * 判定需要处理后，把暂存部分与剩余报文拼接为一个解析流交给 ObjectReader 完成绑定。
+     */
+    private int readMessage(JsonParser parser, Consumer<DyMessage> sink) throws IOException {
+        if (!methodFilterEnabled) {
+            DyMessage message = messageReader.readValue(parser);
+            countProcessed(message.getMethod());
+            sink.accept(message);
+            return 1;
+        }
+
+        TokenBuffer prefix = new TokenBuffer(parser);
+        prefix.writeStartObject();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            if (!METHOD_FIELD.equals(parser.currentName())) {
+                prefix.copyCurrentStructure(parser);
+                continue;
+            }
+
+            parser.nextToken();
+            CastMethod method = CastMethod.fromValue(parser.getValueAsString());
+            if (method == null || !handledMethods.contains(method)) {
+                countSkipped(method);
+                skipRemainingFields(parser);
+                return 0;
+            }
+
+            prefix.writeFieldName(METHOD_FIELD);
+            prefix.copyCurrentEvent(parser);
+            JsonParser replay = JsonParserSequence.createFlattened(false, prefix.asParser(parser), parser);
+            replay.nextToken();
+            DyMessage message = messageReader.readValue(replay);
+            processedCounters.get(method).increment();
+            sink.accept(message);
+            return 1;
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Unexpected end of DyMessage object");
+        }
+        // 没有 method 字段的消息，分发器同样会忽略
+        unknownMethod.increment();
+        return 0;
+    }
+
+    private void skipRemainingFields(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Unexpected end of DyMessage object");
+        }
+    }
+
+    private void countProcessed(CastMethod method) {
+        if (method == null) {
+            unknownMethod.increment();
+        } else {
+            processedCounters.get(method).increment();
+        }
+    }
+
+    private void countSkipped(CastMethod method) {
+        if (method == null) {
+            unknownMethod.increment();
+        } else {
+            skippedCounters.get(method).increment();
+        }
+    }
+
+    /**
+     * 按消息类型统计的已处理/已跳过帧数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> processed = new LinkedHashMap<>();
+        Map<String, Long> skipped = new LinkedHashMap<>();
+        for (CastMethod method : CastMethod.values()) {
+            processed.put(method.name(), processedCounters.get(method).sum());
+            skipped.put(method.name(), skippedCounters.get(method).sum());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("methodFilterEnabled", methodFilterEnabled);
+        stats.put("processed", processed);
+        stats.put("skipped", skipped);
+        stats.put("unknownMethod", unknownMethod.sum());
+        return stats;
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.aimusicdispatcher.connector;
 
+import com.example.aimusicdispatcher.config.IngestProperties;
 import com.example.aimusicdispatcher.model.dy.DyMessage;
-import com.example.aimusicdispatcher.dispatcher.MessageDispatcher;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.aimusicdispatcher.dispatcher.IngestBuffer;
+import com.example.aimusicdispatcher.dispatcher.MessageDeduplicator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -12,19 +12,27 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
 public class DyWebSocketHandler extends TextWebSocketHandler {
 
     private final ObjectMapper objectMapper;
-    private final MessageDispatcher messageDispatcher;
+    private final DyMessageDecoder dyMessageDecoder;
+    private final MessageDeduplicator messageDeduplicator;
+    private final IngestBuffer ingestBuffer;
+    private final IngestProperties ingestProperties;
+    private final AtomicLong frameCounter = new AtomicLong();
 
-    public DyWebSocketHandler(ObjectMapper objectMapper, MessageDispatcher messageDispatcher) {
+    public DyWebSocketHandler(ObjectMapper objectMapper, DyMessageDecoder dyMessageDecoder,
+                              MessageDeduplicator messageDeduplicator, IngestBuffer ingestBuffer,
+                              IngestProperties ingestProperties) {
         this.objectMapper = objectMapper;
-        this.messageDispatcher = messageDispatcher;
+        this.dyMessageDecoder = dyMessageDecoder;
+        this.messageDeduplicator = messageDeduplicator;
+        this.ingestBuffer = ingestBuffer;
+        this.ingestProperties = ingestProperties;
     }
 
     @Override
@@ -35,55 +43,56 @@ public class DyWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
-        log.info("=== Received WebSocket message ===");
-        log.info("Raw payload: {}", payload);
-        
-        try {
-            String prettyPayload = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(payload));
-            log.info("Formatted payload:\n{}", prettyPayload);
-        } catch (Exception e) {
-            // If formatting fails, just log the raw payload
-        }
+        dumpPayloadIfSampled(payload);
 
         try {
-            JsonNode jsonNode = objectMapper.readTree(payload);
-            if (jsonNode.isArray()) {
-                List<DyMessage> messages = objectMapper.convertValue(jsonNode, new TypeReference<List<DyMessage>>() {});
-                for (DyMessage dyMessage : messages) {
-                    log.info("Parsed DyMessage in handleTextMessage: method={}, userId={}, content={}", 
-                            dyMessage.getMethod(), 
-                            dyMessage.getUser() != null ? dyMessage.getUser().getId() : "unknown",
-                            dyMessage.getContent());
-                    processMessage(dyMessage, session);
-                }
-            } else {
-                DyMessage dyMessage = objectMapper.treeToValue(jsonNode, DyMessage.class);
-                log.info("Parsed DyMessage in handleTextMessage: method={}, userId={}, content={}", 
-                            dyMessage.getMethod(), 
-                            dyMessage.getUser() != null ? dyMessage.getUser().getId() : "unknown",
-                            dyMessage.getContent());
-                processMessage(dyMessage, session);
-            }
+            int count = dyMessageDecoder.decode(payload, this::processMessage);
+            log.debug("Decoded {} DyMessage(s) from frame on session {}", count, session.getId());
         } catch (Exception e) {
             log.error("Error parsing WebSocket message", e);
             session.sendMessage(new TextMessage("Error: Invalid JSON format"));
         }
     }
 
-    private void processMessage(DyMessage dyMessage, WebSocketSession session) {
-        log.info("=== Processing DyMessage ===");
-        try {
-            String dyMessageJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(dyMessage);
-            log.info("DyMessage object:\n{}", dyMessageJson);
-        } catch (Exception e) {
-            log.error("Error serializing DyMessage", e);
-        }
-        
-        log.info("Processing DyMessage: id={}, method={}, user={}", 
+    private void processMessage(DyMessage dyMessage) {
+        log.debug("Processing DyMessage: id={}, method={}, user={}",
                 dyMessage.getId(), dyMessage.getMethod(), dyMessage.getUser() != null ? dyMessage.getUser().getName() : "unknown");
 
-        // 将消息分发给 MessageDispatcher 处理
-        messageDispatcher.dispatch(dyMessage);
+        // 上游重连后可能重发同一条消息，按 ID 去重
+        if (messageDeduplicator.isDuplicate(dyMessage.getId())) {
+            log.debug("Duplicate DyMessage ignored: id={}, method={}", dyMessage.getId(), dyMessage.getMethod());
+            return;
+        }
+
+        // 放入接入缓冲区，由分发线程交给 MessageDispatcher 处理，WebSocket 线程不再被点歌流程阻塞
+        if (!ingestBuffer.publish(dyMessage)) {
+            log.debug("Ingest buffer full, dropped DyMessage: id={}, method={}", dyMessage.getId(), dyMessage.getMethod());
+        }
+    }
+
+    /**
+     * 按采样间隔转储原始报文，仅在显式开启 app.ingest.payload-dump 时生效。
+     */
+    private void dumpPayloadIfSampled(String payload) {
+        IngestProperties.PayloadDump mode = ingestProperties.getPayloadDump();
+        if (mode == null || mode == IngestProperties.PayloadDump.NONE) {
+            return;
+        }
+        int sampleRate = Math.max(1, ingestProperties.getDumpSampleRate());
+        if (frameCounter.getAndIncrement() % sampleRate != 0) {
+            return;
+        }
+
+        if (mode == IngestProperties.PayloadDump.PRETTY) {
+            try {
+                String prettyPayload = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(payload));
+                log.info("Formatted payload:\n{}", prettyPayload);
+                return;
+            } catch (Exception e) {
+                // If formatting fails, fall back to the raw payload
+            }
+        }
+        log.info("Raw payload: {}", payload);
     }
 
     @Override
@@ -0,0 +1,94 @@
+package com.example.aimusicdispatcher.connector;
+
+import com.example.aimusicdispatcher.dispatcher.GrantCoalescer;
+import com.example.aimusicdispatcher.dispatcher.IngestBuffer;
+import com.example.aimusicdispatcher.dispatcher.MessageDeduplicator;
+import com.example.aimusicdispatcher.generator.TtsService;
+import com.example.aimusicdispatcher.player.AudioOutput;
+import com.example.aimusicdispatcher.scheduler.PlaybackWorker;
+import com.example.aimusicdispatcher.service.AudioMetadataIndexer;
+import com.example.aimusicdispatcher.service.IntroCacheStore;
+import com.example.aimusicdispatcher.service.IntroService;
+import com.example.aimusicdispatcher.service.LibraryWatcher;
+import com.example.aimusicdispatcher.service.PlayStatsRecorder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final DyMessageDecoder dyMessageDecoder;
+    private final MessageDeduplicator messageDeduplicator;
+    private final IngestBuffer ingestBuffer;
+    private final GrantCoalescer grantCoalescer;
+    private final IntroService introService;
+    private final PlayStatsRecorder playStatsRecorder;
+    private final LibraryWatcher libraryWatcher;
+    private final AudioMetadataIndexer audioMetadataIndexer;
+    private final IntroCacheStore introCacheStore;
+    private final TtsService ttsService;
+    private final AudioOutput audioOutput;
+    private final PlaybackWorker playbackWorker;
+
+    public MetricsController(DyMessageDecoder dyMessageDecoder, MessageDeduplicator messageDeduplicator,
+                             IngestBuffer ingestBuffer, GrantCoalescer grantCoalescer, IntroService introService,
+                             PlayStatsRecorder playStatsRecorder, LibraryWatcher libraryWatcher,
+                             AudioMetadataIndexer audioMetadataIndexer, IntroCacheStore introCacheStore,
+                             TtsService ttsService, AudioOutput audioOutput, PlaybackWorker playbackWorker) {
+        this.dyMessageDecoder = dyMessageDecoder;
+        this.messageDeduplicator = messageDeduplicator;
+        this.ingestBuffer = ingestBuffer;
+        this.grantCoalescer = grantCoalescer;
+        this.introService = introService;
+        this.playStatsRecorder = playStatsRecorder;
+        this.libraryWatcher = libraryWatcher;
+        this.audioMetadataIndexer = audioMetadataIndexer;
+        this.introCacheStore = introCacheStore;
+        this.ttsService = ttsService;
+        this.audioOutput = audioOutput;
+        this.playbackWorker = playbackWorker;
+    }
+
+    @GetMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> getIngestMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("decoder", dyMessageDecoder.getStats());
+        metrics.put("dedupe", messageDeduplicator.getStats());
+        metrics.put("buffer", ingestBuffer.getStats());
+        metrics.put("grantCoalescer", grantCoalescer.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/intro")
+    public ResponseEntity<Map<String, Object>> getIntroMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(introService.getStats());
+        metrics.put("nearCache", introCacheStore.getStats());
+        metrics.put("ttsEngine", ttsService.getEngineStats());
+        metrics.put("audioStore", ttsService.getStoreStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/playback")
+    public ResponseEntity<Map<String, Object>> getPlaybackMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("playStats", playStatsRecorder.getStats());
+        metrics.put("audioOutput", audioOutput.getStats());
+        metrics.put("queue", playbackWorker.getPlayQueue().getStats());
+        metrics.put("queueJournal", playbackWorker.getQueueJournalStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/library")
+    public ResponseEntity<Map<String, Object>> getLibraryMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("watcher", libraryWatcher.getStats());
+        metrics.put("metadata", audioMetadataIndexer.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -6,27 +6,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class BarrageFilterService {
 
     private static final Logger log = LoggerFactory.getLogger(BarrageFilterService.class);
 
-    // 正则表达式用于匹配点歌指令
-    // (?i) 忽略大小写
-    // ^.*? 匹配开头任意字符（非贪婪）
-    // (点歌|来首|播放|我想听|play|music) 匹配点歌关键词
-    // \s*[:：]*\s* 匹配冒号和空格
-    // (?:一首|个)? 可选的“一首”或“个”
-    // .*?(.*?).*$ 匹配歌名（非贪婪）
-    private static final Pattern SONG_REQUEST_PATTERN = Pattern.compile(
-            "(?i)(?:(?:点歌|来首|播放|我想听|play|music|歌曲|唱|点|来)\s*[:：\\-_—,，]*\\s*)?(.*?)(?:\\s*[-—].*)?$"
-    );
+    // 点歌关键词，由 Aho-Corasick 自动机一次扫描识别（英文不区分大小写）
+    // 与原先的正则一致，只认行首的关键词，行中的关键词属于歌名
+    private static final CommandKeywordMatcher COMMAND_KEYWORDS = new CommandKeywordMatcher(
+            "点歌", "来首", "播放", "我想听", "play", "music", "歌曲", "唱", "点", "来");
 
     /**
      * 过滤弹幕，识别点歌指令并提取歌曲名称。
+     * 整个过程是对弹幕内容的线性扫描：书名号优先，其次是关键词之后、第一个破折号之前的部分，
+     * 最后清洗掉特殊符号，只保留中文、英文、数字、空格、破折号和单引号。
      *
      * @param barrageRequest 弹幕请求对象
      * @return 如果是有效的点歌指令，返回歌曲名称的Optional；否则返回Optional.empty()。
@@ -37,17 +31,66 @@ public class BarrageFilterService {
         }
 
         String content = barrageRequest.getContent().trim();
-        Matcher matcher = SONG_REQUEST_PATTERN.matcher(content);
-
-        if (matcher.matches()) {
-            String songName = matcher.group(1).trim();
-            // 清洗歌名，去除特殊符号，只保留中文、英文、数字、空格、破折号和单引号
-            songName = songName.replaceAll("[^\\p{L}\\p{N}\\s-'《》]", "").trim();
-            if (!songName.isEmpty()) {
-                log.info("Detected song request from user '{}' for song: '{}'", barrageRequest.getUser(), songName);
-                return Optional.of(songName);
-            }
+        String songName = clean(sliceSongName(content));
+        if (!songName.isEmpty()) {
+            log.info("Detected song request from user '{}' for song: '{}'", barrageRequest.getUser(), songName);
+            return Optional.of(songName);
         }
         return Optional.empty();
     }
+
+    /**
+     * 从弹幕中切出歌名所在的片段（未清洗）
+     */
+    private static String sliceSongName(String content) {
+        // 弹幕中带书名号时，直接取书名号内的内容作为歌名，如 "来首《奢香夫人》吧"
+        int open = content.indexOf('《');
+        if (open >= 0) {
+            int close = content.indexOf('》', open + 1);
+            if (close > open + 1) {
+                return content.substring(open + 1, close);
+            }
+        }
+
+        // 行首关键词之后跳过空白与分隔符；没有关键词时整行都是歌名
+        int from = 0;
+        CommandKeywordMatcher.Hit hit = COMMAND_KEYWORDS.find(content);
+        if (hit != null) {
+            from = hit.end();
+            while (from < content.length() && isSeparator(content.charAt(from))) {
+                from++;
+            }
+        }
+        // 第一个破折号之后的内容（如 "稻香 - 周杰伦" 中的歌手）不属于歌名
+        int to = from;
+        while (to < content.length() && content.charAt(to) != '-' && content.charAt(to) != '—') {
+            to++;
+        }
+        return content.substring(from, to);
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == ':' || c == '：' || c == '-' || c == '_' || c == '—' || c == ',' || c == '，';
+    }
+
+    /**
+     * 清洗歌名，去除特殊符号（包括书名号），只保留文字、数字、空白、破折号和单引号
+     */
+    private static String clean(String raw) {
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); ) {
+            int codePoint = raw.codePointAt(i);
+            if (Character.isLetter(codePoint) || isNumber(codePoint) || Character.isWhitespace(codePoint)
+                    || codePoint == '-' || codePoint == '\'') {
+                sb.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return sb.toString().trim();
+    }
+
+    private static boolean isNumber(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
 }
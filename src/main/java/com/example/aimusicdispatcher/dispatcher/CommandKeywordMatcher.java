@@ -0,0 +1,173 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * 点歌指令关键词自动机（Aho-Corasick）
+ * 只扫描一行弹幕开头不超过最长关键词长度的部分，找出行首最长的点歌关键词，不存在正则回溯。
+ * 与原先的正则一致，关键词只在行首算数：行中出现的关键词（如 "我的歌曲"、"Don't Stop the Music"）属于歌名。
+ * 英文关键词不区分大小写。
+ */
+final class CommandKeywordMatcher {
+
+    private static final int NO_STATE = -1;
+
+    private final String[] keywords;
+    private final int maxKeywordLength;
+    /** 转移表：开放寻址，键为 (state << 16 | char) */
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+    private final int[] failure;
+    /** 每个状态可输出的关键词下标（已沿失败链合并） */
+    private final int[][] outputs;
+
+    CommandKeywordMatcher(String... keywords) {
+        this.keywords = keywords.clone();
+
+        List<long[]> edges = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        stateOutputs.add(new ArrayList<>());
+        // 先用朴素的线性表建 trie，节点数很少
+        for (int k = 0; k < this.keywords.length; k++) {
+            String keyword = this.keywords[k].toLowerCase();
+            this.keywords[k] = keyword;
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int next = findEdge(edges, state, keyword.charAt(i));
+                if (next == NO_STATE) {
+                    next = stateOutputs.size();
+                    stateOutputs.add(new ArrayList<>());
+                    edges.add(new long[]{key(state, keyword.charAt(i)), next});
+                }
+                state = next;
+            }
+            stateOutputs.get(state).add(k);
+        }
+        this.maxKeywordLength = Arrays.stream(this.keywords).mapToInt(String::length).max().orElse(0);
+
+        int capacity = Integer.highestOneBit(Math.max(2, edges.size() * 2) - 1) << 1;
+        this.transitionMask = capacity - 1;
+        this.transitionKeys = new long[capacity];
+        this.transitionTargets = new int[capacity];
+        Arrays.fill(transitionKeys, -1L);
+        for (long[] edge : edges) {
+            int slot = slot(edge[0]);
+            while (transitionKeys[slot] != -1L) {
+                slot = (slot + 1) & transitionMask;
+            }
+            transitionKeys[slot] = edge[0];
+            transitionTargets[slot] = (int) edge[1];
+        }
+
+        // BFS 计算失败链，并把失败链上的输出合并到当前状态
+        int stateCount = stateOutputs.size();
+        this.failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (long[] edge : edges) {
+            if ((int) (edge[0] >>> 16) == 0) {
+                failure[(int) edge[1]] = 0;
+                queue.add((int) edge[1]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (long[] edge : edges) {
+                if ((int) (edge[0] >>> 16) != state) {
+                    continue;
+                }
+                char c = (char) (edge[0] & 0xFFFF);
+                int child = (int) edge[1];
+                int fallback = failure[state];
+                while (fallback != 0 && transition(fallback, c) == NO_STATE) {
+                    fallback = failure[fallback];
+                }
+                int target = transition(fallback, c);
+                failure[child] = target != NO_STATE && target != child ? target : 0;
+                stateOutputs.get(child).addAll(stateOutputs.get(failure[child]));
+                queue.add(child);
+            }
+        }
+        this.outputs = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            outputs[s] = stateOutputs.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 查找行首的点歌关键词
+     *
+     * @param line 已去掉首尾空白的弹幕内容
+     * @return 关键词命中结果，行首没有关键词时返回 null
+     */
+    Hit find(CharSequence line) {
+        int bestKeyword = -1;
+        int state = 0;
+        int limit = Math.min(line.length(), maxKeywordLength);
+        for (int i = 0; i < limit; i++) {
+            char c = toLowerAscii(line.charAt(i));
+            int next;
+            while ((next = transition(state, c)) == NO_STATE && state != 0) {
+                state = failure[state];
+            }
+            state = next == NO_STATE ? 0 : next;
+            for (int k : outputs[state]) {
+                // 只要从行首开始的关键词；越往后命中的越长
+                if (keywords[k].length() == i + 1) {
+                    bestKeyword = k;
+                }
+            }
+        }
+        return bestKeyword < 0 ? null : new Hit(keywords[bestKeyword], 0, keywords[bestKeyword].length());
+    }
+
+    private int transition(int state, char c) {
+        long key = key(state, c);
+        int slot = slot(key);
+        long existing;
+        while ((existing = transitionKeys[slot]) != -1L) {
+            if (existing == key) {
+                return transitionTargets[slot];
+            }
+            slot = (slot + 1) & transitionMask;
+        }
+        return NO_STATE;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & transitionMask;
+    }
+
+    private static int findEdge(List<long[]> edges, int state, char c) {
+        long key = key(state, c);
+        for (long[] edge : edges) {
+            if (edge[0] == key) {
+                return (int) edge[1];
+            }
+        }
+        return NO_STATE;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * 关键词命中结果
+     *
+     * @param keyword 命中的关键词（小写）
+     * @param start   关键词在行内的起始下标
+     * @param end     关键词之后第一个字符的下标
+     */
+    record Hit(String keyword, int start, int end) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.config.PermissionProperties;
+import com.example.aimusicdispatcher.model.dy.CastGift;
+import com.example.aimusicdispatcher.service.PermissionService;
+import com.example.aimusicdispatcher.util.AnsiColors;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 点赞/送礼授权合并器
+ * 同一用户在合并窗口内的点赞和连击礼物帧合并为一次 PermissionService.grant 调用：
+ * 窗口内首帧立即授权（保证用户点赞后马上点歌不会被拦截），其余帧的时长累加，在窗口结束时一次性授权。
+ * 连击礼物按 repeatEnd 识别，一次连击只计一次时长，价值按连击结束时的累计数量计算。
+ */
+@Component
+public class GrantCoalescer {
+
+    private static final Logger logger = LogManager.getLogger(GrantCoalescer.class);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final PermissionService permissionService;
+    private final PermissionProperties permissionProperties;
+    private final ConcurrentHashMap<String, PendingGrant> pendingGrants = new ConcurrentHashMap<>();
+    // key: userId + ":" + giftId，value: 进行中的礼物连击
+    private final Cache<String, Combo> giftCombos;
+
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder comboFramesFolded = new LongAdder();
+    private final LongAdder grantsApplied = new LongAdder();
+    private ScheduledExecutorService flushScheduler;
+
+    public GrantCoalescer(PermissionService permissionService, PermissionProperties permissionProperties) {
+        this.permissionService = permissionService;
+        this.permissionProperties = permissionProperties;
+        this.giftCombos = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(Math.max(1, permissionProperties.getGiftComboTimeoutSeconds()), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        long window = Math.max(1, permissionProperties.getCoalesceWindowMillis());
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GrantCoalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        flush();
+    }
+
+    /**
+     * 记录一帧点赞
+     */
+    public void addLike(String userId, String userName) {
+        add(userId, userName, permissionProperties.getLikeMinutes());
+    }
+
+    /**
+     * 记录一帧送礼，同一次连击的后续帧不重复计时；礼物价值立即计入用户的点歌优先级，
+     * 连击帧携带的是累计数量，每帧只补记比已计数量多出的部分，整次连击按结束帧（最大）数量计值
+     */
+    public void addGift(String userId, String userName, CastGift gift) {
+        long count = giftCount(gift);
+        long counted = foldCombo(userId, gift, count);
+        if (count > counted) {
+            permissionService.recordGift(userId, giftValue(gift, count - Math.max(0, counted)));
+        }
+        if (counted >= 0) {
+            framesReceived.increment();
+            comboFramesFolded.increment();
+            return;
+        }
+        add(userId, userName, permissionProperties.getGiftMinutes());
+    }
+
+    /**
+     * 礼物价值 = 单价 × 数量
+     */
+    static long giftValue(CastGift gift) {
+        return giftValue(gift, giftCount(gift));
+    }
+
+    private static long giftValue(CastGift gift, long count) {
+        if (gift == null || gift.getPrice() == null) {
+            return 0;
+        }
+        return (long) gift.getPrice() * count;
+    }
+
+    private static long giftCount(CastGift gift) {
+        if (gift != null && gift.getCount() != null) {
+            try {
+                return Math.max(1, Long.parseLong(gift.getCount().trim()));
+            } catch (NumberFormatException e) {
+                // 数量格式未知时按 1 个计
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * 把礼物帧并入进行中的连击
+     * repeatEnd=0：连击进行中，连击内只有第一帧算作新的送礼
+     * repeatEnd=1：结束一个进行中的连击；没有进行中的连击时是一次单独的送礼（同一礼物连续单送每次都计数）
+     *
+     * @return 该连击此前已计值的数量；是一次新的送礼时返回 -1
+     */
+    private long foldCombo(String userId, CastGift gift, long count) {
+        if (gift == null || gift.getId() == null || gift.getRepeatEnd() == null) {
+            return -1;
+        }
+        String key = userId + ":" + gift.getId();
+        if (gift.getRepeatEnd() == 0) {
+            long[] counted = {-1};
+            giftCombos.asMap().compute(key, (k, combo) -> {
+                if (combo == null) {
+                    return new Combo(count);
+                }
+                counted[0] = combo.count;
+                combo.count = Math.max(combo.count, count);
+                return combo;
+            });
+            return counted[0];
+        }
+        Combo combo = giftCombos.asMap().remove(key);
+        return combo != null ? combo.count : -1;
+    }
+
+    private void add(String userId, String userName, int minutes) {
+        framesReceived.increment();
+        boolean[] leading = {false};
+        pendingGrants.compute(userId, (key, pending) -> {
+            if (pending == null) {
+                leading[0] = true;
+                return new PendingGrant(userName);
+            }
+            pending.minutes += minutes;
+            pending.frames++;
+            return pending;
+        });
+        if (leading[0]) {
+            applyGrant(userId, userName, minutes, 1);
+        }
+    }
+
+    /**
+     * 将窗口内累加的授权时长一次性应用，空闲了一个窗口的用户从表中移除
+     */
+    void flush() {
+        for (String userId : pendingGrants.keySet()) {
+            PendingGrant[] taken = {null};
+            pendingGrants.computeIfPresent(userId, (key, pending) -> {
+                if (pending.minutes == 0) {
+                    return null;
+                }
+                taken[0] = new PendingGrant(pending.userName);
+                taken[0].minutes = pending.minutes;
+                taken[0].frames = pending.frames;
+                pending.minutes = 0;
+                pending.frames = 0;
+                return pending;
+            });
+            if (taken[0] != null) {
+                applyGrant(userId, taken[0].userName, taken[0].minutes, taken[0].frames);
+            }
+        }
+    }
+
+    private void applyGrant(String userId, String userName, int minutes, int frames) {
+        try {
+            permissionService.grant(userId, minutes);
+        } catch (Exception e) {
+            logger.error("Failed to grant permission to user {}: {}", userId, e.getMessage(), e);
+            return;
+        }
+        grantsApplied.increment();
+        if (logger.isInfoEnabled()) {
+            logger.info(String.format("%s User: %s (ID: %s) granted %d mins (%d frame(s)) at %s",
+                    AnsiColors.highlightPrivilegeTag(),
+                    userName,
+                    userId,
+                    minutes,
+                    frames,
+                    LocalDateTime.now().format(TIME_FORMATTER)));
+        }
+    }
+
+    /**
+     * 合并效果统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("framesReceived", framesReceived.sum());
+        stats.put("comboFramesFolded", comboFramesFolded.sum());
+        stats.put("grantsApplied", grantsApplied.sum());
+        stats.put("pendingUsers", pendingGrants.size());
+        return stats;
+    }
+
+    /**
+     * 进行中的连击，count 为已计入送礼价值的数量，在 giftCombos 的 compute 内修改
+     */
+    private static final class Combo {
+        private long count;
+
+        private Combo(long count) {
+            this.count = count;
+        }
+    }
+
+    private static final class PendingGrant {
+        private final String userName;
+        private int minutes;
+        private int frames;
+
+        private PendingGrant(String userName) {
+            this.userName = userName;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import com.example.aimusicdispatcher.config.IngestProperties.OverflowPolicy;
+import com.example.aimusicdispatcher.model.dy.CastMethod;
+import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.example.aimusicdispatcher.util.MpmcRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 接入缓冲区
+ * 解耦 WebSocket 线程与 MessageDispatcher：WebSocket 线程只负责把消息放入无锁环形缓冲区，
+ * 由专用分发线程消费并调用 MessageDispatcher.dispatch。
+ * 消息按用户 ID 分片到各分发线程，保证同一用户的点赞/送礼先于其点歌弹幕被处理。
+ */
+@Component
+public class IngestBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestBuffer.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_JOIN_MILLIS = 5000;
+
+    private final MessageDispatcher messageDispatcher;
+    private final IngestProperties.Buffer bufferProperties;
+    private final Shard[] shards;
+    private final Map<CastMethod, OverflowPolicy> policies = new EnumMap<>(CastMethod.class);
+
+    private final Map<CastMethod, LongAdder> droppedCounters = new EnumMap<>(CastMethod.class);
+    private final LongAdder droppedUnknown = new LongAdder();
+    private final LongAdder blockedPublishes = new LongAdder();
+    private volatile boolean running = true;
+
+    public IngestBuffer(MessageDispatcher messageDispatcher, IngestProperties ingestProperties) {
+        this.messageDispatcher = messageDispatcher;
+        this.bufferProperties = ingestProperties.getBuffer();
+        for (CastMethod method : CastMethod.values()) {
+            OverflowPolicy policy = bufferProperties.getOverflowPolicies().get(method);
+            policies.put(method, policy != null ? policy : bufferProperties.getDefaultOverflowPolicy());
+            droppedCounters.put(method, new LongAdder());
+        }
+        int consumers = Math.max(1, bufferProperties.getConsumers());
+        this.shards = new Shard[consumers];
+        for (int i = 0; i < consumers; i++) {
+            shards[i] = new Shard(i, new MpmcRingBuffer<>(bufferProperties.getCapacity()));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("IngestBuffer started with {} dispatcher thread(s), capacity {} each.", shards.length, shards[0].ring.capacity());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(SHUTDOWN_JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for ingest dispatcher thread to stop.");
+            }
+        }
+        log.info("IngestBuffer stopped.");
+    }
+
+    /**
+     * 将消息放入缓冲区，由该消息所属分片的分发线程异步处理。
+     * 缓冲区满时按消息类型对应的溢出策略处理。
+     *
+     * @param message 抖音弹幕消息
+     * @return true 表示消息已入队，false 表示消息被丢弃
+     */
+    public boolean publish(DyMessage message) {
+        Shard shard = shardFor(message);
+        if (!shard.ring.offer(message) && !handleOverflow(shard.ring, message)) {
+            countDropped(message);
+            return false;
+        }
+        shard.wakeUp();
+        return true;
+    }
+
+    private boolean handleOverflow(MpmcRingBuffer<DyMessage> ring, DyMessage message) {
+        switch (policyOf(message)) {
+            case BLOCK:
+                return blockUntilOffered(ring, message);
+            case DROP_OLDEST:
+                return evictOldestAndOffer(ring, message);
+            default:
+                return false;
+        }
+    }
+
+    private boolean evictOldestAndOffer(MpmcRingBuffer<DyMessage> ring, DyMessage message) {
+        do {
+            DyMessage evicted = ring.pollIf(m -> policyOf(m) != OverflowPolicy.BLOCK);
+            if (evicted == null) {
+                return false;
+            }
+            countDropped(evicted);
+        } while (!ring.offer(message));
+        return true;
+    }
+
+    private boolean blockUntilOffered(MpmcRingBuffer<DyMessage> ring, DyMessage message) {
+        blockedPublishes.increment();
+        while (!ring.offer(message)) {
+            if (!running) {
+                return false;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private Shard shardFor(DyMessage message) {
+        if (shards.length == 1 || message.getUser() == null || message.getUser().getId() == null) {
+            return shards[0];
+        }
+        return shards[(message.getUser().getId().hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private OverflowPolicy policyOf(DyMessage message) {
+        return message.getMethod() != null ? policies.get(message.getMethod()) : bufferProperties.getDefaultOverflowPolicy();
+    }
+
+    private void countDropped(DyMessage message) {
+        if (message.getMethod() != null) {
+            droppedCounters.get(message.getMethod()).increment();
+        } else {
+            droppedUnknown.increment();
+        }
+    }
+
+    /**
+     * 缓冲区深度与丢弃统计
+     */
+    public Map<String, Object> getStats() {
+        List<Integer> depths = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            depths.add(shard.ring.size());
+        }
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        for (CastMethod method : CastMethod.values()) {
+            dropped.put(method.name(), droppedCounters.get(method).sum());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacityPerShard", shards[0].ring.capacity());
+        stats.put("depth", depths);
+        stats.put("dropped", dropped);
+        stats.put("droppedUnknown", droppedUnknown.sum());
+        stats.put("blockedPublishes", blockedPublishes.sum());
+        return stats;
+    }
+
+    private final class Shard implements Runnable {
+        private final MpmcRingBuffer<DyMessage> ring;
+        private final Thread thread;
+        private volatile boolean idle;
+
+        private Shard(int index, MpmcRingBuffer<DyMessage> ring) {
+            this.ring = ring;
+            this.thread = new Thread(this, "IngestDispatcher-" + index);
+        }
+
+        private void wakeUp() {
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                DyMessage message = ring.poll();
+                if (message == null) {
+                    if (!running) {
+                        return;
+                    }
+                    idle = true;
+                    // 置位后再检查一次，避免错过 publish 端的唤醒
+                    message = ring.poll();
+                    if (message == null) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        idle = false;
+                        continue;
+                    }
+                    idle = false;
+                }
+                try {
+                    messageDispatcher.dispatch(message);
+                } catch (Exception e) {
+                    log.error("Error dispatching DyMessage id={}: {}", message.getId(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
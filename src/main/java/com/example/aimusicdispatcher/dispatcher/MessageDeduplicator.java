@@ -0,0 +1,197 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于消息 ID 的时间窗口去重
+ * 使用一对轮换的布隆过滤器：新 ID 写入当前过滤器，查询同时检查当前和上一代过滤器；
+ * 每隔一个窗口丢弃上一代、新建当前代，内存占用只与窗口内消息量有关，与直播间规模无关。
+ */
+@Component
+public class MessageDeduplicator {
+
+    private static final int TIMING_SAMPLE_MASK = 15; // 每 16 次检查计时一次
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int bitCount;
+    private final int hashCount;
+    private final LongSupplier clock;
+    private volatile Generation generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder withoutId = new LongAdder();
+    private final LongAdder sampledChecks = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+
+    @Autowired
+    public MessageDeduplicator(IngestProperties ingestProperties) {
+        this(ingestProperties, System::currentTimeMillis);
+    }
+
+    MessageDeduplicator(IngestProperties ingestProperties, LongSupplier clock) {
+        IngestProperties.Dedupe dedupe = ingestProperties.getDedupe();
+        this.enabled = dedupe.isEnabled();
+        this.windowMillis = Math.max(1, dedupe.getWindowSeconds()) * 1000L;
+        this.clock = clock;
+
+        // m = -n·ln(p) / (ln2)^2, k = m/n·ln2
+        double n = Math.max(1, dedupe.getExpectedInsertions());
+        double p = Math.min(0.5, Math.max(1e-9, dedupe.getFalsePositiveRate()));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round(bitCount / n * Math.log(2)));
+        this.generation = new Generation(new BloomFilter(bitCount), null, clock.getAsLong() + windowMillis);
+    }
+
+    /**
+     * 判断消息 ID 是否在窗口内出现过，并记录本次出现
+     *
+     * @param messageId 消息 ID，为空时视为不重复
+     * @return true 表示重复消息
+     */
+    public boolean isDuplicate(String messageId) {
+        if (!enabled) {
+            return false;
+        }
+        if (messageId == null || messageId.isEmpty()) {
+            withoutId.increment();
+            return false;
+        }
+
+        long h1 = hash64(messageId);
+        boolean timed = (h1 & TIMING_SAMPLE_MASK) == 0;
+        long start = timed ? System.nanoTime() : 0L;
+
+        Generation current = currentGeneration();
+        long h2 = mix64(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        boolean seenInCurrent = current.current.putIfAbsent(h1, h2, hashCount);
+        boolean duplicate = seenInCurrent || (current.previous != null && current.previous.mightContain(h1, h2, hashCount));
+
+        if (timed) {
+            sampledNanos.add(System.nanoTime() - start);
+            sampledChecks.increment();
+        }
+        if (duplicate) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return duplicate;
+    }
+
+    private Generation currentGeneration() {
+        Generation current = generation;
+        long now = clock.getAsLong();
+        if (now < current.rotateAt) {
+            return current;
+        }
+        synchronized (this) {
+            current = generation;
+            if (now >= current.rotateAt) {
+                // 超过两个窗口没有消息时，上一代也已过期
+                BloomFilter previous = now - current.rotateAt < windowMillis ? current.current : null;
+                current = new Generation(new BloomFilter(bitCount), previous, now + windowMillis);
+                generation = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 去重命中统计
+     */
+    public Map<String, Object> getStats() {
+        long checks = sampledChecks.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("withoutId", withoutId.sum());
+        stats.put("avgCheckNanos", checks > 0 ? sampledNanos.sum() / checks : 0);
+        stats.put("filterBits", bitCount);
+        stats.put("hashFunctions", hashCount);
+        return stats;
+    }
+
+    private static long hash64(String value) {
+        // FNV-1a 64 位，再做一次 murmur3 fmix64 打散
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static final class Generation {
+        private final BloomFilter current;
+        private final BloomFilter previous;
+        private final long rotateAt;
+
+        private Generation(BloomFilter current, BloomFilter previous, long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bitCount;
+
+        private BloomFilter(int bitCount) {
+            this.words = new AtomicLongArray((bitCount + 63) >>> 6);
+            this.bitCount = bitCount;
+        }
+
+        /**
+         * 写入并返回写入前是否已全部置位（即可能已存在）
+         */
+        private boolean putIfAbsent(long h1, long h2, int hashCount) {
+            boolean allSet = true;
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                if ((word & mask) == 0) {
+                    allSet = false;
+                    while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                        word = words.get(index);
+                    }
+                }
+                combined += h2;
+            }
+            return allSet;
+        }
+
+        private boolean mightContain(long h1, long h2, int hashCount) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.example.aimusicdispatcher.config.PermissionProperties;
 import com.example.aimusicdispatcher.model.barrage.BarrageRequest;
 import com.example.aimusicdispatcher.model.dy.CastMethod;
 import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.example.aimusicdispatcher.scheduler.PlayQueue;
 import com.example.aimusicdispatcher.service.BarrageService;
 import com.example.aimusicdispatcher.service.PermissionService;
 import com.example.aimusicdispatcher.util.AnsiColors;
@@ -29,13 +30,16 @@ public class MessageDispatcher {
     private final BarrageService barrageService;
     private final BarrageFilterService barrageFilterService;
     private final PermissionProperties permissionProperties;
+    private final GrantCoalescer grantCoalescer;
 
     public MessageDispatcher(PermissionService permissionService, BarrageService barrageService, 
-                           BarrageFilterService barrageFilterService, PermissionProperties permissionProperties) {
+                           BarrageFilterService barrageFilterService, PermissionProperties permissionProperties,
+                           GrantCoalescer grantCoalescer) {
         this.permissionService = permissionService;
         this.barrageService = barrageService;
         this.barrageFilterService = barrageFilterService;
         this.permissionProperties = permissionProperties;
+        this.grantCoalescer = grantCoalescer;
     }
 
     /**
@@ -54,7 +58,7 @@ public class MessageDispatcher {
             return;
         }
 
-        logger.info("Dispatching message: method={}, userId={}", 
+        logger.debug("Dispatching message: method={}, userId={}", 
                 dyMessage.getMethod(), 
                 dyMessage.getUser() != null ? dyMessage.getUser().getId() : "unknown");
 
@@ -75,7 +79,7 @@ public class MessageDispatcher {
 
     /**
      * 处理点赞消息
-     * 点赞触发：用户获得权限时长的点歌权限（可配置，默认5分钟）
+     * 点赞触发：用户获得权限时长的点歌权限（可配置，默认5分钟），由 GrantCoalescer 合并后授权
      *
      * @param message 点赞消息
      */
@@ -88,26 +92,18 @@ public class MessageDispatcher {
 
         String userId = message.getUser().getId();
         String userName = message.getUser().getName();
-        int likeMinutes = permissionProperties.getLikeMinutes();
 
-        logger.info("Like received from user: {} ({})", userName, userId);
+        logger.debug("Like received from user: {} ({})", userName, userId);
 
         // 只有启用了权限系统才授予权限
         if (permissionProperties.isEnabled()) {
-            permissionService.grant(userId, likeMinutes);
-            String logMsg = String.format("%s User: %s (ID: %s) granted %d mins at %s", 
-                    AnsiColors.highlightPrivilegeTag(), 
-                    userName, 
-                    userId, 
-                    likeMinutes, 
-                    LocalDateTime.now().format(TIME_FORMATTER));
-            logger.info(logMsg);
+            grantCoalescer.addLike(userId, userName);
         }
     }
 
     /**
      * 处理送礼消息
-     * 送礼触发：用户获得权限时长的点歌权限（可配置，默认20分钟，权重高于点赞）
+     * 送礼触发：用户获得权限时长的点歌权限（可配置，默认20分钟，权重高于点赞），连击礼物只计一次
      *
      * @param message 送礼消息
      */
@@ -120,25 +116,18 @@ public class MessageDispatcher {
 
         String userId = message.getUser().getId();
         String userName = message.getUser().getName();
-        int giftMinutes = permissionProperties.getGiftMinutes();
-
-        logger.info("Gift received from user: {} ({})", userName, userId);
 
         // 如果有礼物信息，也记录礼物名称和数量
         if (message.getGift() != null) {
-            logger.info("Gift details: {} x {}", message.getGift().getName(), message.getGift().getCount());
+            logger.debug("Gift received from user: {} ({}): {} x {}", userName, userId,
+                    message.getGift().getName(), message.getGift().getCount());
+        } else {
+            logger.debug("Gift received from user: {} ({})", userName, userId);
         }
 
         // 只有启用了权限系统才授予权限
         if (permissionProperties.isEnabled()) {
-            permissionService.grant(userId, giftMinutes);
-            String logMsg = String.format("%s User: %s (ID: %s) granted %d mins at %s", 
-                    AnsiColors.highlightPrivilegeTag(), 
-                    userName, 
-                    userId, 
-                    giftMinutes, 
-                    LocalDateTime.now().format(TIME_FORMATTER));
-            logger.info(logMsg);
+            grantCoalescer.addGift(userId, userName, message.getGift());
         }
     }
 
@@ -171,9 +160,10 @@ public class MessageDispatcher {
 
         logger.info("Chat message from user {} ({}): {}", userName, userId, content);
 
-        // Step 1: 通过正则提取歌名
+        // Step 1: 通过关键词自动机提取歌名
         BarrageRequest barrageRequest = new BarrageRequest();
         barrageRequest.setUser(userName);
+        barrageRequest.setUserId(userId);
         barrageRequest.setContent(content);
         barrageRequest.setTimestamp(System.currentTimeMillis());
 
@@ -185,6 +175,7 @@ public class MessageDispatcher {
         }
 
         String songName = songNameOptional.get();
+        barrageRequest.setSongName(songName);
         logger.info("Song request detected: {} from user {}", songName, userName);
 
         // Step 2: 检查用户是否有权限
@@ -192,8 +183,17 @@ public class MessageDispatcher {
             // 启用了权限系统，需要检查权限
             if (userId != null && permissionService.isAuthorized(userId)) {
                 logger.info("User {} (ID: {}) has permission to request songs", userName, userId);
+                // 同一授权会话内重复点同一首歌，直接忽略
+                if (permissionService.hasRequested(userId, songName)) {
+                    logger.info("User {} (ID: {}) already requested \"{}\" in this session, ignoring", userName, userId, songName);
+                    return;
+                }
                 // Step 3: 权限通过，处理点歌请求
-                barrageService.processBarrage(barrageRequest);
+                // 只记下已入队或已合并的点歌，被拒绝或曲库中没有的歌稍后还能再点
+                Optional<PlayQueue.OfferResult> result = barrageService.processBarrage(barrageRequest);
+                if (result.isPresent() && result.get() != PlayQueue.OfferResult.REJECTED) {
+                    permissionService.recordRequest(userId, songName);
+                }
             } else {
                 // Step 4: 权限失败，记录拦截日志（带ANSI颜色高亮）
                 String currentTime = LocalDateTime.now().format(TIME_FORMATTER);
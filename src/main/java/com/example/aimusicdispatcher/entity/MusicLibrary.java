@@ -24,4 +24,16 @@ public class MusicLibrary {
 
     @Column(name = "play_count")
     private Integer playCount = 0;
+
+    @Column(name = "duration_millis")
+    private Long durationMillis; // 时长（毫秒），尚未解析时为 null
+
+    @Column(name = "bitrate")
+    private Integer bitrate; // 码率（kbps）
+
+    @Column(name = "sample_rate")
+    private Integer sampleRate; // 采样率（Hz）
+
+    @Column(name = "channels")
+    private Integer channels; // 声道数
 }
@@ -0,0 +1,290 @@
+package com.example.aimusicdispatcher.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 常驻进程池后端
+ * 启动固定数量的常驻 worker 进程（默认是内置的 tts/tts_worker.py），通过 stdin/stdout 按行收发 JSON 请求，
+ * 省去每条口播都要启动 Python 解释器、加载 edge-tts 的开销。
+ * 每个请求设有超时看门狗，超时或 worker 退出时强制结束进程，下次取用时自动重启；空闲 worker 定期 ping 做健康检查。
+ */
+public class PooledTtsEngine implements TtsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledTtsEngine.class);
+    private static final String BUNDLED_WORKER_SCRIPT = "tts/tts_worker.py";
+
+    private final List<String> command;
+    private final long timeoutSeconds;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService monitor;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder healthCheckFailures = new LongAdder();
+
+    /**
+     * @param command            启动 worker 的命令
+     * @param size               worker 数量
+     * @param timeoutSeconds     单次请求超时（秒）
+     * @param healthCheckSeconds 空闲 worker 健康检查间隔（秒），小于等于 0 表示不检查
+     */
+    public PooledTtsEngine(List<String> command, int size, long timeoutSeconds, long healthCheckSeconds) {
+        this.command = List.copyOf(command);
+        this.timeoutSeconds = timeoutSeconds;
+        // 看门狗与健康检查分开两个线程，健康检查阻塞等待 ping 时看门狗仍能触发
+        this.monitor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "TtsPoolMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < Math.max(1, size); i++) {
+            Worker worker = new Worker(i);
+            worker.ensureStarted();
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+        if (healthCheckSeconds > 0) {
+            monitor.scheduleWithFixedDelay(this::healthCheck, healthCheckSeconds, healthCheckSeconds, TimeUnit.SECONDS);
+        }
+        log.info("TTS worker pool started: {} workers, command {}", workers.size(), this.command);
+    }
+
+    /**
+     * 使用内置 worker 脚本的启动命令，脚本从 classpath 解压到临时文件
+     */
+    public static List<String> bundledWorkerCommand(String python) throws IOException {
+        Path script = Files.createTempFile("tts_worker", ".py");
+        script.toFile().deleteOnExit();
+        try (InputStream in = PooledTtsEngine.class.getClassLoader().getResourceAsStream(BUNDLED_WORKER_SCRIPT)) {
+            if (in == null) {
+                throw new IOException("Bundled TTS worker script not found: " + BUNDLED_WORKER_SCRIPT);
+            }
+            Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return List.of(python, "-u", script.toString());
+    }
+
+    @Override
+    public boolean synthesize(String text, Options options, Path outputFile) {
+        requests.increment();
+        Worker worker;
+        try {
+            worker = idleWorkers.poll(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.increment();
+            return false;
+        }
+        if (worker == null) {
+            log.error("No idle TTS worker within {} s, giving up on {}", timeoutSeconds, outputFile);
+            failures.increment();
+            return false;
+        }
+        try {
+            ObjectNode request = objectMapper.createObjectNode();
+            request.put("text", text);
+            request.put("output", outputFile.toString());
+            request.put("format", options.format());
+            if (options.voice() != null && !options.voice().isEmpty()) {
+                request.put("voice", options.voice());
+            }
+            if (options.rateArgument() != null) {
+                request.put("rate", options.rateArgument());
+            }
+            JsonNode response = worker.call(request);
+            if (response == null || !response.path("ok").asBoolean(false)) {
+                log.error("TTS worker {} failed for {}: {}", worker.slot, outputFile,
+                        response != null ? response.path("error").asText() : "no response");
+                failures.increment();
+                return false;
+            }
+            if (!Files.exists(outputFile)) {
+                log.error("TTS worker {} reported success but {} does not exist", worker.slot, outputFile);
+                failures.increment();
+                return false;
+            }
+            return true;
+        } finally {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    /**
+     * 逐个 ping 当前空闲的 worker，正在合成的 worker 跳过
+     */
+    private void healthCheck() {
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = idleWorkers.poll();
+            if (worker == null) {
+                return;
+            }
+            try {
+                ObjectNode ping = objectMapper.createObjectNode();
+                ping.put("ping", true);
+                JsonNode response = worker.call(ping);
+                if (response == null || !response.path("ok").asBoolean(false)) {
+                    healthCheckFailures.increment();
+                    log.warn("TTS worker {} failed health check, it will be restarted.", worker.slot);
+                    worker.stop();
+                }
+            } finally {
+                idleWorkers.offer(worker);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", "pooled");
+        stats.put("workers", workers.size());
+        stats.put("idleWorkers", idleWorkers.size());
+        stats.put("requests", requests.sum());
+        stats.put("failures", failures.sum());
+        stats.put("restarts", restarts.sum());
+        stats.put("healthCheckFailures", healthCheckFailures.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        log.info("TTS worker pool stopped.");
+    }
+
+    /**
+     * 一个 worker 槽位，进程退出后由下一次调用重新启动；同一时刻只被一个线程持有
+     */
+    private final class Worker {
+
+        private final int slot;
+        private Process process;
+        private BufferedWriter stdin;
+        private BufferedReader stdout;
+        private boolean started;
+
+        Worker(int slot) {
+            this.slot = slot;
+        }
+
+        boolean ensureStarted() {
+            if (process != null && process.isAlive()) {
+                return true;
+            }
+            stop();
+            try {
+                process = new ProcessBuilder(command)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+                stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                if (started) {
+                    restarts.increment();
+                    log.info("Restarted TTS worker {}.", slot);
+                }
+                started = true;
+                return true;
+            } catch (IOException e) {
+                log.error("Failed to start TTS worker {} with {}: {}", slot, command, e.getMessage());
+                process = null;
+                return false;
+            }
+        }
+
+        /**
+         * 发送一条请求并等待对应 id 的响应，超时、进程退出或 IO 错误返回 null
+         */
+        JsonNode call(ObjectNode request) {
+            if (!ensureStarted()) {
+                return null;
+            }
+            long id = requestIds.incrementAndGet();
+            request.put("id", id);
+            Process current = process;
+            ScheduledFuture<?> watchdog = monitor.schedule(() -> {
+                log.warn("TTS worker {} timed out after {} s, killing it.", slot, timeoutSeconds);
+                current.destroyForcibly();
+            }, timeoutSeconds, TimeUnit.SECONDS);
+            try {
+                stdin.write(objectMapper.writeValueAsString(request));
+                stdin.newLine();
+                stdin.flush();
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    if (!line.startsWith("{")) {
+                        continue;
+                    }
+                    JsonNode response = objectMapper.readTree(line);
+                    if (response.path("id").asLong(-1) == id) {
+                        return response;
+                    }
+                }
+                log.warn("TTS worker {} exited (code {}).", slot,
+                        current.waitFor(1, TimeUnit.SECONDS) ? String.valueOf(current.exitValue()) : "unknown");
+            } catch (IOException e) {
+                log.warn("TTS worker {} I/O error: {}", slot, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                watchdog.cancel(false);
+            }
+            stop();
+            return null;
+        }
+
+        void stop() {
+            if (process == null) {
+                return;
+            }
+            try {
+                stdin.close();
+            } catch (IOException ignored) {
+                // 进程已退出时关闭 stdin 会失败
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            process = null;
+        }
+    }
+}
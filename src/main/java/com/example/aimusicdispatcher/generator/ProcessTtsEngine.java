@@ -0,0 +1,108 @@
+package com.example.aimusicdispatcher.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每次合成启动一个 edge-tts 进程（原有实现）
+ * 进程输出重定向到临时文件，失败时再读出来记录日志，不再为每个进程额外创建读取线程。
+ */
+public class ProcessTtsEngine implements TtsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessTtsEngine.class);
+
+    private final String edgeTtsPath;
+    private final long timeoutSeconds;
+    private final LongAdder processesStarted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ProcessTtsEngine(String edgeTtsPath, long timeoutSeconds) {
+        this.edgeTtsPath = edgeTtsPath;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public boolean synthesize(String text, Options options, Path outputFile) {
+        if (!Options.DEFAULT_FORMAT.equalsIgnoreCase(options.format())) {
+            log.error("edge-tts only produces {}, unsupported audio format '{}' for file {}",
+                    Options.DEFAULT_FORMAT, options.format(), outputFile);
+            failures.increment();
+            return false;
+        }
+        Process process = null;
+        Path processOutput = null;
+        try {
+            processOutput = Files.createTempFile("edge-tts", ".log");
+            process = new ProcessBuilder(command(text, options, outputFile))
+                    .directory(new File(System.getProperty("user.dir")))
+                    .redirectErrorStream(true)
+                    .redirectOutput(processOutput.toFile())
+                    .start();
+            processesStarted.increment();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                log.error("edge-tts timed out after {} s for file {}", timeoutSeconds, outputFile);
+            } else if (process.exitValue() != 0 || !Files.exists(outputFile)) {
+                log.error("edge-tts exited with code {} for file {}: {}", process.exitValue(), outputFile,
+                        Files.readString(processOutput, StandardCharsets.UTF_8).trim());
+            } else {
+                return true;
+            }
+        } catch (IOException e) {
+            log.error("Error calling edge-tts for file {}: {}", outputFile, e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            if (processOutput != null) {
+                try {
+                    Files.deleteIfExists(processOutput);
+                } catch (IOException ignored) {
+                    // 临时文件删除失败不影响合成结果
+                }
+            }
+        }
+        failures.increment();
+        return false;
+    }
+
+    /**
+     * edge-tts --text "文本内容" [--voice 语音] [--rate=+0%] --write-media 输出文件路径
+     */
+    List<String> command(String text, Options options, Path outputFile) {
+        List<String> command = new ArrayList<>(List.of(edgeTtsPath, "--text", text));
+        if (options.voice() != null && !options.voice().isEmpty()) {
+            command.add("--voice");
+            command.add(options.voice());
+        }
+        if (options.rateArgument() != null) {
+            // 负数语速以 "-" 开头，必须与参数名写在一起，否则会被当成另一个选项
+            command.add("--rate=" + options.rateArgument());
+        }
+        command.add("--write-media");
+        command.add(outputFile.toString());
+        return command;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", "process");
+        stats.put("processesStarted", processesStarted.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
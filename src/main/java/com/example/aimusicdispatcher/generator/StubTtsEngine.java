@@ -0,0 +1,73 @@
+package com.example.aimusicdispatcher.generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地桩后端：不调用任何外部服务，按文本长度写出一段静音 WAV，可模拟合成延迟；语音、语速和格式参数只计入统计。
+ * 用于测试、压测以及没有安装 edge-tts 的开发环境。
+ */
+public class StubTtsEngine implements TtsEngine {
+
+    private static final int SAMPLE_RATE = 16000;
+    /** 每个字符对应的静音时长（毫秒） */
+    private static final int MILLIS_PER_CHAR = 200;
+
+    private final long latencyMillis;
+    private final LongAdder synthesized = new LongAdder();
+    private volatile Options lastOptions;
+
+    public StubTtsEngine(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public boolean synthesize(String text, Options options, Path outputFile) {
+        lastOptions = options;
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            Files.write(outputFile, silentWav(text.length() * MILLIS_PER_CHAR));
+            synthesized.increment();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", "stub");
+        stats.put("synthesized", synthesized.sum());
+        Options options = lastOptions;
+        if (options != null) {
+            stats.put("lastVoice", options.voice());
+            stats.put("lastRate", options.rateArgument());
+        }
+        return stats;
+    }
+
+    /**
+     * 16kHz、16 bit、单声道的静音 WAV
+     */
+    static byte[] silentWav(int durationMillis) {
+        int dataSize = SAMPLE_RATE * 2 * durationMillis / 1000;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataSize);
+        return wav.array();
+    }
+}
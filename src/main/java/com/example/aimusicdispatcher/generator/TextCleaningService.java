@@ -4,6 +4,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 @Service
 public class TextCleaningService {
 
@@ -44,14 +49,20 @@ public class TextCleaningService {
 
     /**
      * 计算文案的哈希值，用于缓存判断。
+     * 使用 SHA-256，避免 32 位哈希碰撞导致不同文案被当作相同。
      * 
      * @param introText 文案内容
-     * @return 基于内容的哈希值
+     * @return 基于内容的哈希值（十六进制）
      */
     public String hashIntroText(String introText) {
         if (introText == null || introText.isEmpty()) {
             return "";
         }
-        return String.valueOf(introText.hashCode());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(introText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
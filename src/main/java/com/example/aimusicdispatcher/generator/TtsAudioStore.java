@@ -0,0 +1,286 @@
+package com.example.aimusicdispatcher.generator;
+
+import com.example.aimusicdispatcher.config.TtsProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的 TTS 音频存储
+ * 文件名是 (清洗后的文案, 语音, 语速, 格式) 的 SHA-256，按摘要前两位分到 256 个子目录：tts_output/ab/abcd....mp3。
+ * 启动时扫描一次目录建立内存索引（路径 -> 大小、最近访问时间），之后的存在性检查只查索引，不访问文件系统。
+ * 总大小超过 tts.store.max-size-mb 时按最近访问时间淘汰，被 intro_cache 引用（pin）的文件不会被淘汰。
+ */
+@Service
+public class TtsAudioStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TtsAudioStore.class);
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final Pattern ENTRY = Pattern.compile("[0-9a-f]{64}\\.[A-Za-z0-9]+");
+    /** 淘汰时一次降到上限的这个比例，避免每次写入都触发淘汰 */
+    private static final double EVICT_TO_RATIO = 0.9;
+
+    private final Path root;
+    private final long maxBytes;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // 路径 -> 引用次数
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public TtsAudioStore(TtsProperties ttsProperties) {
+        this(Paths.get(ttsProperties.getOutputDir() == null || ttsProperties.getOutputDir().isEmpty()
+                        ? "tts_output" : ttsProperties.getOutputDir()),
+                Math.max(1, ttsProperties.getStore().getMaxSizeMb()) * 1024L * 1024L);
+    }
+
+    TtsAudioStore(Path root, long maxBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 扫描分片子目录建立内存索引，最近访问时间取文件修改时间
+     */
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(root);
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(root, p -> SHARD.matcher(p.getFileName().toString()).matches())) {
+                for (Path shard : shards) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(shard, p -> ENTRY.matcher(p.getFileName().toString()).matches())) {
+                        for (Path file : files) {
+                            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                            index.put(file.toString(), new Entry(attrs.size(), attrs.lastModifiedTime().toMillis()));
+                            totalBytes.addAndGet(attrs.size());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to index TTS audio store {}: {}", root, e.getMessage());
+        }
+        log.info("Indexed TTS audio store {}: {} files, {} KB in {} ms.",
+                root, index.size(), totalBytes.get() / 1024, (System.nanoTime() - start) / 1_000_000);
+        // 此时 intro_cache 的引用尚未 pin，淘汰推迟到下一次写入
+    }
+
+    /**
+     * 按实际交给 TTS 后端的合成参数计算内容键，语速取后端收到的取值（如 "-15%"）
+     */
+    public static String keyOf(String text, TtsEngine.Options options) {
+        return keyOf(text, options.voice(), options.rateArgument(), options.format());
+    }
+
+    /**
+     * 计算内容键：(清洗后的文案, 语音, 语速, 格式) 的 SHA-256 十六进制串
+     */
+    public static String keyOf(String text, String voice, String rate, String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{text, voice, rate, format}) {
+                digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0); // 分隔符，避免 ("ab", "c") 与 ("a", "bc") 相同
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 内容键对应的存储路径（不保证文件存在）
+     */
+    public Path pathOf(String key, String format) {
+        return root.resolve(key.substring(0, 2)).resolve(key + "." + format);
+    }
+
+    /**
+     * 查找已存在的音频并刷新最近访问时间
+     */
+    public Optional<Path> lookup(String key, String format) {
+        Path path = pathOf(key, format);
+        Entry entry = index.get(path.toString());
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        hits.increment();
+        return Optional.of(path);
+    }
+
+    /**
+     * 写入新音频：writer 把音频写到给定的临时文件，成功后原子移动到内容路径并加入索引
+     *
+     * @return 存储路径，writer 失败时返回空
+     */
+    public Optional<Path> put(String key, String format, AudioWriter writer) throws IOException {
+        Path path = pathOf(key, format);
+        Files.createDirectories(path.getParent());
+        // 部分后端（如 edge-tts）按扩展名决定输出格式，临时文件沿用目标扩展名；文件名中的 "-" 使其不会被当作存储条目
+        Path temp = Files.createTempFile(path.getParent(), key + "-", "." + format);
+        try {
+            if (!writer.write(temp) || !Files.exists(temp)) {
+                return Optional.empty();
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        long size = Files.size(path);
+        Entry previous = index.put(path.toString(), new Entry(size, System.currentTimeMillis()));
+        totalBytes.addAndGet(size - (previous != null ? previous.size : 0));
+        evictIfNeeded();
+        return Optional.of(path);
+    }
+
+    /**
+     * 音频文件是否存在：存储目录内的文件只查索引，其他路径（如旧版 intro_&lt;hash&gt;.mp3）回退到文件系统检查
+     */
+    public boolean exists(String audioPath) {
+        if (audioPath == null) {
+            return false;
+        }
+        if (index.containsKey(audioPath)) {
+            return true;
+        }
+        return !isManaged(audioPath) && Files.isRegularFile(Paths.get(audioPath));
+    }
+
+    /**
+     * 标记文件被 intro_cache 引用一次，被引用的文件不会被淘汰
+     */
+    public void pin(String audioPath) {
+        if (audioPath != null) {
+            pinned.merge(audioPath, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 释放一次引用，引用次数归零后文件可被淘汰
+     */
+    public void unpin(String audioPath) {
+        if (audioPath != null) {
+            pinned.computeIfPresent(audioPath, (path, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * 总大小超过上限时，按最近访问时间从旧到新淘汰未被引用的文件，直到降到上限的 90%
+     */
+    synchronized void evictIfNeeded() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        // 先记下访问时间再排序，排序期间的并发访问不影响比较结果
+        List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            if (!pinned.containsKey(entry.getKey())) {
+                candidates.add(new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccess));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+        long target = (long) (maxBytes * EVICT_TO_RATIO);
+        int evicted = 0;
+        for (Candidate candidate : candidates) {
+            if (totalBytes.get() <= target) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(Paths.get(candidate.path()));
+            } catch (IOException e) {
+                log.warn("Failed to evict TTS audio {}: {}", candidate.path(), e.getMessage());
+                continue;
+            }
+            if (index.remove(candidate.path(), candidate.entry())) {
+                totalBytes.addAndGet(-candidate.entry().size);
+                evicted++;
+            }
+        }
+        evictions.add(evicted);
+        if (totalBytes.get() > maxBytes) {
+            log.warn("TTS audio store is over its {} MB cap after eviction: referenced intros take {} MB.",
+                    maxBytes / 1024 / 1024, totalBytes.get() / 1024 / 1024);
+        } else if (evicted > 0) {
+            log.info("Evicted {} TTS audio files, store now {} KB.", evicted, totalBytes.get() / 1024);
+        }
+    }
+
+    private boolean isManaged(String audioPath) {
+        Path path = Paths.get(audioPath);
+        Path parent = path.getParent();
+        return parent != null && root.equals(parent.getParent())
+                && SHARD.matcher(parent.getFileName().toString()).matches()
+                && ENTRY.matcher(path.getFileName().toString()).matches();
+    }
+
+    /**
+     * 存储统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("files", index.size());
+        stats.put("totalBytes", totalBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("pinned", pinned.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 把音频写入给定文件
+     */
+    @FunctionalInterface
+    public interface AudioWriter {
+        boolean write(Path file) throws IOException;
+    }
+
+    private record Candidate(String path, Entry entry, long lastAccess) {
+    }
+
+    private static final class Entry {
+        private final long size;
+        private volatile long lastAccess;
+
+        private Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.aimusicdispatcher.generator;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * TTS 合成后端
+ * TtsService 负责文本清洗、文件命名与缓存，具体的语音合成交给实现类：
+ * 常驻进程池（PooledTtsEngine）、每次启动进程（ProcessTtsEngine）或本地桩（StubTtsEngine）。
+ */
+public interface TtsEngine extends AutoCloseable {
+
+    /**
+     * 把文本合成为音频并写入指定文件
+     *
+     * @param text       已清洗的文本
+     * @param options    语音、语速与音频格式
+     * @param outputFile 输出文件
+     * @return 是否合成成功，失败原因由实现类记录日志
+     */
+    boolean synthesize(String text, Options options, Path outputFile);
+
+    /**
+     * 后端运行统计
+     */
+    Map<String, Object> getStats();
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * 合成参数，对应 tts.voice / tts.rate / tts.audio-format
+     *
+     * @param voice  语音名称（如 zh-CN-XiaoxiaoNeural），null 表示后端默认语音
+     * @param rate   语速调节（-1.0 到 1.0，负数为降速），null 表示默认语速
+     * @param format 音频格式（如 mp3）
+     */
+    record Options(String voice, Double rate, String format) {
+
+        public static final String DEFAULT_FORMAT = "mp3";
+
+        public Options {
+            if (format == null || format.isEmpty()) {
+                format = DEFAULT_FORMAT;
+            }
+        }
+
+        /**
+         * edge-tts 的语速参数，如 -0.15 -> "-15%"；未设置语速时返回 null
+         */
+        public String rateArgument() {
+            return rate == null ? null : String.format("%+d%%", Math.round(rate * 100));
+        }
+    }
+}
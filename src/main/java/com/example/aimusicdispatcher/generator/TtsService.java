@@ -5,12 +5,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class TtsService {
@@ -19,37 +18,42 @@ public class TtsService {
 
     private final TtsProperties ttsProperties;
     private final TextCleaningService textCleaningService;
+    private final TtsEngine ttsEngine;
+    private final TtsAudioStore ttsAudioStore;
 
-    public TtsService(TtsProperties ttsProperties, TextCleaningService textCleaningService) {
+    public TtsService(TtsProperties ttsProperties, TextCleaningService textCleaningService,
+                      TtsEngine ttsEngine, TtsAudioStore ttsAudioStore) {
         this.ttsProperties = ttsProperties;
         this.textCleaningService = textCleaningService;
-        // 初始化输出目录
-        String outputDir = ttsProperties.getOutputDir();
-        if (outputDir == null || outputDir.isEmpty()) {
-            outputDir = "tts_output"; // Default to clean path
-        }
-        Path outputPath = Paths.get(outputDir).toAbsolutePath().normalize(); // Normalize the path
-        try {
-            Files.createDirectories(outputPath);
-            log.info("TTS output directory initialized: {}", outputPath);
-        } catch (IOException e) {
-            log.warn("Failed to create TTS output directory {}: {}", outputPath, e.getMessage());
-        }
+        this.ttsEngine = ttsEngine;
+        this.ttsAudioStore = ttsAudioStore;
     }
 
     /**
-     * 调用Edge-TTS API生成语音文件。
-     * 包含缓存策略：如果文件已存在且文案未变，直接复用。
+     * 调用TTS后端（默认为常驻edge-tts进程池）生成语音文件。
+     * 包含缓存策略：音频按 (清洗后的文案, 语音, 语速, 格式) 的 SHA-256 存放，相同内容直接复用。
      * 包含文本清洗：移除敏感词和生僻字。
      * 
-     * 前置要求：系统需要安装Python和edge-tts库
+     * 前置要求：系统需要安装Python和edge-tts库（stub 后端除外）
      * 安装命令：pip install edge-tts
      *
      * @param introText 需要转换为语音的文本。
-     * @param musicId 关联的音乐ID，用于命名音频文件。
+     * @param musicId 关联的音乐ID，仅用于日志。
      * @return 生成的音频文件路径。
      */
     public String generateAudioFile(String introText, Long musicId) {
+        return generateAudioFile(introText, musicId, null);
+    }
+
+    /**
+     * 生成语音文件，缓存未命中、开始合成时通过 onSynthesisStart 交出正在写入的音频，调用方可以边合成边播放。
+     *
+     * @param introText        需要转换为语音的文本。
+     * @param musicId          关联的音乐ID，仅用于日志。
+     * @param onSynthesisStart 开始合成时的回调，可为 null；命中缓存时不会调用
+     * @return 生成的音频文件路径，失败时返回 null。
+     */
+    public String generateAudioFile(String introText, Long musicId, Consumer<TtsStream> onSynthesisStart) {
         // 1. 文本清洗：去除敏感词和不易发音的字符
         String cleanedText = textCleaningService.cleanIntroText(introText);
         if (cleanedText.isEmpty()) {
@@ -57,100 +61,61 @@ public class TtsService {
             cleanedText = "感谢点歌";
         }
 
-        // 2. 计算文案哈希值，用于缓存判断
-        String introTextHash = textCleaningService.hashIntroText(cleanedText);
-
-        String outputDir = ttsProperties.getOutputDir();
-        if (outputDir == null || outputDir.isEmpty()) {
-            outputDir = "tts_output"; // Remove leading ./ to ensure proper path resolution
+        // 2. 计算内容键，语音、语速或格式变化都会生成新的音频
+        TtsEngine.Options options = new TtsEngine.Options(ttsProperties.getVoice(), ttsProperties.getRate(),
+                ttsProperties.getAudioFormat());
+        String audioFormat = options.format();
+        // 内容键与交给后端的参数来自同一个 options，缓存的音频一定是按这些参数合成的
+        String key = TtsAudioStore.keyOf(cleanedText, options);
+
+        // 3. 内存索引中已有相同内容的音频则直接复用
+        Optional<Path> cached = ttsAudioStore.lookup(key, audioFormat);
+        if (cached.isPresent()) {
+            log.info("Cached TTS audio found for key: {}, reusing existing file: {}", key, cached.get());
+            return cached.get().toString();
         }
 
-        // 创建输出目录
-        Path outputPath = Paths.get(outputDir).toAbsolutePath().normalize(); // Normalize the path
+        // 4. 交给 TTS 后端合成，写入存储
+        log.info("Generating TTS audio for musicId: {} with cleaned text: '{}' (key: {})", musicId, cleanedText, key);
+        String text = cleanedText;
+        TtsStream[] stream = new TtsStream[1];
+        Path result = null;
         try {
-            Files.createDirectories(outputPath);
+            Optional<Path> stored = ttsAudioStore.put(key, audioFormat, file -> {
+                if (onSynthesisStart != null) {
+                    stream[0] = new TtsStream(file);
+                    onSynthesisStart.accept(stream[0]);
+                }
+                return ttsEngine.synthesize(text, options, file);
+            });
+            if (stored.isEmpty()) {
+                log.error("TTS generation failed for musicId: {}", musicId);
+                return null;
+            }
+            result = stored.get();
+            log.info("Successfully generated TTS audio at: {} (key: {})", result, key);
+            return result.toString();
         } catch (IOException e) {
-            log.error("Failed to create output directory {}: {}", outputDir, e.getMessage());
-        }
-
-        // 3. 生成音频文件名和路径 (使用哈希值作为文件名的一部分，实现缓存)
-        String audioFormat = ttsProperties.getAudioFormat() != null ? ttsProperties.getAudioFormat() : "mp3";
-        String audioFileName = "intro_" + introTextHash + "." + audioFormat; // Use hash for filename
-        Path audioFilePath = outputPath.resolve(audioFileName).normalize(); // Normalize the final path
-
-        // 检查是否已存在同名音频文件（基于哈希值）
-        if (Files.exists(audioFilePath)) {
-            log.info("Cached TTS audio found for hash: {}, reusing existing file: {}", introTextHash, audioFilePath.toString());
-            return audioFilePath.toString();
+            log.error("Failed to store TTS audio for musicId {}: {}", musicId, e.getMessage(), e);
+            return null;
+        } finally {
+            if (stream[0] != null) {
+                stream[0].finish(result);
+            }
         }
+    }
 
-        // 4. 准备TTS参数
-        String voice = ttsProperties.getVoice() != null ? ttsProperties.getVoice() : "zh-CN-XiaoxiaoNeural";
-        Double rate = ttsProperties.getRate() != null ? ttsProperties.getRate() : -0.15; // 降速15%更有电台感
-        // Convert rate to percentage format for edge-tts: -0.15 -> "-15%"
-        String ratePercentage = String.format("%+d%%", (int)(rate * 100));
-
-        try {
-            log.info("Generating TTS audio for musicId: {} with cleaned text: '{}' (hash: {})", 
-                    musicId, cleanedText, introTextHash);
-
-            // 5. 使用edge-tts命令行生成语音
-            // edge-tts --voice zh-CN-XiaoxiaoNeural --rate=-15% --text "文本内容" --write-media 输出文件路径
-            String edgeTtsExecutablePath = "/Users/chenshoulu/Downloads/dy1/.venv/bin/edge-tts";
-
-            String[] command = {
-                    edgeTtsExecutablePath,
-                    "--text", cleanedText,
-                    "--write-media", audioFilePath.toString()
-            };
-
-            Process process = Runtime.getRuntime().exec(command, null, new File(System.getProperty("user.dir")));
-
-            // Capture error stream
-            new Thread(() -> {
-                try (java.io.BufferedReader errorReader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getErrorStream()))) {
-                    String line;
-                    while ((line = errorReader.readLine()) != null) {
-                        log.error("edge-tts STDERR: {}", line);
-                    }
-                } catch (java.io.IOException e) {
-                    log.error("Error reading edge-tts error stream", e);
-                }
-            }).start();
-
-            // Capture output stream (optional, but good for debugging)
-            new Thread(() -> {
-                try (java.io.BufferedReader outputReader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = outputReader.readLine()) != null) {
-                        log.info("edge-tts STDOUT: {}", line);
-                    }
-                } catch (java.io.IOException e) {
-                    log.error("Error reading edge-tts output stream", e);
-                }
-            }).start();
-
+    /**
+     * TTS 后端统计
+     */
+    public Map<String, Object> getEngineStats() {
+        return ttsEngine.getStats();
+    }
 
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
-                File audioFile = audioFilePath.toFile();
-                if (audioFile.exists()) {
-                    long fileSize = audioFile.length();
-                    log.info("Successfully generated TTS audio at: {} (size: {} bytes, hash: {})", 
-                            audioFilePath.toString(), fileSize, introTextHash);
-                    return audioFilePath.toString();
-                } else {
-                    log.error("TTS audio file not found after generation: {}", audioFilePath.toString());
-                    return null; // Return null if file not found after generation
-                }
-            } else {
-                log.error("edge-tts process exited with code {} for musicId: {}", exitCode, musicId);
-                return null; // Return null if edge-tts process failed
-            }
-        } catch (IOException | InterruptedException e) {
-            log.error("Error calling edge-tts for musicId {}: {}", musicId, e.getMessage(), e);
-            Thread.currentThread().interrupt();
-            return null; // Return null on exception
-        }
+    /**
+     * 音频存储统计
+     */
+    public Map<String, Object> getStoreStats() {
+        return ttsAudioStore.getStats();
     }
 }
@@ -0,0 +1,104 @@
+package com.example.aimusicdispatcher.generator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 正在合成中的 TTS 音频
+ * TTS 后端边合成边把音频块写入存储的临时文件，播放端通过 {@link #openStream()} 跟读这个文件，
+ * 读到文件末尾时若合成尚未结束就等待新数据，合成结束后读完剩余数据再返回 EOF。
+ * 临时文件在合成结束后被原子移动到内容路径，已打开的文件句柄仍指向同一个文件，不影响跟读。
+ */
+public class TtsStream {
+
+    /** 读到末尾后等待新数据的轮询间隔（毫秒） */
+    private static final long POLL_MILLIS = 20;
+
+    private final Path file;
+    private final CompletableFuture<Path> result = new CompletableFuture<>();
+
+    TtsStream(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 合成结束，stored 为写入存储后的路径，失败时为 null
+     */
+    void finish(Path stored) {
+        result.complete(stored);
+    }
+
+    /**
+     * 合成是否已结束（成功或失败）
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 合成结果：存储路径，失败时为 null
+     */
+    public CompletableFuture<Path> getResult() {
+        return result;
+    }
+
+    /**
+     * 从头跟读正在写入的音频，合成失败时提前结束
+     */
+    public InputStream openStream() throws IOException {
+        return new TailInputStream(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    private final class TailInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private TailInputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                // 先看是否结束再读：结束前写入的数据一定能在这次读到
+                boolean done = result.isDone();
+                if (done && result.getNow(null) == null) {
+                    return -1;
+                }
+                int n = channel.read(ByteBuffer.wrap(b, off, len));
+                if (n > 0) {
+                    return n;
+                }
+                if (done) {
+                    return -1;
+                }
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for TTS audio");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.aimusicdispatcher.model.barrage;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 /**
@@ -10,5 +11,11 @@ public class BarrageRequest {
     private String user;
     private String content;
     private Long timestamp;
+    // Song name already parsed from content by the dispatcher, so it is extracted once per message
+    @JsonIgnore
+    private String songName;
+    // Douyin user id of the sender, set by the dispatcher; used for queue priority and fairness
+    @JsonIgnore
+    private String userId;
     // Potentially other fields like userLevel, roomId, etc.
 }
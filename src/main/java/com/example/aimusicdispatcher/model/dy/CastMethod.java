@@ -3,6 +3,9 @@ package com.example.aimusicdispatcher.model.dy;
 import com.fasterxml.jackson.annotation.JsonValue;
 import lombok.Getter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 弹幕类型
  */
@@ -23,6 +26,14 @@ public enum CastMethod {
     /** 自定义消息 */
     CUSTOM("CustomMessage");
 
+    private static final Map<String, CastMethod> BY_VALUE = new HashMap<>();
+
+    static {
+        for (CastMethod method : values()) {
+            BY_VALUE.put(method.value, method);
+        }
+    }
+
     @JsonValue
     private final String value;
 
@@ -32,11 +43,6 @@ public enum CastMethod {
 
     @com.fasterxml.jackson.annotation.JsonCreator
     public static CastMethod fromValue(String value) {
-        for (CastMethod method : values()) {
-            if (method.value.equals(value)) {
-                return method;
-            }
-        }
-        return null;
+        return value == null ? null : BY_VALUE.get(value);
     }
 }
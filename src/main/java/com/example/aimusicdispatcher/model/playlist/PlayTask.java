@@ -1,14 +1,43 @@
 package com.example.aimusicdispatcher.model.playlist;
 
+import com.example.aimusicdispatcher.generator.TtsStream;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 @Data
 @Builder
 public class PlayTask {
+    private Long queueId;          // 点歌队列日志中的任务编号，未记入日志（如冷场填充）时为 null
     private Long musicId;
     private String songName;
     private String introAudioPath; // 口播音频文件路径
     private String songFilePath;   // 歌曲文件路径
     private String requester;      // 点歌人（可选）
+    private String requesterId;    // 点歌人的抖音用户 ID，公平调度按它区分用户，未知时按点歌人名称
+    @Builder.Default
+    private PlayTier tier = PlayTier.REQUEST; // 优先级档位
+    private long giftValue;        // 点歌人近期送礼的总价值（抖音币），GIFT 档内的调度权重
+    @Builder.Default
+    private LongAdder votes = new LongAdder(); // 点这首歌的次数（含第一次），排队期间的重复点歌合并到同一任务
+    @Builder.Default
+    private Set<String> requesters = ConcurrentHashMap.newKeySet(); // 所有点过这首歌的人
+    private Long durationMillis;   // 歌曲时长（毫秒），未知时为 null
+    private CompletableFuture<String> introFuture; // 异步生成中的口播音频路径（缓存未命中时），结果可能为 null
+    private CompletableFuture<TtsStream> introStream; // 口播开始合成时完成，可边合成边播放；未进入合成时结果为 null
+
+    /**
+     * 口播是否已就绪：已有口播路径，或异步生成已成功完成
+     */
+    public boolean isIntroReady() {
+        if (introAudioPath != null) {
+            return true;
+        }
+        return introFuture != null && introFuture.isDone() && !introFuture.isCompletedExceptionally()
+                && introFuture.getNow(null) != null;
+    }
 }
@@ -0,0 +1,19 @@
+package com.example.aimusicdispatcher.model.playlist;
+
+/**
+ * 点歌优先级档位，按声明顺序从高到低：上一档还有歌时不会播放下一档
+ */
+public enum PlayTier {
+    /**
+     * 送过礼的用户点的歌，同档内按礼物价值加权
+     */
+    GIFT,
+    /**
+     * 点赞获得权限（或权限系统关闭时）的普通点歌
+     */
+    REQUEST,
+    /**
+     * 冷场自动填充
+     */
+    AUTO_DJ
+}
@@ -0,0 +1,46 @@
+package com.example.aimusicdispatcher.player;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 音频输出后端
+ * PlaybackWorker 只负责决定播放什么，具体如何出声交给实现类：
+ * 进程内 PCM 引擎（PcmAudioOutput，输出到声卡或 PCM 文件/管道）或每个文件启动一次 ffplay（FfplayAudioOutput）。
+ */
+public interface AudioOutput extends AutoCloseable {
+
+    /**
+     * 播放音频文件（.mp3 / .wav），阻塞到音频全部交给输出为止。
+     * 带缓冲的实现可能在最后一段缓冲仍在播放时返回，下一段音频紧接着播放，没有空隙。
+     *
+     * @param filePath 音频文件路径
+     */
+    void play(String filePath);
+
+    /**
+     * 预备播放音频文件（由预取线程在上一首播放期间调用）：提前打开、预热文件，带缓冲的实现还会提前开始解码，
+     * 轮到播放时只需把暂存的数据交给输出。默认实现不做任何预备。
+     *
+     * @param filePath 音频文件路径
+     */
+    default PreparedTrack prepare(String filePath) {
+        return () -> play(filePath);
+    }
+
+    /**
+     * 播放音频流（如边合成边写入的口播），读到 EOF 后返回，流由实现类关闭。
+     *
+     * @param audio 音频数据
+     */
+    void play(InputStream audio);
+
+    /**
+     * 输出运行统计
+     */
+    Map<String, Object> getStats();
+
+    @Override
+    default void close() {
+    }
+}
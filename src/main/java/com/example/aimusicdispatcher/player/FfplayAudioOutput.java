@@ -0,0 +1,135 @@
+package com.example.aimusicdispatcher.player;
+
+import com.example.aimusicdispatcher.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个音频启动一次 ffplay 进程（原有实现）
+ * ffplay 的输出直接丢弃，不再为每个进程创建读取线程；音频流通过标准输入送入 ffplay。
+ * 预备时只把文件读一遍预热进页缓存；曲间空白按上一个 ffplay 退出到下一个启动的时间计，不含进程自身的启动耗时。
+ */
+public class FfplayAudioOutput implements AudioOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(FfplayAudioOutput.class);
+
+    private final String ffplayPath;
+    private final LongAdder processesStarted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram gapHistogram = new LatencyHistogram();
+    private volatile long lastExitNanos;
+
+    public FfplayAudioOutput(String ffplayPath) {
+        this.ffplayPath = ffplayPath;
+    }
+
+    @Override
+    public void play(String filePath) {
+        run(filePath, null);
+    }
+
+    /**
+     * 把文件读一遍预热进页缓存，ffplay 启动后读文件不再等磁盘
+     */
+    @Override
+    public PreparedTrack prepare(String filePath) {
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r"); FileChannel channel = file.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to warm audio file {}: {}", filePath, e.getMessage());
+        }
+        return () -> play(filePath);
+    }
+
+    @Override
+    public void play(InputStream audio) {
+        run("pipe:0", audio);
+    }
+
+    /**
+     * 启动 ffplay 播放 input 并等待结束；stdinSource 不为 null 时把它的内容写入 ffplay 的标准输入
+     */
+    private void run(String input, InputStream stdinSource) {
+        Process process = null;
+        try {
+            process = new ProcessBuilder(ffplayPath, "-nodisp", "-autoexit", input)
+                    .directory(new File(System.getProperty("user.dir")))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            processesStarted.increment();
+            if (lastExitNanos != 0) {
+                gapHistogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastExitNanos));
+            }
+
+            if (stdinSource != null) {
+                Process target = process;
+                Thread pump = new Thread(() -> {
+                    try (InputStream in = stdinSource; OutputStream out = target.getOutputStream()) {
+                        byte[] buffer = new byte[8192];
+                        int n;
+                        while ((n = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, n);
+                            out.flush(); // 每个音频块立即送出，尽早出声
+                        }
+                    } catch (IOException e) {
+                        // ffplay 提前退出时写管道会失败，忽略
+                    }
+                }, "FfplayStdinPump");
+                pump.setDaemon(true);
+                pump.start();
+            }
+
+            int exitCode = process.waitFor();
+            lastExitNanos = System.nanoTime();
+            if (exitCode != 0) {
+                failures.increment();
+                log.warn("ffplay exited with non-zero code {} for file: {}", exitCode, input);
+            }
+        } catch (IOException e) {
+            failures.increment();
+            log.error("Error executing ffplay for file {}: {}", input, e.getMessage());
+            closeQuietly(stdinSource);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("ffplay process interrupted for file: {}", input);
+            process.destroyForcibly();
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 仅释放文件句柄
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("output", "ffplay");
+        stats.put("processesStarted", processesStarted.sum());
+        stats.put("failures", failures.sum());
+        stats.put("gapMillis", gapHistogram.snapshot());
+        return stats;
+    }
+}
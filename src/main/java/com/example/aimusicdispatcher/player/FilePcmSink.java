@@ -0,0 +1,97 @@
+package com.example.aimusicdispatcher.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输出原始 PCM（16 bit 小端、交错声道）到文件或命名管道，用于没有声卡的服务器，
+ * 例如由 ffmpeg -f s16le 读取命名管道后推流。
+ * 文件在第一次写入时才打开（打开命名管道会阻塞到有读端连接），写入失败后关闭，下次写入重新打开。
+ * 开启实时节奏时按采样率限速，最多领先墙上时钟 LEAD_MILLIS，不会一次性把整首歌写完。
+ */
+public class FilePcmSink implements PcmSink {
+
+    private static final Logger log = LoggerFactory.getLogger(FilePcmSink.class);
+    private static final long LEAD_MILLIS = 200;
+
+    private final Path path;
+    private final boolean realtime;
+    private final double bytesPerMilli;
+    private OutputStream out;
+    private long startNanos = -1;
+    private long bytesSinceStart;
+
+    public FilePcmSink(Path path, AudioFormat format, boolean realtime) {
+        this.path = path;
+        this.realtime = realtime;
+        this.bytesPerMilli = format.getFrameRate() * format.getFrameSize() / 1000.0;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out == null) {
+            out = new FileOutputStream(path.toFile(), true);
+            log.info("Opened PCM sink {}.", path);
+        }
+        try {
+            out.write(b, off, len);
+        } catch (IOException e) {
+            closeStream();
+            throw e;
+        }
+        if (realtime) {
+            pace(len);
+        }
+    }
+
+    private void pace(int len) {
+        long now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+            bytesSinceStart = 0;
+        }
+        bytesSinceStart += len;
+        long aheadMillis = (long) (bytesSinceStart / bytesPerMilli) - TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+        if (aheadMillis > LEAD_MILLIS) {
+            try {
+                Thread.sleep(aheadMillis - LEAD_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void idle() {
+        startNanos = -1;
+    }
+
+    @Override
+    public String name() {
+        return "pcm-file";
+    }
+
+    @Override
+    public void close() {
+        closeStream();
+    }
+
+    private void closeStream() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // 读端已断开时关闭会失败
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.aimusicdispatcher.player;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * 输出到本机声卡（javax.sound.sampled 的 SourceDataLine）
+ * 线路在构造时打开并一直保持，口播和歌曲连续写入同一条线路，中间不需要重新打开设备。
+ */
+public class JavaSoundPcmSink implements PcmSink {
+
+    /** 线路自身的缓冲时长（毫秒），主要的缓冲在 PcmAudioOutput 的环形缓冲区 */
+    private static final int LINE_BUFFER_MILLIS = 200;
+
+    private final SourceDataLine line;
+
+    public JavaSoundPcmSink(AudioFormat format) throws LineUnavailableException {
+        this.line = AudioSystem.getSourceDataLine(format);
+        int frameSize = format.getFrameSize();
+        int bufferBytes = (int) (format.getFrameRate() * LINE_BUFFER_MILLIS / 1000) * frameSize;
+        line.open(format, bufferBytes);
+        line.start();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        line.write(b, off, len);
+    }
+
+    @Override
+    public String name() {
+        return "javasound";
+    }
+
+    @Override
+    public void close() {
+        line.stop();
+        line.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.aimusicdispatcher.player;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于内存映射的只读输入流
+ * 打开时把整个文件映射并预读进页缓存，之后的解码直接读内存，不再有文件读系统调用。
+ */
+final class MappedInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private MappedInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 映射并预读整个文件；映射在通道关闭后依然有效
+     */
+    static MappedInputStream open(String filePath) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r"); FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Audio file too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.load();
+            return new MappedInputStream(mapped);
+        }
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = Math.min(len, buffer.remaining());
+        if (n == 0) {
+            return -1;
+        }
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.aimusicdispatcher.player;
+
+import com.example.aimusicdispatcher.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内播放引擎
+ * MP3 / WAV 被解码为统一格式的 PCM 写入预分配的环形缓冲区，常驻的 AudioOutput 线程从缓冲区取数据写入 PcmSink。
+ * play 在音频全部解码进缓冲区后就返回，下一段音频（口播之后的歌曲）紧接着写入，播放时中间没有进程启动带来的空白。
+ * 音频文件通过 {@link #prepare(String)} 内存映射并预读，在后台线程提前解码到暂存缓冲区，轮到播放时只需把暂存数据搬进输出缓冲区。
+ * 有音频正在解码、缓冲区却被读空时计为一次欠载（underrun），例如边合成边播放的口播合成速度跟不上播放速度。
+ * 每段音频的第一个字节送到 sink 时，记录它之前输出断流的时长（连续播放为 0）到曲间空白直方图。
+ */
+public class PcmAudioOutput implements AudioOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(PcmAudioOutput.class);
+    /** 输出线程每次写入 PcmSink 的时长（毫秒） */
+    private static final int PERIOD_MILLIS = 20;
+    /** 缓冲区为空时输出线程每次等待的时长（毫秒） */
+    private static final long IDLE_WAIT_MILLIS = 50;
+    /** 预备音频的暂存缓冲区时长（毫秒），解码到这么多后暂停，等轮到播放 */
+    private static final int STAGING_MILLIS = 1000;
+
+    private final PcmSink sink;
+    private final AudioFormat format;
+    private final int frameSize;
+    private final double bytesPerMilli;
+    private final PcmRingBuffer ring;
+    private final PcmDecoder decoder;
+    private final byte[] transfer;
+    private final ExecutorService decodePool;
+    private final Thread outputThread;
+    private volatile boolean running = true;
+    private volatile boolean producing;
+    private boolean sinkFailing; // 仅输出线程访问
+    // 各段音频在输出缓冲区中的起始位置，输出线程读过这个位置时记录曲间空白
+    private final Queue<Long> trackStarts = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder tracksPlayed = new LongAdder();
+    private final LongAdder tracksPrepared = new LongAdder();
+    private final LongAdder decodeFailures = new LongAdder();
+    private final LongAdder underruns = new LongAdder();
+    private final LongAdder underrunMillis = new LongAdder();
+    private final LongAdder framesWritten = new LongAdder();
+    private final LongAdder sinkErrors = new LongAdder();
+    private final LatencyHistogram gapHistogram = new LatencyHistogram();
+
+    /**
+     * @param sink         PCM 去向
+     * @param format       输出格式，必须是 16 bit 小端 PCM，1 或 2 声道
+     * @param bufferMillis 环形缓冲区时长（毫秒）
+     */
+    public PcmAudioOutput(PcmSink sink, AudioFormat format, int bufferMillis) {
+        this.sink = sink;
+        this.format = format;
+        this.frameSize = format.getFrameSize();
+        this.bytesPerMilli = format.getFrameRate() * frameSize / 1000.0;
+        this.ring = new PcmRingBuffer(framesFor(Math.max(PERIOD_MILLIS * 2, bufferMillis)) * frameSize);
+        this.decoder = new PcmDecoder(Math.round(format.getSampleRate()), format.getChannels());
+        this.transfer = new byte[framesFor(PERIOD_MILLIS) * frameSize];
+        this.decodePool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "AudioDecode");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.outputThread = new Thread(this::runOutput, "AudioOutput");
+        this.outputThread.setDaemon(true);
+        this.outputThread.start();
+        log.info("In-process audio output started: {} to {}, {} ms buffer.", format, sink.name(), bufferMillis);
+    }
+
+    private int framesFor(int millis) {
+        return Math.max(1, (int) (format.getFrameRate() * millis / 1000));
+    }
+
+    @Override
+    public void play(String filePath) {
+        prepare(filePath).play();
+    }
+
+    /**
+     * 内存映射并预读文件，在后台线程开始解码到暂存缓冲区
+     */
+    @Override
+    public PreparedTrack prepare(String filePath) {
+        InputStream in;
+        try {
+            in = MappedInputStream.open(filePath);
+        } catch (IOException e) {
+            decodeFailures.increment();
+            log.error("Failed to open audio file {}: {}", filePath, e.getMessage());
+            return () -> {
+            };
+        }
+        try {
+            PcmPreparedTrack track = new PcmPreparedTrack(filePath, in);
+            tracksPrepared.increment();
+            return track;
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+            return () -> {
+            };
+        }
+    }
+
+    @Override
+    public synchronized void play(InputStream audio) {
+        producing = true;
+        trackStarts.add(ring.writePosition());
+        try (InputStream input = audio) {
+            decoder.decode(input, ring::write);
+            tracksPlayed.increment();
+        } catch (IOException e) {
+            decodeFailures.increment();
+            log.error("Failed to decode audio stream: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ring.clear();
+            log.warn("Playback of audio stream interrupted.");
+        } finally {
+            producing = false;
+        }
+    }
+
+    /**
+     * 输出线程：按固定周期从缓冲区取整数个帧写入 sink
+     */
+    private void runOutput() {
+        byte[] period = new byte[framesFor(PERIOD_MILLIS) * frameSize];
+        int carry = 0; // 上次读到的不足一帧的字节，保留在 period 开头
+        boolean playing = false;
+        long underrunStart = 0;
+        long silentSince = 0; // 输出断流的开始时间，有数据时为 0
+        while (running) {
+            try {
+                long position = ring.readPosition();
+                int n = ring.read(period, carry, period.length - carry, 0);
+                if (n == 0) {
+                    if (playing) {
+                        silentSince = System.nanoTime();
+                        if (producing) {
+                            underruns.increment();
+                            underrunStart = silentSince;
+                        } else {
+                            sink.idle();
+                        }
+                        playing = false;
+                    }
+                    position = ring.readPosition();
+                    n = ring.read(period, carry, period.length - carry, IDLE_WAIT_MILLIS);
+                    if (n == 0) {
+                        continue;
+                    }
+                    if (underrunStart != 0) {
+                        underrunMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - underrunStart));
+                        underrunStart = 0;
+                    }
+                }
+                recordTrackStarts(position + n, silentSince);
+                silentSince = 0;
+                playing = true;
+                int total = carry + n;
+                int writable = total - total % frameSize;
+                if (writable > 0) {
+                    writeToSink(period, writable);
+                }
+                carry = total - writable;
+                System.arraycopy(period, writable, period, 0, carry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 起始位置在本次读到的数据之内的音频，记录它之前的断流时长；启动后的第一段音频没有上一首，不记录
+     */
+    private void recordTrackStarts(long readEnd, long silentSince) {
+        Long start;
+        while ((start = trackStarts.peek()) != null && start < readEnd) {
+            trackStarts.poll();
+            if (framesWritten.sum() > 0) {
+                gapHistogram.record(silentSince == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - silentSince));
+            }
+        }
+    }
+
+    private void writeToSink(byte[] data, int len) {
+        try {
+            sink.write(data, 0, len);
+            framesWritten.add(len / frameSize);
+            sinkFailing = false;
+        } catch (IOException e) {
+            sinkErrors.increment();
+            // 连续失败只记一次日志（例如命名管道的读端断开），这段音频被丢弃
+            if (!sinkFailing) {
+                log.warn("Failed to write to audio sink {}: {}", sink.name(), e.getMessage());
+                sinkFailing = true;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("output", sink.name());
+        stats.put("format", format.toString());
+        stats.put("bufferMillis", Math.round(ring.capacity() / bytesPerMilli));
+        stats.put("bufferedMillis", Math.round(ring.available() / bytesPerMilli));
+        stats.put("tracksPlayed", tracksPlayed.sum());
+        stats.put("tracksPrepared", tracksPrepared.sum());
+        stats.put("decodeFailures", decodeFailures.sum());
+        stats.put("underruns", underruns.sum());
+        stats.put("underrunMillis", underrunMillis.sum());
+        stats.put("framesWritten", framesWritten.sum());
+        stats.put("sinkErrors", sinkErrors.sum());
+        stats.put("gapMillis", gapHistogram.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        decodePool.shutdownNow();
+        outputThread.interrupt();
+        try {
+            outputThread.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+        log.info("In-process audio output stopped.");
+    }
+
+    /**
+     * 预备好的音频：后台线程用独立的解码器解码到暂存缓冲区，暂存满后等待播放时被搬走
+     */
+    private final class PcmPreparedTrack implements PreparedTrack {
+
+        private final String source;
+        private final PcmRingBuffer staging = new PcmRingBuffer(framesFor(STAGING_MILLIS) * frameSize);
+        private final Future<?> decoding;
+        private volatile boolean decoded;
+        private volatile boolean failed;
+
+        private PcmPreparedTrack(String source, InputStream input) {
+            this.source = source;
+            this.decoding = decodePool.submit(() -> {
+                PcmDecoder trackDecoder = new PcmDecoder(Math.round(format.getSampleRate()), format.getChannels());
+                try (InputStream in = input) {
+                    trackDecoder.decode(in, staging::write);
+                } catch (IOException e) {
+                    failed = true;
+                    log.error("Failed to decode audio {}: {}", source, e.getMessage());
+                } catch (InterruptedException e) {
+                    failed = true;
+                } finally {
+                    decoded = true;
+                }
+            });
+        }
+
+        @Override
+        public void play() {
+            synchronized (PcmAudioOutput.this) {
+                producing = true;
+                trackStarts.add(ring.writePosition());
+                try {
+                    while (true) {
+                        // 先看解码是否结束再读：结束前写入暂存区的数据一定能在这次读到
+                        boolean done = decoded;
+                        int n = staging.read(transfer, 0, transfer.length, done ? 0 : IDLE_WAIT_MILLIS);
+                        if (n > 0) {
+                            ring.write(transfer, 0, n);
+                        } else if (done) {
+                            break;
+                        }
+                    }
+                    if (failed) {
+                        decodeFailures.increment();
+                    } else {
+                        tracksPlayed.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    ring.clear();
+                    log.warn("Playback of {} interrupted.", source);
+                } finally {
+                    producing = false;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            decoding.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.aimusicdispatcher.player;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 把 MP3 / WAV 解码为统一格式的 16 bit 小端 PCM
+ * 按文件头识别格式（RIFF/WAVE 为 WAV，其余按 MP3 处理），MP3 用 JLayer 逐帧解码，WAV 用 javax.sound.sampled 读取。
+ * 口播（edge-tts 默认 24kHz 单声道）和歌曲的采样率、声道数各不相同，统一换算到输出格式：
+ * 声道数不同时复制或混合声道，采样率不同时做线性插值重采样，这样口播和歌曲可以连续写入同一条输出线路。
+ * 解码缓冲区在构造时分配，实例不是线程安全的。
+ */
+class PcmDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(PcmDecoder.class);
+    private static final int OUT_FRAMES = 4096;
+    private static final int WAV_READ_BYTES = 16384;
+
+    private final int targetRate;
+    private final int targetChannels;
+    private final byte[] out;
+    private final byte[] wavBytes = new byte[WAV_READ_BYTES];
+    private final short[] wavSamples = new short[WAV_READ_BYTES / 2];
+    private int outLen;
+
+    // 重采样状态：prev 是上一个源帧，position 是下一个输出帧相对 prev 的位置（以源帧为单位）
+    private int sourceRate;
+    private int sourceChannels;
+    private double step;
+    private double position;
+    private boolean hasPrev;
+    private final int[] prev = new int[2];
+    private final int[] cur = new int[2];
+
+    PcmDecoder(int targetRate, int targetChannels) {
+        this.targetRate = targetRate;
+        this.targetChannels = Math.max(1, Math.min(2, targetChannels));
+        this.out = new byte[OUT_FRAMES * this.targetChannels * 2];
+    }
+
+    /**
+     * 解码整个音频，按块交给 writer；writer 收到的总是整数个输出帧
+     *
+     * @return 输出的帧数
+     */
+    long decode(InputStream in, PcmWriter writer) throws IOException, InterruptedException {
+        BufferedInputStream input = new BufferedInputStream(in, 65536);
+        sourceRate = -1;
+        outLen = 0;
+        long[] frames = new long[1];
+        PcmWriter counting = (b, off, len) -> {
+            frames[0] += len / (targetChannels * 2);
+            writer.write(b, off, len);
+        };
+        if (isWav(input)) {
+            decodeWav(input, counting);
+        } else {
+            decodeMp3(input, counting);
+        }
+        flush(counting);
+        return frames[0];
+    }
+
+    private static boolean isWav(BufferedInputStream input) throws IOException {
+        byte[] head = new byte[12];
+        input.mark(head.length);
+        int n = input.readNBytes(head, 0, head.length);
+        input.reset();
+        return n == head.length && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'A' && head[10] == 'V' && head[11] == 'E';
+    }
+
+    private void decodeMp3(InputStream input, PcmWriter writer) throws IOException, InterruptedException {
+        Bitstream bitstream = new Bitstream(input);
+        Decoder decoder = new Decoder();
+        int badFrames = 0;
+        try {
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                try {
+                    SampleBuffer samples = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                    int channels = samples.getChannelCount();
+                    accept(samples.getBuffer(), samples.getBufferLength() / channels, samples.getSampleFrequency(), channels, writer);
+                } catch (DecoderException | ArrayIndexOutOfBoundsException e) {
+                    // 个别损坏的帧直接跳过
+                    badFrames++;
+                }
+                bitstream.closeFrame();
+            }
+        } catch (BitstreamException e) {
+            throw new IOException("MP3 bitstream error: " + e.getMessage(), e);
+        } finally {
+            try {
+                bitstream.close();
+            } catch (BitstreamException ignored) {
+                // 输入流由调用方关闭
+            }
+        }
+        if (badFrames > 0) {
+            log.debug("Skipped {} undecodable MP3 frames.", badFrames);
+        }
+    }
+
+    private void decodeWav(InputStream input, PcmWriter writer) throws IOException, InterruptedException {
+        AudioInputStream stream;
+        try {
+            stream = AudioSystem.getAudioInputStream(input);
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Unsupported WAV file: " + e.getMessage(), e);
+        }
+        AudioFormat format = stream.getFormat();
+        AudioFormat pcm16 = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        if (!format.matches(pcm16)) {
+            stream = AudioSystem.getAudioInputStream(pcm16, stream);
+        }
+        int channels = pcm16.getChannels();
+        int rate = Math.round(pcm16.getSampleRate());
+        int frameBytes = channels * 2;
+        int chunk = WAV_READ_BYTES - WAV_READ_BYTES % frameBytes;
+        int n;
+        while ((n = stream.readNBytes(wavBytes, 0, chunk)) > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            int samples = n / 2;
+            for (int i = 0; i < samples; i++) {
+                wavSamples[i] = (short) ((wavBytes[2 * i] & 0xFF) | (wavBytes[2 * i + 1] << 8));
+            }
+            accept(wavSamples, n / frameBytes, rate, channels, writer);
+        }
+    }
+
+    /**
+     * 换算一段交错排列的源样本并写入输出缓冲
+     */
+    private void accept(short[] samples, int frames, int rate, int channels, PcmWriter writer) throws InterruptedException {
+        if (rate != sourceRate || channels != sourceChannels) {
+            sourceRate = rate;
+            sourceChannels = channels;
+            step = (double) rate / targetRate;
+            position = 0;
+            hasPrev = false;
+        }
+        for (int i = 0; i < frames; i++) {
+            int left = samples[i * channels];
+            int right = channels > 1 ? samples[i * channels + 1] : left;
+            if (targetChannels == 1) {
+                cur[0] = (left + right) / 2;
+            } else {
+                cur[0] = left;
+                cur[1] = right;
+            }
+            if (rate == targetRate) {
+                emit(cur[0], cur[1], writer);
+                continue;
+            }
+            if (!hasPrev) {
+                prev[0] = cur[0];
+                prev[1] = cur[1];
+                hasPrev = true;
+                continue;
+            }
+            while (position < 1.0) {
+                emit((int) (prev[0] + (cur[0] - prev[0]) * position),
+                        (int) (prev[1] + (cur[1] - prev[1]) * position), writer);
+                position += step;
+            }
+            position -= 1.0;
+            prev[0] = cur[0];
+            prev[1] = cur[1];
+        }
+    }
+
+    private void emit(int left, int right, PcmWriter writer) throws InterruptedException {
+        out[outLen++] = (byte) left;
+        out[outLen++] = (byte) (left >> 8);
+        if (targetChannels == 2) {
+            out[outLen++] = (byte) right;
+            out[outLen++] = (byte) (right >> 8);
+        }
+        if (outLen == out.length) {
+            flush(writer);
+        }
+    }
+
+    private void flush(PcmWriter writer) throws InterruptedException {
+        if (outLen > 0) {
+            writer.write(out, 0, outLen);
+            outLen = 0;
+        }
+    }
+
+    /**
+     * 接收解码后的 PCM 数据
+     */
+    @FunctionalInterface
+    interface PcmWriter {
+        void write(byte[] b, int off, int len) throws InterruptedException;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.aimusicdispatcher.player;
+
+/**
+ * 单生产者单消费者的 PCM 字节环形缓冲区
+ * 容量在构造时一次性分配，解码线程写入、输出线程读出；写满时生产者等待，读空时消费者可限时等待。
+ * 音频数据按几 KB 一块读写，每秒只有几十次加锁，直接用对象监视器即可。
+ */
+class PcmRingBuffer {
+
+    private final byte[] buffer;
+    private long writePos;
+    private long readPos;
+
+    PcmRingBuffer(int capacity) {
+        this.buffer = new byte[Math.max(1, capacity)];
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * 写入全部数据，空间不足时等待消费者读出
+     */
+    synchronized void write(byte[] src, int off, int len) throws InterruptedException {
+        while (len > 0) {
+            while (writePos - readPos == buffer.length) {
+                wait();
+            }
+            int free = (int) (buffer.length - (writePos - readPos));
+            int index = (int) (writePos % buffer.length);
+            int n = Math.min(len, Math.min(free, buffer.length - index));
+            System.arraycopy(src, off, buffer, index, n);
+            writePos += n;
+            off += n;
+            len -= n;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 读出最多 len 字节，缓冲区为空时最多等待 timeoutMillis
+     *
+     * @return 读出的字节数，超时仍为空时返回 0
+     */
+    synchronized int read(byte[] dst, int off, int len, long timeoutMillis) throws InterruptedException {
+        if (writePos == readPos && timeoutMillis > 0) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while (writePos == readPos && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+        int read = 0;
+        while (read < len && writePos > readPos) {
+            int index = (int) (readPos % buffer.length);
+            int n = (int) Math.min(len - read, Math.min(writePos - readPos, buffer.length - index));
+            System.arraycopy(buffer, index, dst, off + read, n);
+            readPos += n;
+            read += n;
+        }
+        if (read > 0) {
+            notifyAll();
+        }
+        return read;
+    }
+
+    /**
+     * 累计写入的字节数
+     */
+    synchronized long writePosition() {
+        return writePos;
+    }
+
+    /**
+     * 累计读出的字节数
+     */
+    synchronized long readPosition() {
+        return readPos;
+    }
+
+    /**
+     * 当前缓冲的字节数
+     */
+    synchronized int available() {
+        return (int) (writePos - readPos);
+    }
+
+    /**
+     * 丢弃缓冲中的数据
+     */
+    synchronized void clear() {
+        readPos = writePos;
+        notifyAll();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.aimusicdispatcher.player;
+
+import java.io.IOException;
+
+/**
+ * PCM 数据的最终去向：声卡线路（JavaSoundPcmSink）或原始 PCM 文件/命名管道（FilePcmSink）。
+ * 只由 PcmAudioOutput 的输出线程调用，每次写入整数个帧。
+ */
+public interface PcmSink extends AutoCloseable {
+
+    /**
+     * 写入 PCM 数据，按播放速度阻塞
+     */
+    void write(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * 没有音频可播时调用，下次写入视为新的一段连续输出
+     */
+    default void idle() {
+    }
+
+    /**
+     * 用于统计与日志的名称
+     */
+    String name();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,19 @@
+package com.example.aimusicdispatcher.player;
+
+/**
+ * 已预备好的音频：文件已预热，进程内引擎下已开始解码到暂存缓冲区。
+ * 只能播放一次；不再播放时调用 cancel 释放资源。
+ */
+public interface PreparedTrack {
+
+    /**
+     * 播放，语义同 {@link AudioOutput#play(String)}
+     */
+    void play();
+
+    /**
+     * 放弃播放，停止后台解码
+     */
+    default void cancel() {
+    }
+}
@@ -9,6 +9,4 @@ import java.util.Optional;
 @Repository
 public interface MusicLibraryRepository extends JpaRepository<MusicLibrary, Long> {
     Optional<MusicLibrary> findBySongName(String songName);
-
-    Optional<MusicLibrary> findFirstByOrderByLastPlayedAtAsc();
 }
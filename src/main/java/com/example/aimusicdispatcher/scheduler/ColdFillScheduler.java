@@ -0,0 +1,260 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.service.CatalogSnapshot;
+import com.example.aimusicdispatcher.service.MusicCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * 冷场自动填充选歌器
+ * 基于内存歌曲目录快照，用按最近播放时间排序的索引最小堆（下标即歌曲在快照中的位置）选出最久没播放的歌，
+ * 每次播放后 O(log n) 调整堆，全程不访问数据库；可选按播放次数加权随机（树状数组维护权重前缀和）以避免严格轮转，
+ * 每次播放只更新一首歌的权重，抽样和更新都是 O(log n)。
+ * 快照替换后会在下一次调用时重建内部状态，并保留本进程内记录的播放信息。
+ */
+@Component
+public class ColdFillScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ColdFillScheduler.class);
+    private static final int WEIGHTED_MAX_ATTEMPTS = 8;
+
+    private final MusicCatalog musicCatalog;
+    private final PlaybackProperties playbackProperties;
+    private final LongSupplier clock;
+    private final Random random;
+
+    // 以下状态均由 this 保护
+    private CatalogSnapshot snapshot;
+    private long[] lastPlayed;
+    private int[] playCounts;
+    private int[] heap;
+    private int[] heapPosition;
+    private double[] weights;
+    private double[] weightTree;
+    private int weightUpdates;
+    private final long[] recentIds;
+    private int recentCount;
+    private int recentHead;
+
+    @Autowired
+    public ColdFillScheduler(MusicCatalog musicCatalog, PlaybackProperties playbackProperties) {
+        this(musicCatalog, playbackProperties, System::currentTimeMillis, new Random());
+    }
+
+    ColdFillScheduler(MusicCatalog musicCatalog, PlaybackProperties playbackProperties, LongSupplier clock, Random random) {
+        this.musicCatalog = musicCatalog;
+        this.playbackProperties = playbackProperties;
+        this.clock = clock;
+        this.random = random;
+        this.recentIds = new long[Math.max(1, playbackProperties.getColdFillRecentExclusion())];
+    }
+
+    /**
+     * 选出下一首冷场自动播放的歌曲
+     *
+     * @return 选中的歌曲（由内存快照还原的值对象），歌曲库为空或尚未加载时返回 null
+     */
+    public synchronized MusicLibrary next() {
+        if (!syncWithCatalog()) {
+            return null;
+        }
+        int index = playbackProperties.getColdFillMode() == PlaybackProperties.ColdFillMode.WEIGHTED
+                ? sampleWeighted()
+                : heap[0];
+        return snapshot.toMusicLibrary(index);
+    }
+
+    /**
+     * 记录一次播放（包括点歌和冷场播放），更新最近播放时间和播放次数
+     */
+    public synchronized void recordPlay(Long musicId) {
+        if (musicId == null || !syncWithCatalog()) {
+            return;
+        }
+        int index = snapshot.indexOfId(musicId);
+        if (index < 0) {
+            return;
+        }
+        lastPlayed[index] = clock.getAsLong();
+        playCounts[index]++;
+        // 键只会变大，向下调整即可
+        siftDown(heapPosition[index]);
+        updateWeight(index);
+
+        recentIds[recentHead] = musicId;
+        recentHead = (recentHead + 1) % recentIds.length;
+        recentCount = Math.min(recentCount + 1, recentIds.length);
+    }
+
+    /**
+     * 确保内部状态与当前歌曲目录快照一致
+     *
+     * @return 是否有可选的歌曲
+     */
+    private boolean syncWithCatalog() {
+        CatalogSnapshot current = musicCatalog.getSnapshot();
+        if (current == null || current.size() == 0) {
+            if (current != null && current != snapshot) {
+                log.warn("No songs found in music library for cold-fill.");
+                snapshot = current;
+            }
+            return false;
+        }
+        if (current != snapshot) {
+            rebuild(current);
+        }
+        return true;
+    }
+
+    private void rebuild(CatalogSnapshot current) {
+        int size = current.size();
+        long[] newLastPlayed = new long[size];
+        int[] newPlayCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            newLastPlayed[i] = current.lastPlayedMillisAt(i);
+            newPlayCounts[i] = current.playCountAt(i);
+        }
+        // 保留旧快照期间在内存中记录、可能尚未落库的播放信息
+        if (snapshot != null && lastPlayed != null) {
+            for (int old = 0; old < snapshot.size(); old++) {
+                int index = current.indexOfId(snapshot.idAt(old));
+                if (index >= 0) {
+                    newLastPlayed[index] = Math.max(newLastPlayed[index], lastPlayed[old]);
+                    newPlayCounts[index] = Math.max(newPlayCounts[index], playCounts[old]);
+                }
+            }
+        }
+        snapshot = current;
+        lastPlayed = newLastPlayed;
+        playCounts = newPlayCounts;
+        heap = new int[size];
+        heapPosition = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            heapPosition[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        weights = new double[size];
+        weightTree = new double[size + 1];
+        buildWeightTree();
+        log.info("Cold-fill scheduler rebuilt over {} songs.", size);
+    }
+
+    private void siftDown(int position) {
+        int size = heap.length;
+        int song = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], song)) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = song;
+        heapPosition[song] = position;
+    }
+
+    private boolean less(int a, int b) {
+        return lastPlayed[a] != lastPlayed[b] ? lastPlayed[a] < lastPlayed[b] : a < b;
+    }
+
+    /**
+     * 按播放次数加权随机抽样，权重 = 1 / (1 + 播放次数)；多次抽中最近播放过的歌时退回最久没播放的歌
+     */
+    private int sampleWeighted() {
+        int size = heap.length;
+        double total = weightPrefix(size);
+        for (int attempt = 0; attempt < WEIGHTED_MAX_ATTEMPTS; attempt++) {
+            int index = findByWeight(random.nextDouble() * total);
+            if (size <= recentCount || playbackProperties.getColdFillRecentExclusion() <= 0 || !isRecent(snapshot.idAt(index))) {
+                return index;
+            }
+        }
+        return heap[0];
+    }
+
+    private boolean isRecent(long id) {
+        for (int i = 0; i < recentCount; i++) {
+            if (recentIds[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * O(n) 构建树状数组（下标从 1 开始），weightTree[i] 为以 i 结尾、长度 lowbit(i) 的区间权重和
+     */
+    private void buildWeightTree() {
+        int size = weights.length;
+        for (int i = 0; i < size; i++) {
+            weights[i] = 1.0 / (1 + playCounts[i]);
+            weightTree[i + 1] = weights[i];
+        }
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                weightTree[parent] += weightTree[i];
+            }
+        }
+        weightUpdates = 0;
+    }
+
+    /**
+     * 播放次数变化后只更新这一首歌的权重；累计更新次数达到歌曲数时重建一次，消除浮点增量误差
+     */
+    private void updateWeight(int index) {
+        int size = weights.length;
+        if (++weightUpdates >= size) {
+            buildWeightTree();
+            return;
+        }
+        double weight = 1.0 / (1 + playCounts[index]);
+        double delta = weight - weights[index];
+        weights[index] = weight;
+        for (int i = index + 1; i <= size; i += i & -i) {
+            weightTree[i] += delta;
+        }
+    }
+
+    private double weightPrefix(int count) {
+        double sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += weightTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 自顶向下查找前缀和首次超过 target 的歌曲下标
+     */
+    private int findByWeight(double target) {
+        int size = weights.length;
+        int position = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && weightTree[next] <= target) {
+                position = next;
+                target -= weightTree[next];
+            }
+        }
+        return Math.min(position, size - 1);
+    }
+}
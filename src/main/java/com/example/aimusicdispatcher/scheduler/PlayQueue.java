@@ -0,0 +1,433 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分档、按用户公平的点歌队列
+ * 先按档位（送礼 > 点赞 > 自动填充）出队；同一档内按加权公平排队（WFQ）：
+ * 每首歌的虚拟完成时间 = max(本档虚拟时钟, 该用户在本档上一首的完成时间) + 1 / 权重，按完成时间从小到大出队。
+ * 权重相同时即为按用户轮转，同一用户连点多首不会挡住其他人；送礼档的权重为用户近期送礼的总价值，送得多的用户更靠前、轮得更频繁。
+ * 每个用户在队列中的歌曲数有上限。入队、出队都是对二叉堆 O(log n) 的调整，在对象监视器内完成。
+ * <p>
+ * 队列按 musicId 建索引，已在排队的歌再被点时合并到原任务：只累加票数、记录点歌人，不占队列长度，
+ * 队列长度与不同歌曲数成正比而不是与弹幕量成正比。按公平顺序出队时合并不加锁，只是一次哈希查找和 LongAdder 累加；
+ * 按票数排序或更高档位的用户点同一首歌时，在监视器内调整该任务在堆中的位置。
+ * 入队、合并、出队事件通知给 {@link Listener}（点歌队列日志），新任务在能被合并之前、出队在监视器内通知，保证日志中的事件顺序。
+ */
+public class PlayQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxPerUser;
+    private final boolean orderByVotes;
+    // 排队中的歌曲，写入在监视器内，合并时无锁读取
+    private final Map<Long, Entry> byMusicId = new ConcurrentHashMap<>();
+    private final LongAdder merged = new LongAdder();
+    private volatile Listener listener = Listener.NONE;
+
+    // 以下状态均由 this 保护
+    private Entry[] heap = new Entry[INITIAL_CAPACITY];
+    private int size;
+    private long sequence;
+    private final double[] virtualTime = new double[PlayTier.values().length];
+    private final Map<String, UserState> users = new HashMap<>();
+    private final Map<PlayTier, Integer> tierCounts = new EnumMap<>(PlayTier.class);
+    private long rejectedByCap;
+    private long promoted;
+
+    /**
+     * @param maxPerUser   每个用户最多同时排队的歌曲数，不大于 0 表示不限
+     * @param orderByVotes 同一档内是否先按票数从多到少出队，票数相同时再按公平顺序
+     */
+    public PlayQueue(int maxPerUser, boolean orderByVotes) {
+        this.maxPerUser = maxPerUser;
+        this.orderByVotes = orderByVotes;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 入队；同一首歌已在排队时合并到原任务
+     */
+    public OfferResult offer(PlayTask task) {
+        Entry queued = task.getMusicId() != null ? byMusicId.get(task.getMusicId()) : null;
+        if (queued != null && !orderByVotes && tierOf(task).ordinal() >= queued.tier) {
+            // 与出队并发时可能合并到刚出队、即将播放的任务上，这次点歌同样得到满足
+            vote(queued.task, task);
+            return OfferResult.MERGED;
+        }
+        return offerLocked(task);
+    }
+
+    private synchronized OfferResult offerLocked(PlayTask task) {
+        Entry queued = task.getMusicId() != null ? byMusicId.get(task.getMusicId()) : null;
+        if (queued != null) {
+            vote(queued.task, task);
+            PlayTier tier = tierOf(task);
+            if (tier.ordinal() < queued.tier && reserve(task)) {
+                // 更高档的用户点了同一首：改由该用户按其档位和权重重新排队
+                removeAt(queued.heapIndex);
+                release(queued);
+                queued.task.setTier(tier);
+                queued.task.setGiftValue(task.getGiftValue());
+                queued.task.setRequesterId(task.getRequesterId());
+                assign(queued, task);
+                insert(queued);
+                promoted++;
+            } else if (orderByVotes) {
+                // 票数只增不减，向上调整即可
+                queued.votes = queued.task.getVotes().sum();
+                siftUp(queued.heapIndex);
+            }
+            return OfferResult.MERGED;
+        }
+        if (!reserve(task)) {
+            rejectedByCap++;
+            return OfferResult.REJECTED;
+        }
+        task.getVotes().increment();
+        addRequester(task, task);
+        listener.onAdded(task);
+        Entry entry = new Entry(task, sequence++);
+        assign(entry, task);
+        insert(entry);
+        if (task.getMusicId() != null) {
+            byMusicId.put(task.getMusicId(), entry);
+        }
+        notifyAll();
+        return OfferResult.ADDED;
+    }
+
+    /**
+     * 预检点歌是否会被接受：同一首歌已在排队时可合并，否则看点歌人是否还有排队名额。
+     * 只是检查不占名额，与之后的 offer 之间可能有并发入队，结果以 offer 为准
+     */
+    public synchronized boolean canAccept(PlayTask task) {
+        if (task.getMusicId() != null && byMusicId.containsKey(task.getMusicId())) {
+            return true;
+        }
+        UserState state = users.get(userKey(task));
+        return maxPerUser <= 0 || state == null || state.queued < maxPerUser;
+    }
+
+    /**
+     * 放回重启前未播放完的任务：不受每用户上限限制，票数和点歌人保持原样，不通知 Listener
+     */
+    synchronized void restore(PlayTask task) {
+        users.computeIfAbsent(userKey(task), k -> new UserState()).queued++;
+        Entry entry = new Entry(task, sequence++);
+        assign(entry, task);
+        insert(entry);
+        if (task.getMusicId() != null) {
+            byMusicId.putIfAbsent(task.getMusicId(), entry);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 检查并占用点歌人的排队名额
+     */
+    private boolean reserve(PlayTask task) {
+        UserState state = users.computeIfAbsent(userKey(task), k -> new UserState());
+        if (maxPerUser > 0 && state.queued >= maxPerUser) {
+            return false;
+        }
+        state.queued++;
+        return true;
+    }
+
+    /**
+     * 释放任务所属用户的排队名额；队列中没有该用户的歌后不再保留其完成时间，空闲的用户不会攒下优先权
+     */
+    private void release(Entry entry) {
+        UserState state = users.get(entry.user);
+        if (--state.queued == 0) {
+            users.remove(entry.user);
+        }
+        tierCounts.merge(PlayTier.values()[entry.tier], -1, Integer::sum);
+    }
+
+    /**
+     * 按 owner 的档位和权重计算任务的虚拟完成时间，名额已由 reserve 占用
+     */
+    private void assign(Entry entry, PlayTask owner) {
+        PlayTier tier = tierOf(owner);
+        int t = tier.ordinal();
+        UserState state = users.get(userKey(owner));
+        double finish = Math.max(virtualTime[t], state.lastFinish[t]) + 1.0 / weight(owner, tier);
+        state.lastFinish[t] = finish;
+        entry.user = userKey(owner);
+        entry.tier = t;
+        entry.finish = finish;
+        entry.votes = entry.task.getVotes().sum();
+        tierCounts.merge(tier, 1, Integer::sum);
+    }
+
+    /**
+     * 同一首歌正在播放时，点歌合并到已出队的任务上：累加票数、记录点歌人并通知 Listener，不占队列名额
+     */
+    void mergeIntoPlaying(PlayTask playing, PlayTask request) {
+        vote(playing, request);
+    }
+
+    private void vote(PlayTask target, PlayTask request) {
+        target.getVotes().increment();
+        addRequester(target, request);
+        merged.increment();
+        listener.onMerged(target, request);
+    }
+
+    private static void addRequester(PlayTask target, PlayTask request) {
+        if (request.getRequester() != null) {
+            target.getRequesters().add(request.getRequester());
+        }
+    }
+
+    /**
+     * 取出下一首，队列为空时立即返回 null
+     */
+    public synchronized PlayTask poll() {
+        if (size == 0) {
+            return null;
+        }
+        Entry head = heap[0];
+        removeAt(0);
+        if (head.task.getMusicId() != null) {
+            byMusicId.remove(head.task.getMusicId(), head);
+        }
+        virtualTime[head.tier] = Math.max(virtualTime[head.tier], head.finish);
+        release(head);
+        listener.onPolled(head.task);
+        return head.task;
+    }
+
+    /**
+     * 查看下一首但不出队，队列为空时返回 null；之后的入队可能排到它前面
+     */
+    public synchronized PlayTask peek() {
+        return size == 0 ? null : heap[0].task;
+    }
+
+    /**
+     * 取出下一首，队列为空时最多等待 timeout
+     */
+    public synchronized PlayTask poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (size == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return poll();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 按出队顺序排列的队列内容（按票数排序时以最近一次调整时的票数为准）
+     */
+    public synchronized List<PlayTask> snapshot() {
+        Entry[] ordered = Arrays.copyOf(heap, size);
+        Arrays.sort(ordered, this::compare);
+        List<PlayTask> tasks = new ArrayList<>(size);
+        for (Entry entry : ordered) {
+            tasks.add(entry.task);
+        }
+        return tasks;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        Map<String, Integer> tiers = new LinkedHashMap<>();
+        for (PlayTier tier : PlayTier.values()) {
+            tiers.put(tier.name(), tierCounts.getOrDefault(tier, 0));
+        }
+        stats.put("tiers", tiers);
+        stats.put("users", users.size());
+        stats.put("maxPerUser", maxPerUser);
+        stats.put("orderByVotes", orderByVotes);
+        stats.put("rejectedByCap", rejectedByCap);
+        stats.put("merged", merged.sum());
+        stats.put("promoted", promoted);
+        return stats;
+    }
+
+    private static String userKey(PlayTask task) {
+        if (task.getRequesterId() != null && !task.getRequesterId().isEmpty()) {
+            return "id:" + task.getRequesterId();
+        }
+        return "name:" + (task.getRequester() != null ? task.getRequester() : "");
+    }
+
+    private static PlayTier tierOf(PlayTask task) {
+        return task.getTier() != null ? task.getTier() : PlayTier.REQUEST;
+    }
+
+    private static double weight(PlayTask task, PlayTier tier) {
+        return tier == PlayTier.GIFT ? Math.max(1, task.getGiftValue()) : 1;
+    }
+
+    private void insert(Entry entry) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = entry;
+        entry.heapIndex = size;
+        siftUp(size++);
+    }
+
+    private void removeAt(int position) {
+        Entry removed = heap[position];
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (position != size) {
+            heap[position] = last;
+            last.heapIndex = position;
+            siftDown(position);
+            siftUp(last.heapIndex);
+        }
+        removed.heapIndex = -1;
+    }
+
+    private void siftUp(int position) {
+        Entry entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (compare(heap[parent], entry) <= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heap[position].heapIndex = position;
+            position = parent;
+        }
+        heap[position] = entry;
+        entry.heapIndex = position;
+    }
+
+    private void siftDown(int position) {
+        Entry entry = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(heap[child], entry) >= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            heap[position].heapIndex = position;
+            position = child;
+        }
+        heap[position] = entry;
+        entry.heapIndex = position;
+    }
+
+    private int compare(Entry a, Entry b) {
+        if (a.tier != b.tier) {
+            return Integer.compare(a.tier, b.tier);
+        }
+        if (orderByVotes && a.votes != b.votes) {
+            return Long.compare(b.votes, a.votes);
+        }
+        if (a.finish != b.finish) {
+            return Double.compare(a.finish, b.finish);
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    /**
+     * 队列事件监听
+     */
+    interface Listener {
+
+        Listener NONE = new Listener() {
+            @Override
+            public void onAdded(PlayTask task) {
+            }
+
+            @Override
+            public void onMerged(PlayTask target, PlayTask request) {
+            }
+
+            @Override
+            public void onPolled(PlayTask task) {
+            }
+        };
+
+        /**
+         * 新任务入队，在监视器内、任务可被合并之前调用
+         */
+        void onAdded(PlayTask task);
+
+        /**
+         * 点歌合并到已排队的任务（票数已累加）；按公平顺序出队时不持有监视器
+         */
+        void onMerged(PlayTask target, PlayTask request);
+
+        /**
+         * 任务出队，在监视器内调用
+         */
+        void onPolled(PlayTask task);
+    }
+
+    /**
+     * 入队结果
+     */
+    public enum OfferResult {
+        /**
+         * 作为新任务排队
+         */
+        ADDED,
+        /**
+         * 同一首歌已在排队，合并到原任务
+         */
+        MERGED,
+        /**
+         * 点歌人排队的歌曲数已达上限
+         */
+        REJECTED
+    }
+
+    private static final class Entry {
+        private final PlayTask task;
+        private final long sequence;
+        // 以下字段由 PlayQueue 的监视器保护，tier 在无锁合并时只作参考
+        private volatile int tier;
+        private String user;
+        private double finish;
+        private long votes;
+        private int heapIndex = -1;
+
+        private Entry(PlayTask task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class UserState {
+        private final double[] lastFinish = new double[PlayTier.values().length];
+        private int queued;
+    }
+}
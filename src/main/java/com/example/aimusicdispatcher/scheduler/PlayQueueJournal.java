@@ -0,0 +1,565 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 点歌队列日志（内存映射的追加写文件）
+ * 记录入队、合并、出队和播放完成事件，重启时回放出还没播放完的点歌（包括关闭时正在播放的歌）。
+ * 追加只写入映射区，不等待落盘；由调用方在单独的线程上定期调用 {@link #flush()} 批量 fsync（组提交）。
+ * 日志在 path.0 / path.1 两个文件之间交替压缩：刷盘线程把仍有效的任务写入另一个文件，落盘后再写入更大的代数（generation），
+ * 启动时取代数大且文件头有效的一个，压缩中途崩溃不会丢失旧日志。
+ * 记录格式：长度 + CRC32（含代数，上一代残留的记录校验不通过）+ 类型 + 任务编号 + 内容，遇到校验不通过的记录即视为日志末尾。
+ */
+final class PlayQueueJournal implements PlayQueue.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayQueueJournal.class);
+    private static final int MAGIC = 0x414D5051; // "AMPQ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int INITIAL_CAPACITY = 4 * 1024 * 1024;
+
+    private static final byte ENQUEUE = 1;
+    private static final byte VOTE = 2;
+    private static final byte DEQUEUE = 3;
+    private static final byte COMPLETE = 4;
+
+    private final Path[] slots;
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(256);
+
+    // 以下状态均由 this 保护
+    private int activeSlot;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+    private boolean closed;
+    private long nextId = 1;
+    // 已入队、尚未播放完的任务（按编号顺序，是按记录回放出的副本），以及其中已出队的编号（按出队顺序）
+    private final Map<Long, PlayTask> live = new LinkedHashMap<>();
+    private final Set<Long> dequeued = new LinkedHashSet<>();
+    private int restored;
+    private long appends;
+    private long bytesAppended;
+    private long flushes;
+    private long compactions;
+    private long failures;
+
+    private PlayQueueJournal(Path path) {
+        this.slots = new Path[]{
+                path.resolveSibling(path.getFileName() + ".0"),
+                path.resolveSibling(path.getFileName() + ".1")};
+    }
+
+    /**
+     * 打开日志并回放，文件不存在时新建
+     */
+    static PlayQueueJournal open(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        PlayQueueJournal journal = new PlayQueueJournal(path);
+        int active = -1;
+        long latest = 0;
+        for (int i = 0; i < journal.slots.length; i++) {
+            long slotGeneration = readGeneration(journal.slots[i]);
+            if (slotGeneration > latest) {
+                latest = slotGeneration;
+                active = i;
+            }
+        }
+        synchronized (journal) {
+            if (active < 0) {
+                journal.start();
+            } else {
+                journal.replay(active, latest);
+            }
+        }
+        return journal;
+    }
+
+    private static long readGeneration(Path slot) {
+        if (!Files.isRegularFile(slot)) {
+            return 0;
+        }
+        try (FileChannel in = FileChannel.open(slot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && in.read(header) != -1) {
+                // 读满文件头
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return 0;
+            }
+            return header.getLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void start() throws IOException {
+        activeSlot = 0;
+        generation = 1;
+        channel = FileChannel.open(slots[0], StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+        writeHeader(buffer, generation);
+        buffer.position(HEADER_BYTES);
+    }
+
+    private void replay(int slot, long slotGeneration) throws IOException {
+        activeSlot = slot;
+        generation = slotGeneration;
+        channel = FileChannel.open(slots[slot], StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, channel.size()));
+        buffer.position(HEADER_BYTES);
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(generation, payload, length) != checksum) {
+                // 未写完的记录或上一代的残留
+                buffer.position(start);
+                break;
+            }
+            apply(payload);
+        }
+        restored = live.size();
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        long id = in.readLong();
+        nextId = Math.max(nextId, id + 1);
+        switch (type) {
+            case ENQUEUE -> live.put(id, readTask(id, in));
+            case VOTE -> {
+                PlayTask target = live.get(id);
+                if (target != null) {
+                    applyVote(target, readString(in), readString(in), PlayTier.values()[in.readByte()], in.readLong());
+                }
+            }
+            case DEQUEUE -> {
+                if (live.containsKey(id)) {
+                    dequeued.add(id);
+                }
+            }
+            case COMPLETE -> {
+                live.remove(id);
+                dequeued.remove(id);
+            }
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * 与 PlayQueue 合并时相同：累加票数、记录点歌人，更高档的点歌把任务改到该用户名下
+     */
+    private static void applyVote(PlayTask target, String requester, String requesterId, PlayTier tier, long giftValue) {
+        target.getVotes().increment();
+        if (requester != null) {
+            target.getRequesters().add(requester);
+        }
+        if (tier.ordinal() < target.getTier().ordinal()) {
+            target.setTier(tier);
+            target.setGiftValue(giftValue);
+            target.setRequesterId(requesterId);
+        }
+    }
+
+    /**
+     * 回放出的未播放完的任务：关闭前已出队（正在播放）的在前，其余按入队顺序；只在重新排队前调用一次
+     */
+    synchronized List<PlayTask> restoredTasks() {
+        // 交给队列的是另一份副本，队列中的合并不会直接改到日志的副本上
+        List<PlayTask> tasks = new ArrayList<>(live.size());
+        for (Long id : dequeued) {
+            tasks.add(copyOf(id, live.get(id)));
+        }
+        for (Map.Entry<Long, PlayTask> entry : live.entrySet()) {
+            if (!dequeued.contains(entry.getKey())) {
+                tasks.add(copyOf(entry.getKey(), entry.getValue()));
+            }
+        }
+        // 这些任务将重新排队，之后的压缩不再把它们记为已出队
+        dequeued.clear();
+        return tasks;
+    }
+
+    @Override
+    public synchronized void onAdded(PlayTask task) {
+        long id = nextId++;
+        task.setQueueId(id);
+        record(encodeTask(id, task));
+    }
+
+    @Override
+    public synchronized void onMerged(PlayTask target, PlayTask request) {
+        if (target.getQueueId() == null || !live.containsKey(target.getQueueId())) {
+            return;
+        }
+        try {
+            DataOutputStream out = begin(VOTE, target.getQueueId());
+            writeString(out, request.getRequester());
+            writeString(out, request.getRequesterId());
+            out.writeByte((request.getTier() != null ? request.getTier() : PlayTier.REQUEST).ordinal());
+            out.writeLong(request.getGiftValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        record(encodeBuffer.toByteArray());
+    }
+
+    @Override
+    public synchronized void onPolled(PlayTask task) {
+        Long id = task.getQueueId();
+        if (id != null && live.containsKey(id)) {
+            record(encodeId(DEQUEUE, id));
+        }
+    }
+
+    /**
+     * 记录任务播放完成，此后重启不再恢复
+     */
+    synchronized void completed(PlayTask task) {
+        Long id = task.getQueueId();
+        if (id != null && live.containsKey(id)) {
+            record(encodeId(COMPLETE, id));
+        }
+    }
+
+    /**
+     * 把记录应用到日志自己的任务副本上，再追加到文件。
+     * live 中的任务是按记录回放出的副本而不是队列中的任务：队列在无锁合并时先累加票数再通知日志，
+     * 压缩取快照时若直接编码队列中的任务，快照和快照之后补写的 VOTE 记录会把同一票算两次
+     */
+    private void record(byte[] payload) {
+        try {
+            apply(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(payload);
+    }
+
+    /**
+     * 追加一条记录，只写入映射区；空间不足时就地扩大映射区，不在这里压缩或落盘。
+     * 写入失败只记日志和计数，不影响队列本身
+     */
+    private void append(byte[] payload) {
+        try {
+            if (buffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+                grow(RECORD_HEADER_BYTES + payload.length);
+            }
+            putRecord(buffer, generation, payload, crc);
+            dirty = true;
+            appends++;
+            bytesAppended += RECORD_HEADER_BYTES + payload.length;
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            log.error("Failed to append to play queue journal {}: {}", slots[activeSlot], e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 把当前文件的映射区扩大一倍以上，已写入的记录位置不变
+     */
+    private void grow(int needed) throws IOException {
+        long capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Play queue journal is full");
+        }
+        MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        grown.position(buffer.position());
+        buffer = grown;
+    }
+
+    /**
+     * 组提交：把上次刷盘以来追加的记录一次性落盘；已用空间超过一半时先压缩。
+     * 只由刷盘线程调用，落盘和压缩写新文件都不持有追加所需的锁
+     */
+    void flush() throws IOException {
+        boolean compact;
+        synchronized (this) {
+            compact = !closed && buffer.position() > buffer.capacity() / 2;
+        }
+        if (compact) {
+            compact();
+        }
+        MappedByteBuffer target;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            target = buffer;
+            flushes++;
+        }
+        // 落盘不持锁，期间的追加不受影响
+        target.force();
+    }
+
+    /**
+     * 只保留未播放完的任务，写入另一个日志文件后切换过去。
+     * 持锁取快照（编码仍有效的任务并记下当前写入位置），不持锁写入另一个文件并落盘，
+     * 再持锁把快照之后追加的记录按新的代数补写过去、写入文件头并切换；补写的记录随下一次刷盘落盘，与组提交的保证相同
+     */
+    private void compact() throws IOException {
+        List<byte[]> records;
+        int mark;
+        long sourceGeneration;
+        int needed = HEADER_BYTES;
+        synchronized (this) {
+            records = new ArrayList<>(live.size() + dequeued.size());
+            for (Map.Entry<Long, PlayTask> entry : live.entrySet()) {
+                records.add(encodeTask(entry.getKey(), entry.getValue()));
+            }
+            for (Long id : dequeued) {
+                records.add(encodeId(DEQUEUE, id));
+            }
+            mark = buffer.position();
+            sourceGeneration = generation;
+        }
+        for (byte[] record : records) {
+            needed += RECORD_HEADER_BYTES + record.length;
+        }
+        // 压缩后至多用掉四分之一，避免有效任务很多时频繁压缩
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < needed * 4L && capacity < Integer.MAX_VALUE / 2) {
+            capacity *= 2;
+        }
+
+        // activeSlot 只在压缩时改变，压缩只在刷盘线程上进行
+        int targetSlot = 1 - activeSlot;
+        long targetGeneration = sourceGeneration + 1;
+        FileChannel targetChannel = FileChannel.open(slots[targetSlot],
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean switched = false;
+        try {
+            MappedByteBuffer target = targetChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            target.position(HEADER_BYTES);
+            CRC32 targetCrc = new CRC32();
+            for (byte[] record : records) {
+                putRecord(target, targetGeneration, record, targetCrc);
+            }
+            // 快照中的记录先落盘，写入新的代数之后才可能生效
+            target.force();
+            synchronized (this) {
+                if (closed || generation != sourceGeneration) {
+                    return;
+                }
+                target = copyTail(target, targetChannel, mark, targetGeneration);
+                writeHeader(target, targetGeneration);
+                channel.close();
+                channel = targetChannel;
+                buffer = target;
+                activeSlot = targetSlot;
+                generation = targetGeneration;
+                dirty = true;
+                compactions++;
+                switched = true;
+            }
+        } finally {
+            if (!switched) {
+                targetChannel.close();
+            }
+        }
+    }
+
+    /**
+     * 把 mark 之后追加到当前文件的记录按新的代数重新校验后写入 target，空间不足时扩大 target；在锁内调用
+     */
+    private MappedByteBuffer copyTail(MappedByteBuffer target, FileChannel targetChannel, int mark, long targetGeneration)
+            throws IOException {
+        ByteBuffer tail = buffer.duplicate();
+        tail.limit(buffer.position());
+        tail.position(mark);
+        long capacity = target.capacity();
+        while (capacity - target.position() < tail.remaining()) {
+            capacity *= 2;
+        }
+        if (capacity > target.capacity()) {
+            MappedByteBuffer grown = targetChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            grown.position(target.position());
+            target = grown;
+        }
+        while (tail.hasRemaining()) {
+            int length = tail.getInt();
+            tail.getInt();
+            byte[] payload = new byte[length];
+            tail.get(payload);
+            putRecord(target, targetGeneration, payload, crc);
+        }
+        return target;
+    }
+
+    synchronized void close() {
+        closed = true;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            // 关闭时尽力而为，已追加的记录大多已由定期刷盘写入
+        }
+    }
+
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("file", slots[activeSlot].toString());
+        stats.put("generation", generation);
+        stats.put("usedBytes", buffer.position());
+        stats.put("capacityBytes", buffer.capacity());
+        stats.put("liveTasks", live.size());
+        stats.put("restoredTasks", restored);
+        stats.put("appends", appends);
+        stats.put("bytesAppended", bytesAppended);
+        stats.put("flushes", flushes);
+        stats.put("compactions", compactions);
+        stats.put("failures", failures);
+        return stats;
+    }
+
+    private static void writeHeader(MappedByteBuffer target, long generation) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putLong(8, generation);
+    }
+
+    private static void putRecord(MappedByteBuffer target, long generation, byte[] payload, CRC32 crc) {
+        target.putInt(payload.length);
+        target.putInt(checksum(crc, generation, payload, payload.length));
+        target.put(payload);
+    }
+
+    private int checksum(long generation, byte[] payload, int length) {
+        return checksum(crc, generation, payload, length);
+    }
+
+    private static int checksum(CRC32 crc, long generation, byte[] payload, int length) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (generation >>> shift));
+        }
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private DataOutputStream begin(byte type, long id) throws IOException {
+        encodeBuffer.reset();
+        DataOutputStream out = new DataOutputStream(encodeBuffer);
+        out.writeByte(type);
+        out.writeLong(id);
+        return out;
+    }
+
+    private byte[] encodeId(byte type, long id) {
+        try {
+            begin(type, id);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return encodeBuffer.toByteArray();
+    }
+
+    private byte[] encodeTask(long id, PlayTask task) {
+        try {
+            DataOutputStream out = begin(ENQUEUE, id);
+            out.writeLong(task.getMusicId() != null ? task.getMusicId() : -1);
+            writeString(out, task.getSongName());
+            writeString(out, task.getSongFilePath());
+            writeString(out, task.getIntroAudioPath());
+            writeString(out, task.getRequester());
+            writeString(out, task.getRequesterId());
+            out.writeLong(task.getDurationMillis() != null ? task.getDurationMillis() : -1);
+            out.writeByte((task.getTier() != null ? task.getTier() : PlayTier.REQUEST).ordinal());
+            out.writeLong(task.getGiftValue());
+            out.writeLong(task.getVotes().sum());
+            List<String> requesters = new ArrayList<>(task.getRequesters());
+            out.writeInt(requesters.size());
+            for (String requester : requesters) {
+                out.writeUTF(requester);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return encodeBuffer.toByteArray();
+    }
+
+    private PlayTask copyOf(long id, PlayTask task) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodeTask(id, task)));
+        try {
+            in.readByte();
+            in.readLong();
+            return readTask(id, in);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PlayTask readTask(long id, DataInputStream in) throws IOException {
+        long musicId = in.readLong();
+        PlayTask task = PlayTask.builder()
+                .queueId(id)
+                .musicId(musicId >= 0 ? musicId : null)
+                .songName(readString(in))
+                .songFilePath(readString(in))
+                .introAudioPath(readString(in))
+                .requester(readString(in))
+                .requesterId(readString(in))
+                .build();
+        long duration = in.readLong();
+        task.setDurationMillis(duration >= 0 ? duration : null);
+        task.setTier(PlayTier.values()[in.readByte()]);
+        task.setGiftValue(in.readLong());
+        task.getVotes().add(in.readLong());
+        int requesterCount = in.readInt();
+        for (int i = 0; i < requesterCount; i++) {
+            task.getRequesters().add(in.readUTF());
+        }
+        return task;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,30 +1,38 @@
 package com.example.aimusicdispatcher.scheduler;
 
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import com.example.aimusicdispatcher.entity.IntroCache;
 import com.example.aimusicdispatcher.entity.MusicLibrary;
 import com.example.aimusicdispatcher.model.playlist.PlayTask;
-import com.example.aimusicdispatcher.repository.IntroCacheRepository;
-import com.example.aimusicdispatcher.repository.MusicLibraryRepository;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
 import com.example.aimusicdispatcher.generator.GeminiService;
 import com.example.aimusicdispatcher.generator.TtsService;
 import com.example.aimusicdispatcher.generator.TextCleaningService;
+import com.example.aimusicdispatcher.generator.TtsStream;
+import com.example.aimusicdispatcher.player.AudioOutput;
+import com.example.aimusicdispatcher.player.PreparedTrack;
+import com.example.aimusicdispatcher.service.IntroCacheStore;
+import com.example.aimusicdispatcher.service.PlayStatsRecorder;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
@@ -32,39 +40,70 @@ public class PlaybackWorker implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(PlaybackWorker.class);
     private static final int POLL_TIMEOUT_SECONDS = 15;
+    private static final long PREFETCH_CHECK_MILLIS = 200;
 
-    private final BlockingQueue<PlayTask> playQueue = new LinkedBlockingQueue<>();
-    private final MusicLibraryRepository musicLibraryRepository;
-    private final IntroCacheRepository introCacheRepository;
+    private final PlayQueue playQueue;
+    // 点歌队列日志，未配置 app.playback.queue-journal-path 或打开失败时为 null
+    private PlayQueueJournal queueJournal;
+    private ScheduledExecutorService journalFlusher;
+    private final IntroCacheStore introCacheStore;
     private final GeminiService geminiService;
     private final TtsService ttsService;
     private final TextCleaningService textCleaningService;
+    private final PlaybackProperties playbackProperties;
+    private final ColdFillScheduler coldFillScheduler;
+    private final PlayStatsRecorder playStatsRecorder;
+    private final AudioOutput audioOutput;
     private final AtomicBoolean running = new AtomicBoolean(true);
     private Thread workerThread;
+    private volatile PlayTask currentTask;
+    // 当前歌曲本身（口播之后）开始播放的时间，口播阶段为 0
+    private volatile long currentStartedAt;
+    // 预取：当前歌曲快结束时预备好队首歌曲的口播和歌曲，写入在 prefetchLock 内
+    private final Object prefetchLock = new Object();
+    private volatile Prefetched prefetched;
+    private final ScheduledExecutorService prefetchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "PlaybackPrefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final ExecutorService introGenerationPool = Executors.newFixedThreadPool(1); // Single thread for intro generation to avoid overloading TTS/Gemini
 
-    public PlaybackWorker(MusicLibraryRepository musicLibraryRepository,
-                          IntroCacheRepository introCacheRepository,
+    public PlaybackWorker(IntroCacheStore introCacheStore,
                           GeminiService geminiService,
                           TtsService ttsService,
-                          TextCleaningService textCleaningService) {
-        this.musicLibraryRepository = musicLibraryRepository;
-        this.introCacheRepository = introCacheRepository;
+                          TextCleaningService textCleaningService,
+                          PlaybackProperties playbackProperties,
+                          ColdFillScheduler coldFillScheduler,
+                          PlayStatsRecorder playStatsRecorder,
+                          AudioOutput audioOutput) {
+        this.introCacheStore = introCacheStore;
         this.geminiService = geminiService;
         this.ttsService = ttsService;
         this.textCleaningService = textCleaningService;
+        this.playbackProperties = playbackProperties;
+        this.coldFillScheduler = coldFillScheduler;
+        this.playStatsRecorder = playStatsRecorder;
+        this.audioOutput = audioOutput;
+        this.playQueue = new PlayQueue(playbackProperties.getMaxQueuedPerUser(),
+                playbackProperties.getQueueOrder() == PlaybackProperties.QueueOrder.VOTES);
     }
 
     @PostConstruct
     public void init() {
+        openQueueJournal();
         workerThread = new Thread(this, "PlaybackWorker");
         workerThread.start();
         log.info("PlaybackWorker thread started.");
+        if (playbackProperties.getPrefetchLeadMillis() > 0) {
+            prefetchExecutor.scheduleWithFixedDelay(this::prefetchNext, PREFETCH_CHECK_MILLIS, PREFETCH_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
     public void destroy() {
         running.set(false);
+        prefetchExecutor.shutdownNow();
         if (workerThread != null) {
             workerThread.interrupt();
             try {
@@ -75,6 +114,17 @@ public class PlaybackWorker implements Runnable {
             }
         }
         log.info("PlaybackWorker thread stopped.");
+        Prefetched unplayed = takePrefetched();
+        if (unplayed != null) {
+            unplayed.cancel();
+        }
+        // 正在播放的歌没有记为播放完成，下次启动时恢复
+        if (journalFlusher != null) {
+            journalFlusher.shutdownNow();
+        }
+        if (queueJournal != null) {
+            queueJournal.close();
+        }
 
         log.info("Shutting down intro generation pool.");
         introGenerationPool.shutdown();
@@ -92,29 +142,117 @@ public class PlaybackWorker implements Runnable {
         log.info("Intro Generation Pool shut down.");
     }
 
-    public void addPlayTask(PlayTask task) {
+    /**
+     * 打开点歌队列日志，把上次未播放完的点歌放回队列，之后的入队、出队事件都写入日志并定期批量落盘
+     */
+    private void openQueueJournal() {
+        String path = playbackProperties.getQueueJournalPath();
+        if (path == null || path.isBlank()) {
+            return;
+        }
         try {
-            playQueue.put(task);
-            log.info("Added play task to queue: {}", task.getSongName());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Failed to add play task to queue: {}", task.getSongName(), e);
+            queueJournal = PlayQueueJournal.open(Paths.get(path));
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to open play queue journal {}, queue will not survive restarts: {}", path, e.getMessage(), e);
+            return;
+        }
+        List<PlayTask> restored = queueJournal.restoredTasks();
+        for (PlayTask task : restored) {
+            // 口播以口播缓存为准：缓存中的音频已确认存在并被 pin 住，不会在播放前被淘汰；
+            // 口播仍在生成时重启的任务只记下了歌曲，已生成的口播也在这里补上
+            String cachedIntro = task.getMusicId() != null
+                    ? introCacheStore.findByMusicId(task.getMusicId()).map(IntroCache::getAudioPath).orElse(null)
+                    : null;
+            if (cachedIntro != null) {
+                task.setIntroAudioPath(cachedIntro);
+            } else if (task.getIntroAudioPath() != null && !new File(task.getIntroAudioPath()).exists()) {
+                task.setIntroAudioPath(null);
+            }
+            playQueue.restore(task);
+        }
+        playQueue.setListener(queueJournal);
+        if (!restored.isEmpty()) {
+            log.info("Restored {} play task(s) from queue journal.", restored.size());
+        }
+        long flushMillis = Math.max(1, playbackProperties.getQueueJournalFlushMillis());
+        journalFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PlayQueueJournal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        journalFlusher.scheduleWithFixedDelay(() -> {
+            try {
+                queueJournal.flush();
+            } catch (Exception e) {
+                log.error("Failed to flush play queue journal: {}", e.getMessage(), e);
+            }
+        }, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 点歌入队，按档位和用户公平排队；同一首歌正在播放或已在排队时合并为一票
+     *
+     * @return 点歌人排队的歌曲数已达 app.playback.max-queued-per-user 时返回 REJECTED
+     */
+    public PlayQueue.OfferResult addPlayTask(PlayTask task) {
+        PlayTask playing = currentTask;
+        if (isSameSong(playing, task)) {
+            // 这首歌正在播放，点歌已得到满足；已预取的下一首仍在队列中，由队列合并
+            playQueue.mergeIntoPlaying(playing, task);
+            log.info("Song '{}' is playing now, merged request from {}.", task.getSongName(), task.getRequester());
+            return PlayQueue.OfferResult.MERGED;
+        }
+        PlayQueue.OfferResult result = playQueue.offer(task);
+        switch (result) {
+            case ADDED -> log.info("Added play task to queue: {} (tier {})", task.getSongName(), task.getTier());
+            case MERGED -> log.info("Song '{}' is already queued, merged request from {}.", task.getSongName(), task.getRequester());
+            case REJECTED -> log.info("Rejected play task '{}': {} already has {} song(s) queued.", task.getSongName(),
+                    task.getRequester(), playbackProperties.getMaxQueuedPerUser());
         }
+        return result;
+    }
+
+    /**
+     * 预检点歌是否会被接受：正在播放的歌总能合并，其余见 {@link PlayQueue#canAccept(PlayTask)}；用于在生成口播之前拒绝超出名额的点歌
+     */
+    public boolean canAccept(PlayTask task) {
+        return isSameSong(currentTask, task) || playQueue.canAccept(task);
+    }
+
+    private static boolean isSameSong(PlayTask playing, PlayTask request) {
+        return playing != null && request.getMusicId() != null && request.getMusicId().equals(playing.getMusicId());
     }
 
     @Override
     public void run() {
         while (running.get()) {
             try {
+                Prefetched prepared = takePrefetched();
                 PlayTask task = playQueue.poll(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (prepared != null && prepared.task() != task) {
+                    // 预取后有更靠前的点歌插队，预备好的音频作废
+                    prepared.cancel();
+                    prepared = null;
+                }
                 if (task == null) {
                     log.info("No song in queue, triggering cold-fill.");
                     task = selectRandomSong();
                 }
 
                 if (task != null) {
-                    playAudio(task);
-                    updateMusicPlayCount(task.getMusicId());
+                    currentStartedAt = 0;
+                    currentTask = task;
+                    try {
+                        playAudio(task, prepared);
+                    } finally {
+                        currentTask = null;
+                    }
+                    coldFillScheduler.recordPlay(task.getMusicId());
+                    playStatsRecorder.record(task.getMusicId());
+                    // 关闭时被打断的歌不记为播放完成
+                    if (queueJournal != null && running.get()) {
+                        queueJournal.completed(task);
+                    }
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -127,52 +265,121 @@ public class PlaybackWorker implements Runnable {
     }
 
     /**
-     * 从数据库中随机选择一首歌曲进行播放（冷场自动填充）。
-     * @return 随机选中的歌曲的PlayTask，如果没有可用歌曲则返回null。
+     * 冷场自动填充：从内存中的冷场选歌器取下一首歌，不访问数据库。
+     * @return 选中歌曲的PlayTask，如果没有可用歌曲则返回null。
      */
     private PlayTask selectRandomSong() {
-        List<MusicLibrary> allSongs = musicLibraryRepository.findAll();
-        if (allSongs.isEmpty()) {
-            log.warn("No songs found in music library for cold-fill.");
+        MusicLibrary randomSong = coldFillScheduler.next();
+        if (randomSong == null) {
+            log.warn("No songs available in music catalog for cold-fill.");
             return null;
         }
 
-        // 从数据库中选取 last_played_at 最久远的歌曲
-        Optional<MusicLibrary> leastRecentlyPlayed = musicLibraryRepository.findFirstByOrderByLastPlayedAtAsc();
-        if (leastRecentlyPlayed.isEmpty()) {
-            log.warn("No songs found in music library for cold-fill or all songs have null lastPlayedAt.");
-            return null;
-        }
-
-        MusicLibrary randomSong = leastRecentlyPlayed.get();
-
         // 对于冷场自动播放，不设置introAudioPath，即不播放口播
         return PlayTask.builder()
                 .musicId(randomSong.getId())
                 .songName(randomSong.getSongName())
                 .songFilePath(randomSong.getFilePath())
+                .durationMillis(randomSong.getDurationMillis())
                 .introAudioPath(null) // Explicitly set to null for cold-fill
                 .requester("Auto-DJ")
+                .tier(PlayTier.AUTO_DJ)
                 .build();
     }
 
+    /**
+     * 预取下一首：当前歌曲剩余时长已知且不超过 app.playback.prefetch-lead-millis 时，
+     * 预热并预先解码队首歌曲已就绪的口播和歌曲，轮到播放时不再从冷文件开始。
+     * 歌曲留在队列中，之后的点歌仍可插队或合并到它；队首变了就改为预备新的队首，轮到播放时出队的不是它则作废。
+     */
+    private void prefetchNext() {
+        try {
+            PlayTask current = currentTask;
+            long remaining = getCurrentRemainingMillis();
+            if (current == null || remaining < 0 || remaining > playbackProperties.getPrefetchLeadMillis()) {
+                return;
+            }
+            PlayTask next = playQueue.peek();
+            Prefetched existing = prefetched;
+            if (next == null || (existing != null && existing.task() == next)) {
+                return;
+            }
+            synchronized (prefetchLock) {
+                if (currentTask != current || prefetched != existing) {
+                    return;
+                }
+                if (existing != null) {
+                    log.info("Song '{}' was outranked by '{}' before playing, dropping its prefetched audio.",
+                            existing.task().getSongName(), next.getSongName());
+                    existing.cancel();
+                }
+                prefetched = prepare(next);
+            }
+        } catch (Exception e) {
+            log.error("Error while prefetching next song: {}", e.getMessage(), e);
+        }
+    }
+
+    private Prefetched prepare(PlayTask task) {
+        long start = System.nanoTime();
+        // 已就绪的口播一并预备，仍在生成的口播留到轮到播放时再等
+        if (task.getIntroAudioPath() == null && task.isIntroReady()) {
+            task.setIntroAudioPath(task.getIntroFuture().getNow(null));
+        }
+        String introPath = task.getIntroAudioPath();
+        PreparedTrack intro = introPath != null && new File(introPath).exists() ? audioOutput.prepare(introPath) : null;
+        String songPath = task.getSongFilePath();
+        PreparedTrack song = songPath != null && !songPath.isEmpty() && new File(songPath).exists() ? audioOutput.prepare(songPath) : null;
+        log.info("Prefetched next song '{}' in {} ms (intro {}).", task.getSongName(),
+                (System.nanoTime() - start) / 1_000_000, intro != null ? "prepared" : "pending or none");
+        return new Prefetched(task, intro, song);
+    }
+
+    private Prefetched takePrefetched() {
+        synchronized (prefetchLock) {
+            Prefetched taken = prefetched;
+            prefetched = null;
+            return taken;
+        }
+    }
+
     /**
      * 播放音频文件（口播 -> 歌曲）。
-     * 使用 Runtime.exec 调用 ffplay 外部进程。
+     * 交给 AudioOutput 播放，进程内引擎下口播与歌曲连续写入同一输出，中间没有空白。
      *
-     * @param task 待播放任务
+     * @param task     待播放任务
+     * @param prepared 预取阶段预备好的音频，没有预取时为 null
      */
-    private void playAudio(PlayTask task) {
+    private void playAudio(PlayTask task, Prefetched prepared) {
         log.info("Starting playback for song: {} (Requested by: {}) ", task.getSongName(), task.getRequester());
 
-        String currentIntroAudioPath = task.getIntroAudioPath(); // This is the path from the PlayTask
+        PreparedTrack preparedIntro = prepared != null ? prepared.intro() : null;
+        TtsStream liveIntro = null;
+        String currentIntroAudioPath = null;
+        if (preparedIntro == null) {
+            long introDeadline = System.currentTimeMillis() + playbackProperties.getIntroWaitMillis();
+            liveIntro = resolveLiveIntro(task, introDeadline);
+            currentIntroAudioPath = liveIntro == null ? resolveIntroAudioPath(task, introDeadline) : null;
+        }
         
         // 1. 播放口播音频 (如果存在)
-        if (currentIntroAudioPath != null && !currentIntroAudioPath.isEmpty()) {
+        if (preparedIntro != null) {
+            log.info("Playing prefetched intro audio: {}", task.getIntroAudioPath());
+            preparedIntro.play();
+            log.info("Finished playing intro audio.");
+        } else if (liveIntro != null) {
+            log.info("Intro for song '{}' is still being synthesized, streaming it to audio output.", task.getSongName());
+            playStream(liveIntro);
+            Path stored = liveIntro.getResult().getNow(null);
+            if (stored != null) {
+                task.setIntroAudioPath(stored.toString());
+            }
+            log.info("Finished streaming intro audio.");
+        } else if (currentIntroAudioPath != null && !currentIntroAudioPath.isEmpty()) {
             File introFile = new File(currentIntroAudioPath);
             if (introFile.exists()) {
                 log.info("Playing intro audio: {}", currentIntroAudioPath);
-                executeFfplay(currentIntroAudioPath);
+                audioOutput.play(currentIntroAudioPath);
                 log.info("Finished playing intro audio.");
             } else {
                 log.warn("Intro audio file not found at expected path: {}", currentIntroAudioPath);
@@ -181,13 +388,17 @@ public class PlaybackWorker implements Runnable {
             log.info("No intro audio to play for song '{}'. Skipping intro.", task.getSongName());
         }
 
-        // 2. 播放歌曲
+        // 2. 播放歌曲，剩余时长从这里开始计算
+        currentStartedAt = System.currentTimeMillis();
         log.info("Playing main song: {}", task.getSongFilePath());
-        if (task.getSongFilePath() != null && !task.getSongFilePath().isEmpty()) {
+        if (prepared != null && prepared.song() != null) {
+            prepared.song().play();
+            log.info("Finished playing main song.");
+        } else if (task.getSongFilePath() != null && !task.getSongFilePath().isEmpty()) {
             File songFile = new File(task.getSongFilePath());
             if (songFile.exists()) {
                 log.debug("Playing song: {}", task.getSongFilePath());
-                executeFfplay(task.getSongFilePath());
+                audioOutput.play(task.getSongFilePath());
                 log.info("Finished playing main song.");
             } else {
                 log.error("Song file not found: {}", task.getSongFilePath());
@@ -199,52 +410,128 @@ public class PlaybackWorker implements Runnable {
         log.info("Finished playback for song: {}", task.getSongName());
     }
 
-    private void executeFfplay(String filePath) {
+    /**
+     * 口播仍在合成时返回正在写入的音频，最多等到 deadline 开始合成。
+     * 合成已结束、未进入合成或未开启 app.playback.stream-intro 时返回 null，交给 resolveIntroAudioPath 按文件处理。
+     */
+    private TtsStream resolveLiveIntro(PlayTask task, long deadline) {
+        if (!playbackProperties.isStreamIntro() || task.getIntroAudioPath() != null || task.getIntroStream() == null
+                || task.getIntroFuture() == null || task.getIntroFuture().isDone()) {
+            return null;
+        }
         try {
-            String ffplayPath = "/usr/local/bin/ffplay"; // Use the full path for ffplay
-            String[] command = {ffplayPath, "-nodisp", "-autoexit", filePath};
-
-            Process process = Runtime.getRuntime().exec(command, null, new File(System.getProperty("user.dir")));
-
-            // 启动一个线程读取并忽略ffplay的输出，防止缓冲区填满导致进程阻塞
-            Thread outputGobbler = new Thread(() -> {
-                try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        // 可以选择打印日志，或者直接忽略。这里只在debug级别打印，避免日志过多
-                        // log.trace("ffplay output: {}", line); 
-                    }
-                } catch (IOException e) {
-                    // 忽略读取流时的错误
+            TtsStream stream = task.getIntroStream().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (stream == null) {
+                return null;
+            }
+            if (stream.isDone()) {
+                // 等待期间已合成完毕，直接播放文件
+                Path stored = stream.getResult().getNow(null);
+                if (stored != null) {
+                    task.setIntroAudioPath(stored.toString());
                 }
-            });
-            outputGobbler.setDaemon(true);
-            outputGobbler.start();
-
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                log.warn("ffplay exited with non-zero code {} for file: {}", exitCode, filePath);
+                return null;
             }
-        } catch (IOException e) {
-            log.error("Error executing ffplay for file {}: {}", filePath, e.getMessage());
+            return stream;
+        } catch (TimeoutException e) {
+            // 交给 resolveIntroAudioPath 记录超时
+        } catch (ExecutionException e) {
+            log.warn("Intro stream failed for song '{}': {}", task.getSongName(), e.getMessage());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.warn("ffplay process interrupted for file: {}", filePath);
         }
+        return null;
     }
 
-    @Transactional
-    private void updateMusicPlayCount(Long musicId) {
-        musicLibraryRepository.findById(musicId).ifPresent(music -> {
-            music.setPlayCount(music.getPlayCount() + 1);
-            music.setLastPlayedAt(LocalDateTime.now());
-            musicLibraryRepository.save(music);
-            log.debug("Updated play count for musicId: {}", musicId);
-        });
+    /**
+     * 解析待播放任务的口播路径。
+     * 口播仍在异步生成时，最多等待到 deadline（app.playback.intro-wait-millis），超时则跳过口播。
+     */
+    private String resolveIntroAudioPath(PlayTask task, long deadline) {
+        if (task.getIntroAudioPath() != null || task.getIntroFuture() == null) {
+            return task.getIntroAudioPath();
+        }
+        CompletableFuture<String> introFuture = task.getIntroFuture();
+        try {
+            String introAudioPath = introFuture.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            task.setIntroAudioPath(introAudioPath);
+            return introAudioPath;
+        } catch (TimeoutException e) {
+            log.info("Intro for song '{}' not ready within {} ms, skipping intro.", task.getSongName(), playbackProperties.getIntroWaitMillis());
+        } catch (ExecutionException e) {
+            log.warn("Intro generation failed for song '{}': {}", task.getSongName(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
     }
 
-    public BlockingQueue<PlayTask> getPlayQueue() {
+    /**
+     * 边合成边播放：跟读正在写入的口播音频，合成结束且数据读完后返回
+     */
+    private void playStream(TtsStream stream) {
+        try {
+            audioOutput.play(stream.openStream());
+        } catch (IOException e) {
+            log.warn("Failed to open intro stream: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前正在播放的歌曲预计剩余时长（毫秒），按歌曲时长估算，不含口播：等待或播放口播期间返回歌曲的完整时长。
+     * @return 空闲时返回 0，当前歌曲时长未知时返回 -1
+     */
+    public long getCurrentRemainingMillis() {
+        PlayTask task = currentTask;
+        if (task == null) {
+            return 0;
+        }
+        if (task.getDurationMillis() == null) {
+            return -1;
+        }
+        long startedAt = currentStartedAt;
+        if (startedAt == 0) {
+            // 仍在等待或播放口播，歌曲还没开始
+            return task.getDurationMillis();
+        }
+        return Math.max(0, task.getDurationMillis() - (System.currentTimeMillis() - startedAt));
+    }
+
+    public PlayQueue getPlayQueue() {
         return playQueue;
     }
+
+    /**
+     * 点歌队列日志统计，未启用时只有 enabled=false
+     */
+    public Map<String, Object> getQueueJournalStats() {
+        if (queueJournal == null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", false);
+            return stats;
+        }
+        return queueJournal.getStats();
+    }
+
+    /**
+     * 待播放的歌曲，按出队顺序；已预取的歌曲仍在队列中
+     */
+    public List<PlayTask> getUpcomingTasks() {
+        return playQueue.snapshot();
+    }
+
+    /**
+     * 预取的下一首及其预备好的口播、歌曲（未就绪或文件不存在时为 null）
+     */
+    private record Prefetched(PlayTask task, PreparedTrack intro, PreparedTrack song) {
+
+        void cancel() {
+            if (intro != null) {
+                intro.cancel();
+            }
+            if (song != null) {
+                song.cancel();
+            }
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.MusicProperties;
+import com.example.aimusicdispatcher.util.AudioMetadataReader;
+import com.example.aimusicdispatcher.util.AudioMetadataReader.AudioMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 音频元数据索引
+ * 找出内存目录中尚无时长的歌曲，用 fork-join 并行读取文件头（只读头部字节，不读整个文件），
+ * 把时长、码率、采样率和声道数批量写回 music_library，并把时长更新到内存目录，供队列预计时间和播放预排使用。
+ * 目录监听的增量变更只解析变化的歌曲；被删除歌曲的解析失败记录随之丢弃。
+ */
+@Service
+public class AudioMetadataIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioMetadataIndexer.class);
+    private static final String UPDATE_SQL =
+            "UPDATE music_library SET duration_millis = ?, bitrate = ?, sample_rate = ?, channels = ? WHERE id = ?";
+    /** 每个 fork-join 叶子任务处理的文件数 */
+    private static final int LEAF_SIZE = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MusicCatalog musicCatalog;
+    private final MusicProperties musicProperties;
+    // 解析失败的歌曲 id，增量索引时跳过，全量索引时重试
+    private final Set<Long> unreadable = ConcurrentHashMap.newKeySet();
+    private final LongAdder filesRead = new LongAdder();
+    private final LongAdder readFailures = new LongAdder();
+
+    public AudioMetadataIndexer(JdbcTemplate jdbcTemplate, MusicCatalog musicCatalog, MusicProperties musicProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.musicCatalog = musicCatalog;
+        this.musicProperties = musicProperties;
+    }
+
+    /**
+     * 解析内存目录中所有尚无时长的歌曲并写回
+     *
+     * @param retryUnreadable 是否重试之前解析失败的文件
+     * @return 本次成功解析的歌曲数
+     */
+    public synchronized int indexMissing(boolean retryUnreadable) {
+        if (retryUnreadable) {
+            unreadable.clear();
+        }
+        CatalogSnapshot snapshot = musicCatalog.getSnapshot();
+        if (snapshot == null) {
+            return 0;
+        }
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.durationMillisAt(i) < 0 && !unreadable.contains(snapshot.idAt(i))) {
+                pending.add(i);
+            }
+        }
+        return index(snapshot, pending);
+    }
+
+    /**
+     * 只解析指定的歌曲（目录监听新增或替换的文件），不扫描整个目录；文件已变化，之前的解析失败记录作废
+     *
+     * @return 本次成功解析的歌曲数
+     */
+    public synchronized int indexSongs(Collection<Long> musicIds) {
+        CatalogSnapshot snapshot = musicCatalog.getSnapshot();
+        if (snapshot == null || musicIds.isEmpty()) {
+            return 0;
+        }
+        unreadable.removeAll(musicIds);
+        List<Integer> pending = new ArrayList<>();
+        for (Long musicId : musicIds) {
+            int index = snapshot.indexOfId(musicId);
+            if (index >= 0 && snapshot.durationMillisAt(index) < 0) {
+                pending.add(index);
+            }
+        }
+        return index(snapshot, pending);
+    }
+
+    /**
+     * 歌曲已从歌曲库删除，丢弃其解析失败记录
+     */
+    public void forget(Collection<Long> musicIds) {
+        unreadable.removeAll(musicIds);
+    }
+
+    private int index(CatalogSnapshot snapshot, List<Integer> pending) {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        int[] indexes = pending.stream().mapToInt(Integer::intValue).toArray();
+        AudioMetadata[] results = new AudioMetadata[indexes.length];
+        int parallelism = musicProperties.getMetadataParallelism() > 0
+                ? musicProperties.getMetadataParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ReadTask(snapshot, indexes, results, 0, indexes.length));
+        } finally {
+            pool.shutdown();
+        }
+        long read = System.nanoTime();
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        Map<Long, Long> durations = new HashMap<>();
+        for (int i = 0; i < indexes.length; i++) {
+            AudioMetadata metadata = results[i];
+            if (metadata == null) {
+                continue;
+            }
+            long id = snapshot.idAt(indexes[i]);
+            batchArgs.add(new Object[]{metadata.durationMillis(), metadata.bitrateKbps(), metadata.sampleRate(), metadata.channels(), id});
+            durations.put(id, metadata.durationMillis());
+        }
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+            musicCatalog.applyDurations(durations);
+        }
+        log.info("Indexed audio metadata for {} of {} songs with {} threads. Read headers: {} ms, write back: {} ms.",
+                batchArgs.size(), indexes.length, parallelism,
+                (read - start) / 1_000_000, (System.nanoTime() - read) / 1_000_000);
+        return batchArgs.size();
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("filesRead", filesRead.sum());
+        stats.put("readFailures", readFailures.sum());
+        stats.put("unreadableSongs", unreadable.size());
+        return stats;
+    }
+
+    /**
+     * 按下标区间二分的 fork-join 任务，叶子任务逐个读取文件头
+     */
+    private class ReadTask extends RecursiveAction {
+
+        private final CatalogSnapshot snapshot;
+        private final int[] indexes;
+        private final AudioMetadata[] results;
+        private final int from;
+        private final int to;
+
+        ReadTask(CatalogSnapshot snapshot, int[] indexes, AudioMetadata[] results, int from, int to) {
+            this.snapshot = snapshot;
+            this.indexes = indexes;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ReadTask(snapshot, indexes, results, from, mid),
+                        new ReadTask(snapshot, indexes, results, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                String filePath = snapshot.filePathAt(indexes[i]);
+                if (filePath == null) {
+                    continue;
+                }
+                try {
+                    results[i] = AudioMetadataReader.read(new File(filePath).toPath()).orElse(null);
+                } catch (InvalidPathException e) {
+                    results[i] = null;
+                }
+                filesRead.increment();
+                if (results[i] == null) {
+                    readFailures.increment();
+                    unreadable.add(snapshot.idAt(indexes[i]));
+                    log.debug("Failed to read audio metadata: {}", filePath);
+                }
+            }
+        }
+    }
+}
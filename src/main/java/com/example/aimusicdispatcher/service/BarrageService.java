@@ -3,172 +3,108 @@ package com.example.aimusicdispatcher.service;
 import com.example.aimusicdispatcher.dispatcher.BarrageFilterService;
 import com.example.aimusicdispatcher.entity.IntroCache;
 import com.example.aimusicdispatcher.entity.MusicLibrary;
-import com.example.aimusicdispatcher.generator.GeminiService;
-import com.example.aimusicdispatcher.generator.TextCleaningService;
-import com.example.aimusicdispatcher.generator.TtsService;
 import com.example.aimusicdispatcher.model.barrage.BarrageRequest;
 import com.example.aimusicdispatcher.model.playlist.PlayTask;
-import com.example.aimusicdispatcher.repository.IntroCacheRepository;
-import com.example.aimusicdispatcher.repository.MusicLibraryRepository;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+import com.example.aimusicdispatcher.scheduler.PlayQueue;
 import com.example.aimusicdispatcher.scheduler.PlaybackWorker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Service
 public class BarrageService {
 
     private static final Logger log = LoggerFactory.getLogger(BarrageService.class);
-    // AI Worker Pool (Fixed, Size=10)
-    private final ExecutorService aiWorkerPool = Executors.newFixedThreadPool(10);
 
     private final BarrageFilterService barrageFilterService;
-    private final MusicLibraryRepository musicLibraryRepository;
-    private final IntroCacheRepository introCacheRepository;
-    private final GeminiService geminiService;
-    private final TtsService ttsService;
+    private final MusicCatalog musicCatalog;
+    private final IntroCacheStore introCacheStore;
+    private final IntroService introService;
     private final PlaybackWorker playbackWorker;
-    private final TextCleaningService textCleaningService;
+    private final PermissionService permissionService;
 
     public BarrageService(
             BarrageFilterService barrageFilterService,
-            MusicLibraryRepository musicLibraryRepository,
-            IntroCacheRepository introCacheRepository,
-            GeminiService geminiService,
-            TtsService ttsService,
+            MusicCatalog musicCatalog,
+            IntroCacheStore introCacheStore,
+            IntroService introService,
             PlaybackWorker playbackWorker,
-            TextCleaningService textCleaningService) {
+            PermissionService permissionService) {
         this.barrageFilterService = barrageFilterService;
-        this.musicLibraryRepository = musicLibraryRepository;
-        this.introCacheRepository = introCacheRepository;
-        this.geminiService = geminiService;
-        this.ttsService = ttsService;
+        this.musicCatalog = musicCatalog;
+        this.introCacheStore = introCacheStore;
+        this.introService = introService;
         this.playbackWorker = playbackWorker;
-        this.textCleaningService = textCleaningService;
+        this.permissionService = permissionService;
     }
 
-    @jakarta.annotation.PreDestroy
-    public void shutdown() {
-        log.info("Shutting down AI Worker Pool.");
-        aiWorkerPool.shutdown(); // Disable new tasks from being submitted
-        try {
-            // Wait a while for existing tasks to terminate
-            if (!aiWorkerPool.awaitTermination(60, java.util.concurrent.TimeUnit.SECONDS)) {
-                aiWorkerPool.shutdownNow(); // Cancel currently executing tasks
-                // Wait a while for tasks to respond to being cancelled
-                if (!aiWorkerPool.awaitTermination(60, java.util.concurrent.TimeUnit.SECONDS)) {
-                    log.error("AI Worker Pool did not terminate.");
-                }
-            }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            aiWorkerPool.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
-        log.info("AI Worker Pool shut down.");
-    }
-
-    public void processBarrage(BarrageRequest barrageRequest) {
+    /**
+     * 处理点歌弹幕：查曲库、取缓存口播或在后台生成口播，然后入队
+     *
+     * @return 入队结果；未识别出歌名或曲库中没有这首歌时为空
+     */
+    public Optional<PlayQueue.OfferResult> processBarrage(BarrageRequest barrageRequest) {
         log.info("Processing barrage request: {}", barrageRequest);
 
-        Optional<String> songNameOptional = barrageFilterService.extractSongName(barrageRequest);
+        // 调度器已解析过歌名时直接复用，避免同一条弹幕解析两次
+        Optional<String> songNameOptional = barrageRequest.getSongName() != null
+                ? Optional.of(barrageRequest.getSongName())
+                : barrageFilterService.extractSongName(barrageRequest);
 
         if (songNameOptional.isPresent()) {
             String songName = songNameOptional.get();
             String requester = barrageRequest.getUser() != null ? barrageRequest.getUser() : "匿名用户";
 
-            Optional<MusicLibrary> musicOptional = musicLibraryRepository.findBySongName(songName);
+            Optional<MusicLibrary> musicOptional = musicCatalog.findBySongName(songName);
 
             if (musicOptional.isEmpty()) {
                 log.info("Requested song '{}' not found in library.", songName);
-                return;
+                return Optional.empty();
             }
 
             MusicLibrary music = musicOptional.get();
+            PlayTask playTask = buildPlayTask(music, barrageRequest, requester);
+            // 超出排队名额的点歌在查缓存、生成口播之前拒绝，不白白调用 Gemini 和 TTS
+            if (!playbackWorker.canAccept(playTask)) {
+                log.info("Rejected request '{}' from {} before intro generation: queue limit reached.", songName, requester);
+                return Optional.of(PlayQueue.OfferResult.REJECTED);
+            }
 
             // 4. 查 intro_cache 是否有口播音频
-            Optional<IntroCache> introCacheOptional = introCacheRepository.findByMusicId(music.getId());
-            String introAudioPath = null;
+            Optional<IntroCache> introCacheOptional = introCacheStore.findByMusicId(music.getId());
 
             if (introCacheOptional.isPresent()) {
-                introAudioPath = introCacheOptional.get().getAudioPath();
                 log.info("Found cached intro audio for song '{}'.", songName);
-                enqueuePlayTask(music, introAudioPath, requester);
-            } else {
-                // 5. 同步生成口播（若缓存缺失），确保播放任务中包含口播路径
-                log.info("Cached intro audio missing for song '{}', generating synchronously for playback queue.", songName);
-                try {
-                    java.util.Map<String, String> result = CompletableFuture.supplyAsync(() -> {
-                        log.info("Calling GeminiService to generate intro text for song: {}", songName);
-                        // 生成Gemini文案
-                        String introText = geminiService.generateIntroText(requester, songName);
-                        log.info("GeminiService returned intro text: \'{}\'".concat(introText != null ? introText : "null"), introText);
-
-                        // 清洗文案（移除敏感词和生僻字）
-                        String cleanedText = textCleaningService.cleanIntroText(introText);
-                        log.info("Cleaned intro text: \'{}\'".concat(cleanedText != null ? cleanedText : "null"), cleanedText);
-
-                        // 计算文案哈希值
-                        String introTextHash = textCleaningService.hashIntroText(cleanedText);
-                        log.info("Intro text hash: {}", introTextHash);
-
-                        log.info("Calling TtsService to generate audio file for musicId: {}", music.getId());
-                        // 生成TTS音频
-                        String audioPath = ttsService.generateAudioFile(introText, music.getId());
-                        log.info("TtsService returned audio path: \'{}\'".concat(audioPath != null ? audioPath : "null"), audioPath);
-
-                        java.util.Map<String, String> innerResult = new java.util.HashMap<>();
-                        innerResult.put("introText", introText);
-                        innerResult.put("cleanedText", cleanedText);
-                        innerResult.put("introTextHash", introTextHash);
-                        innerResult.put("audioPath", audioPath);
-                        return innerResult;
-                    }, aiWorkerPool).get(); // .get() makes it synchronous
-
-                    String introText = result.get("introText");
-                    String introTextHash = result.get("introTextHash");
-                    String generatedAudioPath = result.get("audioPath");
-                    log.info("BarrageService received generatedAudioPath: \'{}\'".concat(generatedAudioPath != null ? generatedAudioPath : "null"), generatedAudioPath);
-
-                    if (generatedAudioPath != null) {
-                        IntroCache newIntroCache = new IntroCache();
-                        newIntroCache.setMusicId(music.getId());
-                        newIntroCache.setIntroText(introText); // 存储原始文案
-                        newIntroCache.setIntroTextHash(introTextHash); // 存储文案哈希值用于快速对比
-                        newIntroCache.setAudioPath(generatedAudioPath);
-                        newIntroCache.setUpdateTime(LocalDateTime.now());
-                        introCacheRepository.save(newIntroCache);
-                        log.info("Generated and cached intro audio for song '{}' at '{}' (hash: {}).", songName, generatedAudioPath, introTextHash);
-                        enqueuePlayTask(music, generatedAudioPath, requester); // Enqueue with generated path
-                    } else {
-                        log.warn("TTS generation failed for song '{}', playing song without intro.", songName);
-                        enqueuePlayTask(music, null, requester); // Fallback to enqueue without intro if generation fails
-                    }
-
-                } catch (Exception ex) {
-                    log.error("Failed to generate or cache intro audio for song '{}': {}", songName, ex.getMessage(), ex);
-                    enqueuePlayTask(music, null, requester); // Fallback to enqueue without intro if generation fails
-                }
+                playTask.setIntroAudioPath(introCacheOptional.get().getAudioPath());
+                PlayQueue.OfferResult result = playbackWorker.addPlayTask(playTask);
+                introService.refreshIfStale(music, introCacheOptional.get(), requester);
+                return Optional.of(result);
             }
-        } else {
-            log.info("Received chat message from user '{}': '{}' (Permission system disabled, processing anyway)", barrageRequest.getUser(), barrageRequest.getContent());
+            // 5. 缓存缺失：立即入队，口播在后台异步生成，播放时若已就绪则一并播放
+            log.info("Cached intro audio missing for song '{}', enqueueing now and generating intro in background.", songName);
+            playTask.setIntroFuture(introService.generateIntro(music, requester));
+            playTask.setIntroStream(introService.getIntroStream(music.getId()));
+            return Optional.of(playbackWorker.addPlayTask(playTask));
         }
+        log.info("Received chat message from user '{}': '{}' (Permission system disabled, processing anyway)", barrageRequest.getUser(), barrageRequest.getContent());
+        return Optional.empty();
     }
 
-    private void enqueuePlayTask(MusicLibrary music, String introAudioPath, String requester) {
-        PlayTask playTask = PlayTask.builder()
+    private PlayTask buildPlayTask(MusicLibrary music, BarrageRequest barrageRequest, String requester) {
+        // 近期送过礼的用户进入送礼档，按送礼总价值加权
+        long giftValue = permissionService.getGiftValue(barrageRequest.getUserId());
+        return PlayTask.builder()
                 .musicId(music.getId())
                 .songName(music.getSongName())
                 .songFilePath(music.getFilePath())
-                .introAudioPath(introAudioPath)
+                .durationMillis(music.getDurationMillis())
                 .requester(requester)
+                .requesterId(barrageRequest.getUserId())
+                .tier(giftValue > 0 ? PlayTier.GIFT : PlayTier.REQUEST)
+                .giftValue(giftValue)
                 .build();
-        playbackWorker.addPlayTask(playTask);
     }
 }
@@ -0,0 +1,642 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.util.TitleNormalizer;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 歌曲库的不可变内存快照
+ * 歌名与归一化匹配键统一存放在 char 池中，按下标访问；文件路径拆分为目录表下标 + 扩展名下标，
+ * 只有不符合 "目录/歌名.扩展名" 规则的路径才单独保存。三个开放寻址哈希表分别支持精确匹配、归一化匹配和按 id 查找，
+ * 模糊匹配由基于同一 char 池的 TitleMatchIndex 完成。
+ * 目录监听带来的小批量变更通过 {@link #withChanges} 在副本上增量应用，不重新构建其余歌曲的索引。
+ */
+public final class CatalogSnapshot {
+
+    // 快照发布后不再修改；只有 withChanges 在尚未发布的副本上修改这些字段
+    private int size;
+    private long[] ids;
+    private long[] lastPlayedMillis;
+    private int[] playCounts;
+    private int[] durationMillis;
+    private char[] namePool;
+    private int namePoolLength;
+    private int[] nameStarts;
+    private int[] nameEnds;
+    private char[] keyPool;
+    private int keyPoolLength;
+    private int[] keyStarts;
+    private int[] keyEnds;
+    private String[] directories;
+    private int[] directoryIndex;
+    private String[] extensions;
+    private byte[] extensionIndex;
+    private Map<Integer, String> irregularPaths;
+    private int[] nameTable;
+    private int[] keyTable;
+    private int[] idTable;
+    private int tableMask;
+    private TitleMatchIndex matchIndex;
+    // char 池中已被删除歌曲占用、不再被引用的字符数
+    private int garbageChars;
+    // char 池是否为本快照独有（可以原位追加）
+    private boolean poolsOwned;
+
+    private CatalogSnapshot(List<MusicLibrary> songs) {
+        this.size = songs.size();
+        this.ids = new long[size];
+        this.lastPlayedMillis = new long[size];
+        this.playCounts = new int[size];
+        this.durationMillis = new int[size];
+        this.nameStarts = new int[size];
+        this.nameEnds = new int[size];
+        this.keyStarts = new int[size];
+        this.keyEnds = new int[size];
+        this.directoryIndex = new int[size];
+        this.extensionIndex = new byte[size];
+        this.irregularPaths = new HashMap<>();
+
+        StringBuilder names = new StringBuilder();
+        StringBuilder keys = new StringBuilder();
+        PathEncoder paths = new PathEncoder(new String[0], new String[0]);
+
+        for (int i = 0; i < size; i++) {
+            MusicLibrary song = songs.get(i);
+            String name = song.getSongName() != null ? song.getSongName() : "";
+            setValues(i, song);
+            nameStarts[i] = names.length();
+            names.append(name);
+            nameEnds[i] = names.length();
+            keyStarts[i] = keys.length();
+            keys.append(TitleNormalizer.normalize(name));
+            keyEnds[i] = keys.length();
+            paths.encode(this, i, name, song.getFilePath());
+        }
+        this.namePool = toArray(names);
+        this.namePoolLength = namePool.length;
+        this.keyPool = toArray(keys);
+        this.keyPoolLength = keyPool.length;
+        this.directories = paths.directories();
+        this.extensions = paths.extensions();
+
+        buildTables(Integer.highestOneBit(Math.max(2, size * 2) - 1) << 1);
+        this.matchIndex = new TitleMatchIndex(keyPool, keyStarts, keyEnds, size);
+    }
+
+    /**
+     * 复制 base 的可变部分，供 withChanges 修改；char 池在首次追加时才复制
+     */
+    private CatalogSnapshot(CatalogSnapshot base, int capacity) {
+        this.size = base.size;
+        int length = Math.max(capacity, base.ids.length);
+        this.ids = Arrays.copyOf(base.ids, length);
+        this.lastPlayedMillis = Arrays.copyOf(base.lastPlayedMillis, length);
+        this.playCounts = Arrays.copyOf(base.playCounts, length);
+        this.durationMillis = Arrays.copyOf(base.durationMillis, length);
+        this.namePool = base.namePool;
+        this.namePoolLength = base.namePoolLength;
+        this.nameStarts = Arrays.copyOf(base.nameStarts, length);
+        this.nameEnds = Arrays.copyOf(base.nameEnds, length);
+        this.keyPool = base.keyPool;
+        this.keyPoolLength = base.keyPoolLength;
+        this.keyStarts = Arrays.copyOf(base.keyStarts, length);
+        this.keyEnds = Arrays.copyOf(base.keyEnds, length);
+        this.directories = base.directories;
+        this.directoryIndex = Arrays.copyOf(base.directoryIndex, length);
+        this.extensions = base.extensions;
+        this.extensionIndex = Arrays.copyOf(base.extensionIndex, length);
+        this.irregularPaths = new HashMap<>(base.irregularPaths);
+        this.nameTable = base.nameTable.clone();
+        this.keyTable = base.keyTable.clone();
+        this.idTable = base.idTable.clone();
+        this.tableMask = base.tableMask;
+        this.garbageChars = base.garbageChars;
+    }
+
+    /**
+     * 与 base 共享全部数组的浅副本，调用方只替换需要修改的数组
+     */
+    private CatalogSnapshot(CatalogSnapshot base) {
+        this.size = base.size;
+        this.ids = base.ids;
+        this.lastPlayedMillis = base.lastPlayedMillis;
+        this.playCounts = base.playCounts;
+        this.durationMillis = base.durationMillis;
+        this.namePool = base.namePool;
+        this.namePoolLength = base.namePoolLength;
+        this.nameStarts = base.nameStarts;
+        this.nameEnds = base.nameEnds;
+        this.keyPool = base.keyPool;
+        this.keyPoolLength = base.keyPoolLength;
+        this.keyStarts = base.keyStarts;
+        this.keyEnds = base.keyEnds;
+        this.directories = base.directories;
+        this.directoryIndex = base.directoryIndex;
+        this.extensions = base.extensions;
+        this.extensionIndex = base.extensionIndex;
+        this.irregularPaths = base.irregularPaths;
+        this.nameTable = base.nameTable;
+        this.keyTable = base.keyTable;
+        this.idTable = base.idTable;
+        this.tableMask = base.tableMask;
+        this.matchIndex = base.matchIndex;
+        this.garbageChars = base.garbageChars;
+    }
+
+    /**
+     * 由歌曲列表构建快照，歌名重复时以先出现的为准
+     */
+    public static CatalogSnapshot build(List<MusicLibrary> songs) {
+        return new CatalogSnapshot(songs);
+    }
+
+    /**
+     * 在副本上增量应用变更并返回新快照，当前快照不变。
+     * 已有的歌名原位更新 id、路径和播放信息；新歌名追加到末尾；被删除的歌曲由最后一首歌填补其下标。
+     * 只处理变化的歌曲，其余歌曲不重新归一化、不重新建索引；删除累积的失效字符超过存活字符时整体重建以压缩 char 池。
+     *
+     * @param upserted     新增或路径变化的歌曲（需包含 id）
+     * @param removedNames 被删除的歌名
+     */
+    public CatalogSnapshot withChanges(List<MusicLibrary> upserted, Collection<String> removedNames) {
+        if (upserted.isEmpty() && removedNames.isEmpty()) {
+            return this;
+        }
+        CatalogSnapshot next = new CatalogSnapshot(this, size + upserted.size());
+        TitleMatchIndex.Editor matchEditor = matchIndex.edit();
+        PathEncoder paths = new PathEncoder(directories, extensions);
+        for (String songName : removedNames) {
+            int index;
+            while ((index = next.indexOfName(songName)) >= 0) {
+                next.removeAt(index, matchEditor);
+            }
+        }
+        for (MusicLibrary song : upserted) {
+            String name = song.getSongName() != null ? song.getSongName() : "";
+            int index = next.indexOfName(name);
+            if (index >= 0) {
+                next.updateAt(index, song, paths);
+            } else {
+                next.append(name, song, paths);
+                matchEditor.add(next.size - 1);
+            }
+        }
+        next.directories = paths.directories();
+        next.extensions = paths.extensions();
+        if (next.garbageChars > next.namePoolLength + next.keyPoolLength - next.garbageChars) {
+            return build(next.toList());
+        }
+        next.matchIndex = matchEditor.build(next.keyPool, next.keyStarts, next.keyEnds, next.size);
+        return next;
+    }
+
+    /**
+     * 返回更新了歌曲时长的新快照：只复制时长数组，其余数组与索引与当前快照共享
+     *
+     * @param durationsById 歌曲 id -> 时长（毫秒），不在快照中的 id 忽略
+     */
+    public CatalogSnapshot withDurations(Map<Long, Long> durationsById) {
+        CatalogSnapshot next = new CatalogSnapshot(this);
+        next.durationMillis = durationMillis.clone();
+        durationsById.forEach((id, millis) -> {
+            int index = indexOfId(id);
+            if (index >= 0 && millis != null) {
+                next.durationMillis[index] = (int) Math.min(Integer.MAX_VALUE, millis);
+            }
+        });
+        return next;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 精确匹配歌名
+     *
+     * @return 歌曲下标，未找到返回 -1
+     */
+    public int indexOfName(CharSequence songName) {
+        return songName == null ? -1 : lookup(nameTable, namePool, nameStarts, nameEnds, songName);
+    }
+
+    /**
+     * 按归一化匹配键查找
+     *
+     * @param normalizedKey 经 TitleNormalizer.normalize 处理后的键
+     * @return 歌曲下标，未找到返回 -1
+     */
+    public int indexOfNormalizedKey(CharSequence normalizedKey) {
+        return normalizedKey == null || normalizedKey.length() == 0 ? -1 : lookup(keyTable, keyPool, keyStarts, keyEnds, normalizedKey);
+    }
+
+    /**
+     * 按归一化匹配键做模糊匹配
+     *
+     * @see TitleMatchIndex#match(String, double, int)
+     */
+    public TitleMatchIndex.Match fuzzyMatch(String normalizedKey, double minConfidence, int maxCandidates) {
+        return matchIndex.match(normalizedKey, minConfidence, maxCandidates);
+    }
+
+    /**
+     * 按歌曲 id 查找
+     *
+     * @return 歌曲下标，未找到返回 -1
+     */
+    public int indexOfId(long id) {
+        int slot = spread(Long.hashCode(id)) & tableMask;
+        int entry;
+        while ((entry = idTable[slot]) != 0) {
+            if (ids[entry - 1] == id) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    /**
+     * 快照构建时的最近播放时间（毫秒时间戳），从未播放过返回 Long.MIN_VALUE
+     */
+    public long lastPlayedMillisAt(int index) {
+        return lastPlayedMillis[index];
+    }
+
+    /**
+     * 快照构建时的播放次数
+     */
+    public int playCountAt(int index) {
+        return playCounts[index];
+    }
+
+    /**
+     * 歌曲时长（毫秒），尚未解析出元数据时返回 -1
+     */
+    public int durationMillisAt(int index) {
+        return durationMillis[index];
+    }
+
+    public String songNameAt(int index) {
+        return new String(namePool, nameStarts[index], nameEnds[index] - nameStarts[index]);
+    }
+
+    public String filePathAt(int index) {
+        if (directoryIndex[index] < 0) {
+            return irregularPaths.get(index);
+        }
+        return directories[directoryIndex[index]] + songNameAt(index) + extensions[extensionIndex[index]];
+    }
+
+    /**
+     * 还原为 MusicLibrary 值对象（不含 JPA 托管状态）
+     */
+    public MusicLibrary toMusicLibrary(int index) {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(ids[index]);
+        music.setSongName(songNameAt(index));
+        music.setFilePath(filePathAt(index));
+        music.setLastPlayedAt(lastPlayedMillis[index] == Long.MIN_VALUE ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastPlayedMillis[index]), ZoneId.systemDefault()));
+        music.setPlayCount(playCounts[index]);
+        music.setDurationMillis(durationMillis[index] < 0 ? null : (long) durationMillis[index]);
+        return music;
+    }
+
+    /**
+     * 估算快照占用的堆内存（字节）
+     */
+    public long estimatedBytes() {
+        long bytes = (long) (ids.length + lastPlayedMillis.length) * 8
+                + (long) (playCounts.length + durationMillis.length) * 4
+                + (long) (namePool.length + keyPool.length) * 2
+                + (long) (nameStarts.length + nameEnds.length + keyStarts.length + keyEnds.length + directoryIndex.length) * 4
+                + extensionIndex.length
+                + (long) (nameTable.length + keyTable.length + idTable.length) * 4
+                + matchIndex.estimatedBytes();
+        for (String directory : directories) {
+            bytes += 40 + directory.length() * 2L;
+        }
+        for (String path : irregularPaths.values()) {
+            bytes += 72 + (path != null ? path.length() * 2L : 0);
+        }
+        return bytes;
+    }
+
+    private void setValues(int index, MusicLibrary song) {
+        ids[index] = song.getId() != null ? song.getId() : -1L;
+        lastPlayedMillis[index] = toEpochMillis(song.getLastPlayedAt());
+        playCounts[index] = song.getPlayCount() != null ? song.getPlayCount() : 0;
+        durationMillis[index] = song.getDurationMillis() != null ? (int) Math.min(Integer.MAX_VALUE, song.getDurationMillis()) : -1;
+    }
+
+    /**
+     * 原位更新已有歌名的 id、路径和播放信息，歌名不变因此歌名表、匹配键表和模糊索引都不用动
+     */
+    private void updateAt(int index, MusicLibrary song, PathEncoder paths) {
+        long oldId = ids[index];
+        setValues(index, song);
+        if (ids[index] != oldId) {
+            long newId = ids[index];
+            ids[index] = oldId;
+            delete(idTable, index, this::idHash);
+            ids[index] = newId;
+            insert(idTable, index, idHash(index));
+        }
+        irregularPaths.remove(index);
+        paths.encode(this, index, songNameAt(index), song.getFilePath());
+    }
+
+    private void append(String name, MusicLibrary song, PathEncoder paths) {
+        int index = size;
+        if (index == ids.length) {
+            int length = Math.max(16, index * 2);
+            ids = Arrays.copyOf(ids, length);
+            lastPlayedMillis = Arrays.copyOf(lastPlayedMillis, length);
+            playCounts = Arrays.copyOf(playCounts, length);
+            durationMillis = Arrays.copyOf(durationMillis, length);
+            nameStarts = Arrays.copyOf(nameStarts, length);
+            nameEnds = Arrays.copyOf(nameEnds, length);
+            keyStarts = Arrays.copyOf(keyStarts, length);
+            keyEnds = Arrays.copyOf(keyEnds, length);
+            directoryIndex = Arrays.copyOf(directoryIndex, length);
+            extensionIndex = Arrays.copyOf(extensionIndex, length);
+        }
+        setValues(index, song);
+        String key = TitleNormalizer.normalize(name);
+        // char 池与旧快照共享，首次追加时先复制，不能写入旧快照的数组
+        if (!poolsOwned || namePoolLength + name.length() > namePool.length) {
+            namePool = Arrays.copyOf(namePool, Math.max(namePoolLength + name.length(), namePoolLength + namePoolLength / 4 + 16));
+        }
+        if (!poolsOwned || keyPoolLength + key.length() > keyPool.length) {
+            keyPool = Arrays.copyOf(keyPool, Math.max(keyPoolLength + key.length(), keyPoolLength + keyPoolLength / 4 + 16));
+        }
+        poolsOwned = true;
+        nameStarts[index] = namePoolLength;
+        name.getChars(0, name.length(), namePool, namePoolLength);
+        namePoolLength += name.length();
+        nameEnds[index] = namePoolLength;
+        keyStarts[index] = keyPoolLength;
+        key.getChars(0, key.length(), keyPool, keyPoolLength);
+        keyPoolLength += key.length();
+        keyEnds[index] = keyPoolLength;
+        paths.encode(this, index, name, song.getFilePath());
+        size++;
+
+        if (size * 2 > tableMask + 1) {
+            buildTables((tableMask + 1) * 2);
+        } else {
+            insertEntries(index);
+        }
+    }
+
+    /**
+     * 删除下标 index 的歌曲，最后一首歌移到该下标以保持下标连续
+     */
+    private void removeAt(int index, TitleMatchIndex.Editor matchEditor) {
+        delete(nameTable, index, this::nameHash);
+        if (keyEnds[index] > keyStarts[index]) {
+            delete(keyTable, index, this::keyHash);
+        }
+        delete(idTable, index, this::idHash);
+        matchEditor.remove(index);
+        garbageChars += nameEnds[index] - nameStarts[index] + keyEnds[index] - keyStarts[index];
+        irregularPaths.remove(index);
+
+        int last = size - 1;
+        if (index != last) {
+            relabel(nameTable, last, index, nameHash(last));
+            if (keyEnds[last] > keyStarts[last]) {
+                relabel(keyTable, last, index, keyHash(last));
+            }
+            relabel(idTable, last, index, idHash(last));
+            ids[index] = ids[last];
+            lastPlayedMillis[index] = lastPlayedMillis[last];
+            playCounts[index] = playCounts[last];
+            durationMillis[index] = durationMillis[last];
+            nameStarts[index] = nameStarts[last];
+            nameEnds[index] = nameEnds[last];
+            keyStarts[index] = keyStarts[last];
+            keyEnds[index] = keyEnds[last];
+            directoryIndex[index] = directoryIndex[last];
+            extensionIndex[index] = extensionIndex[last];
+            String irregularPath = irregularPaths.remove(last);
+            if (directoryIndex[index] < 0) {
+                irregularPaths.put(index, irregularPath);
+            }
+            matchEditor.move(last, index);
+        }
+        size--;
+    }
+
+    private List<MusicLibrary> toList() {
+        List<MusicLibrary> songs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            songs.add(toMusicLibrary(i));
+        }
+        return songs;
+    }
+
+    private void buildTables(int capacity) {
+        this.tableMask = capacity - 1;
+        this.nameTable = new int[capacity];
+        this.keyTable = new int[capacity];
+        this.idTable = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertEntries(i);
+        }
+    }
+
+    private void insertEntries(int index) {
+        insert(idTable, index, idHash(index));
+        insert(nameTable, index, nameHash(index));
+        if (keyEnds[index] > keyStarts[index]) {
+            insert(keyTable, index, keyHash(index));
+        }
+    }
+
+    private int nameHash(int index) {
+        return hash(namePool, nameStarts[index], nameEnds[index] - nameStarts[index]);
+    }
+
+    private int keyHash(int index) {
+        return hash(keyPool, keyStarts[index], keyEnds[index] - keyStarts[index]);
+    }
+
+    private int idHash(int index) {
+        return spread(Long.hashCode(ids[index]));
+    }
+
+    /**
+     * 插入到探测序列的第一个空位；重复的键也各占一个槽位，查找时先插入的排在探测序列前面，因此以先出现的为准
+     */
+    private void insert(int[] table, int index, int hash) {
+        int slot = hash & tableMask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = index + 1;
+    }
+
+    /**
+     * 线性探测表的删除：清空槽位后把后面同一簇中可以前移的条目向前回填，保持探测序列不断开
+     */
+    private void delete(int[] table, int index, IntUnaryOperator hashOf) {
+        int slot = hashOf.applyAsInt(index) & tableMask;
+        while (table[slot] != index + 1) {
+            if (table[slot] == 0) {
+                return;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        int hole = slot;
+        table[hole] = 0;
+        int next = hole;
+        while (true) {
+            next = (next + 1) & tableMask;
+            int entry = table[next];
+            if (entry == 0) {
+                return;
+            }
+            int home = hashOf.applyAsInt(entry - 1) & tableMask;
+            // home 不在 (hole, next] 区间内时，该条目可以移到空位上
+            boolean between = hole <= next ? home > hole && home <= next : home > hole || home <= next;
+            if (!between) {
+                table[hole] = entry;
+                table[next] = 0;
+                hole = next;
+            }
+        }
+    }
+
+    private void relabel(int[] table, int from, int to, int hash) {
+        int slot = hash & tableMask;
+        while (table[slot] != 0) {
+            if (table[slot] == from + 1) {
+                table[slot] = to + 1;
+                return;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    private int lookup(int[] table, char[] pool, int[] starts, int[] ends, CharSequence key) {
+        int slot = hash(key) & tableMask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            int start = starts[index];
+            int length = ends[index] - start;
+            if (length == key.length() && contentEquals(pool, start, key)) {
+                return index;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private static boolean contentEquals(char[] pool, int start, CharSequence key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (pool[start + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] pool, int start, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + pool[start + i];
+        }
+        return spread(h);
+    }
+
+    private static int hash(CharSequence key) {
+        int h = 0;
+        for (int i = 0; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time == null ? Long.MIN_VALUE : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static char[] toArray(StringBuilder sb) {
+        char[] chars = new char[sb.length()];
+        sb.getChars(0, sb.length(), chars, 0);
+        return chars;
+    }
+
+    /**
+     * 把文件路径拆为 "目录前缀（含分隔符）" + 歌名 + 扩展名，维护目录表和扩展名表
+     */
+    private static final class PathEncoder {
+
+        private final Map<String, Integer> directoryIds = new HashMap<>();
+        private final List<String> directoryList;
+        private final Map<String, Integer> extensionIds = new HashMap<>();
+        private final List<String> extensionList;
+
+        PathEncoder(String[] directories, String[] extensions) {
+            this.directoryList = new ArrayList<>(List.of(directories));
+            this.extensionList = new ArrayList<>(List.of(extensions));
+            for (int i = 0; i < directories.length; i++) {
+                directoryIds.put(directories[i], i);
+            }
+            for (int i = 0; i < extensions.length; i++) {
+                extensionIds.put(extensions[i], i);
+            }
+        }
+
+        void encode(CatalogSnapshot snapshot, int index, String name, String filePath) {
+            int separator = filePath != null ? Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf(File.separatorChar)) : -1;
+            int dot = filePath != null ? filePath.lastIndexOf('.') : -1;
+            if (separator >= 0 && dot == separator + 1 + name.length()
+                    && filePath.startsWith(name, separator + 1) && extensionIds.size() < Byte.MAX_VALUE) {
+                snapshot.directoryIndex[index] = directoryIds.computeIfAbsent(filePath.substring(0, separator + 1), d -> {
+                    directoryList.add(d);
+                    return directoryList.size() - 1;
+                });
+                snapshot.extensionIndex[index] = (byte) (int) extensionIds.computeIfAbsent(filePath.substring(dot), e -> {
+                    extensionList.add(e);
+                    return extensionList.size() - 1;
+                });
+            } else {
+                snapshot.directoryIndex[index] = -1;
+                snapshot.irregularPaths.put(index, filePath);
+            }
+        }
+
+        String[] directories() {
+            return directoryList.toArray(new String[0]);
+        }
+
+        String[] extensions() {
+            return extensionList.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.IntroProperties;
+import com.example.aimusicdispatcher.entity.IntroCache;
+import com.example.aimusicdispatcher.generator.TtsAudioStore;
+import com.example.aimusicdispatcher.repository.IntroCacheRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 口播缓存近端缓存
+ * 在 IntroCacheRepository 前面放一层 Caffeine 缓存：启动时把 intro_cache 整表批量加载进内存，
+ * 点歌时的查询直接命中内存，不再访问 MySQL；写入时同时更新数据库和缓存。
+ * 数据库中也没有的歌曲在短时间内记为未命中（负缓存），重复点同一首尚未生成口播的歌不会反复回源；保存口播时负缓存立即失效。
+ * 命中的条目会检查音频文件是否仍然存在（查 TtsAudioStore 的内存索引），文件已被删除的条目视为未命中，交给调用方重新生成。
+ * 被引用的音频文件在 TtsAudioStore 中标记为 pin，不会被容量淘汰；每首歌只为它当前引用的音频持有一次 pin，
+ * 近端缓存条目被淘汰后重新回源加载不会重复 pin，口播换成新音频时释放旧音频的 pin。
+ */
+@Service
+public class IntroCacheStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IntroCacheStore.class);
+
+    private final IntroCacheRepository introCacheRepository;
+    private final TtsAudioStore ttsAudioStore;
+    private final Cache<Long, IntroCache> nearCache;
+    private final Cache<Long, Boolean> absent;
+    // 歌曲 id -> 已为其 pin 的音频路径，保证每首歌只持有一次 pin
+    private final ConcurrentHashMap<Long, String> pinnedPaths = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder staleFiles = new LongAdder();
+
+    public IntroCacheStore(IntroCacheRepository introCacheRepository, TtsAudioStore ttsAudioStore,
+                           IntroProperties introProperties) {
+        this.introCacheRepository = introCacheRepository;
+        this.ttsAudioStore = ttsAudioStore;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, introProperties.getNearCacheMaxSize()))
+                .build();
+        this.absent = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, introProperties.getNearCacheMaxSize()))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(0, introProperties.getNegativeCacheSeconds())))
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        List<IntroCache> intros = introCacheRepository.findAll();
+        for (IntroCache intro : intros) {
+            if (intro.getMusicId() != null) {
+                nearCache.put(intro.getMusicId(), intro);
+                reference(intro.getMusicId(), intro.getAudioPath());
+            }
+        }
+        log.info("Loaded {} intro cache entries into near cache in {} ms.",
+                intros.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 按歌曲 id 查找口播，音频文件已不存在时返回空
+     */
+    public Optional<IntroCache> findByMusicId(Long musicId) {
+        if (musicId == null) {
+            return Optional.empty();
+        }
+        IntroCache intro = nearCache.getIfPresent(musicId);
+        if (intro == null) {
+            if (absent.getIfPresent(musicId) != null) {
+                negativeHits.increment();
+                misses.increment();
+                return Optional.empty();
+            }
+            // 近端缓存未命中（超出容量被淘汰或由其他实例写入），回源数据库
+            intro = introCacheRepository.findByMusicId(musicId).orElse(null);
+            if (intro == null) {
+                absent.put(musicId, Boolean.TRUE);
+                misses.increment();
+                return Optional.empty();
+            }
+            nearCache.put(musicId, intro);
+            reference(musicId, intro.getAudioPath());
+        }
+        if (!ttsAudioStore.exists(intro.getAudioPath())) {
+            staleFiles.increment();
+            log.info("Intro audio file for musicId {} no longer exists: {}", musicId, intro.getAudioPath());
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(intro);
+    }
+
+    /**
+     * 保存口播：已有记录时更新该行（intro_cache.music_id 唯一），并刷新近端缓存
+     */
+    public IntroCache save(IntroCache intro) {
+        Long musicId = intro.getMusicId();
+        IntroCache existing = nearCache.getIfPresent(musicId);
+        if (existing == null) {
+            existing = introCacheRepository.findByMusicId(musicId).orElse(null);
+        }
+        if (existing != null && intro.getId() == null) {
+            intro.setId(existing.getId());
+        }
+        nearCache.invalidate(musicId);
+        // 写库前先 pin 新音频，避免写库期间被容量淘汰；旧音频不再被这首歌引用，随之释放
+        String previousPath = pinnedPaths.get(musicId);
+        reference(musicId, intro.getAudioPath());
+        IntroCache saved;
+        try {
+            saved = introCacheRepository.save(intro);
+        } catch (RuntimeException e) {
+            reference(musicId, previousPath);
+            throw e;
+        }
+        nearCache.put(saved.getMusicId(), saved);
+        // 近端缓存先于负缓存检查，写入后再失效负缓存，并发查询留下的未命中记录也不会遮住新口播
+        absent.invalidate(saved.getMusicId());
+        return saved;
+    }
+
+    /**
+     * 记录歌曲当前引用的音频：路径未变时不重复 pin，路径变化时 pin 新音频并释放旧音频
+     */
+    private void reference(Long musicId, String audioPath) {
+        pinnedPaths.compute(musicId, (id, previous) -> {
+            if (Objects.equals(previous, audioPath)) {
+                return previous;
+            }
+            if (audioPath != null) {
+                ttsAudioStore.pin(audioPath);
+            }
+            if (previous != null) {
+                ttsAudioStore.unpin(previous);
+            }
+            return audioPath;
+        });
+    }
+
+    /**
+     * 近端缓存统计，staleFiles 为命中但音频文件已不存在的次数，negativeHits 为由负缓存直接判定未命中的次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", nearCache.estimatedSize());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("staleFiles", staleFiles.sum());
+        return stats;
+    }
+}
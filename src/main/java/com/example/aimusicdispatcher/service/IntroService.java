@@ -0,0 +1,243 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.IntroProperties;
+import com.example.aimusicdispatcher.entity.IntroCache;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.generator.GeminiService;
+import com.example.aimusicdispatcher.generator.TextCleaningService;
+import com.example.aimusicdispatcher.generator.TtsService;
+import com.example.aimusicdispatcher.generator.TtsStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 口播生成服务
+ * 负责调用 Gemini 生成文案、TTS 生成音频并写入 intro_cache。
+ * 同一 musicId 的并发生成请求合并为一次（single-flight），所有等待方拿到同一个音频路径。
+ * 开启提前刷新时，过旧的口播仍先被使用，同时在后台重新生成，不占用点歌的请求路径。
+ * TTS 开始合成时通过 {@link #getIntroStream(Long)} 交出正在写入的音频，播放端可以不等合成结束就开始播放。
+ */
+@Service
+public class IntroService {
+
+    private static final Logger log = LoggerFactory.getLogger(IntroService.class);
+    // AI Worker Pool (Fixed, Size=10)
+    private final ExecutorService aiWorkerPool = Executors.newFixedThreadPool(10);
+
+    private final IntroCacheStore introCacheStore;
+    private final GeminiService geminiService;
+    private final TtsService ttsService;
+    private final TextCleaningService textCleaningService;
+    private final IntroProperties introProperties;
+
+    private final ConcurrentHashMap<Long, CompletableFuture<String>> inFlightGenerations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<TtsStream>> inFlightStreams = new ConcurrentHashMap<>();
+    private final LongAdder generationsStarted = new LongAdder();
+    private final LongAdder generationsSaved = new LongAdder();
+    private final LongAdder generationsFailed = new LongAdder();
+    private final LongAdder refreshesStarted = new LongAdder();
+
+    public IntroService(IntroCacheStore introCacheStore,
+                        GeminiService geminiService,
+                        TtsService ttsService,
+                        TextCleaningService textCleaningService,
+                        IntroProperties introProperties) {
+        this.introCacheStore = introCacheStore;
+        this.geminiService = geminiService;
+        this.ttsService = ttsService;
+        this.textCleaningService = textCleaningService;
+        this.introProperties = introProperties;
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        log.info("Shutting down AI Worker Pool.");
+        aiWorkerPool.shutdown(); // Disable new tasks from being submitted
+        try {
+            // Wait a while for existing tasks to terminate
+            if (!aiWorkerPool.awaitTermination(60, TimeUnit.SECONDS)) {
+                aiWorkerPool.shutdownNow(); // Cancel currently executing tasks
+                // Wait a while for tasks to respond to being cancelled
+                if (!aiWorkerPool.awaitTermination(60, TimeUnit.SECONDS)) {
+                    log.error("AI Worker Pool did not terminate.");
+                }
+            }
+        } catch (InterruptedException ie) {
+            // (Re-)Cancel if current thread also interrupted
+            aiWorkerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("AI Worker Pool shut down.");
+    }
+
+    /**
+     * 异步生成歌曲口播。若该歌曲已有进行中的生成，直接复用其结果；
+     * 若在调用方查缓存之后已有生成写入了 intro_cache，直接返回已缓存的口播。
+     *
+     * @param music     歌曲
+     * @param requester 点歌人（用于文案中的称呼，复用时沿用首个点歌人的文案）
+     * @return 口播音频路径的 Future，生成失败时结果为 null
+     */
+    public CompletableFuture<String> generateIntro(MusicLibrary music, String requester) {
+        return startGeneration(music, requester, false);
+    }
+
+    private CompletableFuture<String> startGeneration(MusicLibrary music, String requester, boolean refresh) {
+        Long musicId = music.getId();
+        CompletableFuture<String> generation = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightGenerations.putIfAbsent(musicId, generation);
+        if (inFlight != null) {
+            generationsSaved.increment();
+            log.info("Intro generation for song '{}' already in flight, sharing its result.", music.getSongName());
+            return inFlight;
+        }
+        if (!refresh) {
+            // 调用方查缓存与占位之间，上一次生成可能刚写入 intro_cache 并移除了占位
+            Optional<IntroCache> cached = introCacheStore.findByMusicId(musicId);
+            if (cached.isPresent()) {
+                inFlightGenerations.remove(musicId, generation);
+                generationsSaved.increment();
+                generation.complete(cached.get().getAudioPath());
+                return generation;
+            }
+        }
+
+        generationsStarted.increment();
+        CompletableFuture<TtsStream> stream = new CompletableFuture<>();
+        inFlightStreams.put(musicId, stream);
+        try {
+            aiWorkerPool.execute(() -> {
+                String audioPath = null;
+                Throwable failure = null;
+                try {
+                    audioPath = doGenerateIntro(music, requester, stream::complete);
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    // doGenerateIntro 返回时 intro_cache 已写入，此后移除占位，新请求会直接命中缓存
+                    inFlightGenerations.remove(musicId, generation);
+                    inFlightStreams.remove(musicId, stream);
+                    // 没有进入合成（文案生成失败或命中了音频缓存）时不会有流
+                    stream.complete(null);
+                }
+                if (failure != null) {
+                    generationsFailed.increment();
+                    generation.completeExceptionally(failure);
+                } else {
+                    if (audioPath == null) {
+                        generationsFailed.increment();
+                    }
+                    generation.complete(audioPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightGenerations.remove(musicId, generation);
+            inFlightStreams.remove(musicId, stream);
+            stream.complete(null);
+            generationsFailed.increment();
+            generation.completeExceptionally(e);
+        }
+        return generation;
+    }
+
+    /**
+     * 进行中的口播生成的音频流：TTS 开始合成时完成；生成结束仍未进入合成时结果为 null。
+     *
+     * @return 没有进行中的生成时返回 null
+     */
+    public CompletableFuture<TtsStream> getIntroStream(Long musicId) {
+        return inFlightStreams.get(musicId);
+    }
+
+    /**
+     * 提前刷新：命中的口播超过 app.intro.refresh-after-days 时在后台重新生成，调用方继续使用旧口播。
+     * 若该歌曲已有进行中的生成则不重复发起。
+     *
+     * @param music     歌曲
+     * @param intro     命中的口播缓存
+     * @param requester 本次点歌人
+     */
+    public void refreshIfStale(MusicLibrary music, IntroCache intro, String requester) {
+        if (!introProperties.isRefreshAheadEnabled() || intro.getUpdateTime() == null
+                || intro.getUpdateTime().isAfter(LocalDateTime.now().minusDays(introProperties.getRefreshAfterDays()))
+                || inFlightGenerations.containsKey(music.getId())) {
+            return;
+        }
+        refreshesStarted.increment();
+        log.info("Intro for song '{}' was generated at {}, refreshing in background.", music.getSongName(), intro.getUpdateTime());
+        startGeneration(music, requester, true);
+    }
+
+    /**
+     * 生成口播文案与音频并写入 intro_cache，在 AI Worker Pool 中执行。
+     *
+     * @return 生成的口播音频路径，失败时返回 null
+     */
+    private String doGenerateIntro(MusicLibrary music, String requester, Consumer<TtsStream> onSynthesisStart) {
+        String songName = music.getSongName();
+        try {
+            log.info("Calling GeminiService to generate intro text for song: {}", songName);
+            // 生成Gemini文案
+            String introText = geminiService.generateIntroText(requester, songName);
+            log.info("GeminiService returned intro text: '{}'", introText);
+
+            // 清洗文案（移除敏感词和生僻字）
+            String cleanedText = textCleaningService.cleanIntroText(introText);
+            log.info("Cleaned intro text: '{}'", cleanedText);
+
+            // 计算文案哈希值
+            String introTextHash = textCleaningService.hashIntroText(cleanedText);
+            log.info("Intro text hash: {}", introTextHash);
+
+            log.info("Calling TtsService to generate audio file for musicId: {}", music.getId());
+            // 生成TTS音频
+            String audioPath = ttsService.generateAudioFile(introText, music.getId(), onSynthesisStart);
+            log.info("TtsService returned audio path: '{}'", audioPath);
+
+            if (audioPath == null) {
+                log.warn("TTS generation failed for song '{}', song will play without intro.", songName);
+                return null;
+            }
+
+            IntroCache newIntroCache = new IntroCache();
+            newIntroCache.setMusicId(music.getId());
+            newIntroCache.setIntroText(introText); // 存储原始文案
+            newIntroCache.setIntroTextHash(introTextHash); // 存储文案哈希值用于快速对比
+            newIntroCache.setAudioPath(audioPath);
+            newIntroCache.setUpdateTime(LocalDateTime.now());
+            introCacheStore.save(newIntroCache);
+            log.info("Generated and cached intro audio for song '{}' at '{}' (hash: {}).", songName, audioPath, introTextHash);
+            return audioPath;
+        } catch (Exception ex) {
+            log.error("Failed to generate or cache intro audio for song '{}': {}", songName, ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * 口播生成统计，generationsSaved 为被合并掉的重复生成次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generationsStarted", generationsStarted.sum());
+        stats.put("generationsSaved", generationsSaved.sum());
+        stats.put("generationsFailed", generationsFailed.sum());
+        stats.put("refreshesStarted", refreshesStarted.sum());
+        stats.put("inFlight", inFlightGenerations.size());
+        return stats;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.aimusicdispatcher.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 歌曲库清单（持久化在磁盘上的二进制文件）
+ * 记录每个目录的修改时间、子目录列表，以及其中音频文件的文件名、大小、修改时间和歌曲 id。
+ * 启动扫描时目录修改时间未变的目录直接复用清单内容，不再列目录；只有新增/删除/改名过文件的目录才会重新列出。
+ * 文件格式：magic + 版本号 + 根目录 + 目录条目列表，写入时先写临时文件再原子替换。
+ */
+final class LibraryManifest {
+
+    private static final int MAGIC = 0x414D444D; // "AMDM"
+    private static final int VERSION = 1;
+
+    private final String root;
+    private final Map<String, DirEntry> directories;
+
+    private LibraryManifest(String root, Map<String, DirEntry> directories) {
+        this.root = root;
+        this.directories = directories;
+    }
+
+    static LibraryManifest empty() {
+        return new LibraryManifest("", new HashMap<>());
+    }
+
+    /**
+     * 读取清单，文件不存在、格式或版本不符时返回空清单
+     */
+    static LibraryManifest read(Path file) {
+        if (file == null || !Files.isRegularFile(file)) {
+            return empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return empty();
+            }
+            String root = in.readUTF();
+            int directoryCount = in.readInt();
+            Map<String, DirEntry> directories = new HashMap<>(directoryCount * 2);
+            for (int d = 0; d < directoryCount; d++) {
+                String path = in.readUTF();
+                long mtime = in.readLong();
+                int subdirCount = in.readInt();
+                List<String> subdirs = new ArrayList<>(subdirCount);
+                for (int s = 0; s < subdirCount; s++) {
+                    subdirs.add(in.readUTF());
+                }
+                int fileCount = in.readInt();
+                List<FileEntry> files = new ArrayList<>(fileCount);
+                for (int f = 0; f < fileCount; f++) {
+                    files.add(new FileEntry(in.readUTF(), in.readLong(), in.readLong(), in.readLong()));
+                }
+                directories.put(path, new DirEntry(mtime, subdirs, files));
+            }
+            return new LibraryManifest(root, directories);
+        } catch (IOException e) {
+            return empty();
+        }
+    }
+
+    /**
+     * 写入清单（临时文件 + 原子替换）
+     */
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(root);
+            out.writeInt(directories.size());
+            for (Map.Entry<String, DirEntry> entry : directories.entrySet()) {
+                DirEntry dir = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(dir.mtime());
+                out.writeInt(dir.subdirs().size());
+                for (String subdir : dir.subdirs()) {
+                    out.writeUTF(subdir);
+                }
+                out.writeInt(dir.files().size());
+                for (FileEntry f : dir.files()) {
+                    out.writeUTF(f.name());
+                    out.writeLong(f.size());
+                    out.writeLong(f.mtime());
+                    out.writeLong(f.songId());
+                }
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 扫描音乐目录，修改时间未变的目录复用本清单的内容
+     *
+     * @return 扫描结果，包含歌名 -> 文件路径以及新的清单
+     */
+    ScanResult scan(Path musicDirectory) throws IOException {
+        String rootPath = musicDirectory.toAbsolutePath().toString();
+        boolean sameRoot = rootPath.equals(root);
+        Map<String, DirEntry> scanned = new LinkedHashMap<>();
+        Map<String, String> songs = new LinkedHashMap<>();
+        int reused = 0;
+        int listed = 0;
+
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.push(musicDirectory.toAbsolutePath());
+        while (!pending.isEmpty()) {
+            Path dir = pending.pop();
+            String dirPath = dir.toString();
+            // 目录修改时间精确到纳秒（取决于文件系统），避免同一毫秒内的变更被忽略
+            long mtime = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).to(TimeUnit.NANOSECONDS);
+            DirEntry cached = sameRoot ? directories.get(dirPath) : null;
+            DirEntry entry;
+            if (cached != null && cached.mtime() == mtime) {
+                entry = cached;
+                reused++;
+            } else {
+                entry = list(dir, mtime, cached);
+                listed++;
+            }
+            scanned.put(dirPath, entry);
+            for (FileEntry file : entry.files()) {
+                songs.putIfAbsent(MusicSyncService.songNameOf(file.name()), dir.resolve(file.name()).toString());
+            }
+            // 逆序入栈，保持与目录列出顺序一致的遍历顺序
+            for (int i = entry.subdirs().size() - 1; i >= 0; i--) {
+                Path subdir = dir.resolve(entry.subdirs().get(i));
+                if (Files.isDirectory(subdir, LinkOption.NOFOLLOW_LINKS)) {
+                    pending.push(subdir);
+                }
+            }
+        }
+        return new ScanResult(songs, new LibraryManifest(rootPath, scanned), listed, reused);
+    }
+
+    /**
+     * 用歌曲 id 更新清单中的文件条目
+     *
+     * @param songIdLookup (歌名, 文件路径) -> 歌曲 id，未知返回 0
+     */
+    LibraryManifest withSongIds(BiFunction<String, String, Long> songIdLookup) {
+        Map<String, DirEntry> updated = new LinkedHashMap<>(directories.size() * 2);
+        for (Map.Entry<String, DirEntry> entry : directories.entrySet()) {
+            Path dir = Path.of(entry.getKey());
+            List<FileEntry> files = new ArrayList<>(entry.getValue().files().size());
+            for (FileEntry f : entry.getValue().files()) {
+                Long songId = songIdLookup.apply(MusicSyncService.songNameOf(f.name()), dir.resolve(f.name()).toString());
+                files.add(new FileEntry(f.name(), f.size(), f.mtime(), songId != null ? songId : 0L));
+            }
+            updated.put(entry.getKey(), new DirEntry(entry.getValue().mtime(), entry.getValue().subdirs(), files));
+        }
+        return new LibraryManifest(root, updated);
+    }
+
+    int directoryCount() {
+        return directories.size();
+    }
+
+    private static DirEntry list(Path dir, long mtime, DirEntry cached) throws IOException {
+        Map<String, Long> knownIds = new HashMap<>();
+        if (cached != null) {
+            for (FileEntry f : cached.files()) {
+                knownIds.put(f.name(), f.songId());
+            }
+        }
+        List<String> subdirs = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+            for (Path child : children) {
+                BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                String name = child.getFileName().toString();
+                if (attrs.isDirectory()) {
+                    subdirs.add(name);
+                } else if (attrs.isRegularFile() && MusicSyncService.isAudioFile(child)) {
+                    files.add(new FileEntry(name, attrs.size(), attrs.lastModifiedTime().toMillis(), knownIds.getOrDefault(name, 0L)));
+                }
+            }
+        }
+        subdirs.sort(null);
+        files.sort((a, b) -> a.name().compareTo(b.name()));
+        return new DirEntry(mtime, subdirs, files);
+    }
+
+    record DirEntry(long mtime, List<String> subdirs, List<FileEntry> files) {
+    }
+
+    record FileEntry(String name, long size, long mtime, long songId) {
+    }
+
+    /**
+     * 扫描结果
+     *
+     * @param songs    歌名 -> 文件绝对路径
+     * @param manifest 本次扫描得到的新清单
+     * @param listed   重新列出的目录数
+     * @param reused   直接复用清单的目录数
+     */
+    record ScanResult(Map<String, String> songs, LibraryManifest manifest, int listed, int reused) {
+    }
+}
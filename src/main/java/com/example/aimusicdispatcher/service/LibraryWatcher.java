@@ -0,0 +1,271 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.MusicProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 音乐目录监听器
+ * 用 WatchService 递归监听 music.local-path，.mp3/.wav 文件的新增、删除、改名（删除 + 新增）事件先在内存中合并，
+ * 最后一个事件之后静默 debounce-millis 再作为一个小批次交给 MusicSyncService 增量应用（数据库 + 内存目录）。
+ * 监听队列溢出、目录被删除或监听不可用时，改为定期全量重新扫描。
+ */
+@Service
+public class LibraryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryWatcher.class);
+    /** 事件持续不断时，最长等待多少个防抖周期就强制应用一次 */
+    private static final int MAX_DEBOUNCE_ROUNDS = 5;
+
+    private final MusicSyncService musicSyncService;
+    private final MusicProperties musicProperties;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    // key: 文件路径，value: 最后一次事件后文件是否存在；只在监听线程中访问
+    private final Map<Path, Boolean> pendingChanges = new LinkedHashMap<>();
+    private final AtomicBoolean rescanRequested = new AtomicBoolean(false);
+    private final LongAdder eventsReceived = new LongAdder();
+    private final LongAdder batchesApplied = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder fullRescans = new LongAdder();
+
+    private volatile boolean running;
+    private WatchService watchService;
+    private Thread watcherThread;
+    private ScheduledExecutorService rescanScheduler;
+    private long firstPendingAt;
+
+    public LibraryWatcher(MusicSyncService musicSyncService, MusicProperties musicProperties) {
+        this.musicSyncService = musicSyncService;
+        this.musicProperties = musicProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        MusicProperties.Watch watch = musicProperties.getWatch();
+        String localPath = musicProperties.getLocalPath();
+        if (!watch.isEnabled() || localPath == null || localPath.isEmpty() || !Files.isDirectory(Paths.get(localPath))) {
+            log.info("Music directory watcher is disabled.");
+            return;
+        }
+        running = true;
+        rescanScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LibraryRescan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long rescanMinutes = Math.max(1, watch.getFullRescanMinutes());
+        rescanScheduler.scheduleWithFixedDelay(this::rescanIfRequested, rescanMinutes, rescanMinutes, TimeUnit.MINUTES);
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerAll(Paths.get(localPath));
+        } catch (IOException e) {
+            log.warn("Failed to watch music directory {}, falling back to periodic full rescan: {}", localPath, e.getMessage());
+            rescanRequested.set(true);
+            closeWatchService();
+            watchService = null;
+            return;
+        }
+        watcherThread = new Thread(this::watchLoop, "LibraryWatcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching music directory {} ({} directories).", localPath, watchedDirectories.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        closeWatchService();
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            try {
+                watcherThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (rescanScheduler != null) {
+            rescanScheduler.shutdownNow();
+        }
+    }
+
+    private void watchLoop() {
+        long debounceMillis = Math.max(1, musicProperties.getWatch().getDebounceMillis());
+        while (running) {
+            try {
+                WatchKey key = pendingChanges.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                if (!pendingChanges.isEmpty() && (key == null
+                        || System.currentTimeMillis() - firstPendingAt >= debounceMillis * MAX_DEBOUNCE_ROUNDS)) {
+                    flushPending();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                log.error("Error in music directory watcher: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            eventsReceived.increment();
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                overflows.increment();
+                log.warn("Music directory watch queue overflowed, scheduling full rescan.");
+                requestRescan();
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // 新建（或移入）的目录：注册监听并把其中已有的音频文件视为新增
+                try {
+                    registerAll(child);
+                    try (Stream<Path> files = Files.walk(child)) {
+                        files.filter(Files::isRegularFile).filter(MusicSyncService::isAudioFile).forEach(f -> addPending(f, true));
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to watch new directory {}: {}", child, e.getMessage());
+                    requestRescan();
+                }
+            } else if (MusicSyncService.isAudioFile(child)) {
+                addPending(child, kind != StandardWatchEventKinds.ENTRY_DELETE);
+            } else if (kind == StandardWatchEventKinds.ENTRY_DELETE && watchedDirectories.containsValue(child)) {
+                // 整个目录被删除或移走，无法得知其中的文件，交给全量扫描
+                requestRescan();
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void addPending(Path file, boolean exists) {
+        if (pendingChanges.isEmpty()) {
+            firstPendingAt = System.currentTimeMillis();
+        }
+        pendingChanges.remove(file);
+        pendingChanges.put(file, exists);
+    }
+
+    private void flushPending() {
+        Map<String, String> upserts = new LinkedHashMap<>();
+        Map<String, String> deletes = new LinkedHashMap<>();
+        for (Map.Entry<Path, Boolean> change : pendingChanges.entrySet()) {
+            Path file = change.getKey();
+            String songName = MusicSyncService.songNameOf(file);
+            String filePath = file.toAbsolutePath().toString();
+            if (change.getValue() && Files.isRegularFile(file)) {
+                upserts.put(songName, filePath);
+            } else {
+                deletes.put(songName, filePath);
+            }
+        }
+        pendingChanges.clear();
+        try {
+            musicSyncService.applyChanges(upserts, deletes);
+            batchesApplied.increment();
+        } catch (Exception e) {
+            log.error("Failed to apply music library changes, scheduling full rescan: {}", e.getMessage(), e);
+            requestRescan();
+        }
+    }
+
+    private void requestRescan() {
+        if (!rescanRequested.getAndSet(true)) {
+            rescanScheduler.schedule(this::rescanIfRequested,
+                    Math.max(1, musicProperties.getWatch().getDebounceMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rescanIfRequested() {
+        if (!rescanRequested.getAndSet(false)) {
+            return;
+        }
+        try {
+            fullRescans.increment();
+            musicSyncService.resync();
+        } catch (Exception e) {
+            log.error("Full music library rescan failed: {}", e.getMessage(), e);
+            rescanRequested.set(true);
+        }
+        // 监听不可用时保持定期全量扫描
+        if (watchService == null) {
+            rescanRequested.set(true);
+        }
+    }
+
+    private void registerAll(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 监听统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("watching", watcherThread != null && watcherThread.isAlive());
+        stats.put("watchedDirectories", watchedDirectories.size());
+        stats.put("eventsReceived", eventsReceived.sum());
+        stats.put("batchesApplied", batchesApplied.sum());
+        stats.put("overflows", overflows.sum());
+        stats.put("fullRescans", fullRescans.sum());
+        return stats;
+    }
+}
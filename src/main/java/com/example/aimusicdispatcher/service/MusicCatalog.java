@@ -0,0 +1,122 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.MatchProperties;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.repository.MusicLibraryRepository;
+import com.example.aimusicdispatcher.util.TitleNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 内存歌曲目录
+ * 持有 music_library 的不可变快照，歌曲库同步完成后整体原子替换。
+ * 点歌时的歌名查找直接在内存中完成，不再占用数据库连接；快照尚未加载时回退到数据库查询。
+ */
+@Service
+public class MusicCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(MusicCatalog.class);
+
+    private final MusicLibraryRepository musicLibraryRepository;
+    private final MatchProperties matchProperties;
+    private volatile CatalogSnapshot snapshot;
+
+    public MusicCatalog(MusicLibraryRepository musicLibraryRepository, MatchProperties matchProperties) {
+        this.musicLibraryRepository = musicLibraryRepository;
+        this.matchProperties = matchProperties;
+    }
+
+    /**
+     * 从数据库重新加载整个歌曲库并替换快照
+     */
+    public synchronized void reload() {
+        rebuild(musicLibraryRepository.findAll());
+    }
+
+    /**
+     * 用给定的歌曲列表构建新快照并原子替换
+     */
+    public synchronized void rebuild(List<MusicLibrary> songs) {
+        long start = System.nanoTime();
+        CatalogSnapshot newSnapshot = CatalogSnapshot.build(songs);
+        snapshot = newSnapshot;
+        log.info("Music catalog rebuilt: {} songs, ~{} KB, took {} ms.",
+                newSnapshot.size(), newSnapshot.estimatedBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 在当前快照的副本上增量应用变更并原子替换，不读取数据库，也不重建未变化歌曲的索引
+     *
+     * @param upserted     新增或路径变化的歌曲（需包含 id）
+     * @param removedNames 被删除的歌名
+     */
+    public synchronized void applyChanges(List<MusicLibrary> upserted, Set<String> removedNames) {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            reload();
+            return;
+        }
+        long start = System.nanoTime();
+        snapshot = current.withChanges(upserted, removedNames);
+        log.debug("Music catalog applied {} upserts and {} removals in {} us.",
+                upserted.size(), removedNames.size(), (System.nanoTime() - start) / 1_000);
+    }
+
+    /**
+     * 在当前快照基础上更新歌曲时长并原子替换，只复制时长数组，不在当前快照中的歌曲忽略
+     *
+     * @param durationsById 歌曲 id -> 时长（毫秒）
+     */
+    public synchronized void applyDurations(Map<Long, Long> durationsById) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || durationsById.isEmpty()) {
+            return;
+        }
+        snapshot = current.withDurations(durationsById);
+    }
+
+    /**
+     * 按歌名查找歌曲：先精确匹配，再按归一化键匹配（忽略全半角、大小写、空白和标点），
+     * 最后按二元组召回 + 编辑距离做模糊匹配，置信度达到阈值才接受
+     *
+     * @param songName 歌名
+     * @return 匹配到的歌曲（由内存快照还原的值对象）
+     */
+    public Optional<MusicLibrary> findBySongName(String songName) {
+        if (songName == null) {
+            return Optional.empty();
+        }
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return musicLibraryRepository.findBySongName(songName);
+        }
+        int index = current.indexOfName(songName);
+        if (index < 0) {
+            String normalizedKey = TitleNormalizer.normalize(songName);
+            index = current.indexOfNormalizedKey(normalizedKey);
+            if (index < 0 && matchProperties.isFuzzyEnabled()) {
+                TitleMatchIndex.Match match = current.fuzzyMatch(normalizedKey,
+                        matchProperties.getMinConfidence(), matchProperties.getMaxCandidates());
+                if (match != null) {
+                    index = match.index();
+                    log.info("Fuzzy matched '{}' to '{}' (confidence {}).",
+                            songName, current.songNameAt(index), String.format("%.2f", match.confidence()));
+                }
+            }
+        }
+        return index < 0 ? Optional.empty() : Optional.of(current.toMusicLibrary(index));
+    }
+
+    /**
+     * 当前快照，尚未加载时返回 null
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
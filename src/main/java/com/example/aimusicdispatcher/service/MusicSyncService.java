@@ -2,38 +2,157 @@ package com.example.aimusicdispatcher.service;
 
 import com.example.aimusicdispatcher.config.MusicProperties;
 import com.example.aimusicdispatcher.entity.MusicLibrary;
-import com.example.aimusicdispatcher.repository.MusicLibraryRepository;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * 歌曲库同步服务
+ * 把本地音乐目录与 music_library 表做集合差异比对：目录扫描一次、已有歌名一次性读入内存，
+ * 在内存中算出新增和删除的集合，再用 JDBC 批量插入/删除在一个事务里落库，并输出各阶段耗时。
+ * 启动时内存目录直接从数据库构建，目录扫描在应用就绪后于后台进行，并借助磁盘上的清单跳过未变化的目录。
+ * 运行期间的文件变更由 LibraryWatcher 通过 applyChanges 增量应用；同步后由 AudioMetadataIndexer 解析新歌曲的时长等元数据。
+ */
 @Service
 public class MusicSyncService {
 
     private static final Logger log = LoggerFactory.getLogger(MusicSyncService.class);
+    private static final String INSERT_SQL = "INSERT INTO music_library (song_name, file_path, play_count) VALUES (?, ?, 0)";
+    private static final String DELETE_SQL = "DELETE FROM music_library WHERE id = ?";
+    private static final String UPSERT_SQL = "INSERT INTO music_library (song_name, file_path, play_count) VALUES (?, ?, 0) AS new "
+            + "ON DUPLICATE KEY UPDATE file_path = new.file_path, duration_millis = NULL";
+    private static final String DELETE_BY_PATH_SQL = "DELETE FROM music_library WHERE song_name = ? AND file_path = ?";
 
-    private final MusicLibraryRepository musicLibraryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final MusicProperties musicProperties;
+    private final MusicCatalog musicCatalog;
+    private final AudioMetadataIndexer audioMetadataIndexer;
+    // 上一次扫描得到的清单，由 synchronized 的同步方法访问
+    private LibraryManifest manifest;
 
-    public MusicSyncService(MusicLibraryRepository musicLibraryRepository, MusicProperties musicProperties) {
-        this.musicLibraryRepository = musicLibraryRepository;
+    public MusicSyncService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            MusicProperties musicProperties, MusicCatalog musicCatalog,
+                            AudioMetadataIndexer audioMetadataIndexer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
         this.musicProperties = musicProperties;
+        this.musicCatalog = musicCatalog;
+        this.audioMetadataIndexer = audioMetadataIndexer;
     }
 
     @PostConstruct
-    @Transactional
-    public void syncMusicLibrary() {
+    public void init() {
+        // 启动时只用数据库中已有的歌曲库构建内存目录，目录扫描与对账在应用就绪后于后台进行
+        musicCatalog.reload();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        long readyAt = System.nanoTime();
+        log.info("Application ready in {} ms, {} songs served from catalog; reconciling music library in background.",
+                event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1,
+                musicCatalog.getSnapshot() != null ? musicCatalog.getSnapshot().size() : 0);
+        Thread syncThread = new Thread(() -> {
+            try {
+                resync();
+                log.info("Background music library reconciliation finished {} ms after ready.", millis(readyAt, System.nanoTime()));
+            } catch (Exception e) {
+                log.error("Background music library reconciliation failed: {}", e.getMessage(), e);
+            }
+        }, "LibrarySync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * 全量重新同步、刷新内存目录、保存清单，并解析尚无时长的歌曲
+     */
+    public synchronized void resync() {
+        syncMusicLibrary();
+        musicCatalog.reload();
+        saveManifest();
+        audioMetadataIndexer.indexMissing(true);
+    }
+
+    /**
+     * 增量应用文件变更（来自目录监听），并同步更新内存目录
+     *
+     * @param upserts 新增或改名后出现的文件：歌名 -> 文件绝对路径
+     * @param deletes 被删除或改名前的文件：歌名 -> 文件绝对路径
+     */
+    public void applyChanges(Map<String, String> upserts, Map<String, String> deletes) {
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, musicProperties.getSyncBatchSize());
+        List<String[]> deleteRows = new ArrayList<>();
+        deletes.forEach((songName, filePath) -> deleteRows.add(new String[]{songName, filePath}));
+        List<String[]> upsertRows = new ArrayList<>();
+        upserts.forEach((songName, filePath) -> upsertRows.add(new String[]{songName, filePath}));
+
+        List<MusicLibrary> upserted = transactionTemplate.execute(status -> {
+            if (!deleteRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_BY_PATH_SQL, deleteRows, batchSize, (ps, song) -> {
+                    ps.setString(1, song[0]);
+                    ps.setString(2, song[1]);
+                });
+            }
+            if (upsertRows.isEmpty()) {
+                return List.of();
+            }
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upsertRows, batchSize, (ps, song) -> {
+                ps.setString(1, song[0]);
+                ps.setString(2, song[1]);
+            });
+            return loadSongs(upserts.keySet());
+        });
+        // 删除的歌曲中，路径已被新文件接替的（改名覆盖/移动）不从目录中移除
+        Set<String> removedNames = new HashSet<>(deletes.keySet());
+        removedNames.removeAll(upserts.keySet());
+        List<Long> removedIds = new ArrayList<>();
+        CatalogSnapshot before = musicCatalog.getSnapshot();
+        if (before != null) {
+            for (String songName : removedNames) {
+                int index = before.indexOfName(songName);
+                if (index >= 0) {
+                    removedIds.add(before.idAt(index));
+                }
+            }
+        }
+        musicCatalog.applyChanges(upserted != null ? upserted : List.of(), removedNames);
+        audioMetadataIndexer.forget(removedIds);
+        log.info("Applied incremental library changes. Upserted: {} songs, Removed: {} songs, took {} ms.",
+                upsertRows.size(), removedNames.size(), millis(start, System.nanoTime()));
+        if (upserted != null && !upserted.isEmpty()) {
+            List<Long> upsertedIds = new ArrayList<>(upserted.size());
+            for (MusicLibrary song : upserted) {
+                upsertedIds.add(song.getId());
+            }
+            audioMetadataIndexer.indexSongs(upsertedIds);
+        }
+    }
+
+    public synchronized void syncMusicLibrary() {
         log.info("Starting music library synchronization...");
         String musicDirPath = musicProperties.getLocalPath();
         if (musicDirPath == null || musicDirPath.isEmpty()) {
@@ -47,50 +166,159 @@ public class MusicSyncService {
             return;
         }
 
-        Set<String> localFileNames = new HashSet<>();
-        int addedCount = 0;
-        int removedCount = 0;
-
         try {
-            // 1. Scan local directory for .mp3 and .wav files
-            List<Path> files = Files.walk(musicDirectory)
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".mp3") || p.toString().endsWith(".wav"))
-                    .collect(Collectors.toList());
-
-            for (Path filePath : files) {
-                String fileName = filePath.getFileName().toString();
-                String songName = fileName.substring(0, fileName.lastIndexOf('.'));
-                localFileNames.add(songName);
-
-                // 检查歌曲是否已存在于数据库
-                boolean existsInDb = musicLibraryRepository.findBySongName(songName).isPresent();
-
-                if (!existsInDb) {
-                    MusicLibrary newSong = new MusicLibrary();
-                    newSong.setSongName(songName);
-                    newSong.setFilePath(filePath.toAbsolutePath().toString());
-                    musicLibraryRepository.save(newSong);
-                    addedCount++;
-                    log.debug("Added new song: {}", songName);
-                }
+            // 1. 扫描本地目录，修改时间未变的目录直接复用清单
+            long start = System.nanoTime();
+            if (manifest == null) {
+                manifest = LibraryManifest.read(manifestPath());
             }
+            LibraryManifest.ScanResult scan = manifest.scan(musicDirectory);
+            manifest = scan.manifest();
+            Map<String, String> localSongs = scan.songs();
+            long scanned = System.nanoTime();
+
+            // 2. 一次性读入数据库中已有的歌名
+            Map<String, Long> existingSongs = new HashMap<>();
+            jdbcTemplate.query("SELECT id, song_name FROM music_library",
+                    rs -> {
+                        existingSongs.put(rs.getString(2), rs.getLong(1));
+                    });
+            long loaded = System.nanoTime();
+
+            // 3. 内存中计算新增与删除集合
+            SyncPlan plan = diff(localSongs, existingSongs);
+            long diffed = System.nanoTime();
 
-            // 2. Check for songs in DB that no longer exist locally
-            List<MusicLibrary> allDbSongs = musicLibraryRepository.findAll();
-            for (MusicLibrary dbSong : allDbSongs) {
-                String dbSongName = dbSong.getSongName();
-                if (!localFileNames.contains(dbSongName)) {
-                    musicLibraryRepository.delete(dbSong);
-                    removedCount++;
-                    log.debug("Removed non-existent song from DB: {}", dbSongName);
+            // 4. 批量落库
+            int batchSize = Math.max(1, musicProperties.getSyncBatchSize());
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!plan.toInsert().isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, plan.toInsert(), batchSize, (ps, song) -> {
+                        ps.setString(1, song[0]);
+                        ps.setString(2, song[1]);
+                    });
                 }
-            }
+                if (!plan.toDelete().isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, plan.toDelete(), batchSize, (ps, id) -> ps.setLong(1, id));
+                }
+            });
+            long applied = System.nanoTime();
 
+            log.info("Music library synchronization completed. Added: {} songs, Removed: {} songs. "
+                            + "Scan {} files ({} dirs listed, {} reused from manifest): {} ms, load {} rows: {} ms, diff: {} ms, apply: {} ms.",
+                    plan.toInsert().size(), plan.toDelete().size(),
+                    localSongs.size(), scan.listed(), scan.reused(), millis(start, scanned),
+                    existingSongs.size(), millis(scanned, loaded),
+                    millis(loaded, diffed), millis(diffed, applied));
         } catch (IOException e) {
             log.error("Error scanning music directory {}: {}", musicDirPath, e.getMessage());
         }
+    }
+
+    /**
+     * 把歌曲 id 写入清单并保存到磁盘
+     */
+    private void saveManifest() {
+        Path file = manifestPath();
+        CatalogSnapshot snapshot = musicCatalog.getSnapshot();
+        if (file == null || manifest == null || snapshot == null) {
+            return;
+        }
+        manifest = manifest.withSongIds((songName, filePath) -> {
+            int index = snapshot.indexOfName(songName);
+            return index >= 0 && filePath.equals(snapshot.filePathAt(index)) ? snapshot.idAt(index) : 0L;
+        });
+        try {
+            manifest.write(file);
+            log.debug("Saved music library manifest ({} directories) to {}.", manifest.directoryCount(), file);
+        } catch (IOException e) {
+            log.warn("Failed to save music library manifest to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path manifestPath() {
+        String manifestPath = musicProperties.getManifestPath();
+        return manifestPath == null || manifestPath.isEmpty() ? null : Paths.get(manifestPath);
+    }
+
+    private List<MusicLibrary> loadSongs(Set<String> songNames) {
+        List<MusicLibrary> songs = new ArrayList<>();
+        List<String> names = new ArrayList<>(songNames);
+        int batchSize = Math.max(1, musicProperties.getSyncBatchSize());
+        for (int from = 0; from < names.size(); from += batchSize) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + batchSize));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            songs.addAll(jdbcTemplate.query(
+                    "SELECT id, song_name, file_path, last_played_at, play_count, duration_millis FROM music_library WHERE song_name IN ("
+                            + placeholders + ")",
+                    (rs, rowNum) -> {
+                        MusicLibrary music = new MusicLibrary();
+                        music.setId(rs.getLong(1));
+                        music.setSongName(rs.getString(2));
+                        music.setFilePath(rs.getString(3));
+                        Timestamp lastPlayedAt = rs.getTimestamp(4);
+                        music.setLastPlayedAt(lastPlayedAt != null ? lastPlayedAt.toLocalDateTime() : null);
+                        music.setPlayCount(rs.getInt(5));
+                        long durationMillis = rs.getLong(6);
+                        music.setDurationMillis(rs.wasNull() ? null : durationMillis);
+                        return music;
+                    },
+                    chunk.toArray()));
+        }
+        return songs;
+    }
+
+    /**
+     * 是否为需要同步的音频文件（.mp3 / .wav）
+     */
+    static boolean isAudioFile(Path path) {
+        String name = path.toString();
+        return name.endsWith(".mp3") || name.endsWith(".wav");
+    }
+
+    /**
+     * 由文件名得到歌名（去掉扩展名）
+     */
+    static String songNameOf(Path path) {
+        return songNameOf(path.getFileName().toString());
+    }
+
+    static String songNameOf(String fileName) {
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    /**
+     * 计算本地目录与数据库之间的差异
+     *
+     * @param localSongs    本地歌名 -> 文件路径
+     * @param existingSongs 数据库歌名 -> id
+     */
+    static SyncPlan diff(Map<String, String> localSongs, Map<String, Long> existingSongs) {
+        List<String[]> toInsert = new ArrayList<>();
+        for (Map.Entry<String, String> song : localSongs.entrySet()) {
+            if (!existingSongs.containsKey(song.getKey())) {
+                toInsert.add(new String[]{song.getKey(), song.getValue()});
+            }
+        }
+        List<Long> toDelete = new ArrayList<>();
+        for (Map.Entry<String, Long> song : existingSongs.entrySet()) {
+            if (!localSongs.containsKey(song.getKey())) {
+                toDelete.add(song.getValue());
+            }
+        }
+        return new SyncPlan(toInsert, toDelete);
+    }
+
+    private static long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1_000_000;
+    }
 
-        log.info("Music library synchronization completed. Added: {} songs, Removed: {} songs.", addedCount, removedCount);
+    /**
+     * 同步计划
+     *
+     * @param toInsert 待插入的歌曲，每项为 {歌名, 文件路径}
+     * @param toDelete 待删除的歌曲 id
+     */
+    record SyncPlan(List<String[]> toInsert, List<Long> toDelete) {
     }
 }
@@ -7,6 +7,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,6 +24,8 @@ public class PermissionService {
 
     private final Cache<String, Long> permissionCache;
     private final Cache<String, Long> lastGrantLogTimeCache; // 用于日志防抖
+    private final Cache<String, Set<String>> requestHistoryCache; // 本次授权期内已点过的歌曲
+    private final Cache<String, Long> giftValueCache; // 近期送礼总价值（抖音币），决定点歌的优先级
     private final PermissionProperties permissionProperties;
 
     public PermissionService(PermissionProperties permissionProperties) {
@@ -36,6 +40,16 @@ public class PermissionService {
         this.lastGrantLogTimeCache = Caffeine.newBuilder()
                 .expireAfterWrite(LOG_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
                 .build();
+        // 点歌历史与授权会话绑定，容量和过期策略与权限缓存保持一致
+        this.requestHistoryCache = Caffeine.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(30, TimeUnit.MINUTES)
+                .build();
+        // 送礼价值与权限同样在最后一次送礼 30 分钟后过期
+        this.giftValueCache = Caffeine.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(30, TimeUnit.MINUTES)
+                .build();
     }
 
     /**
@@ -70,6 +84,9 @@ public class PermissionService {
         if (existingExpiry != null && existingExpiry > currentTime) {
             // 用户仍在有效期内，在现有基础上增加时间
             expiryTime = existingExpiry + (long) minutes * 60 * 1000;
+        } else {
+            // 新的授权会话，清空上一会话的点歌历史
+            requestHistoryCache.invalidate(userId);
         }
 
         permissionCache.put(userId, expiryTime);
@@ -130,6 +147,61 @@ public class PermissionService {
         return remaining > 0 ? remaining : -1;
     }
 
+    /**
+     * 检查用户在当前授权会话内是否已点过该歌曲
+     *
+     * @param userId 抖音用户ID
+     * @param songName 歌曲名称
+     * @return true 表示本会话内已点过
+     */
+    public boolean hasRequested(String userId, String songName) {
+        if (userId == null || userId.isEmpty() || songName == null) {
+            return false;
+        }
+        Set<String> history = requestHistoryCache.getIfPresent(userId);
+        return history != null && history.contains(songName);
+    }
+
+    /**
+     * 记录用户在当前授权会话内点过的歌曲
+     *
+     * @param userId 抖音用户ID
+     * @param songName 歌曲名称
+     */
+    public void recordRequest(String userId, String songName) {
+        if (userId == null || userId.isEmpty() || songName == null) {
+            return;
+        }
+        requestHistoryCache.get(userId, k -> ConcurrentHashMap.newKeySet()).add(songName);
+    }
+
+    /**
+     * 累加用户近期送礼的价值
+     *
+     * @param userId 抖音用户ID
+     * @param diamonds 礼物价值（抖音币）
+     */
+    public void recordGift(String userId, long diamonds) {
+        if (userId == null || userId.isEmpty() || diamonds <= 0) {
+            return;
+        }
+        giftValueCache.asMap().merge(userId, diamonds, Long::sum);
+    }
+
+    /**
+     * 获取用户近期送礼的总价值
+     *
+     * @param userId 抖音用户ID
+     * @return 总价值（抖音币），没有送礼记录时返回 0
+     */
+    public long getGiftValue(String userId) {
+        if (userId == null || userId.isEmpty()) {
+            return 0;
+        }
+        Long value = giftValueCache.getIfPresent(userId);
+        return value != null ? value : 0;
+    }
+
     /**
      * 撤销用户权限
      *
@@ -139,6 +211,8 @@ public class PermissionService {
         if (userId != null && !userId.isEmpty()) {
             permissionCache.invalidate(userId);
             lastGrantLogTimeCache.invalidate(userId); // 清除日志防抖记录
+            requestHistoryCache.invalidate(userId); // 清除点歌历史
+            giftValueCache.invalidate(userId); // 清除送礼记录
             logger.info("[Permission] User: {} permission revoked", userId);
         }
     }
@@ -149,6 +223,8 @@ public class PermissionService {
     public void clearAll() {
         permissionCache.invalidateAll();
         lastGrantLogTimeCache.invalidateAll(); // 清空日志防抖记录
+        requestHistoryCache.invalidateAll(); // 清空点歌历史
+        giftValueCache.invalidateAll(); // 清空送礼记录
         logger.info("[Permission] All permissions cleared");
     }
 }
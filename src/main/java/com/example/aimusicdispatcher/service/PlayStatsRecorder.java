@@ -0,0 +1,138 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 播放统计写回器（write-behind）
+ * 播放线程只把播放记录累加到内存中（按 musicId 分段的 ConcurrentHashMap），不做任何 JDBC 调用；
+ * 后台线程定期把累加结果用一条批量 UPDATE 写回 music_library，应用关闭时再写回一次。
+ * 写回失败的记录会合并回内存，等待下一次写回。
+ */
+@Service
+public class PlayStatsRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayStatsRecorder.class);
+    private static final String UPDATE_SQL =
+            "UPDATE music_library SET play_count = COALESCE(play_count, 0) + ?, last_played_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlaybackProperties playbackProperties;
+    private final ConcurrentHashMap<Long, PendingStat> pendingStats = new ConcurrentHashMap<>();
+
+    private final LongAdder playsRecorded = new LongAdder();
+    private final LongAdder rowsFlushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private ScheduledExecutorService flushScheduler;
+
+    public PlayStatsRecorder(JdbcTemplate jdbcTemplate, PlaybackProperties playbackProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.playbackProperties = playbackProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        long interval = Math.max(1, playbackProperties.getStatsFlushSeconds());
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PlayStatsRecorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 记录一次播放，只操作内存
+     */
+    public void record(Long musicId) {
+        if (musicId == null) {
+            return;
+        }
+        playsRecorded.increment();
+        pendingStats.merge(musicId, new PendingStat(1, System.currentTimeMillis()), PendingStat::merge);
+    }
+
+    /**
+     * 把累加的播放统计批量写回数据库
+     */
+    synchronized void flush() {
+        if (pendingStats.isEmpty()) {
+            return;
+        }
+        List<Long> musicIds = new ArrayList<>();
+        List<PendingStat> stats = new ArrayList<>();
+        for (Long musicId : pendingStats.keySet()) {
+            PendingStat stat = pendingStats.remove(musicId);
+            if (stat != null) {
+                musicIds.add(musicId);
+                stats.add(stat);
+            }
+        }
+        if (musicIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(musicIds.size());
+        for (int i = 0; i < musicIds.size(); i++) {
+            PendingStat stat = stats.get(i);
+            batchArgs.add(new Object[]{stat.plays(), new Timestamp(stat.lastPlayedMillis()), musicIds.get(i)});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+            rowsFlushed.add(batchArgs.size());
+            log.debug("Flushed play stats for {} song(s).", batchArgs.size());
+        } catch (Exception e) {
+            flushFailures.increment();
+            log.error("Failed to flush play stats for {} song(s), will retry: {}", batchArgs.size(), e.getMessage(), e);
+            for (int i = 0; i < musicIds.size(); i++) {
+                pendingStats.merge(musicIds.get(i), stats.get(i), PendingStat::merge);
+            }
+        }
+    }
+
+    /**
+     * 写回统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("playsRecorded", playsRecorded.sum());
+        stats.put("rowsFlushed", rowsFlushed.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("pendingSongs", pendingStats.size());
+        return stats;
+    }
+
+    private record PendingStat(int plays, long lastPlayedMillis) {
+        private PendingStat merge(PendingStat other) {
+            return new PendingStat(plays + other.plays, Math.max(lastPlayedMillis, other.lastPlayedMillis));
+        }
+    }
+}
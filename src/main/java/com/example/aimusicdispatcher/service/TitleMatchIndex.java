@@ -0,0 +1,392 @@
+package com.example.aimusicdispatcher.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 歌名模糊匹配索引（不可变）
+ * 对归一化后的匹配键建立二元组（bigram）倒排表，查询时先按共享二元组数量召回候选，
+ * 再用编辑距离排序，置信度 = 1 - 编辑距离 / 较长一方的长度。
+ * 倒排表采用 CSR 布局：有序的二元组数组 + 偏移数组 + 扁平的歌曲下标数组。
+ * 歌曲目录增量变更时不重建倒排表，而是通过 {@link Editor} 在其上叠加一层变化：
+ * 下标变化或被删除的歌曲记在有序的映射数组中，新增的歌曲查询时逐首比对；叠加层过大时再整体重建。
+ */
+public final class TitleMatchIndex {
+
+    /**
+     * 单字匹配键的占位二元组，第二个字符取 0（归一化后的键只含文字和数字，不会出现真实的 0 字符）
+     */
+    private static final char SINGLE_CHAR_MARK = 0;
+    /** 叠加层条目数超过 max(该值, 歌曲数 / 8) 时整体重建倒排表 */
+    private static final int MIN_OVERLAY_LIMIT = 64;
+    private static final int[] EMPTY = new int[0];
+
+    private final char[] keyPool;
+    private final int[] keyStarts;
+    private final int[] keyEnds;
+    private final int size;
+    private final int[] grams;
+    private final int[] postingOffsets;
+    private final int[] postings;
+    // 叠加层：movedFrom 为倒排表中的歌曲下标（有序），movedTo 为其当前下标，-1 表示已删除
+    private final int[] movedFrom;
+    private final int[] movedTo;
+    // 叠加层：不在倒排表中的歌曲的当前下标
+    private final int[] extras;
+    private final ThreadLocal<int[]> hitCounts;
+
+    TitleMatchIndex(char[] keyPool, int[] keyStarts, int[] keyEnds, int size) {
+        this.keyPool = keyPool;
+        this.keyStarts = keyStarts;
+        this.keyEnds = keyEnds;
+        this.size = size;
+        this.movedFrom = EMPTY;
+        this.movedTo = EMPTY;
+        this.extras = EMPTY;
+
+        // 第一遍：收集每首歌去重后的二元组，(gram << 32 | 歌曲下标) 排序后即按二元组聚合
+        long[] pairs = new long[Math.max(16, keyPool.length)];
+        int pairCount = 0;
+        int[] scratch = new int[16];
+        for (int i = 0; i < size; i++) {
+            int gramCount = collectGrams(keyPool, keyStarts[i], keyEnds[i] - keyStarts[i], scratch);
+            if (gramCount > scratch.length) {
+                scratch = new int[gramCount * 2];
+                gramCount = collectGrams(keyPool, keyStarts[i], keyEnds[i] - keyStarts[i], scratch);
+            }
+            for (int g = 0; g < gramCount; g++) {
+                if (pairCount == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length * 2 + 16);
+                }
+                pairs[pairCount++] = ((long) scratch[g] << 32) | i;
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        // 第二遍：压缩为 CSR
+        int distinct = 0;
+        for (int p = 0; p < pairCount; p++) {
+            if (p == 0 || (int) (pairs[p] >>> 32) != (int) (pairs[p - 1] >>> 32)) {
+                distinct++;
+            }
+        }
+        this.grams = new int[distinct];
+        this.postingOffsets = new int[distinct + 1];
+        this.postings = new int[pairCount];
+        int g = -1;
+        for (int p = 0; p < pairCount; p++) {
+            int gram = (int) (pairs[p] >>> 32);
+            if (g < 0 || grams[g] != gram) {
+                grams[++g] = gram;
+                postingOffsets[g] = p;
+            }
+            postings[p] = (int) pairs[p];
+        }
+        postingOffsets[distinct] = pairCount;
+        this.hitCounts = ThreadLocal.withInitial(() -> new int[size]);
+    }
+
+    /**
+     * 共享 base 的倒排表，叠加新的映射和新增歌曲
+     */
+    private TitleMatchIndex(TitleMatchIndex base, char[] keyPool, int[] keyStarts, int[] keyEnds, int size,
+                            int[] movedFrom, int[] movedTo, int[] extras) {
+        this.keyPool = keyPool;
+        this.keyStarts = keyStarts;
+        this.keyEnds = keyEnds;
+        this.size = size;
+        this.grams = base.grams;
+        this.postingOffsets = base.postingOffsets;
+        this.postings = base.postings;
+        this.movedFrom = movedFrom;
+        this.movedTo = movedTo;
+        this.extras = extras;
+        this.hitCounts = ThreadLocal.withInitial(() -> new int[size]);
+    }
+
+    /**
+     * 开始一次增量变更，变更的下标语义与 CatalogSnapshot 的增量操作一致
+     */
+    Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * 模糊匹配
+     *
+     * @param normalizedKey 经 TitleNormalizer.normalize 处理后的查询键
+     * @param minConfidence 最低置信度（0~1），低于该值视为未匹配
+     * @param maxCandidates 参与编辑距离计算的候选数量上限
+     * @return 匹配结果，未匹配返回 null
+     */
+    public Match match(String normalizedKey, double minConfidence, int maxCandidates) {
+        if (normalizedKey == null || normalizedKey.isEmpty() || size == 0) {
+            return null;
+        }
+        char[] query = normalizedKey.toCharArray();
+        int[] queryGrams = new int[Math.max(1, query.length)];
+        int gramCount = collectGrams(query, 0, query.length, queryGrams);
+
+        // 召回：统计每首歌与查询共享的二元组数量，touched 记录被命中的歌曲以便只重置这部分计数
+        int[] counts = hitCounts.get();
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (int q = 0; q < gramCount; q++) {
+            int slot = Arrays.binarySearch(grams, queryGrams[q]);
+            if (slot < 0) {
+                continue;
+            }
+            for (int p = postingOffsets[slot]; p < postingOffsets[slot + 1]; p++) {
+                int song = postings[p];
+                if (movedFrom.length > 0) {
+                    int moved = Arrays.binarySearch(movedFrom, song);
+                    if (moved >= 0) {
+                        song = movedTo[moved];
+                        if (song < 0) {
+                            continue;
+                        }
+                    }
+                }
+                if (counts[song]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = song;
+                }
+            }
+        }
+
+        // 叠加层中新增的歌曲不在倒排表里，逐首统计共享的二元组
+        int[] extraGrams = new int[16];
+        for (int song : extras) {
+            int extraCount = collectGrams(keyPool, keyStarts[song], keyEnds[song] - keyStarts[song], extraGrams);
+            if (extraCount > extraGrams.length) {
+                extraGrams = new int[extraCount * 2];
+                extraCount = collectGrams(keyPool, keyStarts[song], keyEnds[song] - keyStarts[song], extraGrams);
+            }
+            int shared = 0;
+            for (int e = 0; e < extraCount; e++) {
+                for (int q = 0; q < gramCount; q++) {
+                    if (queryGrams[q] == extraGrams[e]) {
+                        shared++;
+                        break;
+                    }
+                }
+            }
+            if (shared > 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = song;
+                counts[song] = shared;
+            }
+        }
+
+        // 按共享数量从高到低挑选候选，逐个计算编辑距离
+        Match best = null;
+        int examined = 0;
+        int[] previousRow = new int[query.length + 1];
+        int[] currentRow = new int[query.length + 1];
+        try {
+            for (int shared = gramCount; shared >= 1 && examined < maxCandidates; shared--) {
+                for (int t = 0; t < touchedCount && examined < maxCandidates; t++) {
+                    int song = touched[t];
+                    if (counts[song] != shared) {
+                        continue;
+                    }
+                    examined++;
+                    int start = keyStarts[song];
+                    int length = keyEnds[song] - start;
+                    int longer = Math.max(length, query.length);
+                    // 允许的最大编辑距离，长度差超过它的候选直接跳过
+                    int maxDistance = (int) Math.floor((1 - minConfidence) * longer);
+                    if (Math.abs(length - query.length) > maxDistance) {
+                        continue;
+                    }
+                    int distance = boundedDistance(query, keyPool, start, length, maxDistance, previousRow, currentRow);
+                    if (distance > maxDistance) {
+                        continue;
+                    }
+                    double confidence = 1 - (double) distance / longer;
+                    if (best == null || confidence > best.confidence()) {
+                        best = new Match(song, confidence);
+                    }
+                }
+            }
+        } finally {
+            for (int t = 0; t < touchedCount; t++) {
+                counts[touched[t]] = 0;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 倒排表占用的堆内存估算（字节）
+     */
+    public long estimatedBytes() {
+        return ((long) grams.length + postingOffsets.length + postings.length
+                + movedFrom.length + movedTo.length + extras.length) * 4;
+    }
+
+    /**
+     * 收集一段字符的去重二元组，返回二元组数量；scratch 不够大时返回所需数量而不写入越界部分
+     */
+    private static int collectGrams(char[] chars, int start, int length, int[] scratch) {
+        if (length == 0) {
+            return 0;
+        }
+        if (length == 1) {
+            scratch[0] = gram(chars[start], SINGLE_CHAR_MARK);
+            return 1;
+        }
+        int needed = length - 1;
+        if (needed > scratch.length) {
+            return needed;
+        }
+        int count = 0;
+        for (int i = start; i < start + length - 1; i++) {
+            int gram = gram(chars[i], chars[i + 1]);
+            boolean seen = false;
+            for (int k = 0; k < count; k++) {
+                if (scratch[k] == gram) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen) {
+                scratch[count++] = gram;
+            }
+        }
+        return count;
+    }
+
+    private static int gram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    /**
+     * 带上限的 Levenshtein 距离，某一行的最小值已超过上限时提前返回 maxDistance + 1
+     */
+    private static int boundedDistance(char[] query, char[] pool, int start, int length, int maxDistance,
+                                       int[] previousRow, int[] currentRow) {
+        int n = query.length;
+        for (int j = 0; j <= n; j++) {
+            previousRow[j] = j;
+        }
+        for (int i = 1; i <= length; i++) {
+            char c = pool[start + i - 1];
+            currentRow[0] = i;
+            int rowMin = currentRow[0];
+            for (int j = 1; j <= n; j++) {
+                int cost = query[j - 1] == c ? 0 : 1;
+                int value = Math.min(Math.min(currentRow[j - 1] + 1, previousRow[j] + 1), previousRow[j - 1] + cost);
+                currentRow[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+        return previousRow[n];
+    }
+
+    /**
+     * 增量变更：记录歌曲下标的移动、删除和新增，build 时生成共享倒排表的新索引
+     */
+    final class Editor {
+
+        private final Map<Integer, Integer> baseToCurrent = new HashMap<>();
+        private final Map<Integer, Integer> currentToBase = new HashMap<>();
+        private final Set<Integer> added = new HashSet<>();
+
+        private Editor() {
+            for (int i = 0; i < movedFrom.length; i++) {
+                baseToCurrent.put(movedFrom[i], movedTo[i]);
+                if (movedTo[i] >= 0) {
+                    currentToBase.put(movedTo[i], movedFrom[i]);
+                }
+            }
+            for (int song : extras) {
+                added.add(song);
+            }
+        }
+
+        /**
+         * 删除当前下标为 index 的歌曲
+         */
+        void remove(int index) {
+            if (added.remove(index)) {
+                return;
+            }
+            Integer base = currentToBase.remove(index);
+            baseToCurrent.put(base != null ? base : index, -1);
+        }
+
+        /**
+         * 当前下标为 from 的歌曲移动到空出的下标 to
+         */
+        void move(int from, int to) {
+            if (added.remove(from)) {
+                added.add(to);
+                return;
+            }
+            Integer removed = currentToBase.remove(from);
+            int base = removed != null ? removed : from;
+            if (base == to) {
+                baseToCurrent.remove(base);
+            } else {
+                baseToCurrent.put(base, to);
+                currentToBase.put(to, base);
+            }
+        }
+
+        /**
+         * 新增一首歌曲，下标为 index
+         */
+        void add(int index) {
+            added.add(index);
+        }
+
+        /**
+         * 生成变更后的索引；叠加层过大时按当前匹配键整体重建
+         */
+        TitleMatchIndex build(char[] keyPool, int[] keyStarts, int[] keyEnds, int size) {
+            if (baseToCurrent.size() + added.size() > Math.max(MIN_OVERLAY_LIMIT, size / 8)) {
+                return new TitleMatchIndex(keyPool, keyStarts, keyEnds, size);
+            }
+            int[] from = new int[baseToCurrent.size()];
+            int i = 0;
+            for (int base : baseToCurrent.keySet()) {
+                from[i++] = base;
+            }
+            Arrays.sort(from);
+            int[] to = new int[from.length];
+            for (i = 0; i < from.length; i++) {
+                to[i] = baseToCurrent.get(from[i]);
+            }
+            int[] extra = new int[added.size()];
+            i = 0;
+            for (int song : added) {
+                extra[i++] = song;
+            }
+            Arrays.sort(extra);
+            return new TitleMatchIndex(TitleMatchIndex.this, keyPool, keyStarts, keyEnds, size, from, to, extra);
+        }
+    }
+
+    /**
+     * 模糊匹配结果
+     *
+     * @param index      歌曲在快照中的下标
+     * @param confidence 置信度（0~1）
+     */
+    public record Match(int index, double confidence) {
+    }
+}
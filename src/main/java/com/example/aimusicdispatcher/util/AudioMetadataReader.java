@@ -0,0 +1,210 @@
+package com.example.aimusicdispatcher.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * 音频元数据读取工具类
+ * 只通过 NIO 读取文件头部的少量字节解析时长、码率、采样率和声道数，不读取整个文件：
+ * MP3 跳过 ID3v2 标签后解析第一个 MPEG 帧头，VBR 文件读取 Xing/Info 或 VBRI 帧中的总帧数；
+ * WAV 遍历 RIFF 块头，读取 fmt 块参数与 data 块大小。
+ */
+public final class AudioMetadataReader {
+
+    /** MP3 第一个帧头的最大搜索范围（字节） */
+    private static final int MP3_SCAN_BYTES = 64 * 1024;
+    /** WAV 最多遍历的块数，防止损坏文件导致死循环 */
+    private static final int WAV_MAX_CHUNKS = 64;
+
+    // [MPEG1, MPEG2/2.5] x [Layer I, II, III] 的码率表（kbps），下标为帧头中的码率索引
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, -1},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, -1},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, -1}
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1}
+            }
+    };
+    // [MPEG1, MPEG2, MPEG2.5] 的采样率表（Hz）
+    private static final int[][] SAMPLE_RATES = {
+            {44100, 48000, 32000},
+            {22050, 24000, 16000},
+            {11025, 12000, 8000}
+    };
+
+    private AudioMetadataReader() {
+    }
+
+    /**
+     * 读取音频文件元数据，格式不支持或文件损坏时返回空
+     */
+    public static Optional<AudioMetadata> read(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (name.endsWith(".mp3")) {
+                return readMp3(channel);
+            }
+            if (name.endsWith(".wav")) {
+                return readWav(channel);
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return Optional.empty();
+    }
+
+    static Optional<AudioMetadata> readMp3(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        // 1. 跳过 ID3v2 标签（同步安全整数表示的大小 + 10 字节头，有 footer 时再加 10 字节）
+        long offset = 0;
+        ByteBuffer id3 = readAt(channel, 0, 10);
+        if (id3.remaining() == 10 && id3.get(0) == 'I' && id3.get(1) == 'D' && id3.get(2) == '3') {
+            int size = (id3.get(6) & 0x7F) << 21 | (id3.get(7) & 0x7F) << 14 | (id3.get(8) & 0x7F) << 7 | (id3.get(9) & 0x7F);
+            offset = 10L + size + ((id3.get(5) & 0x10) != 0 ? 10 : 0);
+        }
+
+        // 2. 在随后的少量字节中寻找第一个合法的 MPEG 帧头
+        ByteBuffer buffer = readAt(channel, offset, MP3_SCAN_BYTES);
+        for (int i = 0; i + 4 <= buffer.limit(); i++) {
+            if ((buffer.get(i) & 0xFF) != 0xFF || (buffer.get(i + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+            int header = buffer.getInt(i);
+            int versionBits = (header >>> 19) & 0x3;
+            int layerBits = (header >>> 17) & 0x3;
+            int bitrateIndex = (header >>> 12) & 0xF;
+            int sampleRateIndex = (header >>> 10) & 0x3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                continue;
+            }
+            boolean mpeg1 = versionBits == 3;
+            int layer = 4 - layerBits; // 1, 2, 3
+            int bitrate = BITRATES[mpeg1 ? 0 : 1][layer - 1][bitrateIndex];
+            int sampleRate = SAMPLE_RATES[versionBits == 3 ? 0 : versionBits == 2 ? 1 : 2][sampleRateIndex];
+            int channelMode = (header >>> 6) & 0x3;
+            int channels = channelMode == 3 ? 1 : 2;
+            int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1) ? 576 : 1152;
+            long audioStart = offset + i;
+
+            // 3. VBR：Xing/Info 帧位于帧头后的边信息之后，VBRI 帧固定在帧头后 32 字节
+            int sideInfo = mpeg1 ? (channels == 1 ? 17 : 32) : (channels == 1 ? 9 : 17);
+            long frames = xingFrames(buffer, i + 4 + sideInfo);
+            if (frames < 0) {
+                frames = vbriFrames(buffer, i + 4 + 32);
+            }
+            long durationMillis;
+            if (frames > 0) {
+                durationMillis = frames * samplesPerFrame * 1000L / sampleRate;
+                if (durationMillis > 0) {
+                    bitrate = (int) ((fileSize - audioStart) * 8 / durationMillis);
+                }
+            } else {
+                // CBR：按文件剩余大小和码率估算
+                durationMillis = (fileSize - audioStart) * 8 / bitrate;
+            }
+            return Optional.of(new AudioMetadata(durationMillis, bitrate, sampleRate, channels));
+        }
+        return Optional.empty();
+    }
+
+    private static long xingFrames(ByteBuffer buffer, int position) {
+        if (position + 12 > buffer.limit()) {
+            return -1;
+        }
+        String tag = ascii(buffer, position, 4);
+        if (!"Xing".equals(tag) && !"Info".equals(tag)) {
+            return -1;
+        }
+        int flags = buffer.getInt(position + 4);
+        return (flags & 0x1) != 0 ? buffer.getInt(position + 8) & 0xFFFFFFFFL : -1;
+    }
+
+    private static long vbriFrames(ByteBuffer buffer, int position) {
+        // "VBRI" + 版本(2) + 延迟(2) + 质量(2) + 字节数(4) + 帧数(4)
+        if (position + 18 > buffer.limit() || !"VBRI".equals(ascii(buffer, position, 4))) {
+            return -1;
+        }
+        return buffer.getInt(position + 14) & 0xFFFFFFFFL;
+    }
+
+    static Optional<AudioMetadata> readWav(FileChannel channel) throws IOException {
+        ByteBuffer riff = readAt(channel, 0, 12);
+        if (riff.remaining() < 12 || !"RIFF".equals(ascii(riff, 0, 4)) || !"WAVE".equals(ascii(riff, 8, 4))) {
+            return Optional.empty();
+        }
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        long dataSize = -1;
+        long position = 12;
+        for (int chunk = 0; chunk < WAV_MAX_CHUNKS && position + 8 <= channel.size(); chunk++) {
+            ByteBuffer header = readAt(channel, position, 8).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 8) {
+                break;
+            }
+            String id = ascii(header, 0, 4);
+            long size = header.getInt(4) & 0xFFFFFFFFL;
+            if ("fmt ".equals(id)) {
+                ByteBuffer fmt = readAt(channel, position + 8, 16).order(ByteOrder.LITTLE_ENDIAN);
+                if (fmt.remaining() < 16) {
+                    break;
+                }
+                channels = fmt.getShort(2) & 0xFFFF;
+                sampleRate = fmt.getInt(4);
+                byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+            } else if ("data".equals(id)) {
+                // 数据块大小可能因流式写入而不准确，以文件实际大小为上限
+                dataSize = Math.min(size, channel.size() - position - 8);
+                break;
+            }
+            // 块按 2 字节对齐
+            position += 8 + size + (size & 1);
+        }
+        if (byteRate <= 0 || dataSize < 0) {
+            return Optional.empty();
+        }
+        long durationMillis = dataSize * 1000 / byteRate;
+        return Optional.of(new AudioMetadata(durationMillis, (int) (byteRate * 8 / 1000), sampleRate, channels));
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String ascii(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 音频元数据
+     *
+     * @param durationMillis 时长（毫秒）
+     * @param bitrateKbps    码率（kbps），VBR 为平均码率
+     * @param sampleRate     采样率（Hz）
+     * @param channels       声道数
+     */
+    public record AudioMetadata(long durationMillis, int bitrateKbps, int sampleRate, int channels) {
+    }
+}
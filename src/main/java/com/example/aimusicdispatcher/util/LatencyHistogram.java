@@ -0,0 +1,81 @@
+package com.example.aimusicdispatcher.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图（毫秒）
+ * 桶边界按 1-2-5 递增，记录只做一次原子自增，不加锁；分位数取所在桶的上界，是保守估计。
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MILLIS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    /**
+     * 记录一次耗时，负数按 0 处理
+     */
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sumMillis.add(value);
+        maxMillis.accumulateAndGet(value, Math::max);
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            if (millis <= BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS_MILLIS.length;
+    }
+
+    /**
+     * 分位数（0~1）所在桶的上界，超出最大边界时返回最大值，没有数据时返回 0
+     */
+    public long percentile(double quantile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return maxMillis.get();
+    }
+
+    /**
+     * 统计快照：次数、均值、分位数、最大值以及各桶计数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = total.sum();
+        stats.put("count", count);
+        stats.put("meanMillis", count == 0 ? 0 : sumMillis.sum() / count);
+        stats.put("p50Millis", percentile(0.50));
+        stats.put("p90Millis", percentile(0.90));
+        stats.put("p99Millis", percentile(0.99));
+        stats.put("maxMillis", maxMillis.get());
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            buckets.put("<=" + BOUNDS_MILLIS[i], counts.get(i));
+        }
+        buckets.put(">" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1], counts.get(BOUNDS_MILLIS.length));
+        stats.put("buckets", buckets);
+        return stats;
+    }
+}
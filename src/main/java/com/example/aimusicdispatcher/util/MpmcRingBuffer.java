@@ -0,0 +1,120 @@
+package com.example.aimusicdispatcher.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * 有界无锁多生产者多消费者环形队列（Vyukov bounded MPMC queue）
+ * 每个槽位带一个序号，生产者/消费者只通过 CAS 推进各自的位置指针，不使用任何锁。
+ *
+ * @param <E> 元素类型
+ */
+public class MpmcRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePos = new AtomicLong();
+    private final AtomicLong dequeuePos = new AtomicLong();
+
+    /**
+     * @param requestedCapacity 期望容量，会向上取整为 2 的幂
+     */
+    public MpmcRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            requestedCapacity = 2;
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队，队列已满时立即返回 false
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        long pos = enqueuePos.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (enqueuePos.compareAndSet(pos, pos + 1)) {
+                    buffer.set(index, element);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = enqueuePos.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = enqueuePos.get();
+            }
+        }
+    }
+
+    /**
+     * 出队，队列为空时返回 null
+     */
+    public E poll() {
+        return pollIf(null);
+    }
+
+    /**
+     * 仅当队首元素满足条件时出队，否则返回 null（队列为空同样返回 null）
+     *
+     * @param condition 出队条件，null 表示无条件出队
+     */
+    public E pollIf(Predicate<? super E> condition) {
+        long pos = dequeuePos.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                // 在 CAS 成功之前槽位不会被复用，因此这里读到的元素就是 pos 位置的队首元素
+                E element = buffer.get(index);
+                if (condition != null && !condition.test(element)) {
+                    if (dequeuePos.get() == pos) {
+                        return null;
+                    }
+                    pos = dequeuePos.get();
+                    continue;
+                }
+                if (dequeuePos.compareAndSet(pos, pos + 1)) {
+                    buffer.set(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return element;
+                }
+                pos = dequeuePos.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = dequeuePos.get();
+            }
+        }
+    }
+
+    /**
+     * 当前元素个数（并发场景下为近似值）
+     */
+    public int size() {
+        long size = enqueuePos.get() - dequeuePos.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
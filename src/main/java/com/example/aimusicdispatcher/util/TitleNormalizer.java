@@ -0,0 +1,36 @@
+package com.example.aimusicdispatcher.util;
+
+import java.text.Normalizer;
+
+/**
+ * 歌名归一化工具类
+ * 用于歌名的宽松匹配：全角转半角、统一小写、去掉空白与标点符号，只保留文字和数字。
+ */
+public final class TitleNormalizer {
+
+    private TitleNormalizer() {
+    }
+
+    /**
+     * 归一化歌名，例如 "《奢香夫人》~~" 与 "奢香夫人"、"Ｌｏｖｅ Ｓｔｏｒｙ" 与 "lovestory" 归一化结果相同
+     *
+     * @param title 原始歌名
+     * @return 归一化后的匹配键，title 为 null 时返回空串
+     */
+    public static String normalize(CharSequence title) {
+        if (title == null || title.length() == 0) {
+            return "";
+        }
+        // NFKC 会把全角字母、数字、符号折叠为半角
+        String folded = Normalizer.normalize(title, Normalizer.Form.NFKC);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                sb.appendCodePoint(Character.toLowerCase(codePoint));
+            }
+            i += Character.charCount(codePoint);
+        }
+        return sb.toString();
+    }
+}
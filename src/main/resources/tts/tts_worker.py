@@ -0,0 +1,58 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+"""
+常驻 edge-tts worker，由 PooledTtsEngine 启动，按行读写 JSON：
+
+请求：{"id": 1, "text": "文案", "output": "/path/to/intro.mp3", "voice": "zh-CN-XiaoxiaoNeural", "rate": "-15%", "format": "mp3"}
+     （voice、rate 省略时使用 edge-tts 默认值；edge-tts 只输出 mp3，其他 format 回报错误）
+     {"id": 2, "ping": true}
+响应：{"id": 1, "ok": true} 或 {"id": 1, "ok": false, "error": "..."}
+
+stdout 只输出响应行，日志写到 stderr。音频在合成过程中逐块写入 output，合成结束后才返回响应。
+"""
+import asyncio
+import json
+import sys
+
+import edge_tts
+
+
+async def synthesize(text, output, voice=None, rate=None, audio_format="mp3"):
+    if audio_format and audio_format.lower() != "mp3":
+        raise ValueError("edge-tts only produces mp3, unsupported format: %s" % audio_format)
+    options = {}
+    if voice:
+        options["voice"] = voice
+    if rate:
+        options["rate"] = rate
+    communicate = edge_tts.Communicate(text, **options)
+    # 不经过缓冲逐块写入，播放端可以边合成边跟读这个文件
+    with open(output, "wb", buffering=0) as audio:
+        async for chunk in communicate.stream():
+            if chunk["type"] == "audio":
+                audio.write(chunk["data"])
+
+
+def main():
+    loop = asyncio.new_event_loop()
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            if not request.get("ping"):
+                loop.run_until_complete(synthesize(request["text"], request["output"], request.get("voice"),
+                                                   request.get("rate"), request.get("format", "mp3")))
+            response = {"id": request_id, "ok": True}
+        except Exception as e:  # noqa: BLE001 - 任何错误都回报给调用方，worker 继续服务
+            print("tts worker error: %s" % e, file=sys.stderr, flush=True)
+            response = {"id": request_id, "ok": False, "error": str(e)}
+        sys.stdout.write(json.dumps(response) + "\n")
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()
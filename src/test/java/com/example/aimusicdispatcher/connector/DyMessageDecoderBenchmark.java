@@ -0,0 +1,101 @@
+package com.example.aimusicdispatcher.connector;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /ws/dy 报文解码基准测试：旧的多次 readTree + 美化打印路径 vs 单次流式解码 vs 带 method 预过滤的流式解码。
+ * 运行 main 方法即可，GC 分析器输出的 gc.alloc.rate.norm 即每帧分配字节数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DyMessageDecoderBenchmark {
+
+    private ObjectMapper objectMapper;
+    private DyMessageDecoder decoder;
+    private DyMessageDecoder filteringDecoder;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        IngestProperties unfiltered = new IngestProperties();
+        unfiltered.setMethodFilterEnabled(false);
+        decoder = new DyMessageDecoder(objectMapper, unfiltered);
+        filteringDecoder = new DyMessageDecoder(objectMapper, new IngestProperties());
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(sampleMessage(i));
+        }
+        payload = sb.append(']').toString();
+    }
+
+    static String sampleMessage(int i) {
+        String[] methods = {"WebcastChatMessage", "WebcastGiftMessage", "WebcastLikeMessage", "WebcastMemberMessage"};
+        return "{\"id\":\"7300000000000" + i + "\",\"method\":\"" + methods[i % methods.length] + "\","
+                + "\"user\":{\"id\":\"MS4wLjABAAAA" + i + "\",\"name\":\"观众" + i + "\",\"avatar\":\"https://example.com/a.jpg\",\"gender\":1},"
+                + "\"gift\":{\"id\":\"463\",\"name\":\"小心心\",\"price\":1,\"count\":\"3\",\"repeatEnd\":0},"
+                + "\"content\":\"点歌 奢香夫人\","
+                + "\"rtfContent\":[{\"type\":1,\"text\":\"点歌 奢香夫人\"},{\"type\":2,\"url\":\"https://example.com/e.png\"}],"
+                + "\"room\":{\"audienceCount\":\"1024\",\"likeCount\":\"88888\",\"followCount\":\"5000\",\"totalUserCount\":\"20000\",\"status\":2},"
+                + "\"rank\":[{\"nickname\":\"榜一\",\"avatar\":\"https://example.com/r1.jpg\",\"rank\":\"1\"},"
+                + "{\"nickname\":\"榜二\",\"avatar\":\"https://example.com/r2.jpg\",\"rank\":\"2\"}]}";
+    }
+
+    @Benchmark
+    public void legacyTreePath(Blackhole bh) throws IOException {
+        // 与重构前 handleTextMessage/processMessage 相同的工作量（不含日志输出本身）
+        bh.consume(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectMapper.readTree(payload)));
+        JsonNode jsonNode = objectMapper.readTree(payload);
+        List<DyMessage> messages = objectMapper.convertValue(jsonNode, new TypeReference<List<DyMessage>>() {});
+        for (DyMessage message : messages) {
+            bh.consume(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(message));
+        }
+    }
+
+    @Benchmark
+    public void streamingDecode(Blackhole bh) throws IOException {
+        decoder.decode(payload, bh::consume);
+    }
+
+    @Benchmark
+    public void streamingDecodeFiltered(Blackhole bh) throws IOException {
+        filteringDecoder.decode(payload, bh::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DyMessageDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
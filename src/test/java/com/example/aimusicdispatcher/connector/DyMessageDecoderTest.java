@@ -0,0 +1,81 @@
+package com.example.aimusicdispatcher.connector;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import com.example.aimusicdispatcher.model.dy.CastMethod;
+import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DyMessageDecoderTest {
+
+    private DyMessageDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new DyMessageDecoder(new ObjectMapper(), new IngestProperties());
+    }
+
+    @Test
+    void testDecodeSingleObject() throws IOException {
+        List<DyMessage> messages = new ArrayList<>();
+        int count = decoder.decode(DyMessageDecoderBenchmark.sampleMessage(0), messages::add);
+
+        assertEquals(1, count);
+        assertEquals(CastMethod.CHAT, messages.get(0).getMethod());
+        assertEquals("点歌 奢香夫人", messages.get(0).getContent());
+        assertEquals(2, messages.get(0).getRank().size());
+    }
+
+    @Test
+    void testDecodeArray() throws IOException {
+        String payload = "[" + DyMessageDecoderBenchmark.sampleMessage(0) + "," + DyMessageDecoderBenchmark.sampleMessage(1) + "]";
+        List<DyMessage> messages = new ArrayList<>();
+        int count = decoder.decode(payload, messages::add);
+
+        assertEquals(2, count);
+        assertEquals(CastMethod.GIFT, messages.get(1).getMethod());
+        assertEquals("小心心", messages.get(1).getGift().getName());
+    }
+
+    @Test
+    void testDecodeInvalidPayload() {
+        assertThrows(IOException.class, () -> decoder.decode("\"just a string\"", m -> { }));
+        assertThrows(IOException.class, () -> decoder.decode("[{\"id\":\"1\"},", m -> { }));
+        assertThrows(IOException.class, () -> decoder.decode("[1, 2]", m -> { }));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMethodFilterSkipsUnhandledTypes() throws IOException {
+        // 0=CHAT, 1=GIFT, 2=LIKE, 3=MEMBER；MEMBER 默认不处理
+        StringBuilder payload = new StringBuilder("[");
+        for (int i = 0; i < 4; i++) {
+            payload.append(i > 0 ? "," : "").append(DyMessageDecoderBenchmark.sampleMessage(i));
+        }
+        payload.append(",{\"rank\":[{\"rank\":\"1\"}],\"method\":\"WebcastRoomRankMessage\"}");
+        payload.append(",{\"id\":\"9\",\"method\":\"WebcastSomethingNew\"}]");
+
+        List<DyMessage> messages = new ArrayList<>();
+        int count = decoder.decode(payload.toString(), messages::add);
+
+        assertEquals(3, count);
+        assertEquals(List.of(CastMethod.CHAT, CastMethod.GIFT, CastMethod.LIKE),
+                messages.stream().map(DyMessage::getMethod).toList());
+        // method 之前的字段要完整回放到绑定结果中
+        assertEquals("73000000000000", messages.get(0).getId());
+
+        Map<String, Object> stats = decoder.getStats();
+        assertEquals(1L, ((Map<String, Long>) stats.get("processed")).get("CHAT"));
+        assertEquals(1L, ((Map<String, Long>) stats.get("skipped")).get("MEMBER"));
+        assertEquals(1L, ((Map<String, Long>) stats.get("skipped")).get("ROOM_RANK"));
+        assertEquals(1L, stats.get("unknownMethod"));
+    }
+}
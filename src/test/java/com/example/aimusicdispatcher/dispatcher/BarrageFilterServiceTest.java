@@ -0,0 +1,80 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.model.barrage.BarrageRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarrageFilterServiceTest {
+
+    // 重构前的正则实现，用于对照解析结果
+    private static final Pattern LEGACY_PATTERN = Pattern.compile(
+            "(?i)(?:(?:点歌|来首|播放|我想听|play|music|歌曲|唱|点|来)\s*[:：\\-_—,，]*\\s*)?(.*?)(?:\\s*[-—].*)?$"
+    );
+
+    private final BarrageFilterService barrageFilterService = new BarrageFilterService();
+
+    @Test
+    void testLeadingKeywordsMatchLegacyRegex() {
+        List<String> lines = List.of(
+                "点歌 稻香", "点歌：稻香", "点歌:稻香", "点歌-稻香", "来首 七里香", "播放 夜曲", "我想听 晴天",
+                "PLAY Love Story", "Music: Hello", "歌曲 青花瓷", "唱 告白气球", "点 稻香", "来 稻香",
+                "稻香", "稻香 - 周杰伦", "稻香—周杰伦", "点歌 稻香~~", "  点歌   稻香  ", "点歌", "-稻香",
+                "点歌 Don't Stop", "点歌 K-ON");
+        for (String line : lines) {
+            assertEquals(legacy(line), extract(line), "Mismatch for: " + line);
+        }
+    }
+
+    @Test
+    void testBookTitleTakesPriority() {
+        assertEquals(Optional.of("奢香夫人"), extract("来首《奢香夫人》吧"));
+        assertEquals(Optional.of("奢香夫人"), extract("点歌 《 奢香夫人 》"));
+        // 不成对的书名号会被清洗掉
+        assertEquals(Optional.of("奢香夫人"), extract("点歌 《奢香夫人"));
+    }
+
+    @Test
+    void testKeywordInsideTitleKeepsWholeLine() {
+        List<String> titles = List.of("Don't Stop the Music", "我的歌曲", "天下第一歌曲串烧", "未来的我", "Replay",
+                "主播你好，来首稻香", "Love Me Like You Do (Play)");
+        for (String title : titles) {
+            assertEquals(legacy(title), extract(title), "Mismatch for: " + title);
+        }
+        assertEquals(Optional.of("Don't Stop the Music"), extract("Don't Stop the Music"));
+        assertEquals(Optional.of("我的歌曲"), extract("我的歌曲"));
+        assertEquals(Optional.of("天下第一歌曲串烧"), extract("天下第一歌曲串烧"));
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertEquals(Optional.empty(), barrageFilterService.extractSongName(null));
+        assertEquals(Optional.empty(), extract("   "));
+        assertEquals(Optional.empty(), extract("~~~"));
+    }
+
+    private Optional<String> extract(String content) {
+        BarrageRequest request = new BarrageRequest();
+        request.setUser("tester");
+        request.setContent(content);
+        return barrageFilterService.extractSongName(request);
+    }
+
+    private static Optional<String> legacy(String content) {
+        String trimmed = content.trim();
+        if (trimmed.isEmpty()) {
+            return Optional.empty();
+        }
+        Matcher matcher = LEGACY_PATTERN.matcher(trimmed);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        String songName = matcher.group(1).trim().replaceAll("[^\\p{L}\\p{N}\\s-'《》]", "").trim();
+        return songName.isEmpty() ? Optional.empty() : Optional.of(songName);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.config.PermissionProperties;
+import com.example.aimusicdispatcher.model.dy.CastGift;
+import com.example.aimusicdispatcher.service.PermissionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class GrantCoalescerTest {
+
+    private PermissionService permissionService;
+    private GrantCoalescer grantCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        permissionService = mock(PermissionService.class);
+        PermissionProperties permissionProperties = new PermissionProperties();
+        permissionProperties.setLikeMinutes(5);
+        permissionProperties.setGiftMinutes(20);
+        // 不调用 init()，由测试手动触发 flush
+        grantCoalescer = new GrantCoalescer(permissionService, permissionProperties);
+    }
+
+    @Test
+    void testLikeBurstGrantsLeadingFrameThenSummedRemainder() {
+        for (int i = 0; i < 10; i++) {
+            grantCoalescer.addLike("user1", "TestUser");
+        }
+        verify(permissionService, times(1)).grant("user1", 5);
+
+        grantCoalescer.flush();
+        verify(permissionService).grant("user1", 45);
+
+        // 空闲一个窗口后表项被移除，下一帧重新立即授权
+        grantCoalescer.flush();
+        grantCoalescer.addLike("user1", "TestUser");
+        verify(permissionService, times(2)).grant("user1", 5);
+    }
+
+    @Test
+    void testGiftComboCountedOnce() {
+        for (int i = 1; i <= 5; i++) {
+            grantCoalescer.addGift("user1", "TestUser", gift("463", i, 0));
+        }
+        grantCoalescer.addGift("user1", "TestUser", gift("463", 5, 1));
+        grantCoalescer.flush();
+
+        verify(permissionService, times(1)).grant(anyString(), anyInt());
+        verify(permissionService).grant("user1", 20);
+    }
+
+    @Test
+    void testSeparateGiftsAndCombosAreCountedSeparately() {
+        // 只有结束帧的单次送礼
+        grantCoalescer.addGift("user1", "TestUser", gift("1", 1, 1));
+        // 另一种礼物的连击
+        grantCoalescer.addGift("user1", "TestUser", gift("2", 1, 0));
+        grantCoalescer.addGift("user1", "TestUser", gift("2", 2, 1));
+        // 同一礼物的第二次连击
+        grantCoalescer.addGift("user1", "TestUser", gift("2", 1, 0));
+        grantCoalescer.flush();
+
+        verify(permissionService).grant("user1", 20);
+        verify(permissionService).grant("user1", 40);
+        verify(permissionService, never()).grant("user1", 60);
+    }
+
+    @Test
+    void testRepeatedSingleGiftsAreEachCounted() {
+        // 同一礼物连续单送（每帧都是结束帧，没有进行中的连击），在连击超时内也都要计数
+        grantCoalescer.addGift("user1", "TestUser", gift("1", 1, 1));
+        grantCoalescer.addGift("user1", "TestUser", gift("1", 1, 1));
+        grantCoalescer.addGift("user1", "TestUser", gift("1", 1, 1));
+        grantCoalescer.flush();
+
+        verify(permissionService).grant("user1", 20);
+        verify(permissionService).grant("user1", 40);
+    }
+
+    @Test
+    void testGiftValueRecordedOncePerCombo() {
+        CastGift first = gift("463", 3, 0);
+        first.setPrice(10);
+        grantCoalescer.addGift("user1", "TestUser", first);
+        CastGift end = gift("463", 8, 1);
+        end.setPrice(10);
+        grantCoalescer.addGift("user1", "TestUser", end);
+
+        // 连击帧携带累计数量：首帧先计 3 个，结束帧补齐到 8 个，共 80
+        ArgumentCaptor<Long> values = ArgumentCaptor.forClass(Long.class);
+        verify(permissionService, times(2)).recordGift(eq("user1"), values.capture());
+        assertEquals(80L, values.getAllValues().stream().mapToLong(Long::longValue).sum());
+        verify(permissionService, times(1)).grant("user1", 20);
+        assertEquals(0, GrantCoalescer.giftValue(gift("1", 1, 1)));
+    }
+
+    @Test
+    void testComboFramesOnlyRecordAddedCount() {
+        for (int count : new int[]{1, 5, 5, 9}) {
+            CastGift frame = gift("463", count, 0);
+            frame.setPrice(1);
+            grantCoalescer.addGift("user1", "TestUser", frame);
+        }
+        CastGift end = gift("463", 9, 1);
+        end.setPrice(1);
+        grantCoalescer.addGift("user1", "TestUser", end);
+
+        ArgumentCaptor<Long> values = ArgumentCaptor.forClass(Long.class);
+        verify(permissionService, times(3)).recordGift(eq("user1"), values.capture());
+        assertEquals(9L, values.getAllValues().stream().mapToLong(Long::longValue).sum());
+        assertEquals(4L, grantCoalescer.getStats().get("comboFramesFolded"));
+    }
+
+    private static CastGift gift(String id, int count, int repeatEnd) {
+        CastGift gift = new CastGift();
+        gift.setId(id);
+        gift.setName("小心心");
+        gift.setCount(String.valueOf(count));
+        gift.setRepeatEnd(repeatEnd);
+        return gift;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.aimusicdispatcher.dispatcher;
+
+import com.example.aimusicdispatcher.config.IngestProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageDeduplicatorTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private MessageDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        IngestProperties properties = new IngestProperties();
+        properties.getDedupe().setWindowSeconds(60);
+        properties.getDedupe().setExpectedInsertions(10000);
+        deduplicator = new MessageDeduplicator(properties, now::get);
+    }
+
+    @Test
+    void testSecondOccurrenceIsDuplicate() {
+        assertFalse(deduplicator.isDuplicate("7300000000001"));
+        assertTrue(deduplicator.isDuplicate("7300000000001"));
+        assertFalse(deduplicator.isDuplicate("7300000000002"));
+    }
+
+    @Test
+    void testMissingIdIsNeverDuplicate() {
+        assertFalse(deduplicator.isDuplicate(null));
+        assertFalse(deduplicator.isDuplicate(null));
+        assertFalse(deduplicator.isDuplicate(""));
+    }
+
+    @Test
+    void testIdIsRememberedForOneWindowAndForgottenAfterTwo() {
+        assertFalse(deduplicator.isDuplicate("a"));
+
+        now.addAndGet(61_000L); // 轮换一次，"a" 在上一代过滤器中
+        assertTrue(deduplicator.isDuplicate("a"));
+
+        now.addAndGet(121_000L); // 超过两个窗口，两代都已丢弃
+        assertFalse(deduplicator.isDuplicate("a"));
+    }
+
+    @Test
+    void testNoFalsePositivesOnDistinctIds() {
+        int duplicates = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (deduplicator.isDuplicate("id-" + i)) {
+                duplicates++;
+            }
+        }
+        // 默认误判率 1e-4，一万条最多容忍个位数误判
+        assertTrue(duplicates < 5, "Too many false positives: " + duplicates);
+        assertEquals(10000L - duplicates, deduplicator.getStats().get("misses"));
+    }
+}
@@ -6,6 +6,7 @@ import com.example.aimusicdispatcher.model.dy.CastGift;
 import com.example.aimusicdispatcher.model.dy.CastMethod;
 import com.example.aimusicdispatcher.model.dy.CastUser;
 import com.example.aimusicdispatcher.model.dy.DyMessage;
+import com.example.aimusicdispatcher.scheduler.PlayQueue;
 import com.example.aimusicdispatcher.service.BarrageService;
 import com.example.aimusicdispatcher.service.PermissionService;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +18,7 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -42,7 +44,8 @@ class MessageDispatcherTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        messageDispatcher = new MessageDispatcher(permissionService, barrageService, barrageFilterService, permissionProperties);
+        GrantCoalescer grantCoalescer = new GrantCoalescer(permissionService, permissionProperties);
+        messageDispatcher = new MessageDispatcher(permissionService, barrageService, barrageFilterService, permissionProperties, grantCoalescer);
     }
 
     @Test
@@ -99,6 +102,7 @@ class MessageDispatcherTest {
         when(permissionService.isAuthorized("user123")).thenReturn(true);
         when(permissionService.hasRequested("user123", "稻香")).thenReturn(false);
         when(barrageFilterService.extractSongName(any(BarrageRequest.class))).thenReturn(Optional.of("稻香"));
+        when(barrageService.processBarrage(any(BarrageRequest.class))).thenReturn(Optional.of(PlayQueue.OfferResult.ADDED));
 
         // Create chat message
         DyMessage message = new DyMessage();
@@ -119,6 +123,30 @@ class MessageDispatcherTest {
         verify(permissionService).recordRequest("user123", "稻香");
     }
 
+    @Test
+    void testDispatch_ChatMessage_RejectedRequest_NotRecorded() {
+        when(permissionProperties.isEnabled()).thenReturn(true);
+        when(permissionService.isAuthorized("user123")).thenReturn(true);
+        when(permissionService.hasRequested("user123", "稻香")).thenReturn(false);
+        when(barrageFilterService.extractSongName(any(BarrageRequest.class))).thenReturn(Optional.of("稻香"));
+        // Queue limit reached
+        when(barrageService.processBarrage(any(BarrageRequest.class))).thenReturn(Optional.of(PlayQueue.OfferResult.REJECTED));
+
+        DyMessage message = new DyMessage();
+        message.setMethod(CastMethod.CHAT);
+        message.setContent("点歌 稻香");
+        CastUser user = new CastUser();
+        user.setId("user123");
+        user.setName("TestUser");
+        message.setUser(user);
+
+        messageDispatcher.dispatch(message);
+
+        // The user can request the song again once a slot frees up
+        verify(barrageService).processBarrage(any(BarrageRequest.class));
+        verify(permissionService, never()).recordRequest(any(), any());
+    }
+
     @Test
     void testDispatch_ChatMessage_DuplicateRequest_DeniesRequest() {
         // Setup mock properties
@@ -188,8 +216,9 @@ class MessageDispatcherTest {
         // Execute dispatch
         messageDispatcher.dispatch(message);
 
-        // Verify processBarrage was called without checking authorization
-        verify(barrageService).processBarrage(any(BarrageRequest.class));
+        // Verify processBarrage was called without checking authorization, carrying the parsed song name
+        verify(barrageService).processBarrage(argThat(request -> "奢香夫人".equals(request.getSongName())));
+        verify(barrageFilterService, times(1)).extractSongName(any(BarrageRequest.class));
         verify(permissionService, never()).isAuthorized(any());
     }
 
@@ -0,0 +1,108 @@
+package com.example.aimusicdispatcher.generator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PooledTtsEngineTest {
+
+    // 模拟 worker：按协议应答，合成请求把收到的 voice/rate/format 写入输出文件；文本为 "crash" 时直接退出，文本为 "hang" 时不应答
+    private static final String FAKE_WORKER = String.join("\n",
+            "import json, sys, time",
+            "for line in sys.stdin:",
+            "    req = json.loads(line)",
+            "    if req.get('text') == 'crash':",
+            "        sys.exit(3)",
+            "    if req.get('text') == 'hang':",
+            "        time.sleep(60)",
+            "    if not req.get('ping'):",
+            "        with open(req['output'], 'w') as out:",
+            "            out.write(json.dumps([req.get('voice'), req.get('rate'), req.get('format')]))",
+            "    print(json.dumps({'id': req['id'], 'ok': True}), flush=True)");
+
+    private static final TtsEngine.Options OPTIONS = new TtsEngine.Options(null, null, "mp3");
+
+    private static boolean pythonAvailable;
+
+    @TempDir
+    Path tempDir;
+
+    private PooledTtsEngine engine;
+
+    @BeforeAll
+    static void checkPython() {
+        try {
+            pythonAvailable = new ProcessBuilder("python3", "--version").start().waitFor() == 0;
+        } catch (IOException | InterruptedException e) {
+            pythonAvailable = false;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    @Test
+    void testWorkersAreReusedAcrossRequests() throws IOException {
+        engine = newEngine(1, 10);
+
+        for (int i = 0; i < 5; i++) {
+            Path output = tempDir.resolve("intro_" + i + ".mp3");
+            assertTrue(engine.synthesize("你好" + i, OPTIONS, output));
+            assertTrue(Files.exists(output));
+        }
+        assertEquals(0L, engine.getStats().get("restarts"));
+        assertEquals(0L, engine.getStats().get("failures"));
+    }
+
+    @Test
+    void testVoiceRateAndFormatAreSentToWorker() throws IOException {
+        engine = newEngine(1, 10);
+
+        Path output = tempDir.resolve("voice.mp3");
+        assertTrue(engine.synthesize("你好", new TtsEngine.Options("zh-CN-YunxiNeural", -0.15, "mp3"), output));
+        assertEquals("[\"zh-CN-YunxiNeural\", \"-15%\", \"mp3\"]", Files.readString(output));
+
+        // 未配置的语音和语速不发送，由 edge-tts 使用默认值
+        Path defaults = tempDir.resolve("defaults.mp3");
+        assertTrue(engine.synthesize("你好", OPTIONS, defaults));
+        assertEquals("[null, null, \"mp3\"]", Files.readString(defaults));
+    }
+
+    @Test
+    void testCrashedWorkerIsRestarted() throws IOException {
+        engine = newEngine(1, 10);
+
+        assertFalse(engine.synthesize("crash", OPTIONS, tempDir.resolve("crash.mp3")));
+        assertTrue(engine.synthesize("你好", OPTIONS, tempDir.resolve("after.mp3")));
+        assertEquals(1L, engine.getStats().get("restarts"));
+    }
+
+    @Test
+    void testHungWorkerIsKilledAfterTimeout() throws IOException {
+        engine = newEngine(1, 1);
+
+        long start = System.nanoTime();
+        assertFalse(engine.synthesize("hang", OPTIONS, tempDir.resolve("hang.mp3")));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 10_000);
+        assertTrue(engine.synthesize("你好", OPTIONS, tempDir.resolve("after.mp3")));
+    }
+
+    private PooledTtsEngine newEngine(int size, long timeoutSeconds) throws IOException {
+        assumeTrue(pythonAvailable, "python3 is not available");
+        Path script = Files.writeString(tempDir.resolve("fake_worker.py"), FAKE_WORKER);
+        return new PooledTtsEngine(List.of("python3", "-u", script.toString()), size, timeoutSeconds, 0);
+    }
+}
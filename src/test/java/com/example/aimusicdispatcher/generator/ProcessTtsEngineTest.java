@@ -0,0 +1,62 @@
+package com.example.aimusicdispatcher.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessTtsEngineTest {
+
+    // 模拟 edge-tts：把收到的参数逐行写入 --write-media 指定的文件
+    private static final String FAKE_EDGE_TTS = String.join("\n",
+            "#!/bin/sh",
+            "out=''",
+            "prev=''",
+            "for arg in \"$@\"; do",
+            "  if [ \"$prev\" = '--write-media' ]; then out=\"$arg\"; fi",
+            "  prev=\"$arg\"",
+            "done",
+            "printf '%s\\n' \"$@\" > \"$out\"",
+            "");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testVoiceAndRateArePassedOnCommandLine() throws IOException {
+        Path edgeTts = Files.writeString(tempDir.resolve("edge-tts"), FAKE_EDGE_TTS);
+        assumeTrue(edgeTts.toFile().setExecutable(true), "cannot create executable script");
+        ProcessTtsEngine engine = new ProcessTtsEngine(edgeTts.toString(), 10);
+
+        Path output = tempDir.resolve("intro.mp3");
+        // 参数用 ASCII，避免受进程参数编码影响
+        assertTrue(engine.synthesize("hello", new TtsEngine.Options("zh-CN-YunxiNeural", -0.15, "mp3"), output));
+
+        List<String> args = Files.readAllLines(output);
+        assertEquals(List.of("--text", "hello", "--voice", "zh-CN-YunxiNeural", "--rate=-15%",
+                "--write-media", output.toString()), args);
+    }
+
+    @Test
+    void testDefaultsOmitVoiceAndRate() {
+        ProcessTtsEngine engine = new ProcessTtsEngine("edge-tts", 10);
+
+        assertEquals(List.of("edge-tts", "--text", "你好", "--write-media", "out.mp3"),
+                engine.command("你好", new TtsEngine.Options(null, null, null), Path.of("out.mp3")));
+        assertEquals("+20%", new TtsEngine.Options(null, 0.2, null).rateArgument());
+    }
+
+    @Test
+    void testUnsupportedFormatFails() {
+        ProcessTtsEngine engine = new ProcessTtsEngine("edge-tts", 10);
+
+        assertFalse(engine.synthesize("你好", new TtsEngine.Options(null, null, "wav"), tempDir.resolve("intro.wav")));
+        assertEquals(1L, engine.getStats().get("failures"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.aimusicdispatcher.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtsAudioStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKeyCoversAllInputsAndIsSharded() {
+        String key = TtsAudioStore.keyOf("欢迎点歌", "zh-CN-XiaoxiaoNeural", "0.0", "mp3");
+
+        assertEquals(64, key.length());
+        assertEquals(key, TtsAudioStore.keyOf("欢迎点歌", "zh-CN-XiaoxiaoNeural", "0.0", "mp3"));
+        assertNotEquals(key, TtsAudioStore.keyOf("欢迎点歌", "zh-CN-YunxiNeural", "0.0", "mp3"));
+        assertNotEquals(key, TtsAudioStore.keyOf("欢迎点歌", "zh-CN-XiaoxiaoNeural", "0.5", "mp3"));
+        assertNotEquals(TtsAudioStore.keyOf("ab", "c", null, null), TtsAudioStore.keyOf("a", "bc", null, null));
+
+        TtsAudioStore store = new TtsAudioStore(tempDir, Long.MAX_VALUE);
+        Path path = store.pathOf(key, "mp3");
+        assertEquals(key.substring(0, 2), path.getParent().getFileName().toString());
+        assertEquals(key + ".mp3", path.getFileName().toString());
+    }
+
+    @Test
+    void testPutThenLookupAndRebuildIndex() throws IOException {
+        TtsAudioStore store = new TtsAudioStore(tempDir, Long.MAX_VALUE);
+        store.init();
+        String key = TtsAudioStore.keyOf("欢迎点歌", null, null, "wav");
+
+        assertTrue(store.lookup(key, "wav").isEmpty());
+        Optional<Path> stored = store.put(key, "wav", file -> write(file, 100));
+        assertTrue(stored.isPresent());
+        assertEquals(stored, store.lookup(key, "wav"));
+        assertTrue(store.exists(stored.get().toString()));
+        // 写入成功后分片目录里只剩正式文件
+        try (var files = Files.list(stored.get().getParent())) {
+            assertEquals(1, files.count());
+        }
+
+        TtsAudioStore reopened = new TtsAudioStore(tempDir, Long.MAX_VALUE);
+        reopened.init();
+        assertEquals(stored, reopened.lookup(key, "wav"));
+        assertEquals(100L, reopened.getStats().get("totalBytes"));
+    }
+
+    @Test
+    void testFailedWriterLeavesNothingBehind() throws IOException {
+        TtsAudioStore store = new TtsAudioStore(tempDir, Long.MAX_VALUE);
+        store.init();
+        String key = TtsAudioStore.keyOf("欢迎点歌", null, null, "mp3");
+
+        assertTrue(store.put(key, "mp3", file -> false).isEmpty());
+        assertTrue(store.lookup(key, "mp3").isEmpty());
+        try (var files = Files.list(store.pathOf(key, "mp3").getParent())) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedButKeepsPinned() throws IOException, InterruptedException {
+        TtsAudioStore store = new TtsAudioStore(tempDir, 250);
+        store.init();
+        String pinnedKey = TtsAudioStore.keyOf("a", null, null, "mp3");
+        String oldKey = TtsAudioStore.keyOf("b", null, null, "mp3");
+        String recentKey = TtsAudioStore.keyOf("c", null, null, "mp3");
+
+        Path pinnedPath = store.put(pinnedKey, "mp3", file -> write(file, 100)).orElseThrow();
+        store.pin(pinnedPath.toString());
+        Path oldPath = store.put(oldKey, "mp3", file -> write(file, 100)).orElseThrow();
+        Thread.sleep(5);
+        store.lookup(pinnedKey, "mp3");
+        Path recentPath = store.put(recentKey, "mp3", file -> write(file, 100)).orElseThrow();
+
+        // 300 > 250：最旧的 pinned 文件被跳过，淘汰次旧的 oldKey
+        assertTrue(Files.exists(pinnedPath));
+        assertFalse(Files.exists(oldPath));
+        assertFalse(store.exists(oldPath.toString()));
+        assertTrue(Files.exists(recentPath));
+        assertEquals(1L, store.getStats().get("evictions"));
+    }
+
+    @Test
+    void testUnmanagedPathFallsBackToFilesystem() throws IOException {
+        TtsAudioStore store = new TtsAudioStore(tempDir.resolve("store"), Long.MAX_VALUE);
+        store.init();
+        Path legacy = Files.createFile(tempDir.resolve("intro_123.mp3"));
+
+        assertTrue(store.exists(legacy.toString()));
+        assertFalse(store.exists(tempDir.resolve("intro_456.mp3").toString()));
+    }
+
+    private static boolean write(Path file, int size) throws IOException {
+        Files.write(file, new byte[size]);
+        return true;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.aimusicdispatcher.generator;
+
+import com.example.aimusicdispatcher.config.TtsProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtsServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSameTextIsSynthesizedOnce() {
+        TtsProperties properties = new TtsProperties();
+        properties.setOutputDir(tempDir.toString());
+        StubTtsEngine engine = new StubTtsEngine(0);
+        TtsService ttsService = new TtsService(properties, new TextCleaningService(), engine, store(properties));
+
+        String first = ttsService.generateAudioFile("欢迎点歌", 1L);
+        String second = ttsService.generateAudioFile("欢迎点歌", 2L);
+
+        assertNotNull(first);
+        assertEquals(first, second);
+        assertTrue(Files.exists(Path.of(first)));
+        assertEquals(1L, engine.getStats().get("synthesized"));
+    }
+
+    @Test
+    void testEngineFailureReturnsNull() {
+        TtsProperties properties = new TtsProperties();
+        properties.setOutputDir(tempDir.toString());
+        TtsEngine failing = new TtsEngine() {
+            @Override
+            public boolean synthesize(String text, Options options, Path outputFile) {
+                return false;
+            }
+
+            @Override
+            public java.util.Map<String, Object> getStats() {
+                return java.util.Map.of();
+            }
+        };
+        TtsService ttsService = new TtsService(properties, new TextCleaningService(), failing, store(properties));
+
+        assertNull(ttsService.generateAudioFile("欢迎点歌", 1L));
+    }
+
+    @Test
+    void testVoiceChangeProducesNewAudio() {
+        TtsProperties properties = new TtsProperties();
+        properties.setOutputDir(tempDir.toString());
+        properties.setVoice("zh-CN-XiaoxiaoNeural");
+        StubTtsEngine engine = new StubTtsEngine(0);
+        TtsService ttsService = new TtsService(properties, new TextCleaningService(), engine, store(properties));
+
+        String first = ttsService.generateAudioFile("欢迎点歌", 1L);
+        properties.setVoice("zh-CN-YunxiNeural");
+        String second = ttsService.generateAudioFile("欢迎点歌", 1L);
+
+        assertNotEquals(first, second);
+        assertEquals(2L, engine.getStats().get("synthesized"));
+    }
+
+    @Test
+    void testVoiceRateAndFormatReachTheEngine() {
+        TtsProperties properties = new TtsProperties();
+        properties.setOutputDir(tempDir.toString());
+        properties.setVoice("zh-CN-YunxiNeural");
+        properties.setRate(-0.15);
+        properties.setAudioFormat("mp3");
+        StubTtsEngine engine = new StubTtsEngine(0);
+        TtsService ttsService = new TtsService(properties, new TextCleaningService(), engine, store(properties));
+
+        assertNotNull(ttsService.generateAudioFile("欢迎点歌", 1L));
+        assertEquals("zh-CN-YunxiNeural", engine.getStats().get("lastVoice"));
+        assertEquals("-15%", engine.getStats().get("lastRate"));
+    }
+
+    @Test
+    void testStreamIsReadableBeforeSynthesisFinishes() throws Exception {
+        TtsProperties properties = new TtsProperties();
+        properties.setOutputDir(tempDir.toString());
+        CountDownLatch firstChunkRead = new CountDownLatch(1);
+        TtsEngine chunked = new TtsEngine() {
+            @Override
+            public boolean synthesize(String text, Options options, Path outputFile) {
+                try (OutputStream out = Files.newOutputStream(outputFile)) {
+                    out.write(new byte[]{1, 2, 3});
+                    out.flush();
+                    // 读端拿到第一块之前不写第二块，证明是边写边读
+                    if (!firstChunkRead.await(5, TimeUnit.SECONDS)) {
+                        return false;
+                    }
+                    out.write(new byte[]{4, 5});
+                    return true;
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public java.util.Map<String, Object> getStats() {
+                return java.util.Map.of();
+            }
+        };
+        TtsService ttsService = new TtsService(properties, new TextCleaningService(), chunked, store(properties));
+        CompletableFuture<TtsStream> started = new CompletableFuture<>();
+        CompletableFuture<String> generated = CompletableFuture.supplyAsync(
+                () -> ttsService.generateAudioFile("欢迎点歌", 1L, started::complete));
+
+        TtsStream stream = started.get(5, TimeUnit.SECONDS);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        try (InputStream in = stream.openStream()) {
+            byte[] buffer = new byte[16];
+            int n = in.read(buffer);
+            assertFalse(stream.isDone());
+            received.write(buffer, 0, n);
+            firstChunkRead.countDown();
+            while ((n = in.read(buffer)) != -1) {
+                received.write(buffer, 0, n);
+            }
+        }
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, received.toByteArray());
+        String path = generated.get(5, TimeUnit.SECONDS);
+        assertEquals(path, stream.getResult().get().toString());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, Files.readAllBytes(Path.of(path)));
+    }
+
+    private static TtsAudioStore store(TtsProperties properties) {
+        TtsAudioStore store = new TtsAudioStore(properties);
+        store.init();
+        return store;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.aimusicdispatcher.player;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PcmAudioOutputTest {
+
+    private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+    @TempDir
+    Path tempDir;
+
+    private final CapturingSink sink = new CapturingSink();
+    private PcmAudioOutput output;
+
+    @AfterEach
+    void tearDown() {
+        if (output != null) {
+            output.close();
+        }
+    }
+
+    @Test
+    void testWavIsResampledAndUpmixed() throws Exception {
+        output = new PcmAudioOutput(sink, FORMAT, 500);
+        // 16kHz 单声道、常量样本 1000，1 秒
+        Path wav = Files.write(tempDir.resolve("intro.wav"), wav(16000, 1, 16000, (short) 1000));
+
+        output.play(wav.toString());
+        awaitFrames(44100 - 10);
+
+        short[] samples = sink.samples();
+        assertEquals(0, samples.length % 2);
+        assertTrue(Math.abs(samples.length / 2 - 44100) <= 10, "frames: " + samples.length / 2);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(1000, samples[i], "sample " + i);
+        }
+        assertEquals(1L, output.getStats().get("tracksPlayed"));
+    }
+
+    @Test
+    void testMp3FramesAreDecoded() throws Exception {
+        output = new PcmAudioOutput(sink, FORMAT, 500);
+        // 10 个 MPEG-1 Layer III 128kbps 44.1kHz 立体声静音帧，每帧 1152 个采样
+        Path mp3 = Files.write(tempDir.resolve("song.mp3"), silentMp3(10));
+
+        output.play(mp3.toString());
+        awaitFrames(10 * 1152);
+
+        assertEquals(10 * 1152, sink.samples().length / 2);
+        assertEquals(0L, output.getStats().get("decodeFailures"));
+    }
+
+    @Test
+    void testConsecutiveTracksShareOneOutput() throws Exception {
+        output = new PcmAudioOutput(sink, FORMAT, 500);
+        Path intro = Files.write(tempDir.resolve("intro.wav"), wav(44100, 2, 4410, (short) 7));
+        Path song = Files.write(tempDir.resolve("song.wav"), wav(44100, 2, 44100, (short) 9));
+
+        output.play(intro.toString());
+        output.play(song.toString());
+        awaitFrames(4410 + 44100);
+
+        short[] samples = sink.samples();
+        assertEquals((4410 + 44100) * 2, samples.length);
+        assertEquals(7, samples[4410 * 2 - 1]);
+        assertEquals(9, samples[4410 * 2]);
+        assertEquals(2L, output.getStats().get("tracksPlayed"));
+    }
+
+    @Test
+    void testPreparedTrackFollowsWithoutGap() throws Exception {
+        RealtimeSink realtime = new RealtimeSink();
+        output = new PcmAudioOutput(realtime, FORMAT, 500);
+        Path intro = Files.write(tempDir.resolve("intro.wav"), wav(44100, 2, 22050, (short) 3));
+        Path song = Files.write(tempDir.resolve("song.wav"), wav(44100, 2, 22050, (short) 5));
+
+        output.play(intro.toString());
+        // 口播还在播放时预备歌曲，歌曲的解码在后台提前开始
+        PreparedTrack prepared = output.prepare(song.toString());
+        prepared.play();
+        awaitFrames(44100);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> gaps = (Map<String, Object>) output.getStats().get("gapMillis");
+        assertEquals(1L, gaps.get("count"));
+        assertEquals(0L, gaps.get("maxMillis"));
+        assertEquals(0L, output.getStats().get("underruns"));
+        assertEquals(2L, output.getStats().get("tracksPrepared"));
+    }
+
+    @Test
+    void testStalledStreamCountsUnderrun() throws Exception {
+        output = new PcmAudioOutput(sink, FORMAT, 500);
+        byte[] wav = wav(44100, 2, 44100, (short) 1);
+        int half = 44 + 44100 * 2;
+        InputStream stalled = new SequenceInputStream(new ByteArrayInputStream(wav, 0, half), new InputStream() {
+            private final InputStream rest = new ByteArrayInputStream(wav, half, wav.length - half);
+            private boolean waited;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (!waited) {
+                    // 模拟合成速度跟不上播放：输出线程读空缓冲区
+                    waited = true;
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return rest.read(b, off, len);
+            }
+        });
+
+        output.play(stalled);
+        awaitFrames(44100);
+
+        assertTrue((Long) output.getStats().get("underruns") >= 1);
+        assertTrue((Long) output.getStats().get("underrunMillis") > 0);
+    }
+
+    private void awaitFrames(long frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) output.getStats().get("framesWritten") < frames && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue((Long) output.getStats().get("framesWritten") >= frames);
+    }
+
+    private static byte[] wav(int sampleRate, int channels, int frames, short value) {
+        int dataSize = frames * channels * 2;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataSize);
+        for (int i = 0; i < frames * channels; i++) {
+            wav.putShort(value);
+        }
+        return wav.array();
+    }
+
+    private static byte[] silentMp3(int frames) {
+        // 帧长 = 144 * 128000 / 44100 = 417 字节；边信息全 0 时解码为静音
+        byte[] frame = new byte[417];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) 0x90;
+        frame[3] = (byte) 0x00;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            out.writeBytes(frame);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 按播放速度消费数据的 sink
+     */
+    private static final class RealtimeSink implements PcmSink {
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            try {
+                Thread.sleep(len / 4 * 1000L / 44100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public String name() {
+            return "realtime";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CapturingSink implements PcmSink {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            data.write(b, off, len);
+        }
+
+        @Override
+        public String name() {
+            return "capture";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized short[] samples() {
+            byte[] bytes = data.toByteArray();
+            short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return samples;
+        }
+    }
+}
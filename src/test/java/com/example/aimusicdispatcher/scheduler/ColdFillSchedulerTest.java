@@ -0,0 +1,136 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.service.CatalogSnapshot;
+import com.example.aimusicdispatcher.service.MusicCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColdFillSchedulerTest {
+
+    private MusicCatalog musicCatalog;
+    private PlaybackProperties playbackProperties;
+    private AtomicLong now;
+    private ColdFillScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        musicCatalog = mock(MusicCatalog.class);
+        playbackProperties = new PlaybackProperties();
+        now = new AtomicLong(System.currentTimeMillis());
+        scheduler = new ColdFillScheduler(musicCatalog, playbackProperties, now::get, new Random(7));
+    }
+
+    @Test
+    void testLeastRecentRotatesThroughLibrary() {
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(List.of(
+                song(1L, "稻香", base.plusMinutes(3), 5),
+                song(2L, "夜曲", null, 0),
+                song(3L, "晴天", base.plusMinutes(1), 2))));
+
+        List<Long> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            MusicLibrary next = scheduler.next();
+            order.add(next.getId());
+            now.incrementAndGet();
+            scheduler.recordPlay(next.getId());
+        }
+        // 从未播放过的最先，其余按最近播放时间从早到晚，之后按本进程内的播放顺序轮转
+        assertEquals(List.of(2L, 3L, 1L, 2L, 3L, 1L), order);
+    }
+
+    @Test
+    void testPlaysSurviveSnapshotReplacement() {
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(List.of(
+                song(1L, "稻香", null, 0), song(2L, "夜曲", null, 0))));
+        assertEquals(1L, scheduler.next().getId());
+        scheduler.recordPlay(1L);
+
+        // 新快照来自数据库，尚未包含刚才的播放记录
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(List.of(
+                song(1L, "稻香", null, 0), song(2L, "夜曲", null, 0), song(3L, "晴天", null, 0))));
+        assertEquals(2L, scheduler.next().getId());
+    }
+
+    @Test
+    void testWeightedFavoursRarelyPlayedAndSkipsRecent() {
+        playbackProperties.setColdFillMode(PlaybackProperties.ColdFillMode.WEIGHTED);
+        playbackProperties.setColdFillRecentExclusion(1);
+        scheduler = new ColdFillScheduler(musicCatalog, playbackProperties, now::get, new Random(7));
+        List<MusicLibrary> songs = new ArrayList<>();
+        songs.add(song(1L, "热门", null, 99));
+        for (long id = 2; id <= 10; id++) {
+            songs.add(song(id, "冷门" + id, null, 0));
+        }
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(songs));
+
+        Map<Long, Integer> picks = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < 2000; i++) {
+            long id = scheduler.next().getId();
+            assertNotEquals(previous, id);
+            picks.merge(id, 1, Integer::sum);
+            seen.add(id);
+            scheduler.recordPlay(id);
+            previous = id;
+        }
+        assertEquals(10, seen.size());
+        assertTrue(picks.getOrDefault(1L, 0) < picks.get(2L));
+    }
+
+    @Test
+    void testWeightedTracksPlaysRecordedInProcess() {
+        playbackProperties.setColdFillMode(PlaybackProperties.ColdFillMode.WEIGHTED);
+        playbackProperties.setColdFillRecentExclusion(0);
+        scheduler = new ColdFillScheduler(musicCatalog, playbackProperties, now::get, new Random(7));
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(List.of(
+                song(1L, "稻香", null, 0), song(2L, "夜曲", null, 0), song(3L, "晴天", null, 0))));
+        // 只通过 recordPlay 累积播放次数，权重逐首增量更新
+        for (int i = 0; i < 99; i++) {
+            scheduler.recordPlay(1L);
+        }
+
+        Map<Long, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            picks.merge(scheduler.next().getId(), 1, Integer::sum);
+        }
+        // 权重 1/100 : 1 : 1，稻香约占 0.5%
+        assertTrue(picks.getOrDefault(1L, 0) < 60, "picks: " + picks);
+        assertTrue(picks.get(2L) > 1200 && picks.get(3L) > 1200, "picks: " + picks);
+    }
+
+    @Test
+    void testEmptyOrMissingCatalog() {
+        assertNull(scheduler.next());
+        when(musicCatalog.getSnapshot()).thenReturn(CatalogSnapshot.build(List.of()));
+        assertNull(scheduler.next());
+        scheduler.recordPlay(1L);
+    }
+
+    private static MusicLibrary song(Long id, String name, LocalDateTime lastPlayedAt, int playCount) {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(id);
+        music.setSongName(name);
+        music.setFilePath("/music/" + name + ".mp3");
+        music.setLastPlayedAt(lastPlayedAt);
+        music.setPlayCount(playCount);
+        return music;
+    }
+}
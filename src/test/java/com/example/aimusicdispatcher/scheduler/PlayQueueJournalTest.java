@@ -0,0 +1,280 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayQueueJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testUnfinishedTasksSurviveRestart() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+
+        queue.offer(song(1L, "played", "alice", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "playing", "bob", PlayTier.GIFT, 30));
+        queue.offer(song(3L, "waiting", "carol", PlayTier.REQUEST, 0));
+        queue.offer(song(3L, "waiting", "dave", PlayTier.GIFT, 5));
+
+        PlayTask playing = queue.poll();
+        assertEquals("playing", playing.getSongName());
+        PlayTask next = queue.poll();
+        assertEquals("waiting", next.getSongName());
+        journal.completed(next);
+        journal.completed(playing);
+        queue.offer(song(2L, "playing", "erin", PlayTier.REQUEST, 0));
+        // 关闭时正在播放 "played"
+        assertEquals("played", queue.poll().getSongName());
+        journal.flush();
+        journal.close();
+
+        // 已出队、未完成的 "played" 排在前面，其后是仍在排队的 "playing"（播放完后又被点了一次）
+        PlayQueueJournal reopened = PlayQueueJournal.open(path);
+        List<PlayTask> restored = reopened.restoredTasks();
+        assertEquals(List.of("played", "playing"), restored.stream().map(PlayTask::getSongName).toList());
+        assertEquals(Set.of("erin"), restored.get(1).getRequesters());
+
+        PlayQueue restoredQueue = new PlayQueue(0, false);
+        restored.forEach(restoredQueue::restore);
+        restoredQueue.setListener(reopened);
+        assertEquals(2, restoredQueue.size());
+        // 编号接着上次继续分配
+        PlayTask added = song(4L, "new", "frank", PlayTier.REQUEST, 0);
+        restoredQueue.offer(added);
+        assertTrue(added.getQueueId() > restored.get(1).getQueueId());
+        reopened.close();
+    }
+
+    @Test
+    void testVotesAndPromotionAreReplayed() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+
+        queue.offer(song(1L, "hit", "alice", PlayTier.REQUEST, 0));
+        queue.offer(song(1L, "hit", "bob", PlayTier.REQUEST, 0));
+        queue.offer(song(1L, "hit", "whale", PlayTier.GIFT, 100));
+        journal.close();
+
+        PlayTask hit = PlayQueueJournal.open(path).restoredTasks().get(0);
+        assertEquals(3, hit.getVotes().sum());
+        assertEquals(Set.of("alice", "bob", "whale"), hit.getRequesters());
+        assertEquals(PlayTier.GIFT, hit.getTier());
+        assertEquals(100, hit.getGiftValue());
+        assertEquals("whale", hit.getRequesterId());
+        assertEquals(1L, hit.getMusicId());
+        assertEquals("/music/hit.mp3", hit.getSongFilePath());
+        assertEquals(180000L, hit.getDurationMillis());
+        assertNull(hit.getIntroAudioPath());
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+        queue.offer(song(1L, "a", "alice", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "b", "bob", PlayTier.REQUEST, 0));
+        int used = (Integer) journal.getStats().get("usedBytes");
+        journal.close();
+
+        // 模拟崩溃时写了一半的记录：长度合理但内容校验不通过
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("queue.journal.0").toFile(), "rw")) {
+            file.seek(used);
+            file.writeInt(20);
+            file.writeInt(12345);
+            file.write(new byte[]{1, 0, 0, 0});
+        }
+
+        PlayQueueJournal reopened = PlayQueueJournal.open(path);
+        assertEquals(used, reopened.getStats().get("usedBytes"));
+        List<PlayTask> restored = reopened.restoredTasks();
+        assertEquals(2, restored.size());
+        PlayQueue restoredQueue = new PlayQueue(0, false);
+        restoredQueue.setListener(reopened);
+        restoredQueue.offer(song(3L, "c", "carol", PlayTier.REQUEST, 0));
+        reopened.close();
+
+        assertEquals(3, PlayQueueJournal.open(path).restoredTasks().size());
+    }
+
+    @Test
+    void testCompactionKeepsOnlyLiveTasks() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+        queue.offer(song(0L, "keep", "alice", PlayTier.REQUEST, 0));
+
+        // 写满一半以上的映射区
+        for (long i = 1; (Integer) journal.getStats().get("usedBytes") < 3 * 1024 * 1024; i++) {
+            PlayTask task = song(i, "song" + i, "user" + i, PlayTier.REQUEST, 0);
+            queue.offer(task);
+        }
+        PlayTask task;
+        int polled = 0;
+        while (queue.size() > 1) {
+            task = queue.poll();
+            if (!"keep".equals(task.getSongName())) {
+                journal.completed(task);
+            }
+            polled++;
+        }
+        assertTrue(polled > 1000);
+        journal.flush();
+
+        Map<String, Object> stats = journal.getStats();
+        assertEquals(1L, stats.get("compactions"));
+        assertEquals(2L, stats.get("generation"));
+        assertTrue((Integer) stats.get("usedBytes") < 1024, "used: " + stats.get("usedBytes"));
+        journal.close();
+
+        PlayQueueJournal reopened = PlayQueueJournal.open(path);
+        assertEquals(tempDir.resolve("queue.journal.1").toString(), reopened.getStats().get("file"));
+        List<String> restored = reopened.restoredTasks().stream().map(PlayTask::getSongName).toList();
+        assertEquals(2, restored.size());
+        assertTrue(restored.contains("keep"));
+        reopened.close();
+    }
+
+    @Test
+    void testFullJournalGrowsInsteadOfCompactingOnAppend() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+
+        int count = 0;
+        while ((Integer) journal.getStats().get("usedBytes") < 5 * 1024 * 1024) {
+            queue.offer(song((long) count, "song" + count, "user" + count, PlayTier.REQUEST, 0));
+            count++;
+        }
+        Map<String, Object> stats = journal.getStats();
+        assertEquals(0L, stats.get("compactions"));
+        assertEquals(0L, stats.get("failures"));
+        assertTrue((Integer) stats.get("capacityBytes") > 4 * 1024 * 1024);
+        journal.close();
+
+        assertEquals(count, PlayQueueJournal.open(path).restoredTasks().size());
+    }
+
+    @Test
+    void testAppendsDuringCompactionAreCarriedOver() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+        for (long i = 0; (Integer) journal.getStats().get("usedBytes") < 3 * 1024 * 1024; i++) {
+            queue.offer(song(i, "song" + i, "user" + i, PlayTier.REQUEST, 0));
+        }
+        int queued = queue.size();
+
+        // 刷盘线程压缩的同时继续入队，快照之后追加的记录要补写到新文件
+        int added = 2000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < added; i++) {
+                long musicId = 1_000_000L + i;
+                queue.offer(song(musicId, "late" + i, "late" + i, PlayTier.REQUEST, 0));
+            }
+        });
+        producer.start();
+        journal.flush();
+        producer.join();
+        journal.flush();
+
+        Map<String, Object> stats = journal.getStats();
+        assertEquals(1L, stats.get("compactions"));
+        assertEquals(0L, stats.get("failures"));
+        journal.close();
+
+        PlayQueueJournal reopened = PlayQueueJournal.open(path);
+        assertEquals(2L, reopened.getStats().get("generation"));
+        assertEquals(queued + added, reopened.restoredTasks().size());
+        reopened.close();
+    }
+
+    @Test
+    void testMergesDuringCompactionAreCountedOnce() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+        queue.offer(song(0L, "hit", "alice", PlayTier.REQUEST, 0));
+        for (long i = 1; (Integer) journal.getStats().get("usedBytes") < 3 * 1024 * 1024; i++) {
+            queue.offer(song(i, "song" + i, "user" + i, PlayTier.REQUEST, 0));
+        }
+
+        // 无锁合并与压缩并发：票数先累加到队列中的任务，之后才写入日志
+        int merges = 20000;
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread voter = new Thread(() -> {
+            ready.countDown();
+            for (int i = 0; i < merges; i++) {
+                queue.offer(song(0L, "hit", "fan" + (i % 50), PlayTier.REQUEST, 0));
+            }
+        });
+        voter.start();
+        ready.await();
+        journal.flush();
+        voter.join();
+        journal.flush();
+        assertEquals(1L, journal.getStats().get("compactions"));
+        journal.close();
+
+        PlayTask hit = PlayQueueJournal.open(path).restoredTasks().stream()
+                .filter(task -> "hit".equals(task.getSongName()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1 + merges, hit.getVotes().sum());
+    }
+
+    @Test
+    void testRestoredTasksAreNotSharedWithJournal() throws Exception {
+        Path path = tempDir.resolve("queue.journal");
+        PlayQueueJournal journal = PlayQueueJournal.open(path);
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.setListener(journal);
+        queue.offer(song(1L, "hit", "alice", PlayTier.REQUEST, 0));
+        journal.close();
+
+        PlayQueueJournal reopened = PlayQueueJournal.open(path);
+        PlayQueue restoredQueue = new PlayQueue(0, false);
+        reopened.restoredTasks().forEach(restoredQueue::restore);
+        restoredQueue.setListener(reopened);
+        restoredQueue.offer(song(1L, "hit", "bob", PlayTier.REQUEST, 0));
+        assertEquals(2, restoredQueue.peek().getVotes().sum());
+        reopened.close();
+
+        assertEquals(2, PlayQueueJournal.open(path).restoredTasks().get(0).getVotes().sum());
+    }
+
+    private static PlayTask song(Long musicId, String songName, String userId, PlayTier tier, long giftValue) {
+        return PlayTask.builder()
+                .musicId(musicId)
+                .songName(songName)
+                .songFilePath("/music/" + songName + ".mp3")
+                .durationMillis(180000L)
+                .requester(userId)
+                .requesterId(userId)
+                .tier(tier)
+                .giftValue(giftValue)
+                .build();
+    }
+}
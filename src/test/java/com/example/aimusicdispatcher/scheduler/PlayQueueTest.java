@@ -0,0 +1,329 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayQueueTest {
+
+    @Test
+    void testHigherTierPlaysFirst() {
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.offer(task("a1", "alice", PlayTier.REQUEST, 0));
+        queue.offer(task("b1", "bob", PlayTier.GIFT, 1));
+        queue.offer(task("a2", "alice", PlayTier.REQUEST, 0));
+
+        assertEquals(List.of("b1", "a1", "a2"), songNames(queue.snapshot()));
+        assertEquals(List.of("b1", "a1", "a2"), drain(queue));
+    }
+
+    @Test
+    void testUsersAreServedRoundRobinWithinTier() {
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.offer(task("a1", "alice", PlayTier.REQUEST, 0));
+        queue.offer(task("a2", "alice", PlayTier.REQUEST, 0));
+        queue.offer(task("a3", "alice", PlayTier.REQUEST, 0));
+        queue.offer(task("b1", "bob", PlayTier.REQUEST, 0));
+        queue.offer(task("c1", "carol", PlayTier.REQUEST, 0));
+
+        assertEquals("a1", queue.poll().getSongName());
+        // 先出队的歌推进了虚拟时钟，后来的用户不会插到已经等待的用户前面
+        queue.offer(task("d1", "dave", PlayTier.REQUEST, 0));
+
+        assertEquals(List.of("b1", "c1", "a2", "d1", "a3"), drain(queue));
+    }
+
+    @Test
+    void testGiftValueWeightsTheTier() {
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.offer(task("s1", "small", PlayTier.GIFT, 1));
+        queue.offer(task("s2", "small", PlayTier.GIFT, 1));
+        queue.offer(task("w1", "whale", PlayTier.GIFT, 10));
+        queue.offer(task("w2", "whale", PlayTier.GIFT, 10));
+        queue.offer(task("w3", "whale", PlayTier.GIFT, 10));
+
+        // 权重 10 的用户每首只推进 0.1，三首都排在权重 1 的用户的第一首之前
+        assertEquals(List.of("w1", "w2", "w3", "s1", "s2"), drain(queue));
+    }
+
+    @Test
+    void testPerUserCap() {
+        PlayQueue queue = new PlayQueue(2, false);
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(task("a1", "alice", PlayTier.REQUEST, 0)));
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(task("a2", "alice", PlayTier.REQUEST, 0)));
+        assertEquals(PlayQueue.OfferResult.REJECTED, queue.offer(task("a3", "alice", PlayTier.REQUEST, 0)));
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(task("b1", "bob", PlayTier.REQUEST, 0)));
+
+        queue.poll();
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(task("a3", "alice", PlayTier.REQUEST, 0)));
+
+        Map<String, Object> stats = queue.getStats();
+        assertEquals(3, stats.get("size"));
+        assertEquals(1L, stats.get("rejectedByCap"));
+        assertEquals(2, stats.get("users"));
+    }
+
+    @Test
+    void testCanAcceptChecksCapWithoutReserving() {
+        PlayQueue queue = new PlayQueue(1, false);
+        assertTrue(queue.canAccept(song(1L, "a", "alice", PlayTier.REQUEST, 0)));
+        queue.offer(song(1L, "a", "alice", PlayTier.REQUEST, 0));
+
+        assertFalse(queue.canAccept(song(2L, "b", "alice", PlayTier.REQUEST, 0)));
+        // 已在排队的歌可以合并，不占名额
+        assertTrue(queue.canAccept(song(1L, "a", "alice", PlayTier.REQUEST, 0)));
+        assertTrue(queue.canAccept(song(2L, "b", "bob", PlayTier.REQUEST, 0)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void testRequesterNameIsUsedWithoutUserId() {
+        PlayQueue queue = new PlayQueue(1, false);
+        PlayTask anonymous = task("x1", null, PlayTier.REQUEST, 0);
+        anonymous.setRequester("访客");
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(anonymous));
+        PlayTask again = task("x2", null, PlayTier.REQUEST, 0);
+        again.setRequester("访客");
+        assertEquals(PlayQueue.OfferResult.REJECTED, queue.offer(again));
+    }
+
+    @Test
+    void testBlockingPollWakesOnOffer() throws Exception {
+        PlayQueue queue = new PlayQueue(0, false);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch polling = new CountDownLatch(1);
+            var result = executor.submit(() -> {
+                polling.countDown();
+                return queue.poll(5, TimeUnit.SECONDS);
+            });
+            polling.await();
+            queue.offer(task("a1", "alice", PlayTier.REQUEST, 0));
+            assertEquals("a1", result.get(5, TimeUnit.SECONDS).getSongName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentProducersKeepEveryTask() throws Exception {
+        PlayQueue queue = new PlayQueue(0, false);
+        int producers = 4;
+        int perProducer = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            CountDownLatch done = new CountDownLatch(producers);
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                executor.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        PlayTier tier = i % 3 == 0 ? PlayTier.GIFT : PlayTier.REQUEST;
+                        queue.offer(task("s" + i, "user" + producer + "-" + (i % 7), tier, i % 5));
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<PlayTask> drained = new ArrayList<>();
+        PlayTask task;
+        while ((task = queue.poll()) != null) {
+            drained.add(task);
+        }
+        assertEquals(producers * perProducer, drained.size());
+        // 送礼档全部排在普通档之前
+        int firstRequest = drained.size();
+        for (int i = 0; i < drained.size(); i++) {
+            if (drained.get(i).getTier() == PlayTier.REQUEST) {
+                firstRequest = Math.min(firstRequest, i);
+            } else {
+                assertTrue(i < firstRequest, "gift task after request task at " + i);
+            }
+        }
+        assertEquals(0, queue.getStats().get("users"));
+    }
+
+    @Test
+    void testDuplicateRequestsMergeIntoQueuedTask() {
+        PlayQueue queue = new PlayQueue(1, false);
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(song(1L, "hit", "alice", PlayTier.REQUEST, 0)));
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(song(2L, "other", "bob", PlayTier.REQUEST, 0)));
+        // 已达上限的用户点已在排队的歌仍可合并
+        assertEquals(PlayQueue.OfferResult.MERGED, queue.offer(song(1L, "hit", "bob", PlayTier.REQUEST, 0)));
+        assertEquals(PlayQueue.OfferResult.MERGED, queue.offer(song(1L, "hit", "carol", PlayTier.REQUEST, 0)));
+
+        assertEquals(2, queue.size());
+        PlayTask hit = queue.poll();
+        assertEquals("hit", hit.getSongName());
+        assertEquals(3, hit.getVotes().sum());
+        assertEquals(Set.of("alice", "bob", "carol"), hit.getRequesters());
+        assertEquals(2L, queue.getStats().get("merged"));
+
+        // 出队后再点是新的一次排队
+        assertEquals(PlayQueue.OfferResult.ADDED, queue.offer(song(1L, "hit", "carol", PlayTier.REQUEST, 0)));
+        assertEquals(List.of("other", "hit"), drain(queue));
+    }
+
+    @Test
+    void testVoteOrderPromotesPopularSongs() {
+        PlayQueue queue = new PlayQueue(0, true);
+        queue.offer(song(1L, "first", "alice", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "second", "bob", PlayTier.REQUEST, 0));
+        queue.offer(song(3L, "third", "carol", PlayTier.REQUEST, 0));
+        queue.offer(song(3L, "third", "dave", PlayTier.REQUEST, 0));
+        queue.offer(song(3L, "third", "erin", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "second", "frank", PlayTier.REQUEST, 0));
+        // 票数不越过档位
+        queue.offer(song(4L, "gift", "grace", PlayTier.GIFT, 1));
+
+        assertEquals(List.of("gift", "third", "second", "first"), songNames(queue.snapshot()));
+        assertEquals(List.of("gift", "third", "second", "first"), drain(queue));
+    }
+
+    @Test
+    void testHigherTierRequestPromotesQueuedSong() {
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.offer(song(1L, "a", "alice", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "b", "bob", PlayTier.REQUEST, 0));
+        queue.offer(song(2L, "b", "whale", PlayTier.GIFT, 100));
+
+        assertEquals(List.of("b", "a"), songNames(queue.snapshot()));
+        Map<String, Object> stats = queue.getStats();
+        assertEquals(1L, stats.get("promoted"));
+        assertEquals(Map.of("GIFT", 1, "REQUEST", 1, "AUTO_DJ", 0), stats.get("tiers"));
+        // 名额已从 bob 转到 whale
+        assertEquals(2, stats.get("users"));
+
+        PlayTask b = queue.poll();
+        assertEquals(PlayTier.GIFT, b.getTier());
+        assertEquals(2, b.getVotes().sum());
+        assertEquals("a", queue.poll().getSongName());
+        assertEquals(0, queue.getStats().get("users"));
+    }
+
+    @Test
+    void testPeekLeavesSongQueuedForLaterRequests() {
+        PlayQueue queue = new PlayQueue(0, false);
+        queue.offer(song(1L, "a", "alice", PlayTier.REQUEST, 0));
+        PlayTask peeked = queue.peek();
+        assertEquals("a", peeked.getSongName());
+
+        // 预取只查看队首，之后的点歌仍可合并到它，更高档的点歌仍可排到它前面
+        assertEquals(PlayQueue.OfferResult.MERGED, queue.offer(song(1L, "a", "bob", PlayTier.REQUEST, 0)));
+        queue.offer(song(2L, "g", "whale", PlayTier.GIFT, 10));
+        assertEquals("g", queue.peek().getSongName());
+        assertEquals(List.of("g", "a"), drain(queue));
+        assertEquals(2, peeked.getVotes().sum());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    void testMergeIntoPlayingSongCountsVoteWithoutQueueing() {
+        PlayQueue queue = new PlayQueue(1, false);
+        queue.offer(song(1L, "a", "alice", PlayTier.REQUEST, 0));
+        PlayTask playing = queue.poll();
+        List<String> merged = new ArrayList<>();
+        queue.setListener(new PlayQueue.Listener() {
+            @Override
+            public void onAdded(PlayTask task) {
+            }
+
+            @Override
+            public void onMerged(PlayTask target, PlayTask request) {
+                merged.add(request.getRequester());
+            }
+
+            @Override
+            public void onPolled(PlayTask task) {
+            }
+        });
+
+        queue.mergeIntoPlaying(playing, song(1L, "a", "bob", PlayTier.REQUEST, 0));
+
+        assertEquals(2, playing.getVotes().sum());
+        assertEquals(Set.of("alice", "bob"), playing.getRequesters());
+        assertEquals(List.of("bob"), merged);
+        assertEquals(0, queue.size());
+        assertEquals(1L, queue.getStats().get("merged"));
+    }
+
+    @Test
+    void testConcurrentDuplicateRequestsAreAllCounted() throws Exception {
+        PlayQueue queue = new PlayQueue(0, false);
+        int threads = 4;
+        int perThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                executor.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        queue.offer(song((long) (i % 10), "s" + (i % 10), "user" + thread + "-" + i, PlayTier.REQUEST, 0));
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(10, queue.size());
+        long votes = 0;
+        PlayTask task;
+        while ((task = queue.poll()) != null) {
+            votes += task.getVotes().sum();
+        }
+        assertEquals(threads * perThread, votes);
+    }
+
+    private static PlayTask song(Long musicId, String songName, String userId, PlayTier tier, long giftValue) {
+        PlayTask task = task(songName, userId, tier, giftValue);
+        task.setMusicId(musicId);
+        return task;
+    }
+
+    private static PlayTask task(String songName, String userId, PlayTier tier, long giftValue) {
+        return PlayTask.builder()
+                .songName(songName)
+                .requester(userId)
+                .requesterId(userId)
+                .tier(tier)
+                .giftValue(giftValue)
+                .build();
+    }
+
+    private static List<String> drain(PlayQueue queue) {
+        List<String> names = new ArrayList<>();
+        PlayTask task;
+        while ((task = queue.poll()) != null) {
+            names.add(task.getSongName());
+        }
+        return names;
+    }
+
+    private static List<String> songNames(List<PlayTask> tasks) {
+        List<String> names = new ArrayList<>();
+        for (PlayTask task : tasks) {
+            names.add(task.getSongName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.aimusicdispatcher.scheduler;
+
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import com.example.aimusicdispatcher.generator.GeminiService;
+import com.example.aimusicdispatcher.generator.TextCleaningService;
+import com.example.aimusicdispatcher.generator.TtsService;
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.model.playlist.PlayTier;
+import com.example.aimusicdispatcher.player.AudioOutput;
+import com.example.aimusicdispatcher.player.PreparedTrack;
+import com.example.aimusicdispatcher.service.IntroCacheStore;
+import com.example.aimusicdispatcher.service.PlayStatsRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PlaybackWorkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FakeAudioOutput audioOutput = new FakeAudioOutput();
+    private PlaybackProperties playbackProperties;
+    private PlaybackWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        playbackProperties = new PlaybackProperties();
+        playbackProperties.setQueueJournalPath("");
+        playbackProperties.setPrefetchLeadMillis(0);
+        playbackProperties.setIntroWaitMillis(300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            worker.destroy();
+        }
+    }
+
+    @Test
+    void testLateIntroIsSkippedAfterWait() throws Exception {
+        start();
+        PlayTask task = song(1L, "song");
+        task.setIntroFuture(new CompletableFuture<>());
+        long added = System.nanoTime();
+        worker.addPlayTask(task);
+
+        audioOutput.awaitPlayed(task.getSongFilePath());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(audioOutput.startedAt(task.getSongFilePath()) - added);
+        // 口播一直未就绪：最多等待 intro-wait-millis，之后只播放歌曲
+        assertTrue(waitedMillis >= 250, "waited " + waitedMillis + " ms");
+        assertEquals(List.of(task.getSongFilePath()), audioOutput.played());
+    }
+
+    @Test
+    void testFailedIntroPlaysSongWithoutIntro() throws Exception {
+        playbackProperties.setIntroWaitMillis(10000);
+        start();
+        PlayTask task = song(1L, "song");
+        task.setIntroFuture(CompletableFuture.failedFuture(new IllegalStateException("tts down")));
+        long added = System.nanoTime();
+        worker.addPlayTask(task);
+
+        audioOutput.awaitPlayed(task.getSongFilePath());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(audioOutput.startedAt(task.getSongFilePath()) - added);
+        // 生成失败时不等到超时
+        assertTrue(waitedMillis < 5000, "waited " + waitedMillis + " ms");
+        assertEquals(List.of(task.getSongFilePath()), audioOutput.played());
+    }
+
+    @Test
+    void testIntroReadyWithinWaitIsPlayedFirst() throws Exception {
+        playbackProperties.setIntroWaitMillis(10000);
+        start();
+        String intro = file("intro");
+        PlayTask task = song(1L, "song");
+        CompletableFuture<String> introFuture = new CompletableFuture<>();
+        task.setIntroFuture(introFuture);
+        worker.addPlayTask(task);
+        CompletableFuture.runAsync(() -> introFuture.complete(intro),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+        audioOutput.awaitPlayed(task.getSongFilePath());
+        assertEquals(List.of(intro, task.getSongFilePath()), audioOutput.played());
+    }
+
+    @Test
+    void testRemainingTimeStartsWhenSongStartsAfterIntro() throws Exception {
+        start();
+        String intro = file("intro");
+        PlayTask task = song(1L, "song");
+        task.setIntroAudioPath(intro);
+        task.setDurationMillis(60000L);
+        audioOutput.hold(intro);
+        audioOutput.hold(task.getSongFilePath());
+        worker.addPlayTask(task);
+
+        audioOutput.awaitPlayed(intro);
+        Thread.sleep(300);
+        // 口播期间歌曲还没开始，剩余时长是歌曲的完整时长
+        assertEquals(60000L, worker.getCurrentRemainingMillis());
+
+        audioOutput.release(intro);
+        audioOutput.awaitPlayed(task.getSongFilePath());
+        Thread.sleep(200);
+        long remaining = worker.getCurrentRemainingMillis();
+        assertTrue(remaining < 60000L && remaining > 59000L, "remaining " + remaining);
+        audioOutput.release(task.getSongFilePath());
+    }
+
+    @Test
+    void testPrefetchedTrackIsPlayedAtSwitch() throws Exception {
+        playbackProperties.setPrefetchLeadMillis(120000);
+        start();
+        PlayTask current = playing(song(1L, "current"));
+        PlayTask next = song(2L, "next");
+        worker.addPlayTask(next);
+
+        awaitCondition(() -> audioOutput.prepared.contains(next.getSongFilePath()));
+        // 预取只查看队首，歌曲仍在队列中
+        assertEquals(List.of(next), worker.getUpcomingTasks());
+        audioOutput.release(current.getSongFilePath());
+
+        audioOutput.awaitPlayed(next.getSongFilePath());
+        assertEquals(List.of(next.getSongFilePath()), audioOutput.preparedPlayed);
+        assertTrue(audioOutput.cancelled.isEmpty());
+    }
+
+    @Test
+    void testOutrankedPrefetchIsCancelled() throws Exception {
+        playbackProperties.setPrefetchLeadMillis(120000);
+        start();
+        PlayTask current = playing(song(1L, "current"));
+        PlayTask request = song(2L, "request");
+        worker.addPlayTask(request);
+        awaitCondition(() -> audioOutput.prepared.contains(request.getSongFilePath()));
+
+        PlayTask gift = song(3L, "gift");
+        gift.setTier(PlayTier.GIFT);
+        gift.setGiftValue(10);
+        gift.setRequesterId("whale");
+        worker.addPlayTask(gift);
+        // 送礼档插到队首：改为预备它，原先预备的音频作废
+        awaitCondition(() -> audioOutput.prepared.contains(gift.getSongFilePath()));
+        assertEquals(List.of(request.getSongFilePath()), audioOutput.cancelled);
+        audioOutput.release(current.getSongFilePath());
+
+        audioOutput.awaitPlayed(request.getSongFilePath());
+        assertEquals(List.of(current.getSongFilePath(), gift.getSongFilePath(), request.getSongFilePath()),
+                audioOutput.played());
+        assertEquals(gift.getSongFilePath(), audioOutput.preparedPlayed.get(0));
+    }
+
+    @Test
+    void testNoPrefetchWhileDurationUnknown() throws Exception {
+        playbackProperties.setPrefetchLeadMillis(120000);
+        start();
+        PlayTask current = song(1L, "current");
+        audioOutput.hold(current.getSongFilePath());
+        worker.addPlayTask(current);
+        audioOutput.awaitPlayed(current.getSongFilePath());
+        worker.addPlayTask(song(2L, "next"));
+
+        Thread.sleep(600);
+        assertTrue(audioOutput.prepared.isEmpty());
+        audioOutput.release(current.getSongFilePath());
+    }
+
+    @Test
+    void testDestroyCancelsPrefetchedTrack() throws Exception {
+        playbackProperties.setPrefetchLeadMillis(120000);
+        start();
+        playing(song(1L, "current"));
+        PlayTask next = song(2L, "next");
+        worker.addPlayTask(next);
+        awaitCondition(() -> audioOutput.prepared.contains(next.getSongFilePath()));
+
+        worker.destroy();
+        worker = null;
+        assertEquals(List.of(next.getSongFilePath()), audioOutput.cancelled);
+        assertFalse(audioOutput.preparedPlayed.contains(next.getSongFilePath()));
+    }
+
+    /**
+     * 让任务开始播放并停在歌曲上，时长已知
+     */
+    private PlayTask playing(PlayTask task) throws InterruptedException {
+        task.setDurationMillis(60000L);
+        audioOutput.hold(task.getSongFilePath());
+        worker.addPlayTask(task);
+        audioOutput.awaitPlayed(task.getSongFilePath());
+        return task;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met");
+            Thread.sleep(20);
+        }
+    }
+
+    private void start() {
+        worker = new PlaybackWorker(mock(IntroCacheStore.class), mock(GeminiService.class), mock(TtsService.class),
+                new TextCleaningService(), playbackProperties, mock(ColdFillScheduler.class),
+                mock(PlayStatsRecorder.class), audioOutput);
+        worker.init();
+    }
+
+    private PlayTask song(Long musicId, String name) throws IOException {
+        return PlayTask.builder()
+                .musicId(musicId)
+                .songName(name)
+                .songFilePath(file(name))
+                .requester("alice")
+                .requesterId("alice")
+                .build();
+    }
+
+    private String file(String name) throws IOException {
+        Path path = tempDir.resolve(name + ".mp3");
+        if (!Files.exists(path)) {
+            Files.write(path, new byte[]{1});
+        }
+        return path.toString();
+    }
+
+    /**
+     * 记录播放顺序的音频输出；登记过的文件播放时阻塞到被放行
+     */
+    static final class FakeAudioOutput implements AudioOutput {
+
+        private final List<String> played = new CopyOnWriteArrayList<>();
+        private final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+        private final Map<String, CountDownLatch> playedLatches = new ConcurrentHashMap<>();
+        private final Map<String, CountDownLatch> holds = new ConcurrentHashMap<>();
+        final List<String> prepared = new CopyOnWriteArrayList<>();
+        final List<String> preparedPlayed = new CopyOnWriteArrayList<>();
+        final List<String> cancelled = new CopyOnWriteArrayList<>();
+
+        /**
+         * 播放该文件时阻塞，直到 release
+         */
+        void hold(String filePath) {
+            holds.put(filePath, new CountDownLatch(1));
+        }
+
+        void release(String filePath) {
+            holds.get(filePath).countDown();
+        }
+
+        @Override
+        public void play(String filePath) {
+            startedAt.putIfAbsent(filePath, System.nanoTime());
+            played.add(filePath);
+            latch(filePath).countDown();
+            CountDownLatch hold = holds.get(filePath);
+            if (hold != null) {
+                try {
+                    hold.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public PreparedTrack prepare(String filePath) {
+            prepared.add(filePath);
+            return new PreparedTrack() {
+                @Override
+                public void play() {
+                    preparedPlayed.add(filePath);
+                    FakeAudioOutput.this.play(filePath);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.add(filePath);
+                }
+            };
+        }
+
+        @Override
+        public void play(InputStream audio) {
+            try (audio) {
+                audio.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            played.add("stream");
+        }
+
+        @Override
+        public Map<String, Object> getStats() {
+            return Map.of();
+        }
+
+        List<String> played() {
+            return List.copyOf(played);
+        }
+
+        long startedAt(String filePath) {
+            return startedAt.get(filePath);
+        }
+
+        void awaitPlayed(String filePath) throws InterruptedException {
+            assertTrue(latch(filePath).await(10, TimeUnit.SECONDS), "not played: " + filePath);
+        }
+
+        private CountDownLatch latch(String filePath) {
+            return playedLatches.computeIfAbsent(filePath, k -> new CountDownLatch(1));
+        }
+    }
+}
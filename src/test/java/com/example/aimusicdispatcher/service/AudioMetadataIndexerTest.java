@@ -0,0 +1,101 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.MatchProperties;
+import com.example.aimusicdispatcher.config.MusicProperties;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.repository.MusicLibraryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AudioMetadataIndexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private MusicCatalog musicCatalog;
+    private AudioMetadataIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        musicCatalog = new MusicCatalog(mock(MusicLibraryRepository.class), new MatchProperties());
+        MusicProperties musicProperties = new MusicProperties();
+        musicProperties.setMetadataParallelism(1);
+        indexer = new AudioMetadataIndexer(jdbcTemplate, musicCatalog, musicProperties);
+    }
+
+    @Test
+    void testIndexSongsOnlyReadsGivenSongsAndSharesOtherIndexes() throws IOException {
+        Path wav = writeWav(tempDir.resolve("one.wav"));
+        musicCatalog.rebuild(List.of(
+                song(1L, "one", wav.toString()),
+                song(2L, "two", tempDir.resolve("two.wav").toString())));
+        CatalogSnapshot before = musicCatalog.getSnapshot();
+
+        assertEquals(1, indexer.indexSongs(List.of(1L)));
+
+        CatalogSnapshot after = musicCatalog.getSnapshot();
+        assertEquals(2000, after.durationMillisAt(after.indexOfId(1L)));
+        assertEquals(-1, before.durationMillisAt(before.indexOfId(1L)));
+        // 未指定的歌曲不读取
+        assertEquals(1L, indexer.getStats().get("filesRead"));
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testRemovedSongsAreDroppedFromUnreadable() {
+        musicCatalog.rebuild(List.of(
+                song(1L, "gone", tempDir.resolve("gone.mp3").toString()),
+                song(2L, "broken", tempDir.resolve("broken.mp3").toString())));
+
+        assertEquals(0, indexer.indexMissing(false));
+        assertEquals(2, indexer.getStats().get("unreadableSongs"));
+
+        musicCatalog.applyChanges(List.of(), Set.of("gone"));
+        indexer.forget(List.of(1L));
+        assertEquals(1, indexer.getStats().get("unreadableSongs"));
+        // 增量索引跳过仍无法解析的歌曲
+        assertEquals(0, indexer.indexMissing(false));
+        assertEquals(2L, indexer.getStats().get("filesRead"));
+    }
+
+    private static Path writeWav(Path file) throws IOException {
+        // 44100 Hz, 16 bit, 立体声，2 秒
+        int byteRate = 44100 * 2 * 2;
+        int dataSize = byteRate * 2;
+        ByteBuffer header = ByteBuffer.allocate(12 + 8 + 16 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(4 + 8 + 16 + 8 + dataSize).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(44100).putInt(byteRate)
+                .putShort((short) 4).putShort((short) 16);
+        header.put("data".getBytes()).putInt(dataSize);
+        byte[] bytes = new byte[header.capacity() + dataSize];
+        System.arraycopy(header.array(), 0, bytes, 0, header.capacity());
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static MusicLibrary song(Long id, String name, String path) {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(id);
+        music.setSongName(name);
+        music.setFilePath(path);
+        return music;
+    }
+}
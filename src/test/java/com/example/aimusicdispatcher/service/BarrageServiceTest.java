@@ -0,0 +1,90 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.dispatcher.BarrageFilterService;
+import com.example.aimusicdispatcher.entity.IntroCache;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.model.barrage.BarrageRequest;
+import com.example.aimusicdispatcher.model.playlist.PlayTask;
+import com.example.aimusicdispatcher.scheduler.PlayQueue;
+import com.example.aimusicdispatcher.scheduler.PlaybackWorker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BarrageServiceTest {
+
+    private MusicCatalog musicCatalog;
+    private IntroCacheStore introCacheStore;
+    private IntroService introService;
+    private PlaybackWorker playbackWorker;
+    private BarrageService barrageService;
+
+    @BeforeEach
+    void setUp() {
+        musicCatalog = mock(MusicCatalog.class);
+        introCacheStore = mock(IntroCacheStore.class);
+        introService = mock(IntroService.class);
+        playbackWorker = mock(PlaybackWorker.class);
+        when(musicCatalog.findBySongName("晴天")).thenReturn(Optional.of(music()));
+        when(introCacheStore.findByMusicId(1L)).thenReturn(Optional.empty());
+        when(playbackWorker.canAccept(any())).thenReturn(true);
+        when(playbackWorker.addPlayTask(any())).thenReturn(PlayQueue.OfferResult.ADDED);
+        barrageService = new BarrageService(new BarrageFilterService(), musicCatalog, introCacheStore, introService,
+                playbackWorker, mock(PermissionService.class));
+    }
+
+    @Test
+    void testCacheMissEnqueuesBeforeIntroIsReady() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        when(introService.generateIntro(any(), any())).thenReturn(pending);
+
+        assertEquals(Optional.of(PlayQueue.OfferResult.ADDED), barrageService.processBarrage(request()));
+
+        // 口播仍在生成，点歌已入队，口播随任务延迟绑定
+        ArgumentCaptor<PlayTask> task = ArgumentCaptor.forClass(PlayTask.class);
+        verify(playbackWorker).addPlayTask(task.capture());
+        assertSame(pending, task.getValue().getIntroFuture());
+        assertFalse(task.getValue().getIntroFuture().isDone());
+        assertNull(task.getValue().getIntroAudioPath());
+        assertFalse(task.getValue().isIntroReady());
+    }
+
+    @Test
+    void testCacheHitCarriesIntroPath() {
+        IntroCache intro = new IntroCache();
+        intro.setMusicId(1L);
+        intro.setAudioPath("intro_1.mp3");
+        when(introCacheStore.findByMusicId(1L)).thenReturn(Optional.of(intro));
+
+        barrageService.processBarrage(request());
+
+        ArgumentCaptor<PlayTask> task = ArgumentCaptor.forClass(PlayTask.class);
+        verify(playbackWorker).addPlayTask(task.capture());
+        assertEquals("intro_1.mp3", task.getValue().getIntroAudioPath());
+        verify(introService, never()).generateIntro(any(), any());
+    }
+
+    private static BarrageRequest request() {
+        BarrageRequest request = new BarrageRequest();
+        request.setUser("alice");
+        request.setUserId("u1");
+        request.setContent("点歌 晴天");
+        request.setSongName("晴天");
+        return request;
+    }
+
+    private static MusicLibrary music() {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(1L);
+        music.setSongName("晴天");
+        music.setFilePath("/music/qingtian.mp3");
+        return music;
+    }
+}
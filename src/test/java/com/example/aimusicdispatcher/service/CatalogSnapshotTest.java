@@ -0,0 +1,160 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.util.TitleNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotTest {
+
+    @Test
+    void testExactAndNormalizedLookup() {
+        CatalogSnapshot snapshot = CatalogSnapshot.build(List.of(
+                song(1L, "奢香夫人", "/music/奢香夫人.mp3"),
+                song(2L, "Love Story", "/music/en/Love Story.wav"),
+                song(3L, "稻香", "/elsewhere/daoxiang_final.mp3")));
+
+        assertEquals(0, snapshot.indexOfName("奢香夫人"));
+        assertEquals(-1, snapshot.indexOfName("奢香夫人~~"));
+        assertEquals(0, snapshot.indexOfNormalizedKey(TitleNormalizer.normalize("《奢香夫人》~~")));
+        assertEquals(1, snapshot.indexOfNormalizedKey(TitleNormalizer.normalize("ＬＯＶＥ  ｓｔｏｒｙ")));
+        assertEquals(-1, snapshot.indexOfName("不存在的歌"));
+
+        MusicLibrary music = snapshot.toMusicLibrary(1);
+        assertEquals(2L, music.getId());
+        assertEquals("Love Story", music.getSongName());
+        assertEquals("/music/en/Love Story.wav", music.getFilePath());
+        // 不符合 "目录/歌名.扩展名" 规则的路径原样保存
+        assertEquals("/elsewhere/daoxiang_final.mp3", snapshot.filePathAt(2));
+    }
+
+    @Test
+    void testFiftyThousandSongsFitInFewMegabytes() {
+        List<MusicLibrary> songs = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            String name = "测试歌曲第" + i + "号";
+            songs.add(song((long) i, name, "/music/dir" + (i % 100) + "/" + name + ".mp3"));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.build(songs);
+
+        assertEquals(50000, snapshot.size());
+        assertEquals(12345, snapshot.indexOfName("测试歌曲第12345号"));
+        assertTrue(snapshot.estimatedBytes() < 8L * 1024 * 1024, "Snapshot too large: " + snapshot.estimatedBytes());
+    }
+
+    @Test
+    void testIncrementalChangesMatchFullRebuild() {
+        // 小目录很快触发 char 池压缩，大目录触发模糊索引叠加层的重建
+        assertIncrementalChangesMatchFullRebuild(20);
+        assertIncrementalChangesMatchFullRebuild(500);
+    }
+
+    private static void assertIncrementalChangesMatchFullRebuild(int initialSize) {
+        Random random = new Random(42);
+        Map<String, MusicLibrary> library = new LinkedHashMap<>();
+        for (int i = 0; i < initialSize; i++) {
+            String name = "歌曲" + i;
+            library.put(name, song((long) i, name, "/music/" + name + ".mp3"));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.build(new ArrayList<>(library.values()));
+        CatalogSnapshot original = snapshot;
+        long nextId = 1000;
+
+        for (int round = 0; round < 200; round++) {
+            List<MusicLibrary> upserted = new ArrayList<>();
+            Set<String> removed = new HashSet<>();
+            List<String> names = new ArrayList<>(library.keySet());
+            for (int k = 0; k < 3; k++) {
+                String name = names.get(random.nextInt(names.size()));
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        if (!upserted.removeIf(song -> song.getSongName().equals(name))) {
+                            removed.add(name);
+                        }
+                        library.remove(name);
+                    }
+                    case 1 -> {
+                        // 路径变化（移动到其他目录或改为不规则路径）
+                        String path = random.nextBoolean() ? "/moved" + round + "/" + name + ".wav" : "/odd/" + round + ".mp3";
+                        MusicLibrary moved = song(library.containsKey(name) ? library.get(name).getId() : nextId++, name, path);
+                        removed.remove(name);
+                        upserted.removeIf(song -> song.getSongName().equals(name));
+                        upserted.add(moved);
+                        library.put(name, moved);
+                    }
+                    default -> {
+                        String added = "新歌" + round + "_" + k;
+                        MusicLibrary song = song(nextId++, added, "/music/" + added + ".mp3");
+                        upserted.add(song);
+                        library.put(added, song);
+                    }
+                }
+            }
+            snapshot = snapshot.withChanges(upserted, removed);
+            assertSameContent(CatalogSnapshot.build(new ArrayList<>(library.values())), snapshot, library);
+        }
+        // 增量变更在副本上进行，旧快照不受影响
+        assertEquals(initialSize, original.size());
+        assertEquals(7, original.indexOfName("歌曲7"));
+        assertEquals("/music/歌曲7.mp3", original.filePathAt(7));
+    }
+
+    @Test
+    void testIncrementalChangesKeepFuzzyMatching() {
+        CatalogSnapshot snapshot = CatalogSnapshot.build(List.of(
+                song(1L, "奢香夫人", "/music/奢香夫人.mp3"),
+                song(2L, "稻香", "/music/稻香.mp3"),
+                song(3L, "七里香", "/music/七里香.mp3")));
+
+        CatalogSnapshot changed = snapshot.withChanges(
+                List.of(song(4L, "夜曲", "/music/夜曲.mp3")), Set.of("奢香夫人"));
+
+        assertNull(changed.fuzzyMatch(TitleNormalizer.normalize("奢香夫仁"), 0.6, 64));
+        TitleMatchIndex.Match added = changed.fuzzyMatch(TitleNormalizer.normalize("夜曲啊"), 0.6, 64);
+        assertNotNull(added);
+        assertEquals("夜曲", changed.songNameAt(added.index()));
+        // 七里香从最后一位移到了被删除歌曲的下标
+        TitleMatchIndex.Match moved = changed.fuzzyMatch(TitleNormalizer.normalize("七里香啊"), 0.6, 64);
+        assertNotNull(moved);
+        assertEquals("七里香", changed.songNameAt(moved.index()));
+        assertEquals(moved.index(), changed.indexOfId(3L));
+        assertEquals(-1, changed.indexOfId(1L));
+    }
+
+    private static void assertSameContent(CatalogSnapshot expected, CatalogSnapshot actual, Map<String, MusicLibrary> library) {
+        assertEquals(expected.size(), actual.size());
+        int checked = 0;
+        for (MusicLibrary song : library.values()) {
+            int index = actual.indexOfName(song.getSongName());
+            assertTrue(index >= 0, "missing " + song.getSongName());
+            assertEquals(song.getId(), actual.idAt(index));
+            assertEquals(song.getFilePath(), actual.filePathAt(index));
+            assertEquals(index, actual.indexOfId(song.getId()));
+            assertEquals(index, actual.indexOfNormalizedKey(TitleNormalizer.normalize(song.getSongName())));
+            if (checked++ % 16 != 0) {
+                continue;
+            }
+            TitleMatchIndex.Match match = actual.fuzzyMatch(TitleNormalizer.normalize(song.getSongName()), 0.6, 64);
+            assertNotNull(match);
+            assertEquals(song.getSongName(), actual.songNameAt(match.index()));
+        }
+        assertEquals(-1, actual.indexOfName("不存在的歌"));
+    }
+
+    private static MusicLibrary song(Long id, String name, String path) {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(id);
+        music.setSongName(name);
+        music.setFilePath(path);
+        return music;
+    }
+}
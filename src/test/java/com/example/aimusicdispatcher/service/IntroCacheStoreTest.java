@@ -0,0 +1,148 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.IntroProperties;
+import com.example.aimusicdispatcher.config.TtsProperties;
+import com.example.aimusicdispatcher.entity.IntroCache;
+import com.example.aimusicdispatcher.generator.TtsAudioStore;
+import com.example.aimusicdispatcher.repository.IntroCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class IntroCacheStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IntroCacheRepository introCacheRepository;
+    private IntroCacheStore store;
+    private TtsAudioStore ttsAudioStore;
+
+    @BeforeEach
+    void setUp() {
+        introCacheRepository = mock(IntroCacheRepository.class);
+        when(introCacheRepository.save(any(IntroCache.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        TtsProperties ttsProperties = new TtsProperties();
+        ttsProperties.setOutputDir(tempDir.resolve("tts").toString());
+        ttsAudioStore = new TtsAudioStore(ttsProperties);
+        ttsAudioStore.init();
+        store = new IntroCacheStore(introCacheRepository, ttsAudioStore, new IntroProperties());
+    }
+
+    @Test
+    void testBulkLoadedEntriesAreServedFromMemory() throws IOException {
+        Path audio = Files.createFile(tempDir.resolve("intro_1.mp3"));
+        when(introCacheRepository.findAll()).thenReturn(List.of(intro(10L, 1L, audio.toString())));
+        store.init();
+
+        Optional<IntroCache> found = store.findByMusicId(1L);
+
+        assertTrue(found.isPresent());
+        assertEquals(audio.toString(), found.get().getAudioPath());
+        verify(introCacheRepository, never()).findByMusicId(anyLong());
+    }
+
+    @Test
+    void testMissingAudioFileIsTreatedAsMiss() {
+        when(introCacheRepository.findAll()).thenReturn(List.of(intro(10L, 1L, tempDir.resolve("gone.mp3").toString())));
+        store.init();
+
+        assertTrue(store.findByMusicId(1L).isEmpty());
+        assertEquals(1L, store.getStats().get("staleFiles"));
+    }
+
+    @Test
+    void testSaveUpdatesExistingRowAndRefreshesCache() throws IOException {
+        Path oldAudio = Files.createFile(tempDir.resolve("intro_old.mp3"));
+        Path newAudio = Files.createFile(tempDir.resolve("intro_new.mp3"));
+        when(introCacheRepository.findAll()).thenReturn(List.of(intro(10L, 1L, oldAudio.toString())));
+        store.init();
+
+        IntroCache saved = store.save(intro(null, 1L, newAudio.toString()));
+
+        assertEquals(10L, saved.getId());
+        assertEquals(newAudio.toString(), store.findByMusicId(1L).orElseThrow().getAudioPath());
+    }
+
+    @Test
+    void testUncachedEntryFallsBackToRepository() throws IOException {
+        Path audio = Files.createFile(tempDir.resolve("intro_2.mp3"));
+        when(introCacheRepository.findAll()).thenReturn(List.of());
+        when(introCacheRepository.findByMusicId(2L)).thenReturn(Optional.of(intro(20L, 2L, audio.toString())));
+        store.init();
+
+        assertTrue(store.findByMusicId(2L).isPresent());
+        assertTrue(store.findByMusicId(2L).isPresent());
+        verify(introCacheRepository, times(1)).findByMusicId(2L);
+    }
+
+    @Test
+    void testEachSongHoldsOnePinOnItsCurrentAudio() throws IOException {
+        Path oldAudio = Files.createFile(tempDir.resolve("intro_old.mp3"));
+        Path newAudio = Files.createFile(tempDir.resolve("intro_new.mp3"));
+        when(introCacheRepository.findAll()).thenReturn(List.of(intro(10L, 1L, oldAudio.toString())));
+        store.init();
+        assertEquals(1, ttsAudioStore.getStats().get("pinned"));
+
+        // 路径未变的重复保存不会再 pin 一次
+        store.save(intro(null, 1L, oldAudio.toString()));
+        store.save(intro(null, 1L, oldAudio.toString()));
+        // 换成新音频后旧音频的 pin 全部释放
+        store.save(intro(null, 1L, newAudio.toString()));
+
+        assertEquals(1, ttsAudioStore.getStats().get("pinned"));
+        store.save(intro(null, 1L, oldAudio.toString()));
+        assertEquals(1, ttsAudioStore.getStats().get("pinned"));
+    }
+
+    @Test
+    void testMissIsRememberedUntilSaved() throws IOException {
+        Path audio = Files.createFile(tempDir.resolve("intro_3.mp3"));
+        when(introCacheRepository.findAll()).thenReturn(List.of());
+        when(introCacheRepository.findByMusicId(3L)).thenReturn(Optional.empty());
+        store.init();
+
+        assertTrue(store.findByMusicId(3L).isEmpty());
+        assertTrue(store.findByMusicId(3L).isEmpty());
+        verify(introCacheRepository, times(1)).findByMusicId(3L);
+        assertEquals(1L, store.getStats().get("negativeHits"));
+
+        store.save(intro(null, 3L, audio.toString()));
+        assertEquals(audio.toString(), store.findByMusicId(3L).orElseThrow().getAudioPath());
+    }
+
+    @Test
+    void testNegativeCacheCanBeDisabled() {
+        IntroProperties introProperties = new IntroProperties();
+        introProperties.setNegativeCacheSeconds(0);
+        TtsProperties ttsProperties = new TtsProperties();
+        ttsProperties.setOutputDir(tempDir.resolve("tts").toString());
+        TtsAudioStore ttsAudioStore = new TtsAudioStore(ttsProperties);
+        ttsAudioStore.init();
+        store = new IntroCacheStore(introCacheRepository, ttsAudioStore, introProperties);
+        when(introCacheRepository.findByMusicId(3L)).thenReturn(Optional.empty());
+
+        assertTrue(store.findByMusicId(3L).isEmpty());
+        assertTrue(store.findByMusicId(3L).isEmpty());
+        verify(introCacheRepository, times(2)).findByMusicId(3L);
+    }
+
+    private static IntroCache intro(Long id, Long musicId, String audioPath) {
+        IntroCache intro = new IntroCache();
+        intro.setId(id);
+        intro.setMusicId(musicId);
+        intro.setAudioPath(audioPath);
+        return intro;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.IntroProperties;
+import com.example.aimusicdispatcher.entity.IntroCache;
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.generator.GeminiService;
+import com.example.aimusicdispatcher.generator.TextCleaningService;
+import com.example.aimusicdispatcher.generator.TtsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class IntroServiceTest {
+
+    private IntroCacheStore introCacheStore;
+    private GeminiService geminiService;
+    private TtsService ttsService;
+    private IntroService introService;
+    private final AtomicReference<IntroCache> savedIntro = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        introCacheStore = mock(IntroCacheStore.class);
+        geminiService = mock(GeminiService.class);
+        ttsService = mock(TtsService.class);
+        when(introCacheStore.findByMusicId(anyLong())).thenAnswer(invocation -> Optional.ofNullable(savedIntro.get()));
+        when(introCacheStore.save(any(IntroCache.class))).thenAnswer(invocation -> {
+            savedIntro.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(ttsService.generateAudioFile(anyString(), anyLong(), any())).thenReturn("intro_1.mp3");
+        introService = new IntroService(introCacheStore, geminiService, ttsService, new TextCleaningService(),
+                new IntroProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        introService.shutdown();
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneGeneration() throws Exception {
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(geminiService.generateIntroText(anyString(), anyString())).thenAnswer(invocation -> {
+            generating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "欢迎点歌";
+        });
+        MusicLibrary music = music();
+
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] results = new Future<?>[requests];
+            for (int i = 0; i < requests; i++) {
+                String requester = "user" + i;
+                results[i] = executor.submit(() -> {
+                    start.await();
+                    return introService.generateIntro(music, requester);
+                });
+            }
+            start.countDown();
+            assertTrue(generating.await(5, TimeUnit.SECONDS));
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+            release.countDown();
+            for (Future<?> result : results) {
+                assertEquals("intro_1.mp3", ((CompletableFuture<?>) result.get()).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(geminiService, times(1)).generateIntroText(anyString(), anyString());
+        verify(ttsService, times(1)).generateAudioFile(anyString(), anyLong(), any());
+        assertEquals(1L, introService.getStats().get("generationsStarted"));
+        assertEquals(0, introService.getStats().get("inFlight"));
+    }
+
+    @Test
+    void testRequestAfterSaveUsesCachedIntro() throws Exception {
+        when(geminiService.generateIntroText(anyString(), anyString())).thenReturn("欢迎点歌");
+        MusicLibrary music = music();
+
+        assertEquals("intro_1.mp3", introService.generateIntro(music, "alice").get(5, TimeUnit.SECONDS));
+        // 调用方在写入前查的缓存未命中，占位移除后才发起请求：直接复用已写入的口播
+        assertEquals("intro_1.mp3", introService.generateIntro(music, "bob").get(5, TimeUnit.SECONDS));
+
+        verify(geminiService, times(1)).generateIntroText(anyString(), anyString());
+        assertEquals(1L, introService.getStats().get("generationsStarted"));
+    }
+
+    private static MusicLibrary music() {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(1L);
+        music.setSongName("晴天");
+        return music;
+    }
+}
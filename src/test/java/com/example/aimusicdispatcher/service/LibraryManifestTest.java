@@ -0,0 +1,65 @@
+package com.example.aimusicdispatcher.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testScanKeepsOnlyAudioFiles() throws IOException {
+        Path musicDir = Files.createDirectory(tempDir.resolve("music"));
+        Files.createFile(musicDir.resolve("Daoxiang.mp3"));
+        Files.createDirectories(musicDir.resolve("sub"));
+        Files.createFile(musicDir.resolve("sub").resolve("Yequ.wav"));
+        Files.createFile(musicDir.resolve("cover.jpg"));
+
+        LibraryManifest.ScanResult result = LibraryManifest.empty().scan(musicDir);
+
+        assertEquals(2, result.songs().size());
+        assertEquals(musicDir.resolve("Daoxiang.mp3").toAbsolutePath().toString(), result.songs().get("Daoxiang"));
+        assertTrue(result.songs().containsKey("Yequ"));
+        assertEquals(2, result.listed());
+        assertEquals(0, result.reused());
+    }
+
+    @Test
+    void testUnchangedDirectoriesAreReusedAfterReload() throws IOException {
+        Path musicDir = Files.createDirectory(tempDir.resolve("music"));
+        Path album = Files.createDirectory(musicDir.resolve("album"));
+        Files.createFile(musicDir.resolve("Daoxiang.mp3"));
+        Files.createFile(album.resolve("Yequ.mp3"));
+        Path manifestFile = tempDir.resolve("library.manifest");
+
+        LibraryManifest first = LibraryManifest.empty().scan(musicDir).manifest()
+                .withSongIds((songName, filePath) -> songName.equals("Yequ") ? 42L : 0L);
+        first.write(manifestFile);
+
+        // 只有 album 目录发生变化
+        Files.createFile(album.resolve("Qingtian.mp3"));
+        Files.setLastModifiedTime(album, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        LibraryManifest.ScanResult second = LibraryManifest.read(manifestFile).scan(musicDir);
+        assertEquals(1, second.reused());
+        assertEquals(1, second.listed());
+        assertEquals(3, second.songs().size());
+        assertTrue(second.songs().containsKey("Qingtian"));
+        assertEquals(2, second.manifest().directoryCount());
+    }
+
+    @Test
+    void testCorruptManifestIsIgnored() throws IOException {
+        Path manifestFile = Files.writeString(tempDir.resolve("library.manifest"), "not a manifest");
+        assertEquals(0, LibraryManifest.read(manifestFile).directoryCount());
+        assertEquals(0, LibraryManifest.read(tempDir.resolve("missing")).directoryCount());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.MusicProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class LibraryWatcherTest {
+
+    @TempDir
+    Path musicDir;
+
+    private MusicSyncService musicSyncService;
+    private LibraryWatcher libraryWatcher;
+
+    @BeforeEach
+    void setUp() {
+        musicSyncService = mock(MusicSyncService.class);
+        MusicProperties musicProperties = new MusicProperties();
+        musicProperties.setLocalPath(musicDir.toString());
+        musicProperties.getWatch().setDebounceMillis(200);
+        libraryWatcher = new LibraryWatcher(musicSyncService, musicProperties);
+        libraryWatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        libraryWatcher.destroy();
+    }
+
+    @Test
+    void testCreateAndRenameAreBatched() throws IOException {
+        Path song = musicDir.resolve("Daoxiang.mp3");
+        Files.createFile(song);
+        Files.createFile(musicDir.resolve("cover.jpg"));
+
+        verify(musicSyncService, timeout(5000)).applyChanges(
+                eq(Map.of("Daoxiang", song.toAbsolutePath().toString())), eq(Map.of()));
+
+        Path renamed = musicDir.resolve("Qingtian.wav");
+        Files.move(song, renamed);
+
+        verify(musicSyncService, timeout(5000)).applyChanges(
+                eq(Map.of("Qingtian", renamed.toAbsolutePath().toString())),
+                eq(Map.of("Daoxiang", song.toAbsolutePath().toString())));
+    }
+
+    @Test
+    void testNewSubdirectoryIsWatched() throws IOException {
+        Path album = Files.createDirectory(musicDir.resolve("album"));
+        Path song = Files.createFile(album.resolve("Yequ.mp3"));
+
+        verify(musicSyncService, timeout(5000).atLeastOnce()).applyChanges(
+                eq(Map.of("Yequ", song.toAbsolutePath().toString())), eq(Map.of()));
+    }
+}
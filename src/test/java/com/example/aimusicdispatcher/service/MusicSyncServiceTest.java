@@ -0,0 +1,23 @@
+package com.example.aimusicdispatcher.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicSyncServiceTest {
+
+    @Test
+    void testDiffComputesAddedAndRemoved() {
+        Map<String, String> local = Map.of("Daoxiang", "/m/Daoxiang.mp3", "Qingtian", "/m/Qingtian.mp3");
+        Map<String, Long> existing = Map.of("Daoxiang", 1L, "Yequ", 2L);
+
+        MusicSyncService.SyncPlan plan = MusicSyncService.diff(local, existing);
+
+        assertEquals(1, plan.toInsert().size());
+        assertArrayEquals(new String[]{"Qingtian", "/m/Qingtian.mp3"}, plan.toInsert().get(0));
+        assertEquals(List.of(2L), plan.toDelete());
+    }
+}
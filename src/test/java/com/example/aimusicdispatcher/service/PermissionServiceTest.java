@@ -132,4 +132,17 @@ class PermissionServiceTest {
         permissionService.grant(userId, 5);
         assertFalse(permissionService.hasRequested(userId, "Song A"), "New session should have empty history");
     }
+
+    @Test
+    void testGiftValueAccumulates() {
+        assertEquals(0, permissionService.getGiftValue("user123"));
+        permissionService.recordGift("user123", 10);
+        permissionService.recordGift("user123", 52);
+        permissionService.recordGift("user123", 0);
+        assertEquals(62, permissionService.getGiftValue("user123"));
+        assertEquals(0, permissionService.getGiftValue(null));
+
+        permissionService.revoke("user123");
+        assertEquals(0, permissionService.getGiftValue("user123"));
+    }
 }
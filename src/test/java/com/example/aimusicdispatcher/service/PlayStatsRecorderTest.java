@@ -0,0 +1,72 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.config.PlaybackProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PlayStatsRecorderTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PlayStatsRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        recorder = new PlayStatsRecorder(jdbcTemplate, new PlaybackProperties());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPlaysAreAccumulatedIntoOneBatch() {
+        recorder.record(1L);
+        recorder.record(2L);
+        recorder.record(1L);
+        recorder.record(null);
+        verifyNoInteractions(jdbcTemplate);
+
+        recorder.flush();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), captor.capture());
+        List<Object[]> rows = captor.getValue();
+        rows.sort(Comparator.comparing(row -> (Long) row[2]));
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.get(0)[0]);
+        assertEquals(1L, rows.get(0)[2]);
+        assertEquals(1, rows.get(1)[0]);
+        assertEquals(2L, rows.get(1)[2]);
+
+        // 已写回的记录不会重复写回
+        recorder.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlushIsRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(new int[]{1});
+        recorder.record(7L);
+        recorder.flush();
+        recorder.record(7L);
+        recorder.flush();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), captor.capture());
+        assertEquals(2, captor.getAllValues().get(1).get(0)[0]);
+        assertEquals(1L, recorder.getStats().get("flushFailures"));
+        assertEquals(0, recorder.getStats().get("pendingSongs"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aimusicdispatcher.service;
+
+import com.example.aimusicdispatcher.entity.MusicLibrary;
+import com.example.aimusicdispatcher.util.TitleNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleMatchIndexTest {
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.build(List.of(
+            song(1L, "奢香夫人"),
+            song(2L, "稻香"),
+            song(3L, "Love Story"),
+            song(4L, "夜曲"),
+            song(5L, "七里香")));
+
+    @Test
+    void testTypoAndExtraCharactersStillMatch() {
+        assertMatch("奢香夫人", "奢香夫仁");
+        assertMatch("奢香夫人", "奢香夫人完整");
+        assertMatch("Love Story", "love storry");
+        assertMatch("七里香", "七里香啊");
+    }
+
+    @Test
+    void testLowConfidenceIsRejected() {
+        assertNull(match("完全不相关的歌"));
+        // 只共享一个字的短歌名置信度不足
+        assertNull(match("香水"));
+    }
+
+    @Test
+    void testSingleCharacterTitles() {
+        CatalogSnapshot single = CatalogSnapshot.build(List.of(song(1L, "雪"), song(2L, "雪人")));
+        TitleMatchIndex.Match match = single.fuzzyMatch("雪", 0.6, 64);
+        assertNotNull(match);
+        assertEquals(0, match.index());
+        assertEquals(1.0, match.confidence());
+    }
+
+    private void assertMatch(String expected, String query) {
+        TitleMatchIndex.Match match = match(query);
+        assertNotNull(match, "No match for " + query);
+        assertEquals(expected, snapshot.songNameAt(match.index()));
+        assertTrue(match.confidence() >= 0.6);
+    }
+
+    private TitleMatchIndex.Match match(String query) {
+        return snapshot.fuzzyMatch(TitleNormalizer.normalize(query), 0.6, 64);
+    }
+
+    private static MusicLibrary song(Long id, String name) {
+        MusicLibrary music = new MusicLibrary();
+        music.setId(id);
+        music.setSongName(name);
+        music.setFilePath("/music/" + name + ".mp3");
+        return music;
+    }
+}
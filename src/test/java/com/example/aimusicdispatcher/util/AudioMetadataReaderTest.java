@@ -0,0 +1,97 @@
+package com.example.aimusicdispatcher.util;
+
+import com.example.aimusicdispatcher.util.AudioMetadataReader.AudioMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioMetadataReaderTest {
+
+    // MPEG1 Layer III, 128 kbps, 44100 Hz, 立体声
+    private static final int MP3_HEADER_128K_STEREO = 0xFFFB9000;
+    // MPEG1 Layer III, 128 kbps, 44100 Hz, 单声道
+    private static final int MP3_HEADER_128K_MONO = 0xFFFB90C0;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWavDurationFromFmtAndDataChunks() throws IOException {
+        // 44100 Hz, 16 bit, 立体声，2 秒
+        int byteRate = 44100 * 2 * 2;
+        int dataSize = byteRate * 2;
+        ByteBuffer header = ByteBuffer.allocate(12 + 8 + 4 + 8 + 16 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(4 + 8 + 4 + 8 + 16 + 8 + dataSize).put("WAVE".getBytes());
+        // 一个需要跳过的 LIST 块
+        header.put("LIST".getBytes()).putInt(4).put("INFO".getBytes());
+        header.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(44100).putInt(byteRate)
+                .putShort((short) 4).putShort((short) 16);
+        header.put("data".getBytes()).putInt(dataSize);
+        Path file = write("song.wav", header.array(), dataSize);
+
+        AudioMetadata metadata = AudioMetadataReader.read(file).orElseThrow();
+        assertEquals(2000, metadata.durationMillis());
+        assertEquals(44100, metadata.sampleRate());
+        assertEquals(2, metadata.channels());
+        assertEquals(1411, metadata.bitrateKbps());
+    }
+
+    @Test
+    void testCbrMp3SkipsId3TagAndUsesBitrate() throws IOException {
+        // ID3v2 标签，同步安全大小 = 200
+        byte[] id3 = new byte[10 + 200];
+        id3[0] = 'I';
+        id3[1] = 'D';
+        id3[2] = '3';
+        id3[3] = 4;
+        id3[8] = 1;
+        id3[9] = 72;
+        int audioBytes = 16000 * 3; // 128 kbps 下 3 秒
+        byte[] header = ByteBuffer.allocate(id3.length + 4).put(id3).putInt(MP3_HEADER_128K_STEREO).array();
+        Path file = write("cbr.mp3", header, audioBytes - 4);
+
+        AudioMetadata metadata = AudioMetadataReader.read(file).orElseThrow();
+        assertEquals(3000, metadata.durationMillis());
+        assertEquals(128, metadata.bitrateKbps());
+        assertEquals(44100, metadata.sampleRate());
+        assertEquals(2, metadata.channels());
+    }
+
+    @Test
+    void testVbrMp3UsesXingFrameCount() throws IOException {
+        // 单声道 MPEG1 的 Xing 帧位于帧头后 17 字节边信息之后
+        ByteBuffer frame = ByteBuffer.allocate(4 + 17 + 12);
+        frame.putInt(MP3_HEADER_128K_MONO);
+        frame.position(4 + 17);
+        frame.put("Xing".getBytes()).putInt(0x1).putInt(1000);
+        Path file = write("vbr.mp3", frame.array(), 100_000);
+
+        AudioMetadata metadata = AudioMetadataReader.read(file).orElseThrow();
+        // 1000 帧 * 1152 采样 / 44100 Hz
+        assertEquals(1000L * 1152 * 1000 / 44100, metadata.durationMillis());
+        assertEquals(1, metadata.channels());
+    }
+
+    @Test
+    void testUnsupportedOrCorruptFilesReturnEmpty() throws IOException {
+        assertEquals(Optional.empty(), AudioMetadataReader.read(write("cover.jpg", new byte[]{1, 2, 3}, 0)));
+        assertEquals(Optional.empty(), AudioMetadataReader.read(write("broken.wav", "RIFFxxxxWAVE".getBytes(), 0)));
+        assertEquals(Optional.empty(), AudioMetadataReader.read(write("noise.mp3", new byte[]{0, 1, 2, 3}, 1000)));
+        assertEquals(Optional.empty(), AudioMetadataReader.read(tempDir.resolve("missing.mp3")));
+    }
+
+    private Path write(String name, byte[] header, int padding) throws IOException {
+        byte[] content = new byte[header.length + padding];
+        System.arraycopy(header, 0, content, 0, header.length);
+        return Files.write(tempDir.resolve(name), content);
+    }
+}
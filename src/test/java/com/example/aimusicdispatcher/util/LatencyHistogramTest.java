@@ -0,0 +1,45 @@
+package com.example.aimusicdispatcher.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesUseBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(0);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(15);
+        }
+        histogram.record(40000);
+
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(0, histogram.percentile(0.9));
+        assertEquals(20, histogram.percentile(0.99));
+        assertEquals(40000, histogram.percentile(1.0));
+
+        Map<String, Object> snapshot = histogram.snapshot();
+        assertEquals(100L, snapshot.get("count"));
+        assertEquals(40000L, snapshot.get("maxMillis"));
+        @SuppressWarnings("unchecked")
+        Map<String, Long> buckets = (Map<String, Long>) snapshot.get("buckets");
+        assertEquals(90L, buckets.get("<=0"));
+        assertEquals(9L, buckets.get("<=20"));
+        assertEquals(1L, buckets.get(">30000"));
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(1L, histogram.snapshot().get("count"));
+        assertEquals(0, new LatencyHistogram().percentile(0.5));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.aimusicdispatcher.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpmcRingBufferTest {
+
+    @Test
+    void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new MpmcRingBuffer<Integer>(5).capacity());
+        assertEquals(8192, new MpmcRingBuffer<Integer>(8192).capacity());
+    }
+
+    @Test
+    void testOfferFailsWhenFullAndPollIsFifo() {
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(99), "Offer should fail when the buffer is full");
+        assertEquals(4, ring.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void testPollIfOnlyRemovesMatchingHead() {
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(4);
+        ring.offer(1);
+        ring.offer(2);
+
+        assertNull(ring.pollIf(v -> v % 2 == 0), "Head is odd, nothing should be removed");
+        assertEquals(2, ring.size());
+        assertEquals(1, ring.pollIf(v -> v % 2 == 1));
+        assertEquals(2, ring.poll());
+    }
+
+    @Test
+    void testConcurrentProducersAndConsumersLoseNothing() throws InterruptedException {
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 5000;
+        int total = producers * perProducer;
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger consumed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (consumed.get() < total) {
+                    Integer value = ring.poll();
+                    if (value == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    assertTrue(seen.add(value), "Value delivered twice: " + value);
+                    if (consumed.incrementAndGet() == total) {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        done.await();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(total, seen.size());
+        assertTrue(ring.isEmpty());
+    }
+}